@@ -0,0 +1,142 @@
+package geometries;
+
+import harness.Benchmark;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+/**
+ * Microbenchmarks of the intersection routines of all the geometries.
+ * Every geometry is measured with a ray that hits it, a ray that misses it and a grazing ray
+ * (tangent to a curved surface, along an edge or inside a plane), and the bounded geometries
+ * are measured also with the bounding box slab test {@link Intersectable#hasIntersection}.
+ * <p>
+ * Run with the compiled sources on the class path, e.g.
+ * {@code java -cp out geometries.IntersectionBenchmarks}, and see {@link Benchmark} for the settings.
+ */
+public final class IntersectionBenchmarks {
+    /**
+     * Direction of the rays that go along the Z axis
+     */
+    private static final Vector FORWARD = new Vector(0, 0, 1);
+
+    /**
+     * Private constructor to prevent instantiation of the utility class
+     */
+    private IntersectionBenchmarks() {
+    }
+
+    /**
+     * Creates a regular polygon in the XY plane around the origin with radius 1
+     *
+     * @param vertices the number of vertices
+     * @return the polygon
+     */
+    private static Polygon regularPolygon(int vertices) {
+        Point[] points = new Point[vertices];
+        for (int i = 0; i < vertices; ++i) {
+            double angle = 2 * Math.PI * i / vertices;
+            points[i] = new Point(Math.cos(angle), Math.sin(angle), 0);
+        }
+        return new Polygon(points);
+    }
+
+    /**
+     * Creates a BVH of spheres of radius 1 on a square grid in the XY plane, 3 units apart
+     *
+     * @param side the number of spheres on a side of the grid
+     * @return the geometries
+     */
+    private static Geometries sphereGrid(int side) {
+        Geometries geometries = new Geometries();
+        for (int i = 0; i < side; ++i)
+            for (int j = 0; j < side; ++j)
+                geometries.add(new Sphere(new Point(i * 3, j * 3, 0), 1));
+        geometries.makeBVH();
+        return geometries;
+    }
+
+    /**
+     * Benchmarks the intersections of a geometry with the hit, miss and grazing rays
+     *
+     * @param benchmark the harness
+     * @param name      the name of the geometry
+     * @param geometry  the geometry
+     * @param hit       a ray that hits the geometry
+     * @param miss      a ray that misses the geometry
+     * @param grazing   a grazing ray
+     */
+    private static void intersections(Benchmark benchmark, String name, Intersectable geometry,
+                                      Ray hit, Ray miss, Ray grazing) {
+        benchmark.run(name + ".hit", () -> geometry.findGeoIntersections(hit));
+        benchmark.run(name + ".miss", () -> geometry.findGeoIntersections(miss));
+        benchmark.run(name + ".grazing", () -> geometry.findGeoIntersections(grazing));
+    }
+
+    /**
+     * Benchmarks the bounding box test of a geometry with the hit and miss rays
+     *
+     * @param benchmark the harness
+     * @param name      the name of the geometry
+     * @param geometry  the geometry
+     * @param hit       a ray that hits the bounding box
+     * @param miss      a ray that misses the bounding box
+     */
+    private static void slabs(Benchmark benchmark, String name, Intersectable geometry, Ray hit, Ray miss) {
+        benchmark.run(name + ".slab.hit", () -> geometry.hasIntersection(hit));
+        benchmark.run(name + ".slab.miss", () -> geometry.hasIntersection(miss));
+    }
+
+    /**
+     * Runs the benchmarks
+     *
+     * @param args irrelevant here
+     */
+    public static void main(String[] args) {
+        Benchmark benchmark = new Benchmark();
+
+        Sphere sphere = new Sphere(Point.ZERO, 1);
+        Ray sphereHit = new Ray(new Point(0, 0, -5), FORWARD);
+        Ray sphereMiss = new Ray(new Point(0, 3, -5), FORWARD);
+        intersections(benchmark, "Sphere", sphere, sphereHit, sphereMiss, new Ray(new Point(0, 1, -5), FORWARD));
+        slabs(benchmark, "Sphere", sphere, sphereHit, sphereMiss);
+
+        Plane plane = new Plane(Point.ZERO, FORWARD);
+        intersections(benchmark, "Plane", plane, new Ray(new Point(1, 1, -5), FORWARD),
+                new Ray(new Point(1, 1, -5), new Vector(0, 0, -1)), new Ray(new Point(1, 1, 0), new Vector(1, 0, 0)));
+
+        Triangle triangle = new Triangle(Point.ZERO, new Point(1, 0, 0), new Point(0, 1, 0));
+        Ray triangleHit = new Ray(new Point(0.25, 0.25, -1), FORWARD);
+        Ray triangleMiss = new Ray(new Point(2, 2, -1), FORWARD);
+        intersections(benchmark, "Triangle", triangle, triangleHit, triangleMiss,
+                new Ray(new Point(0.5, 0, -1), FORWARD));
+        slabs(benchmark, "Triangle", triangle, triangleHit, triangleMiss);
+
+        for (int vertices = 4; vertices <= 8; ++vertices) {
+            Polygon polygon = regularPolygon(vertices);
+            String name = "Polygon" + vertices;
+            Ray polygonHit = new Ray(new Point(0.1, 0.2, -1), FORWARD);
+            Ray polygonMiss = new Ray(new Point(2, 2, -1), FORWARD);
+            // Through the first vertex, which is on the edges of the polygon
+            intersections(benchmark, name, polygon, polygonHit, polygonMiss, new Ray(new Point(1, 0, -1), FORWARD));
+            slabs(benchmark, name, polygon, polygonHit, polygonMiss);
+        }
+
+        Ray axis = new Ray(Point.ZERO, new Vector(0, 1, 0));
+        Vector backward = new Vector(0, 0, -1);
+        Tube tube = new Tube(axis, 1);
+        intersections(benchmark, "Tube", tube, new Ray(new Point(0, 0.5, 5), backward),
+                new Ray(new Point(3, 0.5, 5), backward), new Ray(new Point(1, 0.5, 5), backward));
+
+        Cylinder cylinder = new Cylinder(2, axis, 1);
+        intersections(benchmark, "Cylinder", cylinder, new Ray(new Point(0, 0.5, 5), backward),
+                new Ray(new Point(3, 0.5, 5), backward), new Ray(new Point(1, 0.5, 5), backward));
+
+        Geometries grid = sphereGrid(16);
+        Ray gridHit = new Ray(new Point(21, 21, -5), FORWARD);
+        Ray gridMiss = new Ray(new Point(-5, -5, -5), FORWARD);
+        // Between the spheres, inside the bounding boxes of the upper tree levels
+        intersections(benchmark, "Geometries256", grid, gridHit, gridMiss, new Ray(new Point(22.5, 22.5, -5), FORWARD));
+        slabs(benchmark, "Geometries256", grid, gridHit, gridMiss);
+    }
+}
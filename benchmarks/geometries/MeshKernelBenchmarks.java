@@ -0,0 +1,174 @@
+package geometries;
+
+import harness.Benchmark;
+import primitives.Point;
+import primitives.Ray;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Benchmarks of the scalar and the vector kernels of the meshes ({@link MeshKernels}): the slab test
+ * of a ray with the 8 child boxes of a tree node, the intersection of a ray with a block of 8 triangles,
+ * and the traversal of a whole mesh of a quarter of a million triangles.
+ * <p>
+ * Run with the compiled sources, including the {@code simd} source root, on the class path, and with the vector
+ * module enabled, e.g.
+ * {@code java --add-modules jdk.incubator.vector -cp out geometries.MeshKernelBenchmarks}.
+ * Without the module only the scalar kernels are measured. On an AVX-512 host the instruction set of the
+ * just-in-time compiler can be limited to compare the hosts, e.g. {@code -XX:UseAVX=2} for AVX2
+ * and {@code -XX:UseAVX=3} for AVX-512. See {@link Benchmark} for the settings.
+ */
+public final class MeshKernelBenchmarks {
+    /**
+     * Number of the different rays of every benchmark, used in turn
+     */
+    private static final int RAYS = 1024;
+    /**
+     * Number of cells on a side of the terrain mesh, two triangles per cell
+     */
+    private static final int TERRAIN = Integer.getInteger("bench.terrain", 350);
+
+    /**
+     * Private constructor to prevent instantiation of the utility class
+     */
+    private MeshKernelBenchmarks() {
+    }
+
+    /**
+     * Reads the SIMD instruction sets of the processor
+     *
+     * @return the SIMD flags of the processor, or "unknown" if they cannot be read
+     */
+    private static String cpuFlags() {
+        try {
+            Set<String> flags = new TreeSet<>();
+            for (String line : Files.readAllLines(Path.of("/proc/cpuinfo")))
+                if (line.startsWith("flags")) {
+                    for (String flag : line.substring(line.indexOf(':') + 1).trim().split(" "))
+                        if (flag.equals("sse4_2") || flag.startsWith("avx") || flag.equals("neon")
+                                || flag.equals("asimd"))
+                            flags.add(flag);
+                    break;
+                }
+            return flags.isEmpty() ? "unknown" : String.join(" ", flags);
+        } catch (IOException e) {
+            return "unknown";
+        }
+    }
+
+    /**
+     * Creates random rays in the coordinates of a mesh, from around a cube of size 20 at the origin
+     *
+     * @param random the random numbers
+     * @return the rays
+     */
+    private static MeshKernels.MeshRay[] meshRays(Random random) {
+        MeshKernels.MeshRay[] rays = new MeshKernels.MeshRay[RAYS];
+        for (int i = 0; i < RAYS; ++i) {
+            float ox = random.nextFloat() * 40 - 20, oy = random.nextFloat() * 40 - 20;
+            float oz = random.nextFloat() * 40 - 20;
+            // Towards a point in the cube, so most of the rays pass through the boxes
+            float dx = random.nextFloat() * 20 - 10 - ox, dy = random.nextFloat() * 20 - 10 - oy;
+            float dz = random.nextFloat() * 20 - 10 - oz;
+            float length = (float) Math.sqrt(dx * dx + dy * dy + dz * dz);
+            rays[i] = new MeshKernels.MeshRay(ox, oy, oz, dx / length, dy / length, dz / length, 10, 100);
+        }
+        return rays;
+    }
+
+    /**
+     * Creates a terrain of triangles on a square grid in the XZ plane, with a wavy height
+     *
+     * @param side the number of cells on a side of the grid
+     * @return the triangles
+     */
+    private static List<Triangle> terrain(int side) {
+        List<Triangle> triangles = new ArrayList<>();
+        Point[][] points = new Point[side + 1][side + 1];
+        for (int i = 0; i <= side; ++i)
+            for (int j = 0; j <= side; ++j)
+                points[i][j] = new Point(i, 3 * Math.sin(i * 0.1) * Math.cos(j * 0.13), j);
+        for (int i = 0; i < side; ++i)
+            for (int j = 0; j < side; ++j) {
+                triangles.add(new Triangle(points[i][j], points[i + 1][j], points[i + 1][j + 1]));
+                triangles.add(new Triangle(points[i][j], points[i + 1][j + 1], points[i][j + 1]));
+            }
+        return triangles;
+    }
+
+    /**
+     * Benchmarks the kernels on a block of boxes, a block of triangles and a mesh
+     *
+     * @param benchmark the harness
+     * @param kernels   the kernels
+     * @param triangles the triangles of the mesh
+     * @param rays      the rays of the mesh
+     */
+    private static void kernels(Benchmark benchmark, MeshKernels kernels, List<Triangle> triangles, Ray[] rays) {
+        Random random = new Random(1);
+        float[] boxes = new float[MeshKernels.BOX_COMPONENTS * MeshKernels.WIDTH];
+        float[] block = new float[MeshKernels.TRIANGLE_COMPONENTS * MeshKernels.WIDTH];
+        for (int lane = 0; lane < MeshKernels.WIDTH; ++lane)
+            for (int c = 0; c < 3; ++c) {
+                float a = random.nextFloat() * 20 - 10;
+                float b = random.nextFloat() * 20 - 10;
+                boxes[c * MeshKernels.WIDTH + lane] = Math.min(a, b);
+                boxes[(c + 3) * MeshKernels.WIDTH + lane] = Math.max(a, b);
+                block[c * MeshKernels.WIDTH + lane] = random.nextFloat() * 20 - 10;
+                block[(c + 3) * MeshKernels.WIDTH + lane] = random.nextFloat() * 10 - 5;
+                block[(c + 6) * MeshKernels.WIDTH + lane] = random.nextFloat() * 10 - 5;
+            }
+        MeshKernels.MeshRay[] meshRays = meshRays(random);
+        float[] distances = new float[MeshKernels.WIDTH];
+        int[] next = {0};
+
+        String name = kernels.name();
+        benchmark.run(name + ".boxes8", () -> kernels.hitBoxes(boxes, 0, MeshKernels.WIDTH,
+                meshRays[next[0]++ & RAYS - 1]));
+        benchmark.run(name + ".boxes4", () -> kernels.hitBoxes(boxes, 0, 4, meshRays[next[0]++ & RAYS - 1]));
+        benchmark.run(name + ".triangles8", () -> kernels.intersectTriangles(block, 0, MeshKernels.WIDTH,
+                meshRays[next[0]++ & RAYS - 1], distances));
+        benchmark.run(name + ".triangles4", () -> kernels.intersectTriangles(block, 0, 4,
+                meshRays[next[0]++ & RAYS - 1], distances));
+        if (Benchmark.selected(name + ".mesh")) {
+            FloatMesh mesh = new FloatMesh(triangles, kernels);
+            benchmark.run(name + ".mesh", () -> mesh.findGeoIntersections(rays[next[0]++ & RAYS - 1]));
+        }
+    }
+
+    /**
+     * Runs the benchmarks
+     *
+     * @param args irrelevant here
+     */
+    public static void main(String[] args) {
+        MeshKernels vector = MeshKernels.vector();
+        System.out.printf("CPU: %s, JVM: %s, default kernels: %s%n", cpuFlags(), System.getProperty("java.vm.version"),
+                FloatMesh.getKernels());
+
+        List<Triangle> triangles = terrain(TERRAIN);
+        Random random = new Random(2);
+        Ray[] rays = new Ray[RAYS];
+        for (int i = 0; i < RAYS; ++i) {
+            // From above the terrain, down at an angle
+            Point target = new Point(random.nextDouble() * TERRAIN, 0, random.nextDouble() * TERRAIN);
+            Point head = new Point(random.nextDouble() * TERRAIN, 20 + random.nextDouble() * 20,
+                    random.nextDouble() * TERRAIN);
+            rays[i] = new Ray(head, target.subtract(head).normalize());
+        }
+
+        Benchmark benchmark = new Benchmark();
+        kernels(benchmark, MeshKernels.scalar(), triangles, rays);
+        if (vector != null)
+            kernels(benchmark, vector, triangles, rays);
+        else
+            System.out.println("Vector kernels not available, run with --add-modules jdk.incubator.vector");
+    }
+}
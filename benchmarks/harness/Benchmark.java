@@ -0,0 +1,204 @@
+package harness;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Supplier;
+
+/**
+ * Minimal microbenchmark harness in the manner of JMH: every benchmark is warmed up, then measured
+ * in several timed iterations, and reported as the average time per operation in nanoseconds
+ * with its error, and the bytes allocated per operation by the benchmark thread
+ * (the normalized allocation rate of the JMH GC profiler).
+ * <p>
+ * The result of every operation is consumed by comparing it with an object the just-in-time compiler
+ * cannot predict, so the measured code cannot be eliminated as dead code.
+ * An operation that throws is reported as failed and is not measured.
+ * <p>
+ * The settings are read from system properties:
+ * <ul>
+ * <li>{@code bench.warmup} - number of warmup iterations (default 5)</li>
+ * <li>{@code bench.iterations} - number of measurement iterations (default 5)</li>
+ * <li>{@code bench.time} - duration of every iteration in milliseconds (default 200)</li>
+ * <li>{@code bench.filter} - only the benchmarks whose names contain it are run (default all)</li>
+ * </ul>
+ * <p>
+ * The script {@code run-benchmarks.sh} in the root of the project compiles the sources, the Vector API kernels,
+ * the tests and the benchmarks with the JUnit jars of {@code lib} and {@code --add-modules jdk.incubator.vector},
+ * and runs the benchmarks, with the settings passed in {@code JAVA_OPTS}.
+ */
+public final class Benchmark {
+    /**
+     * Number of warmup iterations
+     */
+    private static final int WARMUP = Integer.getInteger("bench.warmup", 5);
+    /**
+     * Number of measurement iterations
+     */
+    private static final int ITERATIONS = Integer.getInteger("bench.iterations", 5);
+    /**
+     * Duration of an iteration in nanoseconds
+     */
+    private static final long ITERATION_NANOS = Long.getLong("bench.time", 200) * 1_000_000;
+    /**
+     * Substring of the names of the benchmarks to run
+     */
+    private static final String FILTER = System.getProperty("bench.filter", "");
+    /**
+     * Object that no result equals, read from a volatile field so the compiler cannot know it
+     */
+    private static volatile Object unpredictable = new Object();
+    /**
+     * Allocation counter of the threads
+     */
+    private static final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    /**
+     * Result of a benchmark
+     *
+     * @param name       the name of the benchmark
+     * @param nsPerOp    average time of an operation in nanoseconds, NaN if the benchmark failed
+     * @param error      standard deviation of the average time between the iterations in nanoseconds
+     * @param bytesPerOp average bytes allocated by an operation
+     * @param failure    the exception thrown by the operation, null if it succeeded
+     */
+    public record Result(String name, double nsPerOp, double error, double bytesPerOp, Throwable failure) {
+        @Override
+        public String toString() {
+            if (failure != null)
+                return String.format(Locale.ROOT, "%-48s FAILED: %s", name, failure);
+            return String.format(Locale.ROOT, "%-48s %12.3f +- %9.3f ns/op %10.1f B/op",
+                    name, nsPerOp, error, bytesPerOp);
+        }
+    }
+
+    /**
+     * The results of the benchmarks run so far
+     */
+    private final List<Result> results = new ArrayList<>();
+
+    /**
+     * Checks whether a benchmark is selected by the filter
+     *
+     * @param name the name of the benchmark
+     * @return true if the benchmark should run
+     */
+    public static boolean selected(String name) {
+        return name.contains(FILTER);
+    }
+
+    /**
+     * Runs a benchmark if it is selected by the filter, prints its result and keeps it
+     *
+     * @param name      the name of the benchmark
+     * @param operation the measured operation, its result is consumed
+     * @return the result, or null if the benchmark is not selected
+     */
+    public Result run(String name, Supplier<?> operation) {
+        if (!selected(name))
+            return null;
+        Result result = measure(name, operation);
+        System.out.println(result);
+        results.add(result);
+        return result;
+    }
+
+    /**
+     * Gets the results of the benchmarks run so far
+     *
+     * @return the results in the order of the runs
+     */
+    public List<Result> getResults() {
+        return List.copyOf(results);
+    }
+
+    /**
+     * Measures a benchmark
+     *
+     * @param name      the name of the benchmark
+     * @param operation the measured operation
+     * @return the result
+     */
+    public static Result measure(String name, Supplier<?> operation) {
+        try {
+            operation.get();
+        } catch (RuntimeException | StackOverflowError e) {
+            return new Result(name, Double.NaN, Double.NaN, Double.NaN, e);
+        }
+        int batch = calibrate(operation);
+        for (int i = 0; i < WARMUP; ++i)
+            iteration(operation, batch);
+
+        double[] times = new double[ITERATIONS];
+        long operations = 0;
+        long allocated = 0;
+        for (int i = 0; i < ITERATIONS; ++i) {
+            long bytes = threads.getCurrentThreadAllocatedBytes();
+            long start = System.nanoTime();
+            long count = iteration(operation, batch);
+            times[i] = (double) (System.nanoTime() - start) / count;
+            allocated += threads.getCurrentThreadAllocatedBytes() - bytes;
+            operations += count;
+        }
+
+        double mean = 0;
+        for (double time : times)
+            mean += time;
+        mean /= ITERATIONS;
+        double variance = 0;
+        for (double time : times)
+            variance += (time - mean) * (time - mean);
+        double error = ITERATIONS > 1 ? Math.sqrt(variance / (ITERATIONS - 1)) : 0;
+        return new Result(name, mean, error, (double) allocated / operations, null);
+    }
+
+    /**
+     * Finds the number of operations that take about a millisecond, so the clock is read rarely
+     *
+     * @param operation the measured operation
+     * @return the number of operations in a batch
+     */
+    private static int calibrate(Supplier<?> operation) {
+        int batch = 1;
+        while (batch < 1 << 24) {
+            long start = System.nanoTime();
+            runBatch(operation, batch);
+            if (System.nanoTime() - start >= 1_000_000)
+                break;
+            batch *= 2;
+        }
+        return batch;
+    }
+
+    /**
+     * Runs batches of operations for the duration of an iteration
+     *
+     * @param operation the measured operation
+     * @param batch     the number of operations in a batch
+     * @return the number of operations run
+     */
+    private static long iteration(Supplier<?> operation, int batch) {
+        long end = System.nanoTime() + ITERATION_NANOS;
+        long count = 0;
+        do {
+            runBatch(operation, batch);
+            count += batch;
+        } while (System.nanoTime() < end);
+        return count;
+    }
+
+    /**
+     * Runs a batch of operations and consumes their results
+     *
+     * @param operation the measured operation
+     * @param batch     the number of operations
+     */
+    private static void runBatch(Supplier<?> operation, int batch) {
+        Object sink = unpredictable;
+        for (int i = 0; i < batch; ++i)
+            if (operation.get() == sink)
+                throw new IllegalStateException("Unexpected benchmark result");
+    }
+}
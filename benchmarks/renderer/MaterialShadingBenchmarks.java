@@ -0,0 +1,113 @@
+package renderer;
+
+import static java.awt.Color.*;
+
+import geometries.*;
+import lighting.AmbientLight;
+import lighting.PointLight;
+import primitives.*;
+import scene.Scene;
+
+import java.util.Locale;
+
+/**
+ * Comparison of the generic and the material-specialized shading paths of {@link SimpleRayTracer}
+ * ({@link SimpleRayTracer#setMaterialSpecialization(boolean)}).
+ * The same scene is rendered once per material kind with the generic and with the specialized shading,
+ * and the best time of several renders and the speedup are printed.
+ * <p>
+ * The settings are read from system properties:
+ * <ul>
+ * <li>{@code bench.resolution} - width and height of the rendered images in pixels (default 300)</li>
+ * <li>{@code bench.frames} - number of timed renders per measurement, the best one is reported (default 3)</li>
+ * </ul>
+ */
+public final class MaterialShadingBenchmarks {
+    /**
+     * Width and height of the rendered images
+     */
+    private static final int RESOLUTION = Integer.getInteger("bench.resolution", 300);
+    /**
+     * Number of timed renders per measurement
+     */
+    private static final int FRAMES = Integer.getInteger("bench.frames", 3);
+
+    /**
+     * Private constructor to prevent instantiation of the utility class
+     */
+    private MaterialShadingBenchmarks() {
+    }
+
+    /**
+     * Builds a scene of a grid of spheres of the given material in front of a diffuse plane.
+     *
+     * @param material the material of the spheres
+     * @return the scene
+     */
+    static Scene buildScene(Material material) {
+        Scene scene = new Scene("Material shading");
+        scene.geometries.add(new Plane(new Point(0, 0, -300), new Vector(0, 0, 1))
+                .setEmission(new Color(20, 20, 20))
+                .setMaterial(new Material().setKd(0.5)));
+        for (int i = -2; i <= 2; ++i)
+            for (int j = -2; j <= 2; ++j)
+                scene.geometries.add(new Sphere(new Point(i * 60, j * 60, -100), 25)
+                        .setEmission(new Color(BLUE))
+                        .setMaterial(material));
+        scene.setAmbientLight(new AmbientLight(new Color(WHITE), 0.1));
+        scene.lights.add(new PointLight(new Color(500, 400, 400), new Point(100, 100, 200))
+                .setKl(1E-5).setKq(1E-7));
+        return scene;
+    }
+
+    /**
+     * Renders the scene and measures the best time of several renders.
+     *
+     * @param scene       the scene to render
+     * @param specialized whether the shading is specialized by the zero coefficients of the material
+     * @return the best render time in milliseconds
+     */
+    private static double render(Scene scene, boolean specialized) {
+        Camera camera = Camera.getBuilder()
+                .setRayTracer(new SimpleRayTracer(scene).setMaterialSpecialization(specialized))
+                .setLocation(new Point(0, 0, 1000)).setVpDistance(1000)
+                .setDirection(Point.ZERO, Vector.Y)
+                .setVpSize(350, 350)
+                .setImageWriter(new ImageWriter("materialShading", RESOLUTION, RESOLUTION))
+                .setDebugPrint(0)
+                .build();
+        double best = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < FRAMES; ++i) {
+            long start = System.nanoTime();
+            camera.renderImage();
+            best = Math.min(best, (System.nanoTime() - start) / 1e6);
+        }
+        return best;
+    }
+
+    /**
+     * Runs the benchmark
+     *
+     * @param args irrelevant here
+     */
+    public static void main(String[] args) {
+        String[] names = {"diffuse-only", "diffuse+specular", "reflective", "transparent"};
+        Material[] materials = {
+                new Material().setKd(0.6),
+                new Material().setKd(0.5).setKs(0.5).setShininess(30),
+                new Material().setKd(0.3).setKs(0.3).setShininess(30).setKr(0.5),
+                new Material().setKd(0.3).setKs(0.3).setShininess(30).setKt(0.5)
+        };
+        // Warm up the JIT before measuring
+        render(buildScene(materials[0]), true);
+        render(buildScene(materials[0]), false);
+
+        for (int i = 0; i < materials.length; ++i) {
+            Scene scene = buildScene(materials[i]);
+            double generic = render(scene, false);
+            double specialized = render(scene, true);
+            System.out.printf(Locale.ROOT, "%-18s generic %8.1f ms  specialized %8.1f ms  speedup %.2fx%n",
+                    names[i], generic, specialized, generic / specialized);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package renderer;
+
+import scene.Scene;
+import scene.SceneGenerator;
+
+import java.util.Locale;
+
+/**
+ * Comparison of rendering with single rays and with packets of 4x4 and 8x8 rays
+ * ({@link Camera.Builder#setPacketSize(int)}) on a generated scene with point lights.
+ * Every configuration renders a warmup frame and then the measured frames on a single thread,
+ * and prints the time of a frame and, with {@code -Draytracer.metrics=true}, the BVH node visits
+ * per traced ray.
+ * <p>
+ * The settings are read from system properties:
+ * <ul>
+ * <li>{@code bench.primitives} - the number of primitives of the scene (default 10000)</li>
+ * <li>{@code bench.lights} - the number of point lights (default 4)</li>
+ * <li>{@code bench.resolution} - width and height of the rendered images in pixels (default 400)</li>
+ * <li>{@code bench.frames} - number of measured frames of every configuration (default 3)</li>
+ * </ul>
+ */
+public final class PacketBenchmarks {
+    /**
+     * Width and height of the rendered images
+     */
+    private static final int RESOLUTION = Integer.getInteger("bench.resolution", 400);
+    /**
+     * Number of measured frames of every configuration
+     */
+    private static final int FRAMES = Integer.getInteger("bench.frames", 3);
+
+    /**
+     * Private constructor to prevent instantiation of the utility class
+     */
+    private PacketBenchmarks() {
+    }
+
+    /**
+     * Runs the benchmark
+     *
+     * @param args irrelevant here
+     */
+    public static void main(String[] args) {
+        int primitives = Integer.getInteger("bench.primitives", 10000);
+        SceneGenerator generator = new SceneGenerator(1).setSpheres(primitives / 2).setTerrain(
+                (int) Math.sqrt(primitives / 4.0)).setLights(Integer.getInteger("bench.lights", 4));
+        Scene scene = generator.generate("Packets");
+        scene.geometries.makeBVH();
+        RayTracerBase rayTracer = new SimpleRayTracer(scene).setOccluderCache(false);
+
+        System.out.printf(Locale.ROOT, "%d primitives, %dx%d pixels%n", generator.primitives(), RESOLUTION,
+                RESOLUTION);
+        System.out.printf(Locale.ROOT, "%8s %12s %10s %16s%n", "packet", "ms/frame", "speedup", "visits/ray");
+        double single = 0;
+        for (int size : new int[]{0, 4, 8}) {
+            Camera camera = generator.camera().setRayTracer(rayTracer)
+                    .setImageWriter(new ImageWriter("packets", RESOLUTION, RESOLUTION))
+                    .setMultiThreading(0).setDebugPrint(0).setPacketSize(size).build();
+            camera.renderImage();
+            long nanos = 0;
+            RenderMetrics.Snapshot metrics = null;
+            for (int frame = 0; frame < FRAMES; ++frame) {
+                metrics = camera.renderImage().getMetrics();
+                nanos += metrics.elapsedNanos();
+            }
+            double ms = nanos / 1e6 / FRAMES;
+            if (size == 0)
+                single = ms;
+            String visits = RenderMetrics.ENABLED
+                    ? String.format(Locale.ROOT, "%.2f", (double) metrics.nodeVisits() / metrics.totalRays())
+                    : "-";
+            System.out.printf(Locale.ROOT, "%8s %12.1f %10.2f %16s%n", size == 0 ? "single" : size + "x" + size, ms,
+                    single / ms, visits);
+        }
+    }
+}
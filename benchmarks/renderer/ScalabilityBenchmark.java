@@ -0,0 +1,228 @@
+package renderer;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+
+/**
+ * Thread scalability benchmark of the render loop on a processor-bound scene (the two spheres on mirrors
+ * of the reflection and refraction tests). For every pixel scheduler and every thread count it measures
+ * the frame time and calculates the speedup over a single thread of the same scheduler and the efficiency
+ * (speedup per thread). An additional frame is rendered under a flight recording for the contention:
+ * the contended monitor enters ({@code jdk.JavaMonitorEnter}) with the time the threads were blocked,
+ * and the idle time of the rendering threads - the frame time less their processor time.
+ * <p>
+ * The results are printed as a table with a bar chart of the speedup, and written as CSV for plotting.
+ * <p>
+ * The settings are read from system properties:
+ * <ul>
+ * <li>{@code bench.resolution} - width and height of the rendered images in pixels (default 200)</li>
+ * <li>{@code bench.warmup} - number of frames rendered with every scheduler before the measurements (default 5)</li>
+ * <li>{@code bench.frames} - number of measured frames of every configuration, after a warmup frame (default 3)</li>
+ * <li>{@code bench.threads} - comma separated thread counts
+ * (default the powers of 2 up to twice the available processors, at least up to 8)</li>
+ * <li>{@code bench.schedulers} - comma separated pixel schedulers to compare (default all of them)</li>
+ * <li>{@code bench.output} - the CSV results file (default benchmark-results/scalability.csv)</li>
+ * </ul>
+ */
+public final class ScalabilityBenchmark {
+    /**
+     * Width and height of the rendered images
+     */
+    private static final int RESOLUTION = Integer.getInteger("bench.resolution", 200);
+    /**
+     * Number of measured frames of every configuration
+     */
+    private static final int FRAMES = Integer.getInteger("bench.frames", 3);
+    /**
+     * Number of frames rendered with every scheduler before the measurements, for compiling the render loop
+     */
+    private static final int WARMUP = Integer.getInteger("bench.warmup", 5);
+    /**
+     * Width of the speedup bars in characters per unit of speedup
+     */
+    private static final int BAR_SCALE = 4;
+
+    /**
+     * Result of a configuration
+     *
+     * @param scheduler      the pixel scheduler
+     * @param threads        the number of rendering threads
+     * @param msPerFrame     average time of a frame in milliseconds
+     * @param speedup        the speedup over a single thread
+     * @param monitorEnters  the number of contended monitor enters in the recorded frame
+     * @param blockedMs      the total time the threads were blocked on monitors in the recorded frame
+     * @param idlePercent    the average idle time of the rendering threads in percents of the recorded frame
+     */
+    record Result(PixelScheduler scheduler, int threads, double msPerFrame, double speedup, long monitorEnters,
+                  double blockedMs, double idlePercent) {
+        /**
+         * Calculates the parallel efficiency
+         *
+         * @return the speedup per thread
+         */
+        double efficiency() {
+            return speedup / threads;
+        }
+    }
+
+    /**
+     * Private constructor to prevent instantiation of the utility class
+     */
+    private ScalabilityBenchmark() {
+    }
+
+    /**
+     * Gets the thread counts to measure
+     *
+     * @return the distinct thread counts in ascending order
+     */
+    private static SortedSet<Integer> threadCounts() {
+        SortedSet<Integer> counts = new TreeSet<>();
+        String property = System.getProperty("bench.threads");
+        if (property != null) {
+            for (String count : property.split(","))
+                counts.add(Integer.parseInt(count.trim()));
+            return counts;
+        }
+        int max = Math.max(2 * Runtime.getRuntime().availableProcessors(), 8);
+        for (int count = 1; count <= max; count *= 2)
+            counts.add(count);
+        return counts;
+    }
+
+    /**
+     * Gets the pixel schedulers to compare
+     *
+     * @return the schedulers
+     */
+    private static List<PixelScheduler> schedulers() {
+        String property = System.getProperty("bench.schedulers");
+        if (property == null)
+            return List.of(PixelScheduler.values());
+        List<PixelScheduler> schedulers = new ArrayList<>();
+        for (String name : property.split(","))
+            schedulers.add(PixelScheduler.valueOf(name.trim().toUpperCase(Locale.ROOT)));
+        return schedulers;
+    }
+
+    /**
+     * Renders a frame of the scene
+     *
+     * @param builder   the camera builder of the scene
+     * @param threads   the number of rendering threads
+     * @param scheduler the pixel scheduler
+     * @return the frame time in milliseconds
+     */
+    private static double frame(Camera.Builder builder, int threads, PixelScheduler scheduler) {
+        return builder.setMultiThreading(threads).setPixelScheduler(scheduler).setDebugPrint(0)
+                .setImageWriter(new ImageWriter("scalability", RESOLUTION, RESOLUTION))
+                .build().renderImage().getMetrics().elapsedNanos() / 1e6;
+    }
+
+    /**
+     * Measures a configuration
+     *
+     * @param builder      the camera builder of the scene
+     * @param threads      the number of rendering threads
+     * @param scheduler    the pixel scheduler
+     * @param singleThread the frame time of a single thread of the scheduler in milliseconds,
+     *                     or 0 if this is the single thread configuration
+     * @return the result
+     * @throws IOException on I/O error of the recording
+     */
+    private static Result measure(Camera.Builder builder, int threads, PixelScheduler scheduler,
+                                  double singleThread) throws IOException {
+        frame(builder, threads, scheduler); // warmup
+        double total = 0;
+        for (int i = 0; i < FRAMES; ++i)
+            total += frame(builder, threads, scheduler);
+        double msPerFrame = total / FRAMES;
+
+        Path file = Files.createTempFile("scalability", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("jdk.JavaMonitorEnter").withThreshold(Duration.ZERO).withStackTrace();
+            recording.enable("raytracer.RenderThread");
+            recording.start();
+            double recordedMs = frame(builder, threads, scheduler);
+            recording.stop();
+            recording.dump(file);
+
+            long monitorEnters = 0;
+            long blockedNanos = 0;
+            double idle = 0;
+            int renderThreads = 0;
+            for (RecordedEvent event : RecordingFile.readAllEvents(file)) {
+                String name = event.getEventType().getName();
+                if (name.equals("jdk.JavaMonitorEnter")) {
+                    ++monitorEnters;
+                    blockedNanos += event.getDuration().toNanos();
+                } else if (name.equals("raytracer.RenderThread")) {
+                    double cpuMs = event.getDuration("cpuTime").toNanos() / 1e6;
+                    idle += Math.max(recordedMs - cpuMs, 0) / recordedMs;
+                    ++renderThreads;
+                }
+            }
+            return new Result(scheduler, threads, msPerFrame, singleThread == 0 ? 1 : singleThread / msPerFrame,
+                    monitorEnters, blockedNanos / 1e6, renderThreads == 0 ? 0 : 100 * idle / renderThreads);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * Runs the benchmark
+     *
+     * @param args irrelevant here
+     * @throws IOException on I/O error of the recordings or the results file
+     */
+    public static void main(String[] args) throws IOException {
+        Camera.Builder builder = new ReflectionRefractionTests().twoSpheresOnMirrorsScene();
+        SortedSet<Integer> threadCounts = threadCounts();
+        List<Result> results = new ArrayList<>();
+        List<PixelScheduler> schedulers = schedulers();
+        for (PixelScheduler scheduler : schedulers)
+            for (int i = 0; i < WARMUP; ++i)
+                frame(builder, 2, scheduler);
+        System.out.printf(Locale.ROOT, "%-12s %7s %10s %8s %6s %9s %10s %6s  speedup%n", "scheduler", "threads",
+                "ms/frame", "speedup", "eff.", "monitors", "blocked ms", "idle%");
+        for (PixelScheduler scheduler : schedulers) {
+            double singleThread = 0;
+            // The single thread is measured first as the reference of the speedup
+            List<Integer> order = new ArrayList<>(threadCounts);
+            if (order.remove(Integer.valueOf(1)))
+                order.add(0, 1);
+            List<Result> schedulerResults = new ArrayList<>();
+            for (int threads : order) {
+                Result result = measure(builder, threads, scheduler, singleThread);
+                if (threads == 1)
+                    singleThread = result.msPerFrame();
+                schedulerResults.add(result);
+            }
+            schedulerResults.sort(Comparator.comparingInt(Result::threads));
+            for (Result result : schedulerResults) {
+                System.out.printf(Locale.ROOT, "%-12s %7d %10.1f %8.2f %6.2f %9d %10.1f %6.1f  %s%n",
+                        result.scheduler(), result.threads(), result.msPerFrame(), result.speedup(),
+                        result.efficiency(), result.monitorEnters(), result.blockedMs(), result.idlePercent(),
+                        "#".repeat((int) Math.round(result.speedup() * BAR_SCALE)));
+                results.add(result);
+            }
+        }
+
+        StringBuilder csv = new StringBuilder("scheduler,threads,msPerFrame,speedup,efficiency,"
+                + "monitorEnters,blockedMs,idlePercent\n");
+        for (Result result : results)
+            csv.append(String.format(Locale.ROOT, "%s,%d,%.3f,%.4f,%.4f,%d,%.3f,%.2f%n", result.scheduler(),
+                    result.threads(), result.msPerFrame(), result.speedup(), result.efficiency(),
+                    result.monitorEnters(), result.blockedMs(), result.idlePercent()));
+        Path output = Path.of(System.getProperty("bench.output", "benchmark-results/scalability.csv"));
+        Files.createDirectories(output.toAbsolutePath().getParent());
+        Files.writeString(output, csv.toString());
+    }
+}
@@ -0,0 +1,273 @@
+package renderer;
+
+import harness.Benchmark;
+import special.TeapotTest;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * End-to-end benchmarks of rendering the heavy scenes of the tests at fixed settings and several thread counts.
+ * Every scene is rendered at 1, 2, 4 and all the available threads and measured in milliseconds per frame,
+ * pixels and rays per second and allocation rate. The results are written as JSON, and compared with
+ * a stored baseline: a configuration slower than its baseline time by more than the tolerance is a regression,
+ * which fails the run with exit status 1.
+ * <p>
+ * Rays are counted only when the render counters are enabled by {@code -Draytracer.metrics=true},
+ * which slows the render down, so the baseline should be recorded with the same setting.
+ * The allocation is measured in the single-threaded configuration, which renders in the calling thread,
+ * and the rates of the other configurations assume the same allocation per frame.
+ * <p>
+ * The settings are read from system properties:
+ * <ul>
+ * <li>{@code bench.resolution} - width and height of the rendered images in pixels (default 200)</li>
+ * <li>{@code bench.frames} - number of measured frames of every configuration, after a warmup frame (default 3)</li>
+ * <li>{@code bench.threads} - comma separated thread counts (default 1, 2, 4 and the available processors)</li>
+ * <li>{@code bench.filter} - only the scenes whose names contain it are rendered (default all)</li>
+ * <li>{@code bench.output} - the JSON results file (default benchmark-results/scene-benchmarks.json)</li>
+ * <li>{@code bench.baseline} - the JSON baseline file, created from the results if it does not exist
+ * (default none)</li>
+ * <li>{@code bench.tolerance} - the allowed slowdown relative to the baseline (default 0.15)</li>
+ * </ul>
+ */
+public final class SceneBenchmarks {
+    /**
+     * Width and height of the rendered images
+     */
+    private static final int RESOLUTION = Integer.getInteger("bench.resolution", 200);
+    /**
+     * Number of measured frames of every configuration
+     */
+    private static final int FRAMES = Integer.getInteger("bench.frames", 3);
+    /**
+     * Allowed slowdown relative to the baseline
+     */
+    private static final double TOLERANCE = Double.parseDouble(System.getProperty("bench.tolerance", "0.15"));
+    /**
+     * Pattern of a result line of the JSON file
+     */
+    private static final Pattern RESULT = Pattern.compile(
+            "\"scene\": \"([^\"]+)\", \"threads\": (\\d+), \"resolution\": (\\d+), \"msPerFrame\": ([0-9.Ee+-]+)");
+
+    /**
+     * Result of rendering a scene with a thread count
+     *
+     * @param scene             the name of the scene
+     * @param threads           the number of rendering threads
+     * @param msPerFrame        average time of a frame in milliseconds
+     * @param msError           standard deviation of the frame time in milliseconds
+     * @param pixelsPerSecond   rendered pixels per second
+     * @param raysPerSecond     traced rays of all categories per second, NaN if the rays are not counted
+     * @param allocMBPerSecond  allocation rate in megabytes per second
+     */
+    record Result(String scene, int threads, double msPerFrame, double msError, double pixelsPerSecond,
+                  double raysPerSecond, double allocMBPerSecond) {
+        /**
+         * Formats the result as a JSON object on a single line
+         *
+         * @return the JSON object
+         */
+        String toJson() {
+            return String.format(Locale.ROOT, "{\"scene\": \"%s\", \"threads\": %d, \"resolution\": %d, "
+                            + "\"msPerFrame\": %.3f, \"msError\": %.3f, \"pixelsPerSecond\": %.1f, "
+                            + "\"raysPerSecond\": %s, \"allocMBPerSecond\": %.2f}",
+                    scene, threads, RESOLUTION, msPerFrame, msError, pixelsPerSecond,
+                    Double.isNaN(raysPerSecond) ? "null" : String.format(Locale.ROOT, "%.1f", raysPerSecond),
+                    allocMBPerSecond);
+        }
+    }
+
+    /**
+     * Private constructor to prevent instantiation of the utility class
+     */
+    private SceneBenchmarks() {
+    }
+
+    /**
+     * Gets the benchmarked scenes
+     *
+     * @return the builders of the cameras of the scenes by their names
+     */
+    private static Map<String, Supplier<Camera.Builder>> scenes() {
+        Map<String, Supplier<Camera.Builder>> scenes = new LinkedHashMap<>();
+        scenes.put("teapot", () -> new TeapotTest().teapotScene());
+        scenes.put("minip1", () -> new minip1Test().castleScene());
+        scenes.put("minip2", () -> new minip2Test().castleScene());
+        scenes.put("depthOfField", DoFTests::depthOfFieldScene);
+        scenes.put("twoSpheresOnMirrors", () -> new ReflectionRefractionTests().twoSpheresOnMirrorsScene());
+        return scenes;
+    }
+
+    /**
+     * Gets the thread counts to measure
+     *
+     * @return the distinct thread counts in ascending order
+     */
+    private static SortedSet<Integer> threadCounts() {
+        SortedSet<Integer> counts = new TreeSet<>();
+        String property = System.getProperty("bench.threads");
+        if (property != null)
+            for (String count : property.split(","))
+                counts.add(Integer.parseInt(count.trim()));
+        else
+            counts.addAll(List.of(1, 2, 4, Runtime.getRuntime().availableProcessors()));
+        return counts;
+    }
+
+    /**
+     * Renders a frame of a scene
+     *
+     * @param builder the camera builder of the scene
+     * @param threads the number of rendering threads, a single thread renders in the calling thread
+     * @return the counters of the render
+     */
+    private static RenderMetrics.Snapshot frame(Camera.Builder builder, int threads) {
+        return builder.setMultiThreading(threads == 1 ? 0 : threads).setDebugPrint(0)
+                .setImageWriter(new ImageWriter("benchmark", RESOLUTION, RESOLUTION))
+                .build().renderImage().getMetrics();
+    }
+
+    /**
+     * Measures a scene with a thread count
+     *
+     * @param name          the name of the scene
+     * @param builder       the camera builder of the scene
+     * @param threads       the number of rendering threads
+     * @param bytesPerFrame the allocation of a frame, or a negative number for measuring it in this configuration
+     * @return the result
+     */
+    private static Result measure(String name, Camera.Builder builder, int threads, double bytesPerFrame) {
+        com.sun.management.ThreadMXBean mxBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        frame(builder, threads); // warmup
+        double[] times = new double[FRAMES];
+        double rays = 0;
+        long allocated = mxBean.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < FRAMES; ++i) {
+            RenderMetrics.Snapshot metrics = frame(builder, threads);
+            times[i] = metrics.elapsedNanos() / 1e6;
+            rays += metrics.totalRays();
+        }
+        if (bytesPerFrame < 0)
+            bytesPerFrame = (double) (mxBean.getCurrentThreadAllocatedBytes() - allocated) / FRAMES;
+
+        double mean = Arrays.stream(times).average().orElse(0);
+        double variance = Arrays.stream(times).map(time -> (time - mean) * (time - mean)).sum();
+        double error = FRAMES > 1 ? Math.sqrt(variance / (FRAMES - 1)) : 0;
+        double seconds = mean / 1e3;
+        return new Result(name, threads, mean, error, RESOLUTION * RESOLUTION / seconds,
+                RenderMetrics.ENABLED ? rays / FRAMES / seconds : Double.NaN, bytesPerFrame / seconds / 1e6);
+    }
+
+    /**
+     * Writes results as a JSON document
+     *
+     * @param file    the file
+     * @param results the results
+     * @throws IOException on I/O error
+     */
+    private static void write(Path file, List<Result> results) throws IOException {
+        StringJoiner json = new StringJoiner(",\n    ", "{\n  \"results\": [\n    ", "\n  ]\n}\n");
+        for (Result result : results)
+            json.add(result.toJson());
+        Files.writeString(file, json.toString());
+    }
+
+    /**
+     * Reads the frame times of a JSON document written by {@link #write}
+     *
+     * @param file the file
+     * @return the frame times in milliseconds by the scene, thread count and resolution
+     * @throws IOException on I/O error
+     */
+    private static Map<String, Double> readTimes(Path file) throws IOException {
+        Map<String, Double> times = new HashMap<>();
+        Matcher matcher = RESULT.matcher(Files.readString(file));
+        while (matcher.find())
+            times.put(key(matcher.group(1), Integer.parseInt(matcher.group(2)), Integer.parseInt(matcher.group(3))),
+                    Double.parseDouble(matcher.group(4)));
+        return times;
+    }
+
+    /**
+     * Creates the key of a configuration in the baseline
+     *
+     * @param scene      the name of the scene
+     * @param threads    the number of rendering threads
+     * @param resolution the resolution of the images
+     * @return the key
+     */
+    private static String key(String scene, int threads, int resolution) {
+        return scene + "/" + threads + "/" + resolution;
+    }
+
+    /**
+     * Runs the benchmarks
+     *
+     * @param args irrelevant here
+     * @throws IOException on I/O error of the results or the baseline files
+     */
+    public static void main(String[] args) throws IOException {
+        List<Result> results = new ArrayList<>();
+        SortedSet<Integer> threadCounts = threadCounts();
+        for (Map.Entry<String, Supplier<Camera.Builder>> scene : scenes().entrySet()) {
+            if (!Benchmark.selected(scene.getKey()))
+                continue;
+            Camera.Builder builder = scene.getValue().get();
+            double bytesPerFrame = -1;
+            // The single-threaded configuration is measured first, for the allocation of a frame
+            List<Integer> order = new ArrayList<>(threadCounts);
+            if (order.remove(Integer.valueOf(1)))
+                order.add(0, 1);
+            List<Result> sceneResults = new ArrayList<>();
+            for (int threads : order) {
+                Result result = measure(scene.getKey(), builder, threads, threads == 1 ? -1 : bytesPerFrame);
+                if (threads == 1)
+                    bytesPerFrame = result.allocMBPerSecond() * 1e6 * result.msPerFrame() / 1e3;
+                sceneResults.add(result);
+            }
+            sceneResults.sort(Comparator.comparingInt(Result::threads));
+            for (Result result : sceneResults) {
+                System.out.printf(Locale.ROOT, "%-20s %3d threads %10.1f +- %7.1f ms/frame %12.0f pixels/s %s%n",
+                        result.scene(), result.threads(), result.msPerFrame(), result.msError(),
+                        result.pixelsPerSecond(), Double.isNaN(result.raysPerSecond()) ? ""
+                                : String.format(Locale.ROOT, "%12.0f rays/s", result.raysPerSecond()));
+                results.add(result);
+            }
+        }
+        Path output = Path.of(System.getProperty("bench.output", "benchmark-results/scene-benchmarks.json"));
+        Files.createDirectories(output.toAbsolutePath().getParent());
+        write(output, results);
+
+        String baselineProperty = System.getProperty("bench.baseline");
+        if (baselineProperty == null)
+            return;
+        Path baseline = Path.of(baselineProperty);
+        if (!Files.exists(baseline)) {
+            write(baseline, results);
+            System.out.println("Baseline created: " + baseline);
+            return;
+        }
+        Map<String, Double> baselineTimes = readTimes(baseline);
+        List<String> regressions = new ArrayList<>();
+        for (Result result : results) {
+            Double expected = baselineTimes.get(key(result.scene(), result.threads(), RESOLUTION));
+            if (expected != null && result.msPerFrame() > expected * (1 + TOLERANCE))
+                regressions.add(String.format(Locale.ROOT, "%s at %d threads: %.1f ms/frame, baseline %.1f ms/frame",
+                        result.scene(), result.threads(), result.msPerFrame(), expected));
+        }
+        if (regressions.isEmpty()) {
+            System.out.println("No regression over the baseline");
+            return;
+        }
+        System.out.println("Performance regressions over the baseline:");
+        regressions.forEach(regression -> System.out.println("  " + regression));
+        System.exit(1);
+    }
+}
@@ -0,0 +1,52 @@
+package renderer;
+
+import harness.Benchmark;
+import primitives.Color;
+
+import java.util.Random;
+
+/**
+ * Benchmarks of re-exposing a high-dynamic-range framebuffer with the tone mappers
+ * ({@link ImageWriter#toneMap(ToneMapper)}): every operation converts a whole 500x500 framebuffer
+ * of random linear colors, some of them above the displayable range, into the 8-bit image.
+ * <p>
+ * Run with the compiled sources on the class path, e.g.
+ * {@code java -cp out renderer.ToneMappingBenchmarks}, and see {@link Benchmark} for the settings.
+ */
+public final class ToneMappingBenchmarks {
+    /**
+     * Width and height of the framebuffer
+     */
+    private static final int RESOLUTION = 500;
+
+    /**
+     * Private constructor to prevent instantiation of the utility class
+     */
+    private ToneMappingBenchmarks() {
+    }
+
+    /**
+     * Runs the benchmarks
+     *
+     * @param args irrelevant here
+     */
+    public static void main(String[] args) {
+        ImageWriter imageWriter = new ImageWriter("toneMapping", RESOLUTION, RESOLUTION).setHdr(true);
+        Random random = new Random(1);
+        for (int y = 0; y < RESOLUTION; ++y)
+            for (int x = 0; x < RESOLUTION; ++x)
+                imageWriter.writePixel(x, y, new Color(random.nextDouble() * 600, random.nextDouble() * 400,
+                        random.nextDouble() * 300));
+
+        Benchmark benchmark = new Benchmark();
+        String[] names = {"clamp", "reinhard", "filmic"};
+        ToneMapper[] toneMappers = {ToneMapper.clamp(0.25), ToneMapper.reinhard(1), ToneMapper.filmic(1)};
+        for (int i = 0; i < names.length; ++i) {
+            ToneMapper toneMapper = toneMappers[i];
+            benchmark.run("ToneMapper." + names[i], () -> {
+                imageWriter.toneMap(toneMapper);
+                return imageWriter;
+            });
+        }
+    }
+}
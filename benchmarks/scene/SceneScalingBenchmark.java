@@ -0,0 +1,121 @@
+package scene;
+
+import renderer.ImageWriter;
+import renderer.SimpleRayTracer;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * Scaling study of generated scenes: for every scene size, a power of ten of primitives, a scene is generated
+ * by {@link SceneGenerator} with a fixed seed, and the benchmark measures the generation time,
+ * the BVH build time, the time of rendering a frame and the heap memory that the scene takes.
+ * Every scene is a third spheres, a third icosphere triangles and a third terrain triangles,
+ * a tenth of the spheres and the meshes reflective and a tenth transparent.
+ * <p>
+ * The results are printed as a table and written as CSV for plotting.
+ * <p>
+ * The settings are read from system properties:
+ * <ul>
+ * <li>{@code bench.seed} - the seed of the scenes (default 1)</li>
+ * <li>{@code bench.from} and {@code bench.to} - the exponents of ten of the smallest and the largest scene
+ * (default 3 and 6 - the BVH is built by median splits in O(n log<sup>2</sup> n), a few seconds for
+ * 10<sup>6</sup> primitives, so the render of the frame takes most of the time; a scene takes about
+ * 0.6 GB of heap per 10<sup>6</sup> primitives, so the scene of 10<sup>7</sup> primitives is run with
+ * {@code -Dbench.to=7 -Xmx8g})</li>
+ * <li>{@code bench.lights} - the number of lights (default 4)</li>
+ * <li>{@code bench.float} - whether the triangles are stored in a single precision
+ * {@link geometries.FloatMesh} before the BVH is built (default false)</li>
+ * <li>{@code bench.resolution} - width and height of the rendered images in pixels (default 200)</li>
+ * <li>{@code bench.output} - the CSV results file (default benchmark-results/scene-scaling.csv)</li>
+ * </ul>
+ */
+public final class SceneScalingBenchmark {
+    /**
+     * Width and height of the rendered images
+     */
+    private static final int RESOLUTION = Integer.getInteger("bench.resolution", 200);
+    /**
+     * Subdivisions of the icospheres, 1280 triangles each
+     */
+    private static final int SUBDIVISIONS = 3;
+    /**
+     * Whether the triangles are stored in a single precision mesh
+     */
+    private static final boolean FLOAT_MESH = Boolean.getBoolean("bench.float");
+
+    /**
+     * Private constructor to prevent instantiation of the utility class
+     */
+    private SceneScalingBenchmark() {
+    }
+
+    /**
+     * Creates the generator of a scene of about a number of primitives
+     *
+     * @param primitives the number of primitives
+     * @return the generator
+     */
+    private static SceneGenerator generator(long primitives) {
+        long third = primitives / 3;
+        int icospheres = (int) Math.max(third / (20L << 2 * SUBDIVISIONS), 1);
+        int terrain = (int) Math.sqrt(third / 2.0);
+        int spheres = (int) Math.max(primitives - icospheres * (20L << 2 * SUBDIVISIONS) - 2L * terrain * terrain, 0);
+        return new SceneGenerator(Long.getLong("bench.seed", 1)).setSpheres(spheres)
+                .setIcospheres(icospheres, SUBDIVISIONS).setTerrain(terrain)
+                .setLights(Integer.getInteger("bench.lights", 4)).setMaterialFractions(0.1, 0.1);
+    }
+
+    /**
+     * Measures the used heap memory after a garbage collection
+     *
+     * @return the used heap in bytes
+     */
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; ++i)
+            System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * Runs the benchmark
+     *
+     * @param args irrelevant here
+     * @throws IOException on I/O error of the results file
+     */
+    public static void main(String[] args) throws IOException {
+        int from = Integer.getInteger("bench.from", 3);
+        int to = Integer.getInteger("bench.to", 6);
+        StringBuilder csv = new StringBuilder("primitives,generateMs,bvhMs,renderMs,heapMB\n");
+        System.out.printf(Locale.ROOT, "%12s %12s %12s %12s %10s%n", "primitives", "generate ms", "BVH ms",
+                "render ms", "heap MB");
+        for (int exponent = from; exponent <= to; ++exponent) {
+            SceneGenerator generator = generator((long) Math.pow(10, exponent));
+            long heap = usedHeap();
+            long start = System.nanoTime();
+            Scene scene = generator.generate("Scaling");
+            double generateMs = (System.nanoTime() - start) / 1e6;
+            start = System.nanoTime();
+            if (FLOAT_MESH)
+                scene.geometries.makeFloatMesh();
+            scene.geometries.makeBVH();
+            double bvhMs = (System.nanoTime() - start) / 1e6;
+            double heapMB = (usedHeap() - heap) / 1e6;
+            double renderMs = generator.camera().setRayTracer(new SimpleRayTracer(scene))
+                    .setImageWriter(new ImageWriter("scaling", RESOLUTION, RESOLUTION))
+                    .setMultiThreading(-2).setDebugPrint(0)
+                    .build().renderImage().getMetrics().elapsedNanos() / 1e6;
+
+            System.out.printf(Locale.ROOT, "%12d %12.1f %12.1f %12.1f %10.1f%n", generator.primitives(), generateMs,
+                    bvhMs, renderMs, heapMB);
+            csv.append(String.format(Locale.ROOT, "%d,%.3f,%.3f,%.3f,%.3f%n", generator.primitives(), generateMs,
+                    bvhMs, renderMs, heapMB));
+        }
+        Path output = Path.of(System.getProperty("bench.output", "benchmark-results/scene-scaling.csv"));
+        Files.createDirectories(output.toAbsolutePath().getParent());
+        Files.writeString(output, csv.toString());
+    }
+}
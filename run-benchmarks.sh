@@ -0,0 +1,46 @@
+#!/usr/bin/env bash
+# Compiles the sources, the Vector API kernels, the tests and the benchmarks into out/
+# and runs the benchmark suite.
+#
+# Usage: ./run-benchmarks.sh [benchmark class ...]
+#   Without arguments all the benchmarks are run, otherwise only the given classes,
+#   e.g. ./run-benchmarks.sh geometries.IntersectionBenchmarks
+#   The settings of the benchmarks are passed as system properties in JAVA_OPTS,
+#   e.g. JAVA_OPTS="-Dbench.filter=sphere -Draytracer.metrics=true" ./run-benchmarks.sh
+#
+# Requires JDK 17 or later; the simd kernels need the jdk.incubator.vector module.
+set -euo pipefail
+
+cd "$(dirname "$0")"
+OUT=out
+VECTOR="--add-modules jdk.incubator.vector"
+CLASSPATH="$OUT:$(printf '%s:' lib/*.jar)"
+
+BENCHMARKS=(
+    geometries.IntersectionBenchmarks
+    geometries.MeshKernelBenchmarks
+    renderer.MaterialShadingBenchmarks
+    renderer.PacketBenchmarks
+    renderer.ScalabilityBenchmark
+    renderer.SceneBenchmarks
+    renderer.ToneMappingBenchmarks
+    scene.SceneScalingBenchmark
+)
+if [ $# -gt 0 ]; then
+    BENCHMARKS=("$@")
+fi
+
+rm -rf "$OUT"
+mkdir -p "$OUT"
+echo "Compiling into $OUT"
+javac -encoding UTF-8 -d "$OUT" $(find src -name '*.java')
+javac -encoding UTF-8 $VECTOR -d "$OUT" -cp "$OUT" $(find simd -name '*.java')
+# The scene benchmarks render the scenes of the tests
+javac -encoding UTF-8 -d "$OUT" -cp "$CLASSPATH" $(find unitTests -name '*.java')
+javac -encoding UTF-8 -d "$OUT" -cp "$CLASSPATH" $(find benchmarks -name '*.java')
+
+for benchmark in "${BENCHMARKS[@]}"; do
+    echo
+    echo "=== $benchmark"
+    java $VECTOR ${JAVA_OPTS:-} -cp "$CLASSPATH" "$benchmark"
+done
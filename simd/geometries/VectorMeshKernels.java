@@ -0,0 +1,145 @@
+package geometries;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The vector kernels of the meshes, which test the lanes of a block with the SIMD instructions
+ * of the JDK Vector API - all 8 lanes at once with 256 bits registers (AVX2 and AVX-512),
+ * or in two halves with 128 bits registers (SSE, NEON).
+ * The kernels make the same floating point operations as {@link ScalarMeshKernels} in the same order,
+ * without fused multiply-add, so they find exactly the same intersections.
+ * <p>
+ * The class needs the {@code jdk.incubator.vector} module, so it is compiled in the separate {@code simd}
+ * source root and created reflectively by {@link MeshKernels#vector()}.
+ * <p>
+ * The JIT compiler of JDK 17 allocates the vectors and the masks that it fails to keep in registers, so
+ * the kernels are written flat: the operands are vectors rather than scalars, and the loads and the conversions
+ * of the masks are not in helper methods, which would deepen the inlining of the Vector API beyond its limit.
+ */
+final class VectorMeshKernels implements MeshKernels {
+    /**
+     * The vectors of the kernels, the widest of up to {@link MeshKernels#WIDTH} floats
+     */
+    private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED.length() >= WIDTH
+            ? FloatVector.SPECIES_256 : FloatVector.SPECIES_128;
+    /**
+     * The bits of the lanes, 1, 2, 4 and so on, whose sum over the hit lanes is the mask of the hits.
+     * The mask is summed from them rather than converted by {@link VectorMask#toLong()}, which is not intrinsic
+     * in JDK 17 and allocates
+     */
+    private static final FloatVector BITS = FloatVector.fromArray(SPECIES,
+            new float[]{1, 2, 4, 8, 16, 32, 64, 128}, 0);
+    /**
+     * The zero vector
+     */
+    private static final FloatVector ZERO = FloatVector.zero(SPECIES);
+    /**
+     * The vector of ones
+     */
+    private static final FloatVector ONE = FloatVector.broadcast(SPECIES, 1);
+    /**
+     * The vector of the minimal distance of an intersection
+     */
+    private static final FloatVector MIN = FloatVector.broadcast(SPECIES, MIN_DISTANCE);
+
+    /**
+     * Creates the vector kernels
+     *
+     * @throws UnsupportedOperationException if the processor has no SIMD registers of 4 floats
+     */
+    VectorMeshKernels() {
+        if (FloatVector.SPECIES_PREFERRED.length() < 4)
+            throw new UnsupportedOperationException("No SIMD registers of 4 floats");
+    }
+
+    @Override
+    public String name() {
+        return "vector" + SPECIES.vectorBitSize();
+    }
+
+    @Override
+    public int hitBoxes(float[] boxes, int offset, int count, MeshRay ray) {
+        FloatVector pad = FloatVector.broadcast(SPECIES, ray.pad);
+        FloatVector ox = FloatVector.broadcast(SPECIES, ray.ox);
+        FloatVector oy = FloatVector.broadcast(SPECIES, ray.oy);
+        FloatVector oz = FloatVector.broadcast(SPECIES, ray.oz);
+        FloatVector ix = FloatVector.broadcast(SPECIES, ray.ix);
+        FloatVector iy = FloatVector.broadcast(SPECIES, ray.iy);
+        FloatVector iz = FloatVector.broadcast(SPECIES, ray.iz);
+        FloatVector limit = FloatVector.broadcast(SPECIES, ray.limit);
+        int mask = 0;
+        for (int k = 0; k < count; k += SPECIES.length()) {
+            int b = offset + k;
+            FloatVector t1 = FloatVector.fromArray(SPECIES, boxes, b).sub(pad).sub(ox).mul(ix);
+            FloatVector t2 = FloatVector.fromArray(SPECIES, boxes, b + 3 * WIDTH).add(pad).sub(ox).mul(ix);
+            FloatVector near = t1.min(t2);
+            FloatVector far = t1.max(t2);
+            t1 = FloatVector.fromArray(SPECIES, boxes, b + WIDTH).sub(pad).sub(oy).mul(iy);
+            t2 = FloatVector.fromArray(SPECIES, boxes, b + 4 * WIDTH).add(pad).sub(oy).mul(iy);
+            near = near.max(t1.min(t2));
+            far = far.min(t1.max(t2));
+            t1 = FloatVector.fromArray(SPECIES, boxes, b + 2 * WIDTH).sub(pad).sub(oz).mul(iz);
+            t2 = FloatVector.fromArray(SPECIES, boxes, b + 5 * WIDTH).add(pad).sub(oz).mul(iz);
+            near = near.max(t1.min(t2));
+            far = far.min(t1.max(t2));
+            // The part of the ray between its head and its maximal distance
+            mask |= (int) ZERO.blend(BITS, near.max(ZERO).compare(VectorOperators.LE, far.min(limit)))
+                    .reduceLanes(VectorOperators.ADD) << k;
+        }
+        return mask & (1 << count) - 1;
+    }
+
+    @Override
+    public int intersectTriangles(float[] triangles, int offset, int count, MeshRay ray, float[] distances) {
+        FloatVector ox = FloatVector.broadcast(SPECIES, ray.ox);
+        FloatVector oy = FloatVector.broadcast(SPECIES, ray.oy);
+        FloatVector oz = FloatVector.broadcast(SPECIES, ray.oz);
+        FloatVector dx = FloatVector.broadcast(SPECIES, ray.dx);
+        FloatVector dy = FloatVector.broadcast(SPECIES, ray.dy);
+        FloatVector dz = FloatVector.broadcast(SPECIES, ray.dz);
+        FloatVector limit = FloatVector.broadcast(SPECIES, ray.limit);
+        int mask = 0;
+        for (int k = 0; k < count; k += SPECIES.length()) {
+            int index = offset + k;
+            FloatVector e1x = FloatVector.fromArray(SPECIES, triangles, index + 3 * WIDTH);
+            FloatVector e1y = FloatVector.fromArray(SPECIES, triangles, index + 4 * WIDTH);
+            FloatVector e1z = FloatVector.fromArray(SPECIES, triangles, index + 5 * WIDTH);
+            FloatVector e2x = FloatVector.fromArray(SPECIES, triangles, index + 6 * WIDTH);
+            FloatVector e2y = FloatVector.fromArray(SPECIES, triangles, index + 7 * WIDTH);
+            FloatVector e2z = FloatVector.fromArray(SPECIES, triangles, index + 8 * WIDTH);
+            FloatVector px = e2z.mul(dy).sub(e2y.mul(dz));
+            FloatVector py = e2x.mul(dz).sub(e2z.mul(dx));
+            FloatVector pz = e2y.mul(dx).sub(e2x.mul(dy));
+            FloatVector det = e1x.mul(px).add(e1y.mul(py)).add(e1z.mul(pz));
+            VectorMask<Float> hits = det.compare(VectorOperators.NE, ZERO);
+            if (!hits.anyTrue())
+                continue;
+            // Division by zero of the lanes that are not hit is harmless, they are masked out
+            FloatVector inverse = ONE.div(det);
+            // The ray head relative to the vertex
+            FloatVector sx = ox.sub(FloatVector.fromArray(SPECIES, triangles, index));
+            FloatVector sy = oy.sub(FloatVector.fromArray(SPECIES, triangles, index + WIDTH));
+            FloatVector sz = oz.sub(FloatVector.fromArray(SPECIES, triangles, index + 2 * WIDTH));
+            FloatVector u = sx.mul(px).add(sy.mul(py)).add(sz.mul(pz)).mul(inverse);
+            hits = hits.and(u.compare(VectorOperators.GT, ZERO)).and(u.compare(VectorOperators.LT, ONE));
+            if (!hits.anyTrue())
+                continue;
+            FloatVector qx = sy.mul(e1z).sub(sz.mul(e1y));
+            FloatVector qy = sz.mul(e1x).sub(sx.mul(e1z));
+            FloatVector qz = sx.mul(e1y).sub(sy.mul(e1x));
+            FloatVector v = qx.mul(dx).add(qy.mul(dy)).add(qz.mul(dz)).mul(inverse);
+            hits = hits.and(v.compare(VectorOperators.GT, ZERO)).and(u.add(v).compare(VectorOperators.LT, ONE));
+            if (!hits.anyTrue())
+                continue;
+            FloatVector distance = e2x.mul(qx).add(e2y.mul(qy)).add(e2z.mul(qz)).mul(inverse);
+            hits = hits.and(distance.compare(VectorOperators.GT, MIN))
+                    .and(distance.compare(VectorOperators.LE, limit));
+            distance.intoArray(distances, k);
+            mask |= (int) ZERO.blend(BITS, hits).reduceLanes(VectorOperators.ADD) << k;
+        }
+        return mask & (1 << count) - 1;
+    }
+}
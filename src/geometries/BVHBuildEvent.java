@@ -0,0 +1,23 @@
+package geometries;
+
+import jdk.jfr.*;
+
+/**
+ * Flight recorder event of converting a geometries collection into a BVH tree
+ */
+@Name("raytracer.BVHBuild")
+@Label("BVH Build")
+@Category("Ray Tracer")
+@Description("Construction of a bounding volume hierarchy")
+final class BVHBuildEvent extends Event {
+    /**
+     * Number of geometries in the collection
+     */
+    @Label("Geometries")
+    int geometries;
+    /**
+     * Whether the tree was restored from a BVH cache instead of being built
+     */
+    @Label("Cached")
+    boolean cached;
+}
@@ -0,0 +1,295 @@
+package geometries;
+
+import primitives.Point;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Content-addressed cache of built BVH trees on disk.
+ * The BVH tree of a geometries collection depends only on the types and the bounding boxes of its members
+ * (in their order), so the SHA-256 digest of them is the key of the tree: a collection whose geometries
+ * did not move is restored from the cache by {@link Geometries#makeBVH(BVHCache)} without building the tree,
+ * even if the materials, emissions or lights of the scene changed.
+ * <p>
+ * Every tree is kept in a file named by its key, holding a header (magic number, format version,
+ * number of members, length and CRC32 checksum of the content) and the tree structure
+ * as written by {@link Geometries#writeTree}. A file that does not match its header is ignored and deleted.
+ * The total size of the cache directory is kept under a cap by deleting the least recently used trees.
+ */
+public class BVHCache {
+    /**
+     * The magic number at the beginning of a cached tree file
+     */
+    private static final int MAGIC = 0x52544256;
+    /**
+     * The version of the file layout and of the BVH construction, part of every key
+     */
+    private static final int VERSION = 1;
+    /**
+     * Size of the header in bytes
+     */
+    private static final int HEADER_SIZE = 28;
+    /**
+     * Extension of the cached tree files
+     */
+    private static final String EXTENSION = ".bvh";
+    /**
+     * Logger of the cache failures, which never fail the rendering
+     */
+    private static final Logger logger = Logger.getLogger("BVHCache");
+
+    /**
+     * The cache directory
+     */
+    private final Path directory;
+    /**
+     * Maximal total size in bytes of the cached trees
+     */
+    private final long maxBytes;
+    /**
+     * Number of trees found in the cache
+     */
+    private final LongAdder hits = new LongAdder();
+    /**
+     * Number of trees not found in the cache
+     */
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Constructs a cache in a directory, creating the directory if it does not exist
+     *
+     * @param directory the cache directory
+     * @param maxBytes  maximal total size in bytes of the cached trees
+     * @throws IllegalArgumentException if the size cap is not positive
+     * @throws IllegalStateException    if the directory cannot be created
+     */
+    public BVHCache(Path directory, long maxBytes) {
+        if (maxBytes <= 0)
+            throw new IllegalArgumentException("Cache size cap must be positive");
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot create BVH cache directory " + directory, e);
+        }
+    }
+
+    /**
+     * Gets the number of trees found in the cache
+     *
+     * @return the number of cache hits
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Gets the number of trees not found in the cache
+     *
+     * @return the number of cache misses
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Calculates the key of the BVH tree of a list of geometries - the SHA-256 digest
+     * of the types and the bounding boxes of the geometries, in their order
+     *
+     * @param members the geometries
+     * @return the key as a hexadecimal string
+     */
+    static String key(List<Intersectable> members) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e); // required of every Java platform
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(1 + 6 * Double.BYTES);
+        buffer.putInt(VERSION).putInt(members.size()).flip();
+        digest.update(buffer);
+        for (Intersectable member : members) {
+            digest.update(member.getClass().getName().getBytes(StandardCharsets.UTF_8));
+            Intersectable.BoundingBox box = member.getBoundingBox();
+            buffer.clear();
+            if (box == null)
+                buffer.put((byte) 0);
+            else {
+                buffer.put((byte) 1);
+                putPoint(buffer, box.getMin());
+                putPoint(buffer, box.getMax());
+            }
+            digest.update(buffer.flip());
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Puts the coordinates of a point into a buffer
+     *
+     * @param buffer the buffer
+     * @param point  the point
+     */
+    private static void putPoint(ByteBuffer buffer, Point point) {
+        buffer.putDouble(point.getX()).putDouble(point.getY()).putDouble(point.getZ());
+    }
+
+    /**
+     * Looks up the tree of a list of geometries, and marks it as recently used
+     *
+     * @param key     the key of the tree
+     * @param members the geometries, indexed by the tree
+     * @return the root of the cached tree, or null if it is not in the cache
+     */
+    Geometries load(String key, List<Intersectable> members) {
+        Path file = directory.resolve(key + EXTENSION);
+        if (!Files.exists(file)) {
+            misses.increment();
+            return null;
+        }
+        try {
+            Geometries tree = read(file, members);
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            hits.increment();
+            return tree;
+        } catch (IOException | IllegalArgumentException e) {
+            // A damaged or concurrently evicted entry is built again
+            logger.log(Level.WARNING, "Ignoring cached BVH " + file, e);
+            delete(file);
+            misses.increment();
+            return null;
+        }
+    }
+
+    /**
+     * Reads a cached tree file
+     *
+     * @param file    the file
+     * @param members the geometries, indexed by the tree
+     * @return the root of the tree
+     * @throws IOException              on I/O error
+     * @throws IllegalArgumentException if the file is invalid or does not match the geometries
+     */
+    private static Geometries read(Path file, List<Intersectable> members) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE || channel.size() > Integer.MAX_VALUE)
+                throw new IllegalArgumentException("Invalid cached BVH size");
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION || buffer.getInt() != members.size())
+            throw new IllegalArgumentException("Cached BVH does not match");
+        long length = buffer.getLong();
+        long checksum = buffer.getLong();
+        if (length != buffer.remaining())
+            throw new IllegalArgumentException("Cached BVH is truncated");
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice());
+        if (crc.getValue() != checksum)
+            throw new IllegalArgumentException("Cached BVH checksum mismatch");
+        return Geometries.readTree(buffer, members);
+    }
+
+    /**
+     * Stores the tree of a list of geometries and evicts the least recently used trees above the size cap.
+     * A failure is logged and ignored, since the tree is only not cached
+     *
+     * @param key     the key of the tree
+     * @param tree    the root of the built tree
+     * @param members the geometries in the order of the key
+     */
+    void store(String key, Geometries tree, List<Intersectable> members) {
+        Path file = directory.resolve(key + EXTENSION);
+        Path temp = directory.resolve(key + "." + Thread.currentThread().getId() + ".tmp");
+        Map<Intersectable, Integer> indices = new IdentityHashMap<>();
+        for (int i = 0; i < members.size(); ++i)
+            indices.put(members.get(i), i);
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                channel.position(HEADER_SIZE);
+                CRC32 crc = new CRC32();
+                DataOutputStream out = new DataOutputStream(new CheckedOutputStream(
+                        new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16), crc));
+                tree.writeTree(out, indices);
+                out.flush();
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                header.putInt(MAGIC).putInt(VERSION).putInt(members.size())
+                        .putLong(channel.position() - HEADER_SIZE).putLong(crc.getValue()).flip();
+                channel.write(header, 0);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Cannot store BVH in " + file, e);
+            delete(temp);
+            return;
+        }
+        evict();
+    }
+
+    /**
+     * Deletes the least recently used trees until the total size of the cache is under the cap
+     */
+    private void evict() {
+        record Entry(Path file, long size, long used) {
+        }
+        List<Entry> entries = new ArrayList<>();
+        long total = 0;
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (!file.getFileName().toString().endsWith(EXTENSION))
+                    continue;
+                try {
+                    long size = Files.size(file);
+                    entries.add(new Entry(file, size, Files.getLastModifiedTime(file).toMillis()));
+                    total += size;
+                } catch (IOException e) {
+                    // evicted concurrently
+                }
+            }
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Cannot list BVH cache " + directory, e);
+            return;
+        }
+        entries.sort(Comparator.comparingLong(Entry::used));
+        for (Entry entry : entries) {
+            if (total <= maxBytes)
+                break;
+            delete(entry.file);
+            total -= entry.size;
+        }
+    }
+
+    /**
+     * Deletes a file, ignoring failures
+     *
+     * @param file the file
+     */
+    private static void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Cannot delete " + file, e);
+        }
+    }
+}
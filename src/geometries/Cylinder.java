@@ -34,6 +34,15 @@ public class Cylinder extends Tube {
         height = h;
     }
 
+    /**
+     * Gets the height of the cylinder.
+     *
+     * @return the height of the cylinder
+     */
+    public double getHeight() {
+        return height;
+    }
+
     /**
      * Calculates the normal vector to the surface of the cylinder at a given point.
      * The normal is determined based on the location of the point relative to the cylinder:
@@ -105,7 +114,7 @@ public class Cylinder extends Tube {
         }
 
         // Find intersections with the cylindrical side surface
-        List<GeoPoint> result1 = super.findGeoIntersections(ray); // Get intersections from the Tube class
+        List<GeoPoint> result1 = super.findGeoIntersectionsHelper(ray, distance); // Get intersections from the Tube class
 
         if (result1 != null) {
             // Add all valid intersections that are within the height of the cylinder
@@ -0,0 +1,545 @@
+package geometries;
+
+import geometries.MeshKernels.MeshRay;
+import primitives.*;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import static geometries.MeshKernels.*;
+
+/**
+ * Triangle mesh stored in single precision, for scenes of millions of triangles.
+ * <p>
+ * The mesh keeps every triangle as 9 floats - its first vertex and its two edges from it - instead of
+ * a {@link Triangle} object with its points, vectors and plane, and organizes the triangles in its own BVH.
+ * The tree is wide: every node has up to {@link MeshKernels#WIDTH} children, whose bounding boxes are
+ * stored together in the node, and every leaf is a block of up to {@link MeshKernels#WIDTH} triangles.
+ * The boxes of a node and the triangles of a block are stored in structure-of-arrays layout,
+ * so a ray is tested with all of them at once by the {@link MeshKernels} - with SIMD instructions
+ * when the vector kernels are available. The emission and the material of every triangle are kept
+ * as an index into the distinct surfaces of the mesh.
+ * <p>
+ * The coordinates are stored relative to the center of the mesh, and the ray head is converted to them
+ * in double precision, so the precision depends on the size of the mesh and the distance from it,
+ * not on the magnitude of the coordinates. The bounding boxes are rounded outwards and widened
+ * by the rounding of the ray head, so the slab test never misses a triangle. The intersection points
+ * are calculated in double precision along the ray from the single precision distance.
+ * <p>
+ * An intersection point is a {@link Face} of the mesh, a light geometry made for the hit,
+ * with the emission, the material and the normal of its triangle.
+ */
+public class FloatMesh extends Intersectable {
+    /**
+     * The kernels of the meshes, chosen once by {@link MeshKernels#load()}
+     */
+    private static final MeshKernels KERNELS = MeshKernels.load();
+    /**
+     * Depth of the traversal stack, enough for the tree of any array of triangles
+     */
+    private static final int STACK_DEPTH = 256;
+
+    /**
+     * The kernels of this mesh
+     */
+    private final MeshKernels kernels;
+    /**
+     * The center of the mesh, the origin of the stored coordinates
+     */
+    private final double cx, cy, cz;
+    /**
+     * The maximal absolute stored coordinate of the boxes, the scale of their rounding
+     */
+    private final float scale;
+    /**
+     * The blocks of triangles, {@link MeshKernels#TRIANGLE_COMPONENTS} components of {@link MeshKernels#WIDTH}
+     * lanes per block
+     */
+    private float[] triangles;
+    /**
+     * The number of triangles of every block
+     */
+    private int[] blockCounts;
+    /**
+     * The index of the surface of every lane of the blocks
+     */
+    private int[] surfaces;
+    /**
+     * The emissions of the distinct surfaces
+     */
+    private final Color[] emissions;
+    /**
+     * The materials of the distinct surfaces
+     */
+    private final Material[] materials;
+    /**
+     * The bounding boxes of the children of the tree nodes, {@link MeshKernels#BOX_COMPONENTS} components
+     * of {@link MeshKernels#WIDTH} lanes per node
+     */
+    private float[] boxes;
+    /**
+     * The children of the tree nodes, {@link MeshKernels#WIDTH} per node: the index of an inner node,
+     * or the complement (~) of the index of a block
+     */
+    private int[] children;
+    /**
+     * The number of children of every tree node
+     */
+    private int[] childCounts;
+    /**
+     * Number of the tree nodes
+     */
+    private int nodes = 0;
+    /**
+     * Number of the blocks
+     */
+    private int blocks = 0;
+    /**
+     * Number of the triangles
+     */
+    private final int count;
+
+    /**
+     * A triangle of the mesh as a geometry of an intersection point
+     */
+    public static final class Face extends Geometry {
+        /**
+         * The mesh
+         */
+        private final FloatMesh mesh;
+        /**
+         * The index of the lane of the triangle in the blocks
+         */
+        private final int index;
+
+        /**
+         * Creates the geometry of a triangle of a mesh
+         *
+         * @param mesh  the mesh
+         * @param index the index of the lane of the triangle
+         */
+        private Face(FloatMesh mesh, int index) {
+            this.mesh = mesh;
+            this.index = index;
+            int surface = mesh.surfaces[index];
+            this.emission = mesh.emissions[surface];
+            setMaterial(mesh.materials[surface]);
+        }
+
+        /**
+         * Gets the index of the triangle in the mesh
+         *
+         * @return the index of the lane of the triangle in the blocks
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        @Override
+        public Vector getNormal(Point p) {
+            float[] t = mesh.triangles;
+            int i = component(index);
+            double e1x = t[i + 3 * WIDTH], e1y = t[i + 4 * WIDTH], e1z = t[i + 5 * WIDTH];
+            double e2x = t[i + 6 * WIDTH], e2y = t[i + 7 * WIDTH], e2z = t[i + 8 * WIDTH];
+            // The cross product of the edges, like the plane of a triangle of the same vertices
+            return new Vector(e1y * e2z - e1z * e2y, e1z * e2x - e1x * e2z, e1x * e2y - e1y * e2x).normalize();
+        }
+
+        @Override
+        protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray, double distance) {
+            float t = ScalarMeshKernels.intersect(mesh.triangles, component(index), mesh.meshRay(ray, distance));
+            return Float.isNaN(t) ? null : List.of(new GeoPoint(this, ray.getPoint(mesh.refine(index, ray, t))));
+        }
+    }
+
+    /**
+     * Creates a mesh of triangles, intersected by the kernels chosen by {@link MeshKernels#load()}
+     *
+     * @param source the triangles, with their emissions and materials
+     * @throws IllegalArgumentException if there are no triangles
+     */
+    public FloatMesh(List<Triangle> source) {
+        this(source, KERNELS);
+    }
+
+    /**
+     * Creates a mesh of triangles
+     *
+     * @param source  the triangles, with their emissions and materials
+     * @param kernels the kernels of the intersections
+     * @throws IllegalArgumentException if there are no triangles
+     */
+    FloatMesh(List<Triangle> source, MeshKernels kernels) {
+        this.kernels = kernels;
+        count = source.size();
+        if (count == 0)
+            throw new IllegalArgumentException("A mesh must have triangles");
+
+        // The surfaces are distinct by the identity of the emission and the material
+        Map<List<Object>, Integer> surfaceIndices = new HashMap<>();
+        int[] sourceSurfaces = new int[count];
+        double[] centroids = new double[count * 3];
+        double[] bounds = new double[count * 6];
+        double[] min = {Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY};
+        double[] max = {Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY};
+        Triangle[] array = source.toArray(new Triangle[0]);
+        for (int i = 0; i < count; ++i) {
+            Triangle triangle = array[i];
+            List<Object> surface = List.of(new Identity(triangle.getEmission()), new Identity(triangle.getMaterial()));
+            sourceSurfaces[i] = surfaceIndices.computeIfAbsent(surface, s -> surfaceIndices.size());
+            for (int axis = 0; axis < 3; ++axis) {
+                double a = coordinate(triangle.vertices.get(0), axis);
+                double b = coordinate(triangle.vertices.get(1), axis);
+                double c = coordinate(triangle.vertices.get(2), axis);
+                centroids[i * 3 + axis] = (a + b + c) / 3;
+                bounds[i * 6 + axis] = Math.min(a, Math.min(b, c));
+                bounds[i * 6 + 3 + axis] = Math.max(a, Math.max(b, c));
+                min[axis] = Math.min(min[axis], bounds[i * 6 + axis]);
+                max[axis] = Math.max(max[axis], bounds[i * 6 + 3 + axis]);
+            }
+        }
+        emissions = new Color[surfaceIndices.size()];
+        materials = new Material[surfaceIndices.size()];
+        for (Map.Entry<List<Object>, Integer> entry : surfaceIndices.entrySet()) {
+            emissions[entry.getValue()] = (Color) ((Identity) entry.getKey().get(0)).value;
+            materials[entry.getValue()] = (Material) ((Identity) entry.getKey().get(1)).value;
+        }
+        cx = (min[0] + max[0]) / 2;
+        cy = (min[1] + max[1]) / 2;
+        cz = (min[2] + max[2]) / 2;
+
+        int[] order = new int[count];
+        for (int i = 0; i < count; ++i)
+            order[i] = i;
+        int capacity = count / WIDTH + 1;
+        boxes = new float[capacity * BOX_COMPONENTS * WIDTH];
+        children = new int[capacity * WIDTH];
+        childCounts = new int[capacity];
+        int[] blockFroms = new int[capacity];
+        blockCounts = new int[capacity];
+        blockFroms = build(order, 0, count, centroids, bounds, blockFroms);
+        boxes = Arrays.copyOf(boxes, nodes * BOX_COMPONENTS * WIDTH);
+        children = Arrays.copyOf(children, nodes * WIDTH);
+        childCounts = Arrays.copyOf(childCounts, nodes);
+        blockCounts = Arrays.copyOf(blockCounts, blocks);
+
+        // The triangles of every block are stored in its lanes in the order of the tree
+        triangles = new float[blocks * TRIANGLE_COMPONENTS * WIDTH];
+        surfaces = new int[blocks * WIDTH];
+        double[] center = {cx, cy, cz};
+        for (int block = 0; block < blocks; ++block)
+            for (int lane = 0; lane < blockCounts[block]; ++lane) {
+                int triangle = order[blockFroms[block] + lane];
+                List<Point> vertices = array[triangle].vertices;
+                int index = component(block * WIDTH + lane);
+                for (int axis = 0; axis < 3; ++axis) {
+                    double origin = coordinate(vertices.get(0), axis);
+                    triangles[index + axis * WIDTH] = (float) (origin - center[axis]);
+                    triangles[index + (3 + axis) * WIDTH] = (float) (coordinate(vertices.get(1), axis) - origin);
+                    triangles[index + (6 + axis) * WIDTH] = (float) (coordinate(vertices.get(2), axis) - origin);
+                }
+                surfaces[block * WIDTH + lane] = sourceSurfaces[triangle];
+            }
+
+        float largest = 0;
+        for (int node = 0; node < nodes; ++node)
+            for (int c = 0; c < BOX_COMPONENTS; ++c)
+                for (int lane = 0; lane < childCounts[node]; ++lane)
+                    largest = Math.max(largest, Math.abs(boxes[(node * BOX_COMPONENTS + c) * WIDTH + lane]));
+        scale = largest;
+        boundingBox = new BoundingBox(new Point(min[0], min[1], min[2]), new Point(max[0], max[1], max[2]));
+    }
+
+    /**
+     * Wrapper of an object whose equality is its identity
+     *
+     * @param value the object
+     */
+    private record Identity(Object value) {
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Identity other && other.value == value;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(value);
+        }
+    }
+
+    /**
+     * Gets a coordinate of a point
+     *
+     * @param point the point
+     * @param axis  the axis - 0, 1 or 2 for X, Y or Z
+     * @return the coordinate
+     */
+    private static double coordinate(Point point, int axis) {
+        return axis == 0 ? point.getX() : axis == 1 ? point.getY() : point.getZ();
+    }
+
+    /**
+     * Calculates the index of the first component of a lane of the blocks
+     *
+     * @param index the index of the lane in the blocks
+     * @return the index of its first component in the triangles array
+     */
+    private static int component(int index) {
+        return index / WIDTH * TRIANGLE_COMPONENTS * WIDTH + index % WIDTH;
+    }
+
+    /**
+     * Builds the subtree of a range of triangles. The range is split into up to {@link MeshKernels#WIDTH}
+     * children by splitting the largest child at the median of the centroids along the longest axis
+     * of their bounds, until every child fits in a block or there are {@link MeshKernels#WIDTH} children
+     *
+     * @param order      the indices of the triangles, reordered in the order of the blocks
+     * @param from       the first index of the range in the order
+     * @param to         the index after the range in the order
+     * @param centroids  the centroids of the triangles, 3 coordinates per triangle
+     * @param bounds     the bounding boxes of the triangles, 6 coordinates per triangle
+     * @param blockFroms the index in the order of the first triangle of every block
+     * @return the array of the blocks' first triangles, reallocated if it has grown
+     */
+    private int[] build(int[] order, int from, int to, double[] centroids, double[] bounds, int[] blockFroms) {
+        int node = nodes++;
+        if (node >= childCounts.length) {
+            boxes = Arrays.copyOf(boxes, boxes.length * 2);
+            children = Arrays.copyOf(children, children.length * 2);
+            childCounts = Arrays.copyOf(childCounts, childCounts.length * 2);
+        }
+
+        int[] froms = new int[WIDTH + 1];
+        froms[0] = from;
+        froms[1] = to;
+        int ranges = 1;
+        while (ranges < WIDTH) {
+            int largest = 0;
+            for (int r = 1; r < ranges; ++r)
+                if (froms[r + 1] - froms[r] > froms[largest + 1] - froms[largest])
+                    largest = r;
+            int start = froms[largest];
+            int end = froms[largest + 1];
+            if (end - start <= WIDTH)
+                break;
+            int middle = (start + end) >>> 1;
+            select(order, start, end - 1, middle, centroids, longestAxis(order, start, end, centroids));
+            System.arraycopy(froms, largest + 1, froms, largest + 2, ranges - largest);
+            froms[largest + 1] = middle;
+            ++ranges;
+        }
+
+        childCounts[node] = ranges;
+        double[] center = {cx, cy, cz};
+        for (int r = 0; r < ranges; ++r) {
+            int start = froms[r];
+            int end = froms[r + 1];
+            for (int axis = 0; axis < 3; ++axis) {
+                double min = Double.POSITIVE_INFINITY;
+                double max = Double.NEGATIVE_INFINITY;
+                for (int i = start; i < end; ++i) {
+                    min = Math.min(min, bounds[order[i] * 6 + axis]);
+                    max = Math.max(max, bounds[order[i] * 6 + 3 + axis]);
+                }
+                // Rounded outwards, so the single precision box contains the double precision box
+                boxes[(node * BOX_COMPONENTS + axis) * WIDTH + r] = Math.nextDown((float) (min - center[axis]));
+                boxes[(node * BOX_COMPONENTS + 3 + axis) * WIDTH + r] = Math.nextUp((float) (max - center[axis]));
+            }
+            if (end - start <= WIDTH) {
+                int block = blocks++;
+                if (block >= blockCounts.length) {
+                    blockCounts = Arrays.copyOf(blockCounts, blockCounts.length * 2);
+                    blockFroms = Arrays.copyOf(blockFroms, blockFroms.length * 2);
+                }
+                blockFroms[block] = start;
+                blockCounts[block] = end - start;
+                children[node * WIDTH + r] = ~block;
+            } else {
+                children[node * WIDTH + r] = nodes;
+                blockFroms = build(order, start, end, centroids, bounds, blockFroms);
+            }
+        }
+        return blockFroms;
+    }
+
+    /**
+     * Finds the axis along which the centroids of a range of triangles spread the most
+     *
+     * @param order     the indices of the triangles
+     * @param from      the first index of the range
+     * @param to        the index after the range
+     * @param centroids the centroids of the triangles
+     * @return the axis - 0, 1 or 2 for X, Y or Z
+     */
+    private static int longestAxis(int[] order, int from, int to, double[] centroids) {
+        int longest = 0;
+        double longestLength = -1;
+        for (int axis = 0; axis < 3; ++axis) {
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            for (int i = from; i < to; ++i) {
+                min = Math.min(min, centroids[order[i] * 3 + axis]);
+                max = Math.max(max, centroids[order[i] * 3 + axis]);
+            }
+            if (max - min > longestLength) {
+                longestLength = max - min;
+                longest = axis;
+            }
+        }
+        return longest;
+    }
+
+    /**
+     * Partially sorts a range of triangles by their centroids along an axis (quickselect),
+     * so the triangle at the k-th position is in its sorted position, the triangles before it are not greater
+     * and the triangles after it are not less
+     *
+     * @param order     the indices of the triangles
+     * @param left      the first index of the range
+     * @param right     the last index of the range
+     * @param k         the position to place
+     * @param centroids the centroids of the triangles
+     * @param axis      the axis
+     */
+    private static void select(int[] order, int left, int right, int k, double[] centroids, int axis) {
+        while (left < right) {
+            double pivot = centroids[order[(left + right) >>> 1] * 3 + axis];
+            int i = left;
+            int j = right;
+            while (i <= j) {
+                while (centroids[order[i] * 3 + axis] < pivot) ++i;
+                while (centroids[order[j] * 3 + axis] > pivot) --j;
+                if (i <= j) {
+                    int swap = order[i];
+                    order[i++] = order[j];
+                    order[j--] = swap;
+                }
+            }
+            if (k <= j)
+                right = j;
+            else if (k >= i)
+                left = i;
+            else
+                return;
+        }
+    }
+
+    /**
+     * Gets the name of the kernels that the meshes use by default
+     *
+     * @return the name of the kernels, e.g. "scalar"
+     */
+    public static String getKernels() {
+        return KERNELS.name();
+    }
+
+    /**
+     * Gets the number of triangles of the mesh
+     *
+     * @return the number of triangles
+     */
+    public int getTriangleCount() {
+        return count;
+    }
+
+    /**
+     * Gets the number of nodes of the tree of the mesh
+     *
+     * @return the number of nodes
+     */
+    public int getNodeCount() {
+        return nodes;
+    }
+
+    /**
+     * Calculates the memory of the arrays of the mesh
+     *
+     * @return the size of the triangles, the surfaces and the tree in bytes
+     */
+    public long getMemoryBytes() {
+        return 4L * (triangles.length + blockCounts.length + surfaces.length + boxes.length + children.length
+                + childCounts.length);
+    }
+
+    /**
+     * Converts a ray to the coordinates of the mesh
+     *
+     * @param ray      the ray
+     * @param distance the maximal distance along the ray
+     * @return the ray in single precision, relative to the center of the mesh
+     */
+    private MeshRay meshRay(Ray ray, double distance) {
+        Point head = ray.getHead();
+        Vector direction = ray.getDirection();
+        return new MeshRay((float) (head.getX() - cx), (float) (head.getY() - cy), (float) (head.getZ() - cz),
+                (float) direction.getX(), (float) direction.getY(), (float) direction.getZ(), scale,
+                (float) Math.min(distance, Float.MAX_VALUE));
+    }
+
+    /**
+     * Refines the distance of an intersection with a triangle in double precision, by intersecting the ray
+     * with the plane of the stored triangle, so the error of the point does not grow with the distance
+     * of the ray head from the triangle
+     *
+     * @param index    the index of the lane of the triangle in the blocks
+     * @param ray      the ray
+     * @param distance the single precision distance of the intersection
+     * @return the refined distance
+     */
+    private double refine(int index, Ray ray, float distance) {
+        int i = component(index);
+        double e1x = triangles[i + 3 * WIDTH], e1y = triangles[i + 4 * WIDTH], e1z = triangles[i + 5 * WIDTH];
+        double e2x = triangles[i + 6 * WIDTH], e2y = triangles[i + 7 * WIDTH], e2z = triangles[i + 8 * WIDTH];
+        double nx = e1y * e2z - e1z * e2y, ny = e1z * e2x - e1x * e2z, nz = e1x * e2y - e1y * e2x;
+        Point head = ray.getHead();
+        Vector direction = ray.getDirection();
+        double denominator = nx * direction.getX() + ny * direction.getY() + nz * direction.getZ();
+        double numerator = nx * (triangles[i] + cx - head.getX()) + ny * (triangles[i + WIDTH] + cy - head.getY())
+                + nz * (triangles[i + 2 * WIDTH] + cz - head.getZ());
+        double refined = numerator / denominator;
+        // The kernel has hit the triangle at the rounded distance, so the refinement only corrects its rounding
+        return Double.isFinite(refined) && Math.abs(refined - distance) <= 1e-3 * Math.max(1, distance)
+                ? refined : distance;
+    }
+
+    @Override
+    protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray, double distance) {
+        MeshRay meshRay = meshRay(ray, distance);
+        List<GeoPoint> result = null;
+        float[] distances = new float[WIDTH];
+        int[] stack = new int[STACK_DEPTH];
+        int top = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            int node = stack[--top];
+            if (IntersectionCounters.ENABLED)
+                IntersectionCounters.nodeVisited();
+            int hits = kernels.hitBoxes(boxes, node * BOX_COMPONENTS * WIDTH, childCounts[node], meshRay);
+            while (hits != 0) {
+                int child = children[node * WIDTH + Integer.numberOfTrailingZeros(hits)];
+                hits &= hits - 1;
+                if (child >= 0) {
+                    stack[top++] = child;
+                    continue;
+                }
+                int block = ~child;
+                int found = kernels.intersectTriangles(triangles, block * TRIANGLE_COMPONENTS * WIDTH,
+                        blockCounts[block], meshRay, distances);
+                if (IntersectionCounters.ENABLED)
+                    for (int lane = 0; lane < blockCounts[block]; ++lane)
+                        IntersectionCounters.tested(this, (found & 1 << lane) != 0);
+                while (found != 0) {
+                    int lane = Integer.numberOfTrailingZeros(found);
+                    found &= found - 1;
+                    if (result == null)
+                        result = new LinkedList<>();
+                    result.add(new GeoPoint(new Face(this, block * WIDTH + lane), ray.getPoint(refine(block * WIDTH + lane, ray, distances[lane]))));
+                }
+            }
+        }
+        return result;
+    }
+}
@@ -2,6 +2,10 @@ package geometries;
 
 import primitives.*;
 
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
 import java.util.*;
 
 /**
@@ -12,6 +16,15 @@ import java.util.*;
  * the aggregated geometries.
  */
 public class Geometries extends Intersectable {
+    /**
+     * Tag of a serialized group node with a bounding box
+     */
+    private static final int GROUP = -1;
+    /**
+     * Tag of a serialized group node without a bounding box
+     */
+    private static final int GROUP_UNBOUNDED = -2;
+
     /**
      * List of intersectable geometries initialized with an empty LinkedList.
      */
@@ -48,6 +61,16 @@ public class Geometries extends Intersectable {
         Collections.addAll(this.geometries, geometries);
     }
 
+    /**
+     * Gets a read-only view of the geometries in the collection.
+     * After {@link #makeBVH()} the view contains the nodes of the BVH tree rather than the original geometries.
+     *
+     * @return an unmodifiable view of the geometries list.
+     */
+    public List<Intersectable> getGeometries() {
+        return Collections.unmodifiableList(geometries);
+    }
+
     /**
      * Finds all intersection points between the given ray and the geometries in the collection.
      * The method iterates over all geometries in the collection and checks for intersections
@@ -65,6 +88,12 @@ public class Geometries extends Intersectable {
         for (Intersectable geometry : geometries) {
             // Find intersections with the current geometry
             List<GeoPoint> intersections = geometry.findGeoIntersections(ray, distance);
+            if (IntersectionCounters.ENABLED) {
+                if (geometry instanceof Geometries)
+                    IntersectionCounters.nodeVisited();
+                else
+                    IntersectionCounters.tested(geometry, intersections != null);
+            }
 
             // If intersections are found, add them to the result list
             if (intersections != null) {
@@ -77,14 +106,59 @@ public class Geometries extends Intersectable {
         return result; // Return the list of intersections or null if no intersections were found
     }
 
+    /**
+     * Intersects the active rays of a packet with the geometries in the collection.
+     * The bounding box is culled for the whole packet and then narrowed to the rays from the first one
+     * that hits it; the members are visited once for all the remaining rays, front to back along the X axis
+     * of the BVH splits. A single remaining ray continues alone, without the overhead of the packet.
+     *
+     * @param packet the packet of rays
+     * @param mask   the active rays, bit i for ray i
+     */
+    @Override
+    void intersect(RayPacket packet, long mask) {
+        if (BVH && boundingBox != null && boundingBox.isFinite()) {
+            if (!packet.mayHit(boundingBox))
+                return;
+            mask = packet.firstActive(boundingBox, mask);
+            if (mask == 0)
+                return;
+        }
+        if (Long.bitCount(mask) == 1) {
+            int index = Long.numberOfTrailingZeros(mask);
+            packet.add(index, findGeoIntersectionsHelper(packet.getRay(index), packet.getLimit(index)));
+            return;
+        }
+        ListIterator<Intersectable> members = packet.isReversed()
+                ? geometries.listIterator(geometries.size()) : geometries.listIterator();
+        while (packet.isReversed() ? members.hasPrevious() : members.hasNext()) {
+            Intersectable geometry = packet.isReversed() ? members.previous() : members.next();
+            if (IntersectionCounters.ENABLED && geometry instanceof Geometries)
+                IntersectionCounters.nodeVisited();
+            geometry.intersect(packet, mask);
+        }
+    }
+
     /**
      * Converts the list of geometries into a Bounding Volume Hierarchy (BVH) tree.
      * This method optimizes the performance of intersection tests by organizing the geometries
      * into a tree structure that allows for efficient spatial queries.
      */
     public void makeBVH() {
-        // Build the BVH tree from the current list of geometries
-        List<Intersectable> intersectables = BoundingBox.buildBVH(geometries);
+        BVHBuildEvent event = new BVHBuildEvent();
+        event.begin();
+        int size = geometries.size();
+        buildBVH();
+        commit(event, size, false);
+    }
+
+    /**
+     * Builds the BVH tree from the current list of geometries
+     */
+    private void buildBVH() {
+        // Build the BVH tree from a copy of the current list of geometries,
+        // since a list of a single geometry is returned as is and would be cleared below
+        List<Intersectable> intersectables = BoundingBox.buildBVH(new ArrayList<>(geometries));
 
         // Clear the current list of geometries
         geometries.clear();
@@ -92,4 +166,182 @@ public class Geometries extends Intersectable {
         // Add the BVH tree nodes back into the geometries list
         geometries.addAll(intersectables);
     }
+
+    /**
+     * Replaces all the triangles of the collection by a single precision {@link FloatMesh} of them,
+     * which takes a fraction of their memory and has its own BVH.
+     * The triangles are collected from the nested collections too, and the nested collections are flattened,
+     * so a BVH built before is dropped - call {@link #makeBVH()} afterwards for the other geometries.
+     * Nothing changes if the collection has no triangles.
+     *
+     * @return the mesh, or null if the collection has no triangles
+     */
+    public FloatMesh makeFloatMesh() {
+        List<Triangle> triangles = new ArrayList<>();
+        List<Intersectable> others = new ArrayList<>();
+        flatten(triangles, others);
+        if (triangles.isEmpty())
+            return null;
+        FloatMesh mesh = new FloatMesh(triangles);
+        geometries.clear();
+        geometries.addAll(others);
+        geometries.add(mesh);
+        return mesh;
+    }
+
+    /**
+     * Collects the geometries of the collection and of its nested collections
+     *
+     * @param triangles the list of the triangles
+     * @param others    the list of the other geometries
+     */
+    private void flatten(List<Triangle> triangles, List<Intersectable> others) {
+        for (Intersectable geometry : geometries) {
+            if (geometry instanceof Geometries group)
+                group.flatten(triangles, others);
+            else if (geometry instanceof Triangle triangle)
+                triangles.add(triangle);
+            else
+                others.add(geometry);
+        }
+    }
+
+    /**
+     * Ends a BVH build event and commits it if it passes the event settings
+     *
+     * @param event  the event
+     * @param size   the number of geometries the tree was made of
+     * @param cached whether the tree was restored from a cache
+     */
+    private static void commit(BVHBuildEvent event, int size, boolean cached) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.geometries = size;
+            event.cached = cached;
+            event.commit();
+        }
+    }
+
+    /**
+     * Converts the list of geometries into a Bounding Volume Hierarchy (BVH) tree like {@link #makeBVH()},
+     * taking the tree from the cache if a tree of the same geometries was built before,
+     * and storing the built tree in the cache otherwise.
+     *
+     * @param cache the cache of built BVH trees
+     */
+    public void makeBVH(BVHCache cache) {
+        BVHBuildEvent event = new BVHBuildEvent();
+        event.begin();
+        List<Intersectable> members = new ArrayList<>(geometries);
+        String key = BVHCache.key(members);
+        Geometries cached = cache.load(key, members);
+        if (cached != null) {
+            geometries.clear();
+            geometries.addAll(cached.geometries);
+            commit(event, members.size(), true);
+            return;
+        }
+        buildBVH();
+        cache.store(key, this, members);
+        commit(event, members.size(), false);
+    }
+
+    /**
+     * Writes the structure of the collection - the nested collections (e.g. the nodes of the BVH tree)
+     * with their bounding boxes and the indices of the other geometries - so it can be restored
+     * by {@link #readTree} without building the BVH again.
+     * The nodes are written in preorder: a geometry as its non-negative index, a collection as a tag,
+     * its bounding box corners and the number of its members followed by its members.
+     *
+     * @param out     the output to write to
+     * @param indices the indices of all the geometries in the collection which are not collections
+     * @throws IOException              on I/O error
+     * @throws IllegalArgumentException if a geometry has no index
+     */
+    public void writeTree(DataOutput out, Map<Intersectable, Integer> indices) throws IOException {
+        if (boundingBox == null)
+            out.writeInt(GROUP_UNBOUNDED);
+        else {
+            out.writeInt(GROUP);
+            writePoint(out, boundingBox.getMin());
+            writePoint(out, boundingBox.getMax());
+        }
+        out.writeInt(geometries.size());
+        for (Intersectable geometry : geometries) {
+            if (geometry instanceof Geometries group)
+                group.writeTree(out, indices);
+            else {
+                Integer index = indices.get(geometry);
+                if (index == null)
+                    throw new IllegalArgumentException("Geometry " + geometry + " has no index");
+                out.writeInt(index);
+            }
+        }
+    }
+
+    /**
+     * Reads a collection structure written by {@link #writeTree}.
+     *
+     * @param in         the buffer to read from, positioned at the structure
+     * @param primitives the geometries by their indices
+     * @return the restored collection
+     * @throws IllegalArgumentException if the structure is invalid
+     */
+    public static Geometries readTree(ByteBuffer in, List<? extends Intersectable> primitives) {
+        try {
+            int tag = in.getInt();
+            if (tag != GROUP && tag != GROUP_UNBOUNDED)
+                throw new IllegalArgumentException("Invalid geometries tree");
+            return readGroup(in, tag, primitives);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Truncated geometries tree", e);
+        }
+    }
+
+    /**
+     * Reads recursively a collection node after its tag
+     *
+     * @param in         the buffer to read from, positioned after the tag
+     * @param tag        the tag of the node
+     * @param primitives the geometries by their indices
+     * @return the restored collection
+     */
+    private static Geometries readGroup(ByteBuffer in, int tag, List<? extends Intersectable> primitives) {
+        Geometries group = new Geometries();
+        group.boundingBox = tag == GROUP_UNBOUNDED ? null : group.new BoundingBox(readPoint(in), readPoint(in));
+        int size = in.getInt();
+        for (int i = 0; i < size; ++i) {
+            int child = in.getInt();
+            if (child >= 0)
+                group.geometries.add(primitives.get(child));
+            else if (child == GROUP || child == GROUP_UNBOUNDED)
+                group.geometries.add(readGroup(in, child, primitives));
+            else
+                throw new IllegalArgumentException("Invalid geometries tree");
+        }
+        return group;
+    }
+
+    /**
+     * Writes the coordinates of a point
+     *
+     * @param out   the output to write to
+     * @param point the point
+     * @throws IOException on I/O error
+     */
+    private static void writePoint(DataOutput out, Point point) throws IOException {
+        out.writeDouble(point.getX());
+        out.writeDouble(point.getY());
+        out.writeDouble(point.getZ());
+    }
+
+    /**
+     * Reads the coordinates of a point
+     *
+     * @param in the buffer to read from
+     * @return the point
+     */
+    private static Point readPoint(ByteBuffer in) {
+        return new Point(in.getDouble(), in.getDouble(), in.getDouble());
+    }
 }
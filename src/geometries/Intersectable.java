@@ -86,6 +86,40 @@ public abstract class Intersectable {
         return findGeoIntersectionsHelper(ray, distance);
     }
 
+    /**
+     * Finds the geometric intersections of a packet of rays with the intersectable object, walking the BVH once
+     * for all the rays of a coherent packet, and ray by ray for a divergent packet.
+     * The intersections are recorded in the packet.
+     *
+     * @param packet the packet of rays
+     */
+    public final void findGeoIntersections(RayPacket packet) {
+        if (packet.isCoherent()) {
+            intersect(packet, packet.all());
+            return;
+        }
+        for (int i = 0; i < packet.size(); ++i)
+            packet.add(i, findGeoIntersections(packet.getRay(i), packet.getLimit(i)));
+    }
+
+    /**
+     * Intersects the active rays of a packet with the intersectable object and records the intersections
+     * in the packet. A geometry intersects the rays one by one, a collection overrides it to cull
+     * its bounding box for the whole packet.
+     *
+     * @param packet the packet of rays
+     * @param mask   the active rays, bit i for ray i
+     */
+    void intersect(RayPacket packet, long mask) {
+        for (; mask != 0; mask &= mask - 1) {
+            int index = Long.numberOfTrailingZeros(mask);
+            List<GeoPoint> intersections = findGeoIntersections(packet.getRay(index), packet.getLimit(index));
+            if (IntersectionCounters.ENABLED)
+                IntersectionCounters.tested(this, intersections != null);
+            packet.add(index, intersections);
+        }
+    }
+
     /**
      * Helper method to find the geometric intersections of a ray with the intersectable object.
      * This method must be implemented by subclasses.
@@ -209,6 +243,34 @@ public abstract class Intersectable {
             this.max = max;
         }
 
+        /**
+         * Gets the minimum corner of the bounding box.
+         *
+         * @return The minimum corner point of the bounding box
+         */
+        public Point getMin() {
+            return min;
+        }
+
+        /**
+         * Gets the maximum corner of the bounding box.
+         *
+         * @return The maximum corner point of the bounding box
+         */
+        public Point getMax() {
+            return max;
+        }
+
+        /**
+         * Checks whether the bounding box is finite, i.e. none of its corners lies at infinity.
+         *
+         * @return true if all the coordinates of both corners are finite, false otherwise
+         */
+        public boolean isFinite() {
+            return Double.isFinite(min.getX()) && Double.isFinite(min.getY()) && Double.isFinite(min.getZ())
+                    && Double.isFinite(max.getX()) && Double.isFinite(max.getY()) && Double.isFinite(max.getZ());
+        }
+
         /**
          * Calculates and returns the center point of the bounding box.
          *
@@ -0,0 +1,143 @@
+package geometries;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Global counters of the intersection work: the BVH nodes visited by rays and the intersection tests
+ * of the geometries by their classes, with the tests that found an intersection.
+ * The counters are striped ({@link LongAdder}), so the rendering threads do not contend on them.
+ * <p>
+ * The counters are enabled by the system property {@code raytracer.metrics=true}. The flag is a static final
+ * constant, so when it is disabled the just-in-time compiler removes the counting code completely.
+ */
+public final class IntersectionCounters {
+    /**
+     * Whether the counters are enabled, set once by the system property raytracer.metrics
+     */
+    public static final boolean ENABLED = Boolean.getBoolean("raytracer.metrics");
+
+    /**
+     * Number of bounding box tests of geometries collections (BVH nodes)
+     */
+    private static final LongAdder nodeVisits = new LongAdder();
+    /**
+     * Number of intersection tests of geometries by their classes
+     */
+    private static final Map<Class<?>, LongAdder> tests = new ConcurrentHashMap<>();
+    /**
+     * Number of intersection tests which found an intersection, by the classes of the geometries
+     */
+    private static final Map<Class<?>, LongAdder> hits = new ConcurrentHashMap<>();
+    /**
+     * Number of BVH node visits and of intersection tests of each thread, for attributing them to pixels
+     */
+    private static final ThreadLocal<long[]> threadCounts = ThreadLocal.withInitial(() -> new long[2]);
+
+    /**
+     * Private constructor to prevent instantiation of the utility class
+     */
+    private IntersectionCounters() {
+    }
+
+    /**
+     * Counts a visit of a BVH node
+     */
+    static void nodeVisited() {
+        if (!ENABLED)
+            return;
+        nodeVisits.increment();
+        ++threadCounts.get()[0];
+    }
+
+    /**
+     * Counts an intersection test of a geometry
+     *
+     * @param geometry the tested geometry
+     * @param hit      whether the test found an intersection
+     */
+    static void tested(Intersectable geometry, boolean hit) {
+        if (!ENABLED)
+            return;
+        Class<?> type = geometry.getClass();
+        tests.computeIfAbsent(type, t -> new LongAdder()).increment();
+        if (hit)
+            hits.computeIfAbsent(type, t -> new LongAdder()).increment();
+        ++threadCounts.get()[1];
+    }
+
+    /**
+     * Resets all the counters
+     */
+    public static void reset() {
+        nodeVisits.reset();
+        tests.values().forEach(LongAdder::reset);
+        hits.values().forEach(LongAdder::reset);
+    }
+
+    /**
+     * Gets the number of BVH node visits
+     *
+     * @return the number of bounding box tests of geometries collections
+     */
+    public static long getNodeVisits() {
+        return nodeVisits.sum();
+    }
+
+    /**
+     * Gets the number of BVH node visits of the current thread since it started, which are not reset.
+     * The visits of a piece of work are the difference of the counts before and after it
+     *
+     * @return the number of bounding box tests of geometries collections by the current thread,
+     * zero if the counters are disabled
+     */
+    public static long getThreadNodeVisits() {
+        return ENABLED ? threadCounts.get()[0] : 0;
+    }
+
+    /**
+     * Gets the number of intersection tests of geometries of the current thread since it started,
+     * which are not reset
+     *
+     * @return the number of intersection tests by the current thread, zero if the counters are disabled
+     */
+    public static long getThreadTests() {
+        return ENABLED ? threadCounts.get()[1] : 0;
+    }
+
+    /**
+     * Gets the number of intersection tests by geometry class
+     *
+     * @return the simple class names mapped to their numbers of tests, sorted by name
+     */
+    public static Map<String, Long> getTests() {
+        return sums(tests);
+    }
+
+    /**
+     * Gets the number of intersection tests which found an intersection by geometry class
+     *
+     * @return the simple class names mapped to their numbers of hits, sorted by name
+     */
+    public static Map<String, Long> getHits() {
+        return sums(hits);
+    }
+
+    /**
+     * Sums counters by class
+     *
+     * @param counters the counters
+     * @return the simple class names mapped to the sums of their counters
+     */
+    private static Map<String, Long> sums(Map<Class<?>, LongAdder> counters) {
+        Map<String, Long> result = new TreeMap<>();
+        counters.forEach((type, counter) -> {
+            long sum = counter.sum();
+            if (sum != 0)
+                result.merge(type.getSimpleName(), sum, Long::sum);
+        });
+        return result;
+    }
+}
@@ -0,0 +1,162 @@
+package geometries;
+
+/**
+ * Kernels of the intersections of a ray with the blocks of a {@link FloatMesh}.
+ * A block holds {@link #WIDTH} boxes or triangles in structure-of-arrays layout - every component
+ * (a coordinate of a corner, a vertex or an edge) of the block is {@link #WIDTH} consecutive floats,
+ * one lane per box or triangle - so a kernel can test a ray with all the lanes of a block at once.
+ * A block is always stored with all its lanes, also when it has fewer boxes or triangles.
+ * <p>
+ * The scalar kernels ({@link ScalarMeshKernels}) test the lanes one by one. The vector kernels test
+ * them with SIMD instructions of the JDK Vector API; they are in the separate {@code simd} source root,
+ * compiled and run with {@code --add-modules jdk.incubator.vector}, and are loaded reflectively,
+ * so the renderer falls back to the scalar kernels when the module is not enabled.
+ * Both kernels make the same floating point operations in the same order, so they find the same intersections.
+ */
+interface MeshKernels {
+    /**
+     * Number of lanes of a block
+     */
+    int WIDTH = 8;
+    /**
+     * Number of components of a box - the minimal and the maximal corners
+     */
+    int BOX_COMPONENTS = 6;
+    /**
+     * Number of components of a triangle - the first vertex and the two edges from it
+     */
+    int TRIANGLE_COMPONENTS = 9;
+    /**
+     * Minimal distance along a ray of an intersection, the single precision counterpart of
+     * {@link primitives.Util#alignZero}. The secondary rays start {@code Ray.DELTA} off the surface,
+     * far above the rounding of the single precision distance, so a nearer hit is the rounding
+     * of a hit at the ray head
+     */
+    float MIN_DISTANCE = 1e-4f;
+    /**
+     * Name of the class of the vector kernels
+     */
+    String VECTOR_KERNELS = "geometries.VectorMeshKernels";
+
+    /**
+     * A ray in the single precision coordinates of a mesh, relative to the center of the mesh
+     */
+    final class MeshRay {
+        /**
+         * The ray head
+         */
+        final float ox, oy, oz;
+        /**
+         * The ray direction
+         */
+        final float dx, dy, dz;
+        /**
+         * The inverse of the coordinates of the direction, for the slab test
+         */
+        final float ix, iy, iz;
+        /**
+         * The widening of the boxes on every side, which covers the rounding of the ray head and of the boxes
+         */
+        final float pad;
+        /**
+         * The maximal distance along the ray
+         */
+        final float limit;
+
+        /**
+         * Creates a ray in the coordinates of a mesh
+         *
+         * @param ox    the X coordinate of the ray head
+         * @param oy    the Y coordinate of the ray head
+         * @param oz    the Z coordinate of the ray head
+         * @param dx    the X coordinate of the ray direction
+         * @param dy    the Y coordinate of the ray direction
+         * @param dz    the Z coordinate of the ray direction
+         * @param scale the maximal absolute coordinate of the boxes
+         * @param limit the maximal distance along the ray
+         */
+        MeshRay(float ox, float oy, float oz, float dx, float dy, float dz, float scale, float limit) {
+            this.ox = ox;
+            this.oy = oy;
+            this.oz = oz;
+            this.dx = dx;
+            this.dy = dy;
+            this.dz = dz;
+            // A zero coordinate is replaced by the smallest normal float, so the slab distances are never NaN
+            this.ix = 1 / (dx == 0 ? Float.MIN_NORMAL : dx);
+            this.iy = 1 / (dy == 0 ? Float.MIN_NORMAL : dy);
+            this.iz = 1 / (dz == 0 ? Float.MIN_NORMAL : dz);
+            this.pad = 4 * Math.ulp(Math.max(Math.max(Math.abs(ox), Math.abs(oy)), Math.max(Math.abs(oz), scale)));
+            this.limit = limit;
+        }
+    }
+
+    /**
+     * Gets the name of the kernels, for reports
+     *
+     * @return the name
+     */
+    String name();
+
+    /**
+     * Tests a ray with the boxes of a block by the slab test
+     *
+     * @param boxes  the boxes
+     * @param offset the index of the block in the boxes array
+     * @param count  the number of boxes in the block, the lanes after them are ignored
+     * @param ray    the ray
+     * @return the mask of the boxes that the ray passes through before its maximal distance,
+     * bit i for the box of lane i
+     */
+    int hitBoxes(float[] boxes, int offset, int count, MeshRay ray);
+
+    /**
+     * Intersects a ray with the triangles of a block by the Möller-Trumbore algorithm.
+     * Like {@link Triangle}, the edges of a triangle and the rays in its plane do not intersect it
+     *
+     * @param triangles the triangles
+     * @param offset    the index of the block in the triangles array
+     * @param count     the number of triangles in the block, the lanes after them are ignored
+     * @param ray       the ray
+     * @param distances the distances of the intersections along the ray by the lanes, filled for the hit lanes
+     * @return the mask of the triangles that the ray hits before its maximal distance,
+     * bit i for the triangle of lane i
+     */
+    int intersectTriangles(float[] triangles, int offset, int count, MeshRay ray, float[] distances);
+
+    /**
+     * Gets the scalar kernels
+     *
+     * @return the scalar kernels
+     */
+    static MeshKernels scalar() {
+        return ScalarMeshKernels.INSTANCE;
+    }
+
+    /**
+     * Loads the vector kernels if the {@code jdk.incubator.vector} module is enabled and the processor
+     * has SIMD registers of at least 4 floats
+     *
+     * @return the vector kernels, or null if they are not available
+     */
+    static MeshKernels vector() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty())
+            return null;
+        try {
+            return (MeshKernels) Class.forName(VECTOR_KERNELS).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    /**
+     * Chooses the kernels of the meshes: the vector kernels if they are available, unless the system property
+     * {@code raytracer.simd} is false, and the scalar kernels otherwise
+     *
+     * @return the kernels
+     */
+    static MeshKernels load() {
+        MeshKernels vector = Boolean.parseBoolean(System.getProperty("raytracer.simd", "true")) ? vector() : null;
+        return vector != null ? vector : scalar();
+    }
+}
@@ -78,6 +78,15 @@ public class Plane extends Geometry {
         return normal;
     }
 
+    /**
+     * Gets the reference point of the plane.
+     *
+     * @return a point on the plane
+     */
+    public Point getPoint() {
+        return q;
+    }
+
     /**
      * Finds all intersection points between a given ray and the plane.
      * If the ray intersects the plane within the specified distance, the intersection point is returned.
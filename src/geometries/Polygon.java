@@ -61,6 +61,16 @@ public class Polygon extends Geometry {
         // polygon with this plane.
         // The plane holds the invariant normal (orthogonal unit) vector to the polygon
         plane = new Plane(vertices[0], vertices[1], vertices[2]);
+        // calculate the bounding box before the early return of a Triangle, so the triangles are bounded in the BVH
+        if (BVH) {
+            Point min = vertices[0];
+            Point max = vertices[0];
+            for (Point vertex : vertices) {
+                min = min.min(vertex);
+                max = max.max(vertex);
+            }
+            this.boundingBox = new BoundingBox(min, max);
+        }
         if (size == 3) return; // no need for more tests for a Triangle
 
         Vector n = plane.getNormal();
@@ -87,16 +97,15 @@ public class Polygon extends Geometry {
             if (positive != (edge1.crossProduct(edge2).dotProduct(n) > 0))
                 throw new IllegalArgumentException("All vertices must be ordered and the polygon must be convex");
         }
-        if (BVH) {
-            // calculate the bounding box
-            Point min = vertices[0];
-            Point max = vertices[0];
-            for (Point vertex : vertices) {
-                min = min.min(vertex);
-                max = max.max(vertex);
-            }
-            this.boundingBox = new BoundingBox(min, max);
-        }
+    }
+
+    /**
+     * Gets the vertices of the polygon.
+     *
+     * @return an unmodifiable list of the vertices in their edge path order
+     */
+    public List<Point> getVertices() {
+        return vertices;
     }
 
     /**
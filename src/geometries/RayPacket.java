@@ -0,0 +1,388 @@
+package geometries;
+
+import geometries.Intersectable.BoundingBox;
+import geometries.Intersectable.GeoPoint;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A packet of coherent rays - e.g. the primary rays of a tile of pixels, or the shadow rays from the points
+ * of a tile towards a point light - which walks the BVH of a collection once for all its rays
+ * (see {@link Intersectable#findGeoIntersections(RayPacket)}).
+ * <p>
+ * A node of the BVH is culled for the whole packet by interval arithmetic: the heads and the inverse
+ * directions of the rays are bounded by intervals, so their slab distances to the node box are bounded
+ * by intervals, and the packet misses the box if the bounds of the entry distances are beyond the bounds
+ * of the exit distances. If the box is not culled, the mask of the active rays is narrowed to the rays
+ * from the first one that hits the box. A subtree reached by a single active ray, and a packet whose rays
+ * diverge too much to be bounded usefully, are intersected ray by ray.
+ * <p>
+ * The packet either keeps the closest intersection of every ray, and narrows the maximal distance of a ray
+ * to its closest intersection found so far, or keeps all the intersections of every ray up to its maximal
+ * distance, e.g. for the transparency of shadow rays.
+ */
+public final class RayPacket {
+    /**
+     * Maximal number of rays of a packet, the bits of the masks of the active rays
+     */
+    public static final int MAX_SIZE = Long.SIZE;
+    /**
+     * Minimal cosine of the angle between the direction of a ray and the mean direction of the packet,
+     * below which the rays are considered divergent and are intersected one by one
+     */
+    static final double MIN_COHERENCE = 0.9;
+    /**
+     * Tolerance of the slab distances, so the rounding never culls a box that a single ray would test
+     */
+    private static final double SLACK = 1e-7;
+
+    /**
+     * The rays
+     */
+    private final Ray[] rays;
+    /**
+     * Coordinates of the heads of the rays
+     */
+    private final double[] ox, oy, oz;
+    /**
+     * Coordinates of the directions of the rays
+     */
+    private final double[] dx, dy, dz;
+    /**
+     * Maximal distance of every ray, narrowed to the closest intersection in closest mode
+     */
+    private final double[] limits;
+    /**
+     * Whether only the closest intersection of every ray is kept
+     */
+    private final boolean closest;
+    /**
+     * The closest intersection of every ray in closest mode
+     */
+    private final GeoPoint[] closestPoints;
+    /**
+     * All the intersections of every ray, null for a ray without intersections
+     */
+    private final List<List<GeoPoint>> intersections;
+    /**
+     * Bounds of the coordinates of the heads of the rays, by axis
+     */
+    private final double[] headMin = new double[3], headMax = new double[3];
+    /**
+     * Bounds of the inverse coordinates of the directions of the rays, by axis, valid for the coherent axes only
+     */
+    private final double[] inverseMin = new double[3], inverseMax = new double[3];
+    /**
+     * Whether the coordinates of the directions of all the rays on an axis have the same non-zero sign
+     */
+    private final boolean[] coherentAxes = new boolean[3];
+    /**
+     * The maximal distance of the rays
+     */
+    private final double maxLimit;
+    /**
+     * Whether the rays are coherent enough for the packet traversal
+     */
+    private final boolean coherent;
+    /**
+     * Whether the packet goes towards the negative X axis, the axis of the splits of the BVH
+     */
+    private final boolean reversed;
+
+    /**
+     * Creates a packet of rays
+     *
+     * @param rays      the rays, up to {@link #MAX_SIZE}
+     * @param distances the maximal distance of every ray, or null for unbounded rays
+     * @param closest   true to keep only the closest intersection of every ray,
+     *                  false to keep all the intersections up to the maximal distances
+     * @throws IllegalArgumentException if there are no rays, too many rays, or a distance for every ray is missing
+     */
+    public RayPacket(Ray[] rays, double[] distances, boolean closest) {
+        if (rays.length == 0 || rays.length > MAX_SIZE)
+            throw new IllegalArgumentException("A packet must have 1 to " + MAX_SIZE + " rays");
+        if (distances != null && distances.length != rays.length)
+            throw new IllegalArgumentException("A packet must have a distance for every ray");
+        int size = rays.length;
+        this.rays = rays.clone();
+        this.closest = closest;
+        closestPoints = closest ? new GeoPoint[size] : null;
+        intersections = closest ? null : new ArrayList<>(Collections.<List<GeoPoint>>nCopies(size, null));
+        limits = distances == null ? new double[size] : distances.clone();
+        if (distances == null)
+            Arrays.fill(limits, Double.POSITIVE_INFINITY);
+        ox = new double[size];
+        oy = new double[size];
+        oz = new double[size];
+        dx = new double[size];
+        dy = new double[size];
+        dz = new double[size];
+
+        double sumX = 0, sumY = 0, sumZ = 0;
+        double limit = 0;
+        for (int i = 0; i < size; ++i) {
+            Point head = rays[i].getHead();
+            Vector direction = rays[i].getDirection();
+            ox[i] = head.getX();
+            oy[i] = head.getY();
+            oz[i] = head.getZ();
+            dx[i] = direction.getX();
+            dy[i] = direction.getY();
+            dz[i] = direction.getZ();
+            sumX += dx[i];
+            sumY += dy[i];
+            sumZ += dz[i];
+            limit = Math.max(limit, limits[i]);
+        }
+        maxLimit = limit;
+        bound(0, ox, dx);
+        bound(1, oy, dy);
+        bound(2, oz, dz);
+
+        double length = Math.sqrt(sumX * sumX + sumY * sumY + sumZ * sumZ);
+        boolean coherentRays = length > 0;
+        for (int i = 0; coherentRays && i < size; ++i)
+            coherentRays = (dx[i] * sumX + dy[i] * sumY + dz[i] * sumZ) / length >= MIN_COHERENCE;
+        coherent = coherentRays;
+        reversed = sumX < 0;
+    }
+
+    /**
+     * Calculates the bounds of the heads and the inverse directions of the rays on an axis
+     *
+     * @param axis       the axis - 0, 1 or 2 for X, Y or Z
+     * @param heads      the coordinates of the heads on the axis
+     * @param directions the coordinates of the directions on the axis
+     */
+    private void bound(int axis, double[] heads, double[] directions) {
+        double headLow = Double.POSITIVE_INFINITY, headHigh = Double.NEGATIVE_INFINITY;
+        double directionLow = Double.POSITIVE_INFINITY, directionHigh = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < heads.length; ++i) {
+            headLow = Math.min(headLow, heads[i]);
+            headHigh = Math.max(headHigh, heads[i]);
+            directionLow = Math.min(directionLow, directions[i]);
+            directionHigh = Math.max(directionHigh, directions[i]);
+        }
+        headMin[axis] = headLow;
+        headMax[axis] = headHigh;
+        // The inverse of an interval of a single sign is the interval of the inverses of its ends
+        coherentAxes[axis] = directionLow > 0 || directionHigh < 0;
+        inverseMin[axis] = 1 / directionHigh;
+        inverseMax[axis] = 1 / directionLow;
+    }
+
+    /**
+     * Gets the number of rays of the packet
+     *
+     * @return the number of rays
+     */
+    public int size() {
+        return rays.length;
+    }
+
+    /**
+     * Checks whether the rays are coherent enough for the packet traversal - the directions of all of them
+     * are close to the mean direction. The rays of a divergent packet are intersected one by one
+     *
+     * @return true if the rays are coherent, false if they diverge
+     */
+    public boolean isCoherent() {
+        return coherent;
+    }
+
+    /**
+     * Gets the closest intersection of a ray, in closest mode
+     *
+     * @param index the index of the ray
+     * @return the closest intersection, or null if the ray does not intersect the geometries
+     * @throws IllegalStateException if the packet keeps all the intersections
+     */
+    public GeoPoint getClosest(int index) {
+        if (!closest)
+            throw new IllegalStateException("The packet keeps all the intersections");
+        return closestPoints[index];
+    }
+
+    /**
+     * Gets the intersections of a ray up to its maximal distance, when all the intersections are kept
+     *
+     * @param index the index of the ray
+     * @return the intersections, or null if the ray does not intersect the geometries
+     * @throws IllegalStateException if the packet keeps only the closest intersections
+     */
+    public List<GeoPoint> getIntersections(int index) {
+        if (closest)
+            throw new IllegalStateException("The packet keeps only the closest intersections");
+        return intersections.get(index);
+    }
+
+    /**
+     * Gets the mask of all the rays of the packet
+     *
+     * @return the mask, bit i for ray i
+     */
+    long all() {
+        return rays.length == MAX_SIZE ? -1L : (1L << rays.length) - 1;
+    }
+
+    /**
+     * Gets a ray of the packet
+     *
+     * @param index the index of the ray
+     * @return the ray
+     */
+    Ray getRay(int index) {
+        return rays[index];
+    }
+
+    /**
+     * Gets the current maximal distance of a ray
+     *
+     * @param index the index of the ray
+     * @return the maximal distance
+     */
+    double getLimit(int index) {
+        return limits[index];
+    }
+
+    /**
+     * Checks whether the children of the BVH nodes should be visited in reverse order, since the packet goes
+     * towards the negative X axis and the nodes are split along the X axis
+     *
+     * @return true to visit the children from the last one
+     */
+    boolean isReversed() {
+        return reversed;
+    }
+
+    /**
+     * Records the intersections of a ray with a geometry
+     *
+     * @param index  the index of the ray
+     * @param points the intersections, may be null
+     */
+    void add(int index, List<GeoPoint> points) {
+        if (points == null)
+            return;
+        if (!closest) {
+            List<GeoPoint> list = intersections.get(index);
+            if (list == null)
+                intersections.set(index, list = new ArrayList<>(points.size()));
+            list.addAll(points);
+            return;
+        }
+        // Like Ray.findClosestGeoPoint, the first of the closest points is kept
+        Point head = rays[index].getHead();
+        for (GeoPoint point : points) {
+            double distance = head.distance(point.point);
+            if (distance < limits[index] || closestPoints[index] == null && distance <= limits[index]) {
+                limits[index] = distance;
+                closestPoints[index] = point;
+            }
+        }
+    }
+
+    /**
+     * Culls a box for the whole packet by interval arithmetic
+     *
+     * @param box the box
+     * @return false if no ray of the packet can hit the box, true if some rays may hit it
+     */
+    boolean mayHit(BoundingBox box) {
+        double near = 0;
+        double far = maxLimit;
+        for (int axis = 0; axis < 3 && near <= far; ++axis) {
+            if (!coherentAxes[axis])
+                continue;
+            double low = coordinate(box.getMin(), axis);
+            double high = coordinate(box.getMax(), axis);
+            // The distances to the slab planes of every ray are within the products of the intervals
+            // of the differences of the heads and of the inverse directions
+            double nearLow = low - headMax[axis], nearHigh = low - headMin[axis];
+            double farLow = high - headMax[axis], farHigh = high - headMin[axis];
+            if (inverseMin[axis] < 0) {
+                // Towards the negative direction the ray enters at the maximal plane
+                double swap = nearLow;
+                nearLow = farLow;
+                farLow = swap;
+                swap = nearHigh;
+                nearHigh = farHigh;
+                farHigh = swap;
+            }
+            near = Math.max(near, Math.min(Math.min(nearLow * inverseMin[axis], nearLow * inverseMax[axis]),
+                    Math.min(nearHigh * inverseMin[axis], nearHigh * inverseMax[axis])));
+            far = Math.min(far, Math.max(Math.max(farLow * inverseMin[axis], farLow * inverseMax[axis]),
+                    Math.max(farHigh * inverseMin[axis], farHigh * inverseMax[axis])));
+        }
+        return near <= far + SLACK * (1 + Math.abs(far));
+    }
+
+    /**
+     * Narrows a mask of active rays to the rays from the first one that hits a box
+     *
+     * @param box  the box
+     * @param mask the mask of the active rays
+     * @return the active rays from the first one that hits the box, 0 if none of them hits it
+     */
+    long firstActive(BoundingBox box, long mask) {
+        for (long rest = mask; rest != 0; rest &= rest - 1) {
+            int index = Long.numberOfTrailingZeros(rest);
+            if (hits(box, index))
+                return rest;
+        }
+        return 0;
+    }
+
+    /**
+     * Tests a ray with a box by the slab test
+     *
+     * @param box   the box
+     * @param index the index of the ray
+     * @return true if the ray passes through the box before its maximal distance
+     */
+    private boolean hits(BoundingBox box, int index) {
+        Point min = box.getMin();
+        Point max = box.getMax();
+        double[] interval = {0, limits[index]};
+        return slab(interval, min.getX(), max.getX(), ox[index], dx[index])
+                && slab(interval, min.getY(), max.getY(), oy[index], dy[index])
+                && slab(interval, min.getZ(), max.getZ(), oz[index], dz[index]);
+    }
+
+    /**
+     * Clips the interval of the distances along a ray to a slab
+     *
+     * @param interval  the interval of the distances, narrowed in place
+     * @param low       the minimal plane of the slab
+     * @param high      the maximal plane of the slab
+     * @param head      the coordinate of the ray head
+     * @param direction the coordinate of the ray direction
+     * @return false if the interval becomes empty
+     */
+    private static boolean slab(double[] interval, double low, double high, double head, double direction) {
+        if (direction == 0)
+            return head >= low && head <= high;
+        double t1 = (low - head) / direction;
+        double t2 = (high - head) / direction;
+        interval[0] = Math.max(interval[0], Math.min(t1, t2));
+        interval[1] = Math.min(interval[1], Math.max(t1, t2));
+        return interval[0] <= interval[1] + SLACK * (1 + Math.abs(interval[1]));
+    }
+
+    /**
+     * Gets a coordinate of a point
+     *
+     * @param point the point
+     * @param axis  the axis - 0, 1 or 2 for X, Y or Z
+     * @return the coordinate
+     */
+    private static double coordinate(Point point, int axis) {
+        return axis == 0 ? point.getX() : axis == 1 ? point.getY() : point.getZ();
+    }
+}
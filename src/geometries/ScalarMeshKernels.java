@@ -0,0 +1,97 @@
+package geometries;
+
+/**
+ * The scalar kernels of the meshes, which test the lanes of a block one by one.
+ * The kernels of the other implementations must make the same floating point operations in the same order.
+ */
+final class ScalarMeshKernels implements MeshKernels {
+    /**
+     * The single instance of the stateless kernels
+     */
+    static final ScalarMeshKernels INSTANCE = new ScalarMeshKernels();
+
+    /**
+     * Private constructor of the single instance
+     */
+    private ScalarMeshKernels() {
+    }
+
+    @Override
+    public String name() {
+        return "scalar";
+    }
+
+    @Override
+    public int hitBoxes(float[] boxes, int offset, int count, MeshRay ray) {
+        int mask = 0;
+        for (int lane = 0; lane < count; ++lane) {
+            int b = offset + lane;
+            float t1 = (boxes[b] - ray.pad - ray.ox) * ray.ix;
+            float t2 = (boxes[b + 3 * WIDTH] + ray.pad - ray.ox) * ray.ix;
+            float near = Math.min(t1, t2);
+            float far = Math.max(t1, t2);
+            t1 = (boxes[b + WIDTH] - ray.pad - ray.oy) * ray.iy;
+            t2 = (boxes[b + 4 * WIDTH] + ray.pad - ray.oy) * ray.iy;
+            near = Math.max(near, Math.min(t1, t2));
+            far = Math.min(far, Math.max(t1, t2));
+            t1 = (boxes[b + 2 * WIDTH] - ray.pad - ray.oz) * ray.iz;
+            t2 = (boxes[b + 5 * WIDTH] + ray.pad - ray.oz) * ray.iz;
+            near = Math.max(near, Math.min(t1, t2));
+            far = Math.min(far, Math.max(t1, t2));
+            // The part of the ray between its head and its maximal distance
+            if (Math.max(near, 0) <= Math.min(far, ray.limit))
+                mask |= 1 << lane;
+        }
+        return mask;
+    }
+
+    @Override
+    public int intersectTriangles(float[] triangles, int offset, int count, MeshRay ray, float[] distances) {
+        int mask = 0;
+        for (int lane = 0; lane < count; ++lane) {
+            float distance = intersect(triangles, offset + lane, ray);
+            if (!Float.isNaN(distance)) {
+                distances[lane] = distance;
+                mask |= 1 << lane;
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Intersects a ray with a triangle of a block
+     *
+     * @param triangles the triangles
+     * @param index     the index of the first component of the triangle - the index of the block and the lane
+     * @param ray       the ray
+     * @return the distance of the intersection along the ray, or NaN if the ray does not hit the triangle
+     */
+    static float intersect(float[] triangles, int index, MeshRay ray) {
+        float e1x = triangles[index + 3 * WIDTH], e1y = triangles[index + 4 * WIDTH];
+        float e1z = triangles[index + 5 * WIDTH];
+        float e2x = triangles[index + 6 * WIDTH], e2y = triangles[index + 7 * WIDTH];
+        float e2z = triangles[index + 8 * WIDTH];
+        float px = ray.dy * e2z - ray.dz * e2y;
+        float py = ray.dz * e2x - ray.dx * e2z;
+        float pz = ray.dx * e2y - ray.dy * e2x;
+        float det = e1x * px + e1y * py + e1z * pz;
+        if (det == 0)
+            return Float.NaN;
+        float inverse = 1 / det;
+        // The ray head relative to the vertex
+        float sx = ray.ox - triangles[index];
+        float sy = ray.oy - triangles[index + WIDTH];
+        float sz = ray.oz - triangles[index + 2 * WIDTH];
+        float u = (sx * px + sy * py + sz * pz) * inverse;
+        if (!(u > 0 && u < 1))
+            return Float.NaN;
+        float qx = sy * e1z - sz * e1y;
+        float qy = sz * e1x - sx * e1z;
+        float qz = sx * e1y - sy * e1x;
+        float v = (ray.dx * qx + ray.dy * qy + ray.dz * qz) * inverse;
+        if (!(v > 0 && u + v < 1))
+            return Float.NaN;
+        float distance = (e2x * qx + e2y * qy + e2z * qz) * inverse;
+        return distance > MIN_DISTANCE && distance <= ray.limit ? distance : Float.NaN;
+    }
+}
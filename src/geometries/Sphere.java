@@ -45,6 +45,15 @@ public class Sphere extends RadialGeometry {
 
     }
 
+    /**
+     * Gets the center point of the sphere.
+     *
+     * @return the center of the sphere
+     */
+    public Point getCenter() {
+        return center;
+    }
+
     /**
      * Returns the normal vector to the sphere at a given point.
      *
@@ -27,6 +27,15 @@ public class Tube extends RadialGeometry {
         axis = a;
     }
 
+    /**
+     * Gets the central axis of the tube.
+     *
+     * @return the axis ray of the tube
+     */
+    public Ray getAxis() {
+        return axis;
+    }
+
     /**
      * Computes the normal vector to the tube at a given point.
      * <p>
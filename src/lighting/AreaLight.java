@@ -0,0 +1,131 @@
+package lighting;
+
+import primitives.*;
+
+import java.util.List;
+
+/**
+ * Abstract class representing a light source with an area, producing soft shadows.
+ * The light is attenuated like a point light at its center, while its shadows are calculated
+ * by shadow rays towards sample points spread over its area.
+ * <p>
+ * The shadow sampling is adaptive: the probe points (the corners of the area) are traced first,
+ * and only when they disagree - in the penumbra - the full sample set is traced.
+ *
+ * @author Hadar Cohen and Einat Mazuz
+ */
+public abstract class AreaLight extends PointLight {
+    /**
+     * Default number of samples along each axis of the sample grid
+     */
+    private static final int DEFAULT_GRID_SIZE = 8;
+
+    /**
+     * Number of samples along each axis of the sample grid
+     */
+    private int gridSize = DEFAULT_GRID_SIZE;
+    /**
+     * Whether the full sample set is traced only in the penumbra
+     */
+    private boolean adaptive = true;
+    /**
+     * The sample points over the light area, generated on demand
+     */
+    private List<Point> samplePoints = null;
+    /**
+     * The probe points traced first by the adaptive sampling, generated on demand
+     */
+    private List<Point> probePoints = null;
+
+    /**
+     * Constructs an area light with the specified intensity and center.
+     *
+     * @param intensity the intensity/color of the light
+     * @param center    the center of the light area
+     */
+    protected AreaLight(Color intensity, Point center) {
+        super(intensity, center);
+    }
+
+    /**
+     * Sets the size of the sample grid - the quality/speed trade-off of the soft shadows.
+     * The penumbra is traced with gridSize x gridSize shadow rays.
+     *
+     * @param gridSize the number of samples along each axis of the light area
+     * @return this AreaLight instance for chaining method calls
+     * @throws IllegalArgumentException if the grid size is not positive
+     */
+    public AreaLight setSamples(int gridSize) {
+        if (gridSize < 1)
+            throw new IllegalArgumentException("Sample grid size must be positive");
+        this.gridSize = gridSize;
+        this.samplePoints = null;
+        return this;
+    }
+
+    /**
+     * Sets whether the sampling is adaptive. A non-adaptive light always traces the full sample set.
+     *
+     * @param adaptive true to trace the full sample set only in the penumbra
+     * @return this AreaLight instance for chaining method calls
+     */
+    public AreaLight setAdaptive(boolean adaptive) {
+        this.adaptive = adaptive;
+        return this;
+    }
+
+    /**
+     * Retrieves the size of the sample grid.
+     *
+     * @return the number of samples along each axis of the light area
+     */
+    public int getSamples() {
+        return gridSize;
+    }
+
+    /**
+     * Checks whether the sampling is adaptive.
+     *
+     * @return true if the full sample set is traced only in the penumbra
+     */
+    public boolean isAdaptive() {
+        return adaptive;
+    }
+
+    /**
+     * Retrieves the stratified sample points over the light area.
+     *
+     * @return the list of sample points
+     */
+    public List<Point> getSamplePoints() {
+        if (samplePoints == null)
+            samplePoints = generateSamplePoints(gridSize);
+        return samplePoints;
+    }
+
+    /**
+     * Retrieves the few probe points that are traced first by the adaptive sampling.
+     *
+     * @return the list of probe points
+     */
+    public List<Point> getProbePoints() {
+        if (probePoints == null)
+            probePoints = generateProbePoints();
+        return probePoints;
+    }
+
+    /**
+     * Generates the stratified sample points over the light area - one point in the center of each grid cell.
+     *
+     * @param gridSize the number of samples along each axis
+     * @return the list of sample points
+     */
+    protected abstract List<Point> generateSamplePoints(int gridSize);
+
+    /**
+     * Generates the probe points on the boundary of the light area.
+     *
+     * @return the list of probe points
+     */
+    protected abstract List<Point> generateProbePoints();
+}
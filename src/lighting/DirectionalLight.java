@@ -23,6 +23,15 @@ public class DirectionalLight extends Light implements LightSource {
         this.direction = direction.normalize();
     }
 
+    /**
+     * Retrieves the direction of the light.
+     *
+     * @return the normalized direction of the light
+     */
+    public Vector getDirection() {
+        return direction;
+    }
+
     /**
      * Retrieves the intensity of the light at a given point (not applicable for directional lights).
      *
@@ -0,0 +1,105 @@
+package lighting;
+
+import primitives.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static primitives.Util.isZero;
+
+/**
+ * Represents a disk-shaped area light in a 3D scene.
+ *
+ * @author Hadar Cohen and Einat Mazuz
+ */
+public class DiskLight extends AreaLight {
+    // Unit normal of the plane of the disk
+    private final Vector normal;
+    // First unit vector spanning the plane of the disk
+    private final Vector u;
+    // Second unit vector spanning the plane of the disk
+    private final Vector v;
+    // Radius of the disk
+    private final double radius;
+
+    /**
+     * Constructs a disk area light.
+     *
+     * @param I      the intensity/color of the light
+     * @param center the center of the disk
+     * @param normal the normal of the plane of the disk
+     * @param radius the radius of the disk
+     * @throws IllegalArgumentException if the radius is not positive
+     */
+    public DiskLight(Color I, Point center, Vector normal, double radius) {
+        super(I, center);
+        if (radius <= 0)
+            throw new IllegalArgumentException("radius must be positive");
+        Vector n = normal.normalize();
+        this.normal = n;
+        // Any vector which is not parallel to the normal spans the plane of the disk with it
+        Vector helper = isZero(Math.abs(n.dotProduct(Vector.Y)) - 1) ? new Vector(1, 0, 0) : Vector.Y;
+        this.u = n.crossProduct(helper).normalize();
+        this.v = n.crossProduct(u).normalize();
+        this.radius = radius;
+    }
+
+    /**
+     * Retrieves the normal of the disk.
+     *
+     * @return the unit normal of the plane of the disk
+     */
+    public Vector getNormal() {
+        return normal;
+    }
+
+    /**
+     * Retrieves the radius of the disk.
+     *
+     * @return the radius of the disk
+     */
+    public double getRadius() {
+        return radius;
+    }
+
+    /**
+     * Calculates a point on the disk by its polar coordinates around the center.
+     *
+     * @param r     distance from the center
+     * @param angle angle from the first spanning vector
+     * @return the point on the disk
+     */
+    private Point pointAt(double r, double angle) {
+        double x = r * Math.cos(angle);
+        double y = r * Math.sin(angle);
+        Point p = position;
+        if (!isZero(x)) p = p.add(u.scale(x));
+        if (!isZero(y)) p = p.add(v.scale(y));
+        return p;
+    }
+
+    /**
+     * Generates stratified samples in polar coordinates - rings of equal area,
+     * each divided into equal sectors.
+     */
+    @Override
+    protected List<Point> generateSamplePoints(int gridSize) {
+        List<Point> points = new ArrayList<>(gridSize * gridSize);
+        for (int i = 0; i < gridSize; ++i) {
+            // The square root keeps the rings of equal area
+            double r = radius * Math.sqrt((i + 0.5) / gridSize);
+            for (int j = 0; j < gridSize; ++j)
+                points.add(pointAt(r, 2 * Math.PI * (j + 0.5 * (i % 2 + 0.5)) / gridSize));
+        }
+        return points;
+    }
+
+    /**
+     * Generates four points on the rim of the disk as probe points.
+     */
+    @Override
+    protected List<Point> generateProbePoints() {
+        return List.of(pointAt(radius, 0), pointAt(radius, Math.PI / 2),
+                pointAt(radius, Math.PI), pointAt(radius, 3 * Math.PI / 2));
+    }
+}
@@ -0,0 +1,191 @@
+package lighting;
+
+import primitives.Point;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Bounding Volume Hierarchy over the influence spheres of the light sources of a scene.
+ * It is used to find quickly the few lights that may contribute to a point in scenes with many lights.
+ * Lights with an unbounded influence (e.g. directional lights or lights without distance attenuation)
+ * are kept aside and are returned for every point.
+ *
+ * @author Hadar Cohen and Einat Mazuz
+ */
+public class LightBVH {
+    /**
+     * Maximal number of lights in a leaf node
+     */
+    private static final int LEAF_SIZE = 4;
+
+    /**
+     * A node of the hierarchy - an axis-aligned box that bounds the influence spheres of its lights.
+     * An inner node has two children and no lights, a leaf has lights and no children.
+     */
+    private static class Node {
+        // The minimum corner of the bounding box
+        private final double minX, minY, minZ;
+        // The maximum corner of the bounding box
+        private final double maxX, maxY, maxZ;
+        // The children of an inner node
+        private final Node left, right;
+        // The lights of a leaf
+        private final List<PointLight> lights;
+
+        /**
+         * Constructs a node bounding the influence spheres of the given lights.
+         *
+         * @param lights the lights under the node
+         * @param left   the left child, or null for a leaf
+         * @param right  the right child, or null for a leaf
+         */
+        private Node(List<PointLight> lights, Node left, Node right) {
+            double x0 = Double.POSITIVE_INFINITY, y0 = Double.POSITIVE_INFINITY, z0 = Double.POSITIVE_INFINITY;
+            double x1 = Double.NEGATIVE_INFINITY, y1 = Double.NEGATIVE_INFINITY, z1 = Double.NEGATIVE_INFINITY;
+            for (PointLight light : lights) {
+                Point p = light.getPosition();
+                double r = light.getInfluenceRadius();
+                x0 = Math.min(x0, p.getX() - r);
+                y0 = Math.min(y0, p.getY() - r);
+                z0 = Math.min(z0, p.getZ() - r);
+                x1 = Math.max(x1, p.getX() + r);
+                y1 = Math.max(y1, p.getY() + r);
+                z1 = Math.max(z1, p.getZ() + r);
+            }
+            minX = x0;
+            minY = y0;
+            minZ = z0;
+            maxX = x1;
+            maxY = y1;
+            maxZ = z1;
+            this.left = left;
+            this.right = right;
+            this.lights = left == null ? lights : null;
+        }
+
+        /**
+         * Checks whether the point lies inside the bounding box of the node.
+         *
+         * @param p the point
+         * @return true if the point is inside the box
+         */
+        private boolean contains(Point p) {
+            double x = p.getX(), y = p.getY(), z = p.getZ();
+            return x >= minX && x <= maxX && y >= minY && y <= maxY && z >= minZ && z <= maxZ;
+        }
+    }
+
+    /**
+     * Lights with unbounded influence, returned for every point, unmodifiable
+     */
+    private final List<LightSource> unbounded;
+    /**
+     * The root of the hierarchy of the bounded lights, or null if there are none
+     */
+    private final Node root;
+
+    /**
+     * Builds the hierarchy over the given light sources.
+     * The hierarchy does not follow later changes of the list or of the lights.
+     *
+     * @param lights the light sources of the scene
+     */
+    public LightBVH(List<LightSource> lights) {
+        List<PointLight> bounded = new ArrayList<>();
+        List<LightSource> unbounded = new ArrayList<>();
+        for (LightSource light : lights) {
+            if (light instanceof PointLight pointLight && Double.isFinite(pointLight.getInfluenceRadius()))
+                bounded.add(pointLight);
+            else
+                unbounded.add(light);
+        }
+        this.unbounded = List.copyOf(unbounded);
+        root = bounded.isEmpty() ? null : build(bounded);
+    }
+
+    /**
+     * Builds recursively a subtree by splitting the lights at the median of the longest axis of their positions.
+     *
+     * @param lights the lights of the subtree
+     * @return the root node of the subtree
+     */
+    private static Node build(List<PointLight> lights) {
+        if (lights.size() <= LEAF_SIZE)
+            return new Node(lights, null, null);
+
+        // Find the axis along which the light positions spread the most
+        double[] min = {Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY};
+        double[] max = {Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY};
+        for (PointLight light : lights) {
+            double[] p = coordinates(light.getPosition());
+            for (int axis = 0; axis < 3; ++axis) {
+                min[axis] = Math.min(min[axis], p[axis]);
+                max[axis] = Math.max(max[axis], p[axis]);
+            }
+        }
+        int longest = 0;
+        for (int axis = 1; axis < 3; ++axis)
+            if (max[axis] - min[axis] > max[longest] - min[longest])
+                longest = axis;
+
+        final int axis = longest;
+        List<PointLight> sorted = new ArrayList<>(lights);
+        sorted.sort(Comparator.comparingDouble(light -> coordinates(light.getPosition())[axis]));
+        int mid = sorted.size() / 2;
+        return new Node(sorted,
+                build(sorted.subList(0, mid)),
+                build(sorted.subList(mid, sorted.size())));
+    }
+
+    /**
+     * Gets the coordinates of a point as an array indexed by axis.
+     *
+     * @param p the point
+     * @return the x, y and z coordinates
+     */
+    private static double[] coordinates(Point p) {
+        return new double[]{p.getX(), p.getY(), p.getZ()};
+    }
+
+    /**
+     * Finds the light sources that may contribute to the lighting of a point.
+     * It is called for every shading point, so when no bounded light reaches the point the shared list
+     * of the unbounded lights is returned without allocating a new list.
+     *
+     * @param p the point in space
+     * @return the unbounded lights and the bounded lights whose influence region contains the point,
+     * the list must not be modified
+     */
+    public List<LightSource> find(Point p) {
+        if (root == null)
+            return unbounded;
+        List<LightSource> result = find(root, p, null);
+        return result == null ? unbounded : result;
+    }
+
+    /**
+     * Collects recursively the lights of a subtree that may contribute to the lighting of a point.
+     * The result list is created with the unbounded lights when the first bounded light is found.
+     *
+     * @param node   the root of the subtree
+     * @param p      the point in space
+     * @param result the list to add the found lights to, or null if no light was found yet
+     * @return the list of the found lights, or null if no light was found yet
+     */
+    private List<LightSource> find(Node node, Point p, List<LightSource> result) {
+        if (!node.contains(p))
+            return result;
+        if (node.lights != null) {
+            for (PointLight light : node.lights)
+                if (light.influences(p)) {
+                    if (result == null)
+                        result = new ArrayList<>(unbounded);
+                    result.add(light);
+                }
+            return result;
+        }
+        return find(node.right, p, find(node.left, p, result));
+    }
+}
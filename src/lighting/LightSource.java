@@ -8,6 +8,12 @@ import primitives.*;
  * @author Hadar Cohen and Einat Mazuz
  */
 public interface LightSource {
+    /**
+     * Intensity below which the contribution of a light to a point is negligible.
+     * It bounds the influence radius of attenuated lights.
+     */
+    double NEGLIGIBLE_INTENSITY = 0.01;
+
     /**
      * Retrieves the intensity of the light at a given point.
      *
@@ -32,4 +38,24 @@ public interface LightSource {
      */
     public double getDistance(Point p);
 
+    /**
+     * Retrieves the radius around the light beyond which its intensity is negligible.
+     *
+     * @return the influence radius, or positive infinity for lights that are not attenuated by distance
+     */
+    default double getInfluenceRadius() {
+        return Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Checks cheaply whether the light may contribute to the lighting of a point,
+     * before any direction, intensity or shadow calculation.
+     *
+     * @param p the point in space
+     * @return false if the light certainly does not contribute to the point, true otherwise
+     */
+    default boolean influences(Point p) {
+        return true;
+    }
+
 }
@@ -15,6 +15,9 @@ public class PointLight extends Light implements LightSource {
     private double kL = 0d;   // Linear attenuation
     private double kQ = 0d;   // Quadratic attenuation
 
+    // Radius beyond which the attenuated intensity is negligible, calculated on demand
+    private double influenceRadius = Double.NaN;
+
     /**
      * Constructs a PointLight object with the specified intensity and position.
      *
@@ -34,6 +37,7 @@ public class PointLight extends Light implements LightSource {
      */
     public PointLight setKc(double kC) {
         this.kC = kC;
+        this.influenceRadius = Double.NaN;
         return this;
     }
 
@@ -45,6 +49,7 @@ public class PointLight extends Light implements LightSource {
      */
     public PointLight setKl(double kL) {
         this.kL = kL;
+        this.influenceRadius = Double.NaN;
         return this;
     }
 
@@ -56,6 +61,7 @@ public class PointLight extends Light implements LightSource {
      */
     public PointLight setKq(double kQ) {
         this.kQ = kQ;
+        this.influenceRadius = Double.NaN;
         return this;
     }
 
@@ -95,5 +101,76 @@ public class PointLight extends Light implements LightSource {
         return position.distance(p);
     }
 
+    /**
+     * Retrieves the position of the light source.
+     *
+     * @return the position of the light
+     */
+    public Point getPosition() {
+        return position;
+    }
+
+    /**
+     * Retrieves the constant attenuation coefficient.
+     *
+     * @return the constant attenuation coefficient
+     */
+    public double getKc() {
+        return kC;
+    }
+
+    /**
+     * Retrieves the linear attenuation coefficient.
+     *
+     * @return the linear attenuation coefficient
+     */
+    public double getKl() {
+        return kL;
+    }
+
+    /**
+     * Retrieves the quadratic attenuation coefficient.
+     *
+     * @return the quadratic attenuation coefficient
+     */
+    public double getKq() {
+        return kQ;
+    }
+
+    /**
+     * Retrieves the radius beyond which the attenuated intensity of the light is negligible,
+     * i.e. the distance d where I / (kC + kL * d + kQ * d^2) equals the negligible intensity.
+     *
+     * @return the influence radius, or positive infinity if the light is not attenuated by distance
+     */
+    @Override
+    public double getInfluenceRadius() {
+        if (Double.isNaN(influenceRadius)) {
+            // Solve kQ * d^2 + kL * d + (kC - I / NEGLIGIBLE_INTENSITY) = 0 for the positive root
+            double c = kC - getIntensity().maxComponent() / NEGLIGIBLE_INTENSITY;
+            if (c >= 0)
+                influenceRadius = 0;
+            else if (kQ > 0)
+                influenceRadius = (-kL + Math.sqrt(kL * kL - 4 * kQ * c)) / (2 * kQ);
+            else if (kL > 0)
+                influenceRadius = -c / kL;
+            else
+                influenceRadius = Double.POSITIVE_INFINITY;
+        }
+        return influenceRadius;
+    }
+
+    /**
+     * Checks whether the point lies inside the influence sphere of the light.
+     *
+     * @param p the point in space
+     * @return true if the point is within the influence radius of the light
+     */
+    @Override
+    public boolean influences(Point p) {
+        double radius = getInfluenceRadius();
+        return radius == Double.POSITIVE_INFINITY || position.distanceSquared(p) <= radius * radius;
+    }
+
 
 }
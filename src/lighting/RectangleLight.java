@@ -0,0 +1,121 @@
+package lighting;
+
+import primitives.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static primitives.Util.isZero;
+
+/**
+ * Represents a rectangular area light in a 3D scene.
+ *
+ * @author Hadar Cohen and Einat Mazuz
+ */
+public class RectangleLight extends AreaLight {
+    // Unit vector along the width of the rectangle
+    private final Vector right;
+    // Unit vector along the height of the rectangle
+    private final Vector up;
+    // Size of the rectangle along the right vector
+    private final double width;
+    // Size of the rectangle along the up vector
+    private final double height;
+
+    /**
+     * Constructs a rectangular area light.
+     *
+     * @param I      the intensity/color of the light
+     * @param center the center of the rectangle
+     * @param right  the direction of the width of the rectangle
+     * @param up     the direction of the height of the rectangle, orthogonal to right
+     * @param width  the width of the rectangle
+     * @param height the height of the rectangle
+     * @throws IllegalArgumentException if the directions are not orthogonal or the sizes are not positive
+     */
+    public RectangleLight(Color I, Point center, Vector right, Vector up, double width, double height) {
+        super(I, center);
+        if (!isZero(right.dotProduct(up)))
+            throw new IllegalArgumentException("right and up are not orthogonal");
+        if (width <= 0 || height <= 0)
+            throw new IllegalArgumentException("width and height must be positive");
+        this.right = right.normalize();
+        this.up = up.normalize();
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * Retrieves the direction of the width of the rectangle.
+     *
+     * @return the unit vector along the width
+     */
+    public Vector getRight() {
+        return right;
+    }
+
+    /**
+     * Retrieves the direction of the height of the rectangle.
+     *
+     * @return the unit vector along the height
+     */
+    public Vector getUp() {
+        return up;
+    }
+
+    /**
+     * Retrieves the width of the rectangle.
+     *
+     * @return the size of the rectangle along the right vector
+     */
+    public double getWidth() {
+        return width;
+    }
+
+    /**
+     * Retrieves the height of the rectangle.
+     *
+     * @return the size of the rectangle along the up vector
+     */
+    public double getHeight() {
+        return height;
+    }
+
+    /**
+     * Calculates a point on the rectangle by its offsets from the center.
+     *
+     * @param x offset along the right vector
+     * @param y offset along the up vector
+     * @return the point on the rectangle
+     */
+    private Point pointAt(double x, double y) {
+        Point p = position;
+        if (!isZero(x)) p = p.add(right.scale(x));
+        if (!isZero(y)) p = p.add(up.scale(y));
+        return p;
+    }
+
+    /**
+     * Generates one sample point in the center of each cell of a gridSize x gridSize grid over the rectangle.
+     */
+    @Override
+    protected List<Point> generateSamplePoints(int gridSize) {
+        List<Point> points = new ArrayList<>(gridSize * gridSize);
+        double cellWidth = width / gridSize;
+        double cellHeight = height / gridSize;
+        for (int i = 0; i < gridSize; ++i)
+            for (int j = 0; j < gridSize; ++j)
+                points.add(pointAt((j + 0.5) * cellWidth - width / 2, (i + 0.5) * cellHeight - height / 2));
+        return points;
+    }
+
+    /**
+     * Generates the four corners of the rectangle as probe points.
+     */
+    @Override
+    protected List<Point> generateProbePoints() {
+        double x = width / 2;
+        double y = height / 2;
+        return List.of(pointAt(-x, -y), pointAt(x, -y), pointAt(x, y), pointAt(-x, y));
+    }
+}
@@ -55,4 +55,30 @@ public class SpotLight extends PointLight {
     public Vector getL(Point p) {
         return super.getL(p);
     }
+
+    /**
+     * Retrieves the direction in which the spotlight is pointing.
+     *
+     * @return the direction of the spotlight
+     */
+    public Vector getDirection() {
+        return direction;
+    }
+
+    /**
+     * Checks whether the point lies inside the influence sphere and inside the cone of the spotlight.
+     * The spotlight intensity vanishes at 90 degrees from its direction, so the cone is the half-space
+     * in front of the light.
+     *
+     * @param p the point in space
+     * @return true if the light may contribute to the point
+     */
+    @Override
+    public boolean influences(Point p) {
+        if (!super.influences(p))
+            return false;
+        if (p.equals(position))
+            return true;
+        return alignZero(p.subtract(position).dotProduct(direction)) > 0;
+    }
 }
@@ -77,6 +77,56 @@ public class Color {
         return new java.awt.Color(ir > 255 ? 255 : ir, ig > 255 ? 255 : ig, ib > 255 ? 255 : ib);
     }
 
+    /**
+     * Red component getter
+     *
+     * @return the red component, unlimited from above
+     */
+    public double getRed() {
+        return rgb.d1;
+    }
+
+    /**
+     * Green component getter
+     *
+     * @return the green component, unlimited from above
+     */
+    public double getGreen() {
+        return rgb.d2;
+    }
+
+    /**
+     * Blue component getter
+     *
+     * @return the blue component, unlimited from above
+     */
+    public double getBlue() {
+        return rgb.d3;
+    }
+
+    /**
+     * Packs the color into an opaque ARGB integer (alpha in bits 24-31, red in 16-23, green in 8-15,
+     * blue in 0-7) the same way as {@link java.awt.Color#getRGB()} of {@link #getColor()},
+     * but without allocating a java.awt.Color object. Any component bigger than 255 is set to 255
+     *
+     * @return the packed ARGB value of the color
+     */
+    public int getRGB() {
+        int ir = (int) rgb.d1;
+        int ig = (int) rgb.d2;
+        int ib = (int) rgb.d3;
+        return 0xFF000000 | (ir > 255 ? 255 : ir) << 16 | (ig > 255 ? 255 : ig) << 8 | (ib > 255 ? 255 : ib);
+    }
+
+    /**
+     * Finds the largest of the RGB components
+     *
+     * @return the maximal component of the color
+     */
+    public double maxComponent() {
+        return rgb.maxComponent();
+    }
+
     /**
      * Operation of adding this and one or more other colors (by component)
      *
@@ -172,6 +172,42 @@ public class Double3 {
         return d1 < other.d1 && d2 < other.d2 && d3 < other.d3;
     }
 
+    /**
+     * Getter for the first number
+     *
+     * @return the first number
+     */
+    public double getD1() {
+        return d1;
+    }
+
+    /**
+     * Getter for the second number
+     *
+     * @return the second number
+     */
+    public double getD2() {
+        return d2;
+    }
+
+    /**
+     * Getter for the third number
+     *
+     * @return the third number
+     */
+    public double getD3() {
+        return d3;
+    }
+
+    /**
+     * Finds the largest of the three numbers
+     *
+     * @return the maximal number of the triad
+     */
+    public double maxComponent() {
+        return Math.max(d1, Math.max(d2, d3));
+    }
+
     public Double3 min(Double3 xyz) {
         return new Double3(Math.min(d1, xyz.d1), Math.min(d2, xyz.d2), Math.min(d3, xyz.d3));
     }
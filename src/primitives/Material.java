@@ -32,6 +32,34 @@ public class Material {
      */
     public int nShininess = 1;
 
+    /**
+     * Checks whether the material is opaque (its transparency coefficient is zero).
+     *
+     * @return true if the material is opaque, false otherwise
+     */
+    public boolean isOpaque() {
+        return kT.equals(Double3.ZERO);
+    }
+
+    /**
+     * Checks whether the material is non-reflective (its reflection coefficient is zero).
+     *
+     * @return true if the material is non-reflective, false otherwise
+     */
+    public boolean isNonReflective() {
+        return kR.equals(Double3.ZERO);
+    }
+
+    /**
+     * Checks whether the material reflects the light sources only diffusely
+     * (its specular reflection coefficient is zero).
+     *
+     * @return true if the material has no specular component, false otherwise
+     */
+    public boolean isDiffuseOnly() {
+        return kS.equals(Double3.ZERO);
+    }
+
     /**
      * Sets the diffuse reflection coefficient (kD) of the material.
      *
@@ -2,12 +2,19 @@ package renderer;
 //H
 
 import primitives.Color;
+import primitives.Material;
 import primitives.Point;
 import primitives.Ray;
 import primitives.Vector;
+import geometries.Geometry;
+import geometries.Intersectable;
+import geometries.Intersectable.BoundingBox;
 import geometries.Intersectable.GeoPoint;
 
+import java.lang.management.ManagementFactory;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.*;
 
 import geometries.Geometries;
@@ -86,6 +93,31 @@ public class Camera implements Cloneable {
      */
     private PixelManager pixelManager; // PixelManager instance
 
+    /**
+     * Optional memory-mapped framebuffer for checkpointing and resuming the render, null if not used
+     */
+    private CheckpointFramebuffer checkpoint = null;
+
+    /**
+     * Snapshot of the render counters taken after the last render, null before the first render
+     */
+    private RenderMetrics.Snapshot metrics = null;
+
+    /**
+     * Optional map of the rendering costs of the pixels, null if not measured
+     */
+    private CostHeatmap costHeatmap = null;
+
+    /**
+     * Strategy of handing out the pixels to the threads of a multi-threaded render
+     */
+    private PixelScheduler pixelScheduler = PixelScheduler.SYNCHRONIZED;
+
+    /**
+     * Side of the square blocks of pixels whose primary rays are traced as a packet, 0 for single rays
+     */
+    private int packetSize = 0;
+
     /**
      * Constructs a Camera object using a Builder.
      * Private constructor to enforce Builder usage.
@@ -132,6 +164,39 @@ public class Camera implements Cloneable {
         return new Ray(location, Pij.subtract(location));
     }
 
+    /**
+     * A rectangular region of pixels on the view plane.
+     * The first column and row are inclusive, the last column and row are exclusive.
+     *
+     * @param fromCol the first pixel column of the region
+     * @param fromRow the first pixel row of the region
+     * @param toCol   the column after the last pixel column of the region
+     * @param toRow   the row after the last pixel row of the region
+     */
+    public record Region(int fromCol, int fromRow, int toCol, int toRow) {
+        /**
+         * Checks whether the region contains no pixels.
+         *
+         * @return true if the region is empty, false otherwise
+         */
+        public boolean isEmpty() {
+            return fromCol >= toCol || fromRow >= toRow;
+        }
+
+        /**
+         * Creates the smallest region that contains both this region and another one.
+         *
+         * @param other the other region
+         * @return the union of the two regions
+         */
+        public Region union(Region other) {
+            if (other.isEmpty()) return this;
+            if (isEmpty()) return other;
+            return new Region(Math.min(fromCol, other.fromCol), Math.min(fromRow, other.fromRow),
+                    Math.max(toCol, other.toCol), Math.max(toRow, other.toRow));
+        }
+    }
+
     /**
      * Renders the image by tracing rays through each pixel and writing the corresponding color to the image.
      * If the imageWriter or rayTracer is not set, throws an UnsupportedOperationException.
@@ -139,6 +204,22 @@ public class Camera implements Cloneable {
      * @throws UnsupportedOperationException if imageWriter or rayTracer is not set
      */
     public Camera renderImage() {
+        if (this.imageWriter == null)
+            throw new UnsupportedOperationException("Missing imageWriter");
+        if (checkpoint != null)
+            return renderCheckpointed();
+        return renderRegion(new Region(0, 0, imageWriter.getNx(), imageWriter.getNy()));
+    }
+
+    /**
+     * Renders only the pixels of the given region into the existing image buffer of the imageWriter.
+     * The pixels outside the region keep the colors written by the previous renders.
+     *
+     * @param region the region of pixels to render, it is clipped to the image bounds
+     * @return the Camera instance
+     * @throws UnsupportedOperationException if imageWriter or rayTracer is not set
+     */
+    public Camera renderRegion(Region region) {
         if (this.imageWriter == null)
             throw new UnsupportedOperationException("Missing imageWriter");
         if (this.rayTracer == null)
@@ -146,7 +227,21 @@ public class Camera implements Cloneable {
         final int nX = imageWriter.getNx();
         final int nY = imageWriter.getNy();
 
-        pixelManager = new PixelManager(nY, nX, printInterval);
+        // Clip the region to the image bounds
+        final int fromCol = Math.max(region.fromCol(), 0);
+        final int fromRow = Math.max(region.fromRow(), 0);
+        final int toCol = Math.min(region.toCol(), nX);
+        final int toRow = Math.min(region.toRow(), nY);
+        if (fromCol >= toCol || fromRow >= toRow)
+            return this;
+
+        RenderMetrics.reset();
+        final long start = System.nanoTime();
+        RenderTileEvent event = new RenderTileEvent();
+        event.begin();
+        pixelManager = new PixelManager(fromRow, fromCol, toRow, toCol, printInterval);
+        if (costHeatmap != null)
+            costHeatmap.prepare(nX, nY);
 
         if (DoFActive) {
             this.DoFPoints = Camera.generatePoints(gridDensity, apertureRadius, location, vUp, vRight);
@@ -157,40 +252,54 @@ public class Camera implements Cloneable {
         }
 
 
-        if (threadsCount == 0) { // Single-threaded rendering
-            for (int i = 0; i < nY; ++i) {
-                for (int j = 0; j < nX; ++j) {
-                    if (this.gridDensity != 1 && DoFActive) {
-                        // Calculate the focal point for depth of field
-                        var focalPoint = constructRay(nX, nY, j, i).getPoint(focalLength);
-                        // Write the pixel color using a bundle of rays for depth of field
-                        imageWriter.writePixel(j, i, rayTracer.computeFinalColor(Ray.RayBundle(focalPoint, DoFPoints)));
-                    } else {
-                        // Perform standard ray casting for the pixel
-                        castRay(nX, nY, j, i);
-                    }
+        if (usePackets()) {
+            renderPackets(nX, nY, fromCol, fromRow, toCol, toRow);
+        } else if (threadsCount == 0) { // Single-threaded rendering
+            for (int i = fromRow; i < toRow; ++i) {
+                for (int j = fromCol; j < toCol; ++j) {
+                    imageWriter.writePixel(j, i, pixelColor(nX, nY, j, i));
                     // Update progress after processing each pixel
                     pixelManager.pixelDone();
                 }
             }
         } else { // Multi-threaded rendering
             var threads = new LinkedList<Thread>(); // List to hold the threads
-            while (threadsCount-- > 0) { // Create the required number of threads
+            // Count down a local copy so that the camera can render again with the same settings
+            int threadsLeft = threadsCount;
+            while (threadsLeft-- > 0) { // Create the required number of threads
                 threads.add(new Thread(() -> {
-                    PixelManager.Pixel pixel; // Variable to hold the current pixel (row, col)
-                    // Loop until there are no more pixels to process
-                    while ((pixel = pixelManager.nextPixel()) != null) {
-                        if (this.gridDensity != 1 && DoFActive) {
-                            // Calculate the focal point for depth of field
-                            var focalPoint = constructRay(nX, nY, pixel.col(), pixel.row()).getPoint(focalLength);
-                            // Write the pixel color using a bundle of rays for depth of field
-                            imageWriter.writePixel(pixel.col(), pixel.row(), rayTracer.computeFinalColor(Ray.RayBundle(focalPoint, DoFPoints)));
-                        } else {
-                            // Perform standard ray casting for the pixel
-                            castRay(nX, nY, pixel.col(), pixel.row());
+                    RenderThreadEvent threadEvent = new RenderThreadEvent();
+                    threadEvent.begin();
+                    long pixels = 0;
+                    if (pixelScheduler == PixelScheduler.SYNCHRONIZED) {
+                        PixelManager.Pixel pixel; // Variable to hold the current pixel (row, col)
+                        // Loop until there are no more pixels to process
+                        while ((pixel = pixelManager.nextPixel()) != null) {
+                            imageWriter.writePixel(pixel.col(), pixel.row(), pixelColor(nX, nY, pixel.col(), pixel.row()));
+                            // Update progress after processing each pixel
+                            pixelManager.pixelDone();
+                            ++pixels;
                         }
-                        // Update progress after processing each pixel
-                        pixelManager.pixelDone();
+                    } else {
+                        final int chunk = pixelScheduler.chunkSize(toCol - fromCol);
+                        long first;
+                        while ((first = pixelManager.nextChunk(chunk)) >= 0) {
+                            long end = pixelManager.chunkEnd(first, chunk);
+                            for (long index = first; index < end; ++index) {
+                                int col = pixelManager.col(index);
+                                int row = pixelManager.row(index);
+                                imageWriter.writePixel(col, row, pixelColor(nX, nY, col, row));
+                            }
+                            pixelManager.pixelsDone(end - first);
+                            pixels += end - first;
+                        }
+                    }
+                    threadEvent.end();
+                    if (threadEvent.shouldCommit()) {
+                        threadEvent.pixels = pixels;
+                        threadEvent.cpuTime = ManagementFactory.getThreadMXBean().getCurrentThreadCpuTime();
+                        threadEvent.scheduler = pixelScheduler.name();
+                        threadEvent.commit();
                     }
                 }));
             }
@@ -206,9 +315,400 @@ public class Camera implements Cloneable {
             } catch (InterruptedException ignore) {
             }
         }
+        commitTile(event, fromCol, fromRow, toCol, toRow, false);
+        metrics = RenderMetrics.snapshot(System.nanoTime() - start);
         return this;
     }
 
+    /**
+     * Checks whether the primary rays are traced in packets - a packet size is set, and every pixel has
+     * a single primary ray whose cost is not measured
+     *
+     * @return true to render blocks of pixels by packets of rays
+     */
+    private boolean usePackets() {
+        return packetSize > 0 && !(this.gridDensity != 1 && DoFActive) && costHeatmap == null;
+    }
+
+    /**
+     * Renders a region of the image by square blocks of pixels, tracing the primary rays of every block
+     * as a packet. The threads take the blocks in order from a shared counter
+     *
+     * @param nX      resolution on X axis (number of pixels in row)
+     * @param nY      resolution on Y axis (number of pixels in column)
+     * @param fromCol first column of the region
+     * @param fromRow first row of the region
+     * @param toCol   column after the last column of the region
+     * @param toRow   row after the last row of the region
+     */
+    private void renderPackets(int nX, int nY, int fromCol, int fromRow, int toCol, int toRow) {
+        final int blocksX = (toCol - fromCol + packetSize - 1) / packetSize;
+        final int blockCount = blocksX * ((toRow - fromRow + packetSize - 1) / packetSize);
+        final AtomicInteger nextBlock = new AtomicInteger();
+        Runnable renderBlocks = () -> {
+            int block;
+            while ((block = nextBlock.getAndIncrement()) < blockCount) {
+                int col = fromCol + block % blocksX * packetSize;
+                int row = fromRow + block / blocksX * packetSize;
+                int endCol = Math.min(col + packetSize, toCol);
+                int endRow = Math.min(row + packetSize, toRow);
+                Color[] colors = packetColors(nX, nY, col, row, endCol, endRow);
+                for (int i = row, k = 0; i < endRow; ++i)
+                    for (int j = col; j < endCol; ++j)
+                        imageWriter.writePixel(j, i, colors[k++]);
+                pixelManager.pixelsDone(colors.length);
+            }
+        };
+
+        if (threadsCount == 0) { // Single-threaded rendering
+            renderBlocks.run();
+        } else { // Multi-threaded rendering
+            var threads = new LinkedList<Thread>();
+            for (int i = Math.max(threadsCount, 1); i > 0; --i)
+                threads.add(new Thread(renderBlocks));
+            for (var thread : threads)
+                thread.start();
+            try {
+                for (var thread : threads)
+                    thread.join();
+            } catch (InterruptedException ignore) {
+            }
+        }
+    }
+
+    /**
+     * Computes the colors of a block of pixels by tracing their primary rays together
+     * (see {@link RayTracerBase#traceRays})
+     *
+     * @param nX      resolution on X axis (number of pixels in row)
+     * @param nY      resolution on Y axis (number of pixels in column)
+     * @param fromCol first column of the block
+     * @param fromRow first row of the block
+     * @param toCol   column after the last column of the block
+     * @param toRow   row after the last row of the block
+     * @return the colors of the pixels of the block, row by row
+     */
+    private Color[] packetColors(int nX, int nY, int fromCol, int fromRow, int toCol, int toRow) {
+        Ray[] rays = new Ray[(toCol - fromCol) * (toRow - fromRow)];
+        for (int i = fromRow, k = 0; i < toRow; ++i)
+            for (int j = fromCol; j < toCol; ++j)
+                rays[k++] = constructRay(nX, nY, j, i);
+        return rayTracer.traceRays(rays);
+    }
+
+    /**
+     * Renders the image tile by tile into the checkpoint framebuffer and the imageWriter.
+     * The tiles that are complete in the checkpoint are not rendered again - their colors are copied
+     * from the checkpoint, so an interrupted render resumes where it stopped.
+     *
+     * @return the Camera instance
+     * @throws UnsupportedOperationException if rayTracer is not set
+     */
+    private Camera renderCheckpointed() {
+        if (this.rayTracer == null)
+            throw new UnsupportedOperationException("Missing rayTracerBase");
+        final int nX = imageWriter.getNx();
+        final int nY = imageWriter.getNy();
+        RenderMetrics.reset();
+        final long start = System.nanoTime();
+        pixelManager = new PixelManager(nY, nX, printInterval);
+        if (costHeatmap != null)
+            costHeatmap.prepare(nX, nY);
+
+        if (DoFActive) {
+            // The aperture points are seeded by the checkpoint, so the resumed tiles match the tiles rendered before
+            this.DoFPoints = Camera.generatePoints(gridDensity, apertureRadius, location, vUp, vRight,
+                    new Random(checkpoint.getSeed()));
+            if (this.DoFPoints == null || this.DoFPoints.isEmpty()) {
+                this.DoFPoints = List.of(location);
+            }
+        }
+
+        // The threads take the tiles in order from a shared counter
+        final int tileCount = checkpoint.getTileCount();
+        final AtomicInteger nextTile = new AtomicInteger();
+        Runnable renderTiles = () -> {
+            int tile;
+            while ((tile = nextTile.getAndIncrement()) < tileCount)
+                renderTile(nX, nY, tile);
+        };
+
+        if (threadsCount == 0) { // Single-threaded rendering
+            renderTiles.run();
+        } else { // Multi-threaded rendering
+            var threads = new LinkedList<Thread>();
+            for (int i = Math.max(threadsCount, 1); i > 0; --i)
+                threads.add(new Thread(renderTiles));
+            for (var thread : threads)
+                thread.start();
+            try {
+                for (var thread : threads)
+                    thread.join();
+            } catch (InterruptedException ignore) {
+            }
+        }
+        metrics = RenderMetrics.snapshot(System.nanoTime() - start);
+        return this;
+    }
+
+    /**
+     * Gets the render counters of the last render - the traced rays and their throughput by category,
+     * the BVH node visits and the intersection tests by geometry class.
+     * The counts are zero unless the counters are enabled by the system property raytracer.metrics=true
+     *
+     * @return the snapshot of the counters, or null if the camera did not render yet
+     */
+    public RenderMetrics.Snapshot getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Renders a single tile into the checkpoint framebuffer and the imageWriter, or copies its colors
+     * from the checkpoint framebuffer if the tile is already complete there.
+     * The tile is marked as complete only after all its pixels were rendered.
+     *
+     * @param nX   resolution on X axis (number of pixels in row)
+     * @param nY   resolution on Y axis (number of pixels in column)
+     * @param tile the tile index in the checkpoint framebuffer
+     */
+    private void renderTile(int nX, int nY, int tile) {
+        int tileSize = checkpoint.getTileSize();
+        int fromCol = (tile % checkpoint.getTilesX()) * tileSize;
+        int fromRow = (tile / checkpoint.getTilesX()) * tileSize;
+        int toCol = Math.min(fromCol + tileSize, nX);
+        int toRow = Math.min(fromRow + tileSize, nY);
+
+        RenderTileEvent event = new RenderTileEvent();
+        event.begin();
+        if (checkpoint.isTileComplete(tile)) {
+            for (int i = fromRow; i < toRow; ++i)
+                for (int j = fromCol; j < toCol; ++j)
+                    imageWriter.writePixel(j, i, checkpoint.getColor(j, i));
+            // The restored pixels count as done, so the progress of a resumed render reaches 100%
+            pixelManager.pixelsDone((long) (toCol - fromCol) * (toRow - fromRow));
+            commitTile(event, fromCol, fromRow, toCol, toRow, true);
+            return;
+        }
+
+        // Drop the samples of a previous render that was interrupted in the middle of the tile
+        checkpoint.clearTile(tile);
+        if (usePackets()) {
+            for (int row = fromRow; row < toRow; row += packetSize)
+                for (int col = fromCol; col < toCol; col += packetSize) {
+                    int endCol = Math.min(col + packetSize, toCol);
+                    int endRow = Math.min(row + packetSize, toRow);
+                    Color[] colors = packetColors(nX, nY, col, row, endCol, endRow);
+                    for (int i = row, k = 0; i < endRow; ++i)
+                        for (int j = col; j < endCol; ++j, ++k) {
+                            checkpoint.addSample(j, i, colors[k]);
+                            imageWriter.writePixel(j, i, colors[k]);
+                        }
+                    pixelManager.pixelsDone(colors.length);
+                }
+        } else {
+            for (int i = fromRow; i < toRow; ++i)
+                for (int j = fromCol; j < toCol; ++j) {
+                    Color color = pixelColor(nX, nY, j, i);
+                    checkpoint.addSample(j, i, color);
+                    imageWriter.writePixel(j, i, color);
+                    pixelManager.pixelDone();
+                }
+        }
+        checkpoint.markTileComplete(tile);
+        commitTile(event, fromCol, fromRow, toCol, toRow, false);
+    }
+
+    /**
+     * Ends a render tile event and commits it if it passes the event settings
+     *
+     * @param event   the event
+     * @param fromCol first column of the tile
+     * @param fromRow first row of the tile
+     * @param toCol   column after the last column of the tile
+     * @param toRow   row after the last row of the tile
+     * @param resumed whether the tile was copied from the checkpoint
+     */
+    private static void commitTile(RenderTileEvent event, int fromCol, int fromRow, int toCol, int toRow,
+                                   boolean resumed) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.fromCol = fromCol;
+            event.fromRow = fromRow;
+            event.toCol = toCol;
+            event.toRow = toRow;
+            event.resumed = resumed;
+            event.commit();
+        }
+    }
+
+    /**
+     * Computes the color of a pixel - by a bundle of rays through the aperture when depth of field is active,
+     * or by a single ray otherwise
+     *
+     * @param nX  resolution on X axis (number of pixels in row)
+     * @param nY  resolution on Y axis (number of pixels in column)
+     * @param col pixel's column number (pixel index in row)
+     * @param row pixel's row number (pixel index in column)
+     * @return the color of the pixel
+     */
+    private Color pixelColor(int nX, int nY, int col, int row) {
+        // The event is committed only if the pixel took longer than the threshold of the event
+        SlowPixelEvent event = new SlowPixelEvent();
+        event.begin();
+        long rays = RenderMetrics.threadRays();
+        final CostHeatmap heatmap = costHeatmap;
+        long cost = heatmap == null ? 0 : heatmap.start();
+        boolean bundle = this.gridDensity != 1 && DoFActive;
+        Color color;
+        if (bundle) {
+            // Calculate the focal point for depth of field
+            var focalPoint = constructRay(nX, nY, col, row).getPoint(focalLength);
+            color = rayTracer.computeFinalColor(Ray.RayBundle(focalPoint, DoFPoints));
+        } else
+            color = rayTracer.traceRay(constructRay(nX, nY, col, row));
+        if (heatmap != null)
+            heatmap.record(col, row, cost);
+        event.end();
+        if (event.shouldCommit()) {
+            event.col = col;
+            event.row = row;
+            event.primaryRays = bundle ? DoFPoints.size() : 1;
+            event.tracedRays = RenderMetrics.threadRays() - rays;
+            event.commit();
+        }
+        return color;
+    }
+
+    /**
+     * Computes the region of the image that has to be re-rendered after some geometries of the scene
+     * were moved or had their material changed.
+     * The old and the new bounding boxes of the changed geometries are projected onto the view plane
+     * and the union of their pixel rectangles is returned.
+     * <p>
+     * Secondary-ray effects are handled conservatively - the whole frame is returned when:
+     * <ul>
+     * <li>any geometry of the scene is reflective or transparent, or a changed geometry was reflective
+     * or transparent before the change (its old reflections and shadows may be anywhere)</li>
+     * <li>a changed geometry has moved while the scene has light sources (its shadow may fall anywhere)</li>
+     * <li>depth of field is active</li>
+     * <li>a bounding box is unbounded or is not entirely in front of the camera</li>
+     * </ul>
+     *
+     * @param oldBoxes     the bounding boxes of the changed geometries before the change
+     * @param oldMaterials the materials of the changed geometries before the change
+     * @param changed      the changed geometries (with their current bounding boxes and materials)
+     * @return the dirty region of the image
+     * @throws UnsupportedOperationException if imageWriter is not set
+     */
+    public Region dirtyRegion(List<BoundingBox> oldBoxes, List<Material> oldMaterials, List<Geometry> changed) {
+        if (this.imageWriter == null)
+            throw new UnsupportedOperationException("Missing imageWriter");
+        final int nX = imageWriter.getNx();
+        final int nY = imageWriter.getNy();
+        final Region fullFrame = new Region(0, 0, nX, nY);
+
+        if (DoFActive || hasSecondaryEffects(rayTracer.scene.geometries))
+            return fullFrame;
+        for (Material material : oldMaterials)
+            if (hasSecondaryEffects(material))
+                return fullFrame;
+
+        Region region = new Region(0, 0, 0, 0);
+        for (BoundingBox box : oldBoxes) {
+            Region boxRegion = projectBox(box, nX, nY);
+            if (boxRegion == null) return fullFrame;
+            region = region.union(boxRegion);
+        }
+        for (Geometry geometry : changed) {
+            BoundingBox box = geometry.getBoundingBox();
+            Region boxRegion = box == null ? null : projectBox(box, nX, nY);
+            if (boxRegion == null) return fullFrame;
+            region = region.union(boxRegion);
+        }
+
+        // A moved geometry moves its shadow as well
+        if (!rayTracer.scene.lights.isEmpty()) {
+            for (Geometry geometry : changed) {
+                BoundingBox box = geometry.getBoundingBox();
+                boolean moved = oldBoxes.stream().noneMatch(old ->
+                        old.getMin().equals(box.getMin()) && old.getMax().equals(box.getMax()));
+                if (moved) return fullFrame;
+            }
+        }
+        return region;
+    }
+
+    /**
+     * Checks recursively whether any geometry in the composite is reflective or transparent.
+     *
+     * @param geometries the composite of geometries to check
+     * @return true if a reflective or transparent geometry was found, false otherwise
+     */
+    private static boolean hasSecondaryEffects(Geometries geometries) {
+        for (Intersectable intersectable : geometries.getGeometries()) {
+            if (intersectable instanceof Geometries composite) {
+                if (hasSecondaryEffects(composite)) return true;
+            } else if (intersectable instanceof Geometry geometry) {
+                if (hasSecondaryEffects(geometry.getMaterial())) return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether a material is reflective or transparent.
+     *
+     * @param material the material to check
+     * @return true if the material spawns reflected or refracted rays, false otherwise
+     */
+    private static boolean hasSecondaryEffects(Material material) {
+        return !material.isNonReflective() || !material.isOpaque();
+    }
+
+    /**
+     * Projects the corners of a bounding box onto the view plane and returns the pixel rectangle
+     * that covers them, padded by one pixel.
+     *
+     * @param box the bounding box to project
+     * @param nX  the number of pixels in the x direction
+     * @param nY  the number of pixels in the y direction
+     * @return the covering region, or null if the box is unbounded or not entirely in front of the camera
+     */
+    private Region projectBox(BoundingBox box, int nX, int nY) {
+        if (!box.isFinite())
+            return null;
+        double Rx = width / nX;
+        double Ry = height / nY;
+        double minCol = Double.POSITIVE_INFINITY, maxCol = Double.NEGATIVE_INFINITY;
+        double minRow = Double.POSITIVE_INFINITY, maxRow = Double.NEGATIVE_INFINITY;
+        Point min = box.getMin();
+        Point max = box.getMax();
+        for (int corner = 0; corner < 8; ++corner) {
+            Point p = new Point((corner & 1) == 0 ? min.getX() : max.getX(),
+                    (corner & 2) == 0 ? min.getY() : max.getY(),
+                    (corner & 4) == 0 ? min.getZ() : max.getZ());
+            if (p.equals(location))
+                return null;
+            Vector toCorner = p.subtract(location);
+            double depth = alignZero(toCorner.dotProduct(vTo));
+            if (depth <= 0)
+                return null;
+            // Intersect the line from the camera to the corner with the view plane
+            double x = toCorner.dotProduct(vRight) * distance / depth;
+            double y = toCorner.dotProduct(vUp) * distance / depth;
+            // Invert the pixel center formula of constructRay
+            double col = x / Rx + (nX - 1) / 2d;
+            double row = (nY - 1) / 2d - y / Ry;
+            minCol = Math.min(minCol, col);
+            maxCol = Math.max(maxCol, col);
+            minRow = Math.min(minRow, row);
+            maxRow = Math.max(maxRow, row);
+        }
+        return new Region(
+                Math.max((int) Math.floor(minCol) - 1, 0), Math.max((int) Math.floor(minRow) - 1, 0),
+                Math.min((int) Math.ceil(maxCol) + 2, nX), Math.min((int) Math.ceil(maxRow) + 2, nY));
+    }
+
 
     /**
      * Prints a grid over the image at an interval of pixels and colors it
@@ -239,39 +739,44 @@ public class Camera implements Cloneable {
     }
 
     /**
-     * Casts a ray through the specified pixel and returns the color at the intersection point.
+     * Writes the image to the output file in the background, so the next frame of a sequence
+     * can be rendered (by a camera with another ImageWriter) while this frame is encoded.
      *
-     * @param j the x index of the pixel
-     * @param i the y index of the pixel
-     * @return the color at the intersection point
+     * @return a future that completes when the file is written
      */
+    public CompletableFuture<Void> writeToImageAsync() {
+        return this.imageWriter.writeToImageAsync();
+    }
+
     /**
-     * Cast ray from camera and color a pixel
+     * Generates a list of unique points within a circular area.
      *
-     * @param nX  resolution on X axis (number of pixels in row)
-     * @param nY  resolution on Y axis (number of pixels in column)
-     * @param col pixel's column number (pixel index in row)
-     * @param row row pixel's row number (pixel index in column)
+     * @param gridDensity the number of points to generate
+     * @param radius the radius of the circle within which points will be generated
+     * @param center the central point of the circle
+     * @param up the vector representing the "up" direction for the grid
+     * @param right the vector representing the "right" direction for the grid
+     * @return a list of unique points generated within the specified circle
      */
-    private void castRay(int nX, int nY, int col, int row) {
-        imageWriter.writePixel(col, row, rayTracer.traceRay(constructRay(nX, nY, col, row)));
-        pixelManager.pixelDone();
+    public static List<Point> generatePoints(int gridDensity, double radius, Point center, Vector up, Vector right) {
+        return generatePoints(gridDensity, radius, center, up, right, new Random());
     }
 
-
     /**
-     * Generates a list of unique points within a circular area.
+     * Generates a list of unique points within a circular area from a given random generator,
+     * e.g. a seeded one for reproducing the same points.
      *
      * @param gridDensity the number of points to generate
      * @param radius the radius of the circle within which points will be generated
      * @param center the central point of the circle
      * @param up the vector representing the "up" direction for the grid
      * @param right the vector representing the "right" direction for the grid
+     * @param random the random generator of the points
      * @return a list of unique points generated within the specified circle
      */
-    public static List<Point> generatePoints(int gridDensity, double radius, Point center, Vector up, Vector right) {
+    public static List<Point> generatePoints(int gridDensity, double radius, Point center, Vector up, Vector right,
+                                             Random random) {
         List<Point> points = new ArrayList<>();
-        Random random = new Random();
 
         for (int i = 0; i < gridDensity; i++) {
             Point point;
@@ -344,6 +849,35 @@ public class Camera implements Cloneable {
             return this;
         }
 
+        /**
+         * Sets the strategy of handing out the pixels to the threads of a multi-threaded render,
+         * e.g. for comparing the scalability of the strategies. It does not change the image
+         *
+         * @param scheduler the pixel scheduler
+         * @return the Builder instance.
+         */
+        public Builder setPixelScheduler(PixelScheduler scheduler) {
+            this.camera.pixelScheduler = scheduler;
+            return this;
+        }
+
+        /**
+         * Sets the side of the square blocks of pixels whose primary rays are traced together as a packet,
+         * walking the BVH once for the block, with the shadow rays of the block towards the point lights.
+         * The packets are not used for the pixels of depth of field bundles or with a cost heatmap.
+         * It does not change the image
+         *
+         * @param size 4 or 8 for blocks of 16 or 64 pixels, 0 for tracing the rays one by one (the default)
+         * @return the Builder instance.
+         * @throws IllegalArgumentException if the size is not 0, 4 or 8
+         */
+        public Builder setPacketSize(int size) {
+            if (size != 0 && size != 4 && size != 8)
+                throw new IllegalArgumentException("Packet size must be 0, 4 or 8");
+            this.camera.packetSize = size;
+            return this;
+        }
+
         /**
          * interval setter for debug print
          *
@@ -378,6 +912,33 @@ public class Camera implements Cloneable {
             return this;
         }
 
+        /**
+         * Sets the checkpoint framebuffer for the Camera.
+         * With a checkpoint framebuffer the image is rendered tile by tile, the rendered samples are kept
+         * in the memory-mapped file of the framebuffer, and the tiles already complete in the file are skipped.
+         * A {@link StreamingImageWriter} of the camera must buffer at least the rows of a tile.
+         *
+         * @param checkpoint the checkpoint framebuffer, or null for rendering without checkpoints
+         * @return the Builder instance.
+         */
+        public Builder setCheckpoint(CheckpointFramebuffer checkpoint) {
+            camera.checkpoint = checkpoint;
+            return this;
+        }
+
+        /**
+         * Sets the map of the rendering costs of the pixels for the Camera.
+         * The cost of every rendered pixel is measured into the map, which is exported
+         * next to the rendered image for finding the expensive parts of the scene.
+         *
+         * @param costHeatmap the cost map, or null for rendering without measuring the costs
+         * @return the Builder instance.
+         */
+        public Builder setCostHeatmap(CostHeatmap costHeatmap) {
+            camera.costHeatmap = costHeatmap;
+            return this;
+        }
+
         /**
          * Sets the location for the Camera.
          *
@@ -439,6 +1000,8 @@ public class Camera implements Cloneable {
          *
          * @return the constructed Camera instance.
          * @throws MissingResourceException if any required field is not set.
+         * @throws IllegalArgumentException if the checkpoint framebuffer does not match the image, or a streaming
+         *                                  image writer buffers fewer rows than a tile or a packet of rays
          */
         final String Exception = "Missing Resource";
         final String NameClass = "Camera";
@@ -452,6 +1015,17 @@ public class Camera implements Cloneable {
             if (camera.height == 0) throw new MissingResourceException(Exception, NameClass, "height");
             if (camera.rayTracer == null) throw new MissingResourceException(Exception, NameClass, "rayTracer");
             if (camera.imageWriter == null) throw new MissingResourceException(Exception, NameClass, "imageWriter");
+            if (camera.checkpoint != null && (camera.checkpoint.getNx() != camera.imageWriter.getNx()
+                    || camera.checkpoint.getNy() != camera.imageWriter.getNy()))
+                throw new IllegalArgumentException("Checkpoint framebuffer resolution does not match the image");
+            if (camera.imageWriter instanceof StreamingImageWriter streaming) {
+                // A tile or a packet block writes all its rows before any of them is complete,
+                // so its rows must fit in the reorder buffer of the writer or the render waits forever
+                int blockRows = Math.max(camera.checkpoint == null ? 0 : camera.checkpoint.getTileSize(),
+                        camera.packetSize);
+                if (streaming.getBufferRows() < Math.min(blockRows, streaming.getNy()))
+                    throw new IllegalArgumentException("Streaming image writer buffers fewer rows than a tile");
+            }
             camera.vRight = camera.vTo.crossProduct(camera.vUp).normalize();
 
             try {
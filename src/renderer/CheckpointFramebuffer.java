@@ -0,0 +1,330 @@
+package renderer;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ThreadLocalRandom;
+
+import primitives.Color;
+
+/**
+ * Framebuffer backed by a memory-mapped file, used for checkpointing long renders.
+ * It keeps for every pixel the accumulated color of its samples and the number of samples,
+ * and for every square tile of the image whether the tile is complete.
+ * All the writes go directly to the mapped pages, which the operating system flushes to the file
+ * even if the rendering process dies, so checkpointing costs almost nothing.
+ * When a render is restarted with the same file, the camera skips the complete tiles
+ * and takes their colors from the file. The random seed of the file is used for the random sampling
+ * (e.g. of the aperture), so the tiles rendered after a restart match the tiles rendered before it.
+ * <p>
+ * The file layout is a header (magic number, version, resolution, tile size and random seed),
+ * a byte per tile (1 if the tile is complete) and then 16 bytes per pixel -
+ * the accumulated red, green and blue as floats and the number of samples as an int.
+ */
+public class CheckpointFramebuffer implements AutoCloseable {
+    /**
+     * The magic number at the beginning of a checkpoint file
+     */
+    private static final int MAGIC = 0x52544350;
+    /**
+     * The version of the file layout
+     */
+    private static final int VERSION = 1;
+    /**
+     * Size of the header in bytes
+     */
+    private static final int HEADER_SIZE = 32;
+    /**
+     * Number of bytes kept for every pixel
+     */
+    private static final int PIXEL_SIZE = 16;
+
+    /**
+     * Horizontal resolution of the image
+     */
+    private final int nX;
+    /**
+     * Vertical resolution of the image
+     */
+    private final int nY;
+    /**
+     * The side of a square tile in pixels
+     */
+    private final int tileSize;
+    /**
+     * Number of tiles in a row of tiles
+     */
+    private final int tilesX;
+    /**
+     * Number of rows of tiles
+     */
+    private final int tilesY;
+    /**
+     * Offset of the pixel data in the file
+     */
+    private final int pixelsOffset;
+    /**
+     * The channel of the checkpoint file
+     */
+    private final FileChannel channel;
+    /**
+     * The mapped content of the file
+     */
+    private final MappedByteBuffer buffer;
+
+    /**
+     * Opens a checkpoint file, or creates it if it does not exist or is empty.
+     * An existing file must have been created for the same resolution and tile size
+     *
+     * @param file     the checkpoint file
+     * @param nX       amount of pixels by Width
+     * @param nY       amount of pixels by height
+     * @param tileSize the side of a square tile in pixels
+     * @throws IllegalArgumentException if the sizes are not positive, the file is too large to be mapped
+     *                                  or an existing file does not match the sizes
+     * @throws IllegalStateException    on I/O error
+     */
+    public CheckpointFramebuffer(Path file, int nX, int nY, int tileSize) {
+        if (nX <= 0 || nY <= 0 || tileSize <= 0)
+            throw new IllegalArgumentException("Resolution and tile size must be positive");
+        this.nX = nX;
+        this.nY = nY;
+        this.tileSize = tileSize;
+        tilesX = (nX + tileSize - 1) / tileSize;
+        tilesY = (nY + tileSize - 1) / tileSize;
+        // Align the pixel data to its size
+        long offset = (HEADER_SIZE + (long) tilesX * tilesY + PIXEL_SIZE - 1) / PIXEL_SIZE * PIXEL_SIZE;
+        long size = offset + (long) nX * nY * PIXEL_SIZE;
+        if (size > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Checkpoint of " + nX + "x" + nY + " pixels is too large to be mapped");
+        pixelsOffset = (int) offset;
+
+        try {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            long existing = channel.size();
+            if (existing != 0 && existing != size) {
+                channel.close();
+                throw new IllegalArgumentException("Checkpoint file " + file + " does not match the image size");
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        } catch (IOException e) {
+            throw new IllegalStateException("I/O error while opening checkpoint file " + file, e);
+        }
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+        if (buffer.getInt(0) == 0) { // a new file
+            buffer.putInt(4, VERSION);
+            buffer.putInt(8, nX);
+            buffer.putInt(12, nY);
+            buffer.putInt(16, tileSize);
+            buffer.putLong(20, ThreadLocalRandom.current().nextLong());
+            buffer.putInt(0, MAGIC); // written last, so a file with a magic number has a full header
+        } else if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION || buffer.getInt(8) != nX
+                || buffer.getInt(12) != nY || buffer.getInt(16) != tileSize) {
+            close();
+            throw new IllegalArgumentException("Checkpoint file " + file + " does not match the image");
+        }
+    }
+
+    /**
+     * View Plane X axis resolution
+     *
+     * @return the amount of horizontal pixels
+     */
+    public int getNx() {
+        return nX;
+    }
+
+    /**
+     * View Plane Y axis resolution
+     *
+     * @return the amount of vertical pixels
+     */
+    public int getNy() {
+        return nY;
+    }
+
+    /**
+     * Tile size getter
+     *
+     * @return the side of a square tile in pixels
+     */
+    public int getTileSize() {
+        return tileSize;
+    }
+
+    /**
+     * Gets the random seed chosen when the checkpoint file was created
+     *
+     * @return the seed for the random sampling of the render
+     */
+    public long getSeed() {
+        return buffer.getLong(20);
+    }
+
+    /**
+     * Gets the number of tiles in a row of tiles
+     *
+     * @return the number of tile columns
+     */
+    public int getTilesX() {
+        return tilesX;
+    }
+
+    /**
+     * Gets the number of tiles of the image, the tiles are numbered row after row
+     *
+     * @return the number of tiles
+     */
+    public int getTileCount() {
+        return tilesX * tilesY;
+    }
+
+    /**
+     * Checks whether a tile is complete
+     *
+     * @param tile the tile index
+     * @return true if all the pixels of the tile were rendered
+     */
+    public boolean isTileComplete(int tile) {
+        return buffer.get(HEADER_SIZE + checkTile(tile)) != 0;
+    }
+
+    /**
+     * Marks a tile as complete, after all its pixels were rendered
+     *
+     * @param tile the tile index
+     */
+    public void markTileComplete(int tile) {
+        buffer.put(HEADER_SIZE + checkTile(tile), (byte) 1);
+    }
+
+    /**
+     * Counts the complete tiles
+     *
+     * @return the number of complete tiles
+     */
+    public int getCompleteTiles() {
+        int count = 0;
+        for (int tile = 0; tile < getTileCount(); ++tile)
+            if (isTileComplete(tile))
+                ++count;
+        return count;
+    }
+
+    /**
+     * Clears the samples of all the pixels of a tile and marks it as incomplete,
+     * e.g. before rendering again a tile whose rendering was interrupted
+     *
+     * @param tile the tile index
+     */
+    public void clearTile(int tile) {
+        buffer.put(HEADER_SIZE + checkTile(tile), (byte) 0);
+        int fromCol = (tile % tilesX) * tileSize;
+        int fromRow = (tile / tilesX) * tileSize;
+        int toCol = Math.min(fromCol + tileSize, nX);
+        int toRow = Math.min(fromRow + tileSize, nY);
+        for (int row = fromRow; row < toRow; ++row)
+            for (int col = fromCol; col < toCol; ++col) {
+                int offset = pixelOffset(col, row);
+                buffer.putLong(offset, 0);
+                buffer.putLong(offset + 8, 0);
+            }
+    }
+
+    /**
+     * Adds a sample color to the accumulated color of a pixel
+     *
+     * @param xIndex X axis index of the pixel
+     * @param yIndex Y axis index of the pixel
+     * @param color  the color of the sample
+     */
+    public void addSample(int xIndex, int yIndex, Color color) {
+        int offset = pixelOffset(xIndex, yIndex);
+        buffer.putFloat(offset, (float) (buffer.getFloat(offset) + color.getRed()));
+        buffer.putFloat(offset + 4, (float) (buffer.getFloat(offset + 4) + color.getGreen()));
+        buffer.putFloat(offset + 8, (float) (buffer.getFloat(offset + 8) + color.getBlue()));
+        buffer.putInt(offset + 12, buffer.getInt(offset + 12) + 1);
+    }
+
+    /**
+     * Gets the number of samples accumulated in a pixel
+     *
+     * @param xIndex X axis index of the pixel
+     * @param yIndex Y axis index of the pixel
+     * @return the number of samples
+     */
+    public int getSamples(int xIndex, int yIndex) {
+        return buffer.getInt(pixelOffset(xIndex, yIndex) + 12);
+    }
+
+    /**
+     * Gets the average color of the samples of a pixel
+     *
+     * @param xIndex X axis index of the pixel
+     * @param yIndex Y axis index of the pixel
+     * @return the average color, or black if the pixel has no samples
+     */
+    public Color getColor(int xIndex, int yIndex) {
+        int offset = pixelOffset(xIndex, yIndex);
+        int samples = buffer.getInt(offset + 12);
+        if (samples == 0)
+            return Color.BLACK;
+        return new Color(buffer.getFloat(offset) / samples, buffer.getFloat(offset + 4) / samples,
+                buffer.getFloat(offset + 8) / samples);
+    }
+
+    /**
+     * Forces the mapped pages to be written to the storage device,
+     * protecting the checkpoint against an operating system crash and not only against a process crash
+     */
+    public void force() {
+        buffer.force();
+    }
+
+    /**
+     * Writes the mapped pages to the file and closes it
+     *
+     * @throws IllegalStateException on I/O error
+     */
+    @Override
+    public void close() {
+        try {
+            buffer.force();
+            channel.close();
+        } catch (IOException e) {
+            throw new IllegalStateException("I/O error while closing checkpoint file", e);
+        }
+    }
+
+    /**
+     * Checks the range of a tile index
+     *
+     * @param tile the tile index
+     * @return the tile index
+     * @throws IndexOutOfBoundsException if there is no such tile
+     */
+    private int checkTile(int tile) {
+        if (tile < 0 || tile >= getTileCount())
+            throw new IndexOutOfBoundsException("Tile " + tile + " is out of range");
+        return tile;
+    }
+
+    /**
+     * Calculates the offset of the data of a pixel in the file
+     *
+     * @param xIndex X axis index of the pixel
+     * @param yIndex Y axis index of the pixel
+     * @return the offset of the pixel data
+     * @throws IndexOutOfBoundsException if the pixel is out of the image
+     */
+    private int pixelOffset(int xIndex, int yIndex) {
+        if (xIndex < 0 || xIndex >= nX || yIndex < 0 || yIndex >= nY)
+            throw new IndexOutOfBoundsException("Pixel " + xIndex + "," + yIndex + " is out of the image");
+        return pixelsOffset + (yIndex * nX + xIndex) * PIXEL_SIZE;
+    }
+}
@@ -0,0 +1,372 @@
+package renderer;
+
+import geometries.IntersectionCounters;
+import primitives.Color;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Diagnostic map of the rendering cost of every pixel, for finding the parts of the scene
+ * that dominate the render time (e.g. transparent or reflective objects, unbounded geometries).
+ * The camera measures the cost of every pixel it renders with the chosen metric,
+ * and the map is exported as an image colored by a color ramp and as a CSV histogram of the costs.
+ * <p>
+ * Only the elapsed time is measured always - the other metrics are counted per thread by the render counters,
+ * which are enabled by the system property {@code raytracer.metrics=true}.
+ * Pixels that were not rendered (e.g. outside a rendered region) keep their previous costs, zero at first.
+ */
+public class CostHeatmap {
+    /**
+     * Cost metrics of a pixel
+     */
+    public enum Metric {
+        /**
+         * Elapsed time of the pixel in nanoseconds
+         */
+        NANOS(false) {
+            @Override
+            long current() {
+                return System.nanoTime();
+            }
+        },
+        /**
+         * Rays of all categories traced for the pixel - the whole tree of reflected, refracted and shadow rays
+         */
+        RAYS(true) {
+            @Override
+            long current() {
+                return RenderMetrics.threadRays();
+            }
+        },
+        /**
+         * BVH nodes visited by the rays of the pixel
+         */
+        NODE_VISITS(true) {
+            @Override
+            long current() {
+                return IntersectionCounters.getThreadNodeVisits();
+            }
+        },
+        /**
+         * Intersection tests of geometries by the rays of the pixel
+         */
+        PRIMITIVE_TESTS(true) {
+            @Override
+            long current() {
+                return IntersectionCounters.getThreadTests();
+            }
+        };
+
+        /**
+         * Whether the metric is counted by the render counters
+         */
+        private final boolean counted;
+
+        /**
+         * Constructs a metric
+         *
+         * @param counted whether the metric is counted by the render counters
+         */
+        Metric(boolean counted) {
+            this.counted = counted;
+        }
+
+        /**
+         * Reads the running value of the metric in the current thread,
+         * the cost of a pixel is the difference of the values after and before it
+         *
+         * @return the running value
+         */
+        abstract long current();
+    }
+
+    /**
+     * The measured metric
+     */
+    private final Metric metric;
+    /**
+     * Colors of the ramp from the cheapest to the most expensive pixels, evenly spaced
+     */
+    private Color[] ramp = {Color.BLACK, new Color(0, 0, 255), new Color(255, 0, 0), new Color(255, 255, 0),
+            new Color(255, 255, 255)};
+    /**
+     * Whether the costs are mapped to the ramp logarithmically
+     */
+    private boolean logScale = false;
+    /**
+     * Number of buckets of the histogram
+     */
+    private int buckets = 32;
+    /**
+     * Image X axis resolution
+     */
+    private int nX = 0;
+    /**
+     * Image Y axis resolution
+     */
+    private int nY = 0;
+    /**
+     * Costs of the pixels row by row
+     */
+    private long[] costs = new long[0];
+
+    /**
+     * Constructs a cost map of the given metric
+     *
+     * @param metric the metric of the pixel costs
+     * @throws IllegalStateException if the metric is counted by the render counters and they are disabled
+     */
+    public CostHeatmap(Metric metric) {
+        if (metric.counted && !RenderMetrics.ENABLED)
+            throw new IllegalStateException(metric + " cost requires the system property raytracer.metrics=true");
+        this.metric = metric;
+    }
+
+    /**
+     * Sets the colors of the ramp, from the color of the cheapest pixels to the color of the most expensive ones.
+     * The colors are evenly spaced and interpolated linearly
+     *
+     * @param colors the colors of the ramp
+     * @return the CostHeatmap instance
+     * @throws IllegalArgumentException if there are less than two colors
+     */
+    public CostHeatmap setRamp(Color... colors) {
+        if (colors.length < 2)
+            throw new IllegalArgumentException("Color ramp must have at least two colors");
+        ramp = colors.clone();
+        return this;
+    }
+
+    /**
+     * Sets whether the costs are mapped to the ramp logarithmically, which tells apart the cheaper pixels
+     * when a few pixels are much more expensive than the rest
+     *
+     * @param logScale true for logarithmic scale, false for linear
+     * @return the CostHeatmap instance
+     */
+    public CostHeatmap setLogScale(boolean logScale) {
+        this.logScale = logScale;
+        return this;
+    }
+
+    /**
+     * Sets the number of buckets of the histogram
+     *
+     * @param buckets the number of buckets
+     * @return the CostHeatmap instance
+     * @throws IllegalArgumentException if the number is not positive
+     */
+    public CostHeatmap setBuckets(int buckets) {
+        if (buckets <= 0)
+            throw new IllegalArgumentException("Number of buckets must be positive");
+        this.buckets = buckets;
+        return this;
+    }
+
+    /**
+     * Gets the measured metric
+     *
+     * @return the metric
+     */
+    public Metric getMetric() {
+        return metric;
+    }
+
+    /**
+     * Gets the cost of a pixel
+     *
+     * @param col pixel's column number
+     * @param row pixel's row number
+     * @return the cost of the pixel
+     */
+    public long getCost(int col, int row) {
+        return costs[row * nX + col];
+    }
+
+    /**
+     * Gets the highest cost of a pixel
+     *
+     * @return the maximal cost
+     */
+    public long getMax() {
+        long max = 0;
+        for (long cost : costs)
+            max = Math.max(max, cost);
+        return max;
+    }
+
+    /**
+     * Gets the total cost of the pixels
+     *
+     * @return the sum of the costs
+     */
+    public long getTotal() {
+        long total = 0;
+        for (long cost : costs)
+            total += cost;
+        return total;
+    }
+
+    /**
+     * Prepares the map for rendering an image, keeping the costs if the resolution did not change
+     *
+     * @param nX resolution on X axis
+     * @param nY resolution on Y axis
+     */
+    void prepare(int nX, int nY) {
+        if (nX == this.nX && nY == this.nY)
+            return;
+        this.nX = nX;
+        this.nY = nY;
+        costs = new long[nX * nY];
+    }
+
+    /**
+     * Starts measuring the cost of a pixel in the current thread
+     *
+     * @return the running value of the metric to pass to {@link #record}
+     */
+    long start() {
+        return metric.current();
+    }
+
+    /**
+     * Records the cost of a pixel measured in the current thread
+     *
+     * @param col   pixel's column number
+     * @param row   pixel's row number
+     * @param start the value returned by {@link #start()} before the pixel was rendered
+     */
+    void record(int col, int row, long start) {
+        costs[row * nX + col] = metric.current() - start;
+    }
+
+    /**
+     * Maps a cost to its position on the ramp
+     *
+     * @param cost the cost
+     * @param max  the maximal cost
+     * @return the position between 0 and 1
+     */
+    private double position(long cost, long max) {
+        if (max <= 0)
+            return 0;
+        double t = logScale ? Math.log1p(cost) / Math.log1p(max) : (double) cost / max;
+        return Math.min(Math.max(t, 0), 1);
+    }
+
+    /**
+     * Calculates the color of a cost on the ramp
+     *
+     * @param cost the cost
+     * @param max  the maximal cost
+     * @return the interpolated color of the ramp
+     */
+    Color color(long cost, long max) {
+        double t = position(cost, max) * (ramp.length - 1);
+        int segment = Math.min((int) t, ramp.length - 2);
+        double fraction = t - segment;
+        return ramp[segment].scale(1 - fraction).add(ramp[segment + 1].scale(fraction));
+    }
+
+    /**
+     * Produces png file of the map in the directory of the images, colored by the ramp from zero cost
+     * to the highest cost of a pixel
+     *
+     * @param imageName the file name, not including the file extension '.png'
+     * @throws IllegalStateException on I/O error
+     */
+    public void writeToImage(String imageName) {
+        ImageWriter writer = new ImageWriter(imageName, nX, nY);
+        long max = getMax();
+        for (int row = 0; row < nY; ++row)
+            for (int col = 0; col < nX; ++col)
+                writer.writePixel(col, row, color(getCost(col, row), max));
+        writer.writeToImage();
+    }
+
+    /**
+     * Counts the pixels by their costs in buckets of equal width from zero to the highest cost,
+     * or of equal logarithmic width if the map has logarithmic scale
+     *
+     * @return the number of pixels of every bucket
+     */
+    public long[] histogram() {
+        long[] pixels = new long[buckets];
+        long max = getMax();
+        for (long cost : costs)
+            ++pixels[bucket(cost, max)];
+        return pixels;
+    }
+
+    /**
+     * Finds the bucket of a cost
+     *
+     * @param cost the cost
+     * @param max  the maximal cost
+     * @return the index of the bucket
+     */
+    private int bucket(long cost, long max) {
+        return Math.min((int) (position(cost, max) * buckets), buckets - 1);
+    }
+
+    /**
+     * Gets the lowest cost of a bucket
+     *
+     * @param bucket the index of the bucket, or the number of buckets for the upper bound of the last one
+     * @param max    the maximal cost
+     * @return the cost at the lower bound of the bucket
+     */
+    private double bucketStart(int bucket, long max) {
+        double t = (double) bucket / buckets;
+        return logScale ? Math.expm1(t * Math.log1p(max)) : t * max;
+    }
+
+    /**
+     * Produces CSV file of the histogram of the costs in the directory of the images.
+     * Every row holds the cost range of a bucket, its number of pixels, their total cost
+     * and their share of the total cost of the image
+     *
+     * @param fileName the file name, not including the file extension '.csv'
+     * @throws IllegalStateException on I/O error
+     */
+    public void writeHistogram(String fileName) {
+        long max = getMax();
+        long total = getTotal();
+        long[] pixels = new long[buckets];
+        long[] bucketCosts = new long[buckets];
+        for (long cost : costs) {
+            int bucket = bucket(cost, max);
+            ++pixels[bucket];
+            bucketCosts[bucket] += cost;
+        }
+        Path file = Path.of(ImageWriter.getFolderPath(), fileName + ".csv");
+        try (BufferedWriter out = Files.newBufferedWriter(file)) {
+            out.write("metric,from,to,pixels,cost,share");
+            out.newLine();
+            for (int i = 0; i < buckets; ++i) {
+                out.write(String.format(Locale.ROOT, "%s,%.1f,%.1f,%d,%d,%.6f", metric, bucketStart(i, max),
+                        bucketStart(i + 1, max), pixels[i], bucketCosts[i],
+                        total == 0 ? 0 : (double) bucketCosts[i] / total));
+                out.newLine();
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("I/O error - may be missing directory " + ImageWriter.getFolderPath(), e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        long[] sorted = costs.clone();
+        Arrays.sort(sorted);
+        if (sorted.length == 0)
+            return metric + " cost: empty";
+        return String.format("%s cost: total %,d, median %,d, 99th percentile %,d, max %,d", metric, getTotal(),
+                sorted[sorted.length / 2], sorted[(int) (sorted.length * 0.99)], sorted[sorted.length - 1]);
+    }
+}
@@ -0,0 +1,33 @@
+package renderer;
+
+import jdk.jfr.*;
+
+/**
+ * Flight recorder event of writing the image file
+ */
+@Name("raytracer.ImageEncode")
+@Label("Image Encode")
+@Category("Ray Tracer")
+@Description("Encoding and writing of the png image file")
+final class ImageEncodeEvent extends Event {
+    /**
+     * Name of the image file
+     */
+    @Label("Image Name")
+    String imageName;
+    /**
+     * Width of the image in pixels
+     */
+    @Label("Width")
+    int width;
+    /**
+     * Height of the image in pixels
+     */
+    @Label("Height")
+    int height;
+    /**
+     * Whether the strips were compressed while the image was rendered
+     */
+    @Label("Streaming")
+    boolean streaming;
+}
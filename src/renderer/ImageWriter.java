@@ -1,8 +1,17 @@
 package renderer;
 
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -38,6 +47,26 @@ public class ImageWriter {
      * Image generation buffer (the matrix of the pixels)
      */
     private BufferedImage image;
+    /**
+     * The backing array of the image buffer - the packed RGB values of the pixels row after row.
+     * The pixels are written directly into it, bypassing the color model conversion of the image
+     */
+    private final int[] pixels;
+    /**
+     * Optional high-dynamic-range framebuffer - the linear red, green and blue components of the pixels
+     * row after row, normalized so that 1 is the brightest displayable intensity (255).
+     * It is null unless enabled by {@link #setHdr(boolean)}
+     */
+    private float[] hdr = null;
+    /**
+     * Number of rows in a strip of the parallel png encoding
+     */
+    private static final int ENCODING_STRIP_ROWS = 64;
+    /**
+     * Optional parallel png encoder, which compresses the strips of the image as soon as they are complete.
+     * It is null unless enabled by {@link #setParallelEncoding(boolean)}
+     */
+    private PngEncoder encoder = null;
     /**
      * image file name, not including the file extension '.png'
      */
@@ -57,15 +86,55 @@ public class ImageWriter {
      * @param nY        amount of pixels by height
      */
     public ImageWriter(String imageName, int nX, int nY) {
+        this(imageName, nX, nY, true);
+    }
+
+    /**
+     * Image Writer constructor for writers that may keep the pixels elsewhere than in an image buffer
+     *
+     * @param imageName the name of png file
+     * @param nX        amount of pixels by Width
+     * @param nY        amount of pixels by height
+     * @param buffered  whether to allocate the image buffer of the whole image
+     */
+    ImageWriter(String imageName, int nX, int nY, boolean buffered) {
         this.imageName = imageName;
         this.nX = nX;
         this.nY = nY;
 
-        image = new BufferedImage(nX, nY, BufferedImage.TYPE_INT_RGB);
+        image = buffered ? new BufferedImage(nX, nY, BufferedImage.TYPE_INT_RGB) : null;
+        pixels = buffered ? ((DataBufferInt) image.getRaster().getDataBuffer()).getData() : null;
     }
 
     // ***************** Getters/Setters ********************** //
 
+    /**
+     * Gets the directory path for the image file generation - relative to the user directory
+     *
+     * @return the directory path
+     */
+    protected static String getFolderPath() {
+        return FOLDER_PATH;
+    }
+
+    /**
+     * Gets the image file name
+     *
+     * @return the file name, not including the file extension '.png'
+     */
+    protected String getImageName() {
+        return imageName;
+    }
+
+    /**
+     * Gets the logger for reporting I/O failures
+     *
+     * @return the logger
+     */
+    protected Logger getLogger() {
+        return logger;
+    }
+
     /**
      * View Plane Y axis resolution
      *
@@ -84,6 +153,45 @@ public class ImageWriter {
         return nX;
     }
 
+    /**
+     * Enables or disables the high-dynamic-range framebuffer.
+     * When it is enabled, every written pixel keeps also its unclipped linear color,
+     * so the image can be exported as a float image or re-exposed with another tone mapper.
+     * Enabling it discards the previously kept colors
+     *
+     * @param hdr true to keep the linear colors of the pixels, false to keep only the 8-bit image
+     * @return the image writer itself
+     */
+    public ImageWriter setHdr(boolean hdr) {
+        this.hdr = hdr ? new float[nX * nY * 3] : null;
+        return this;
+    }
+
+    /**
+     * Enables or disables the parallel png encoding.
+     * When it is enabled, the image is divided into horizontal strips that are filtered and compressed
+     * in parallel, each strip as soon as all its pixels are written, so most of the encoding is done
+     * while the rest of the image is still rendered.
+     * Strips whose pixels are written again after they were compressed (e.g. by a grid) are compressed again
+     * when the image is written
+     *
+     * @param parallel true to encode the png in parallel strips, false to encode it by ImageIO
+     * @return the image writer itself
+     */
+    public ImageWriter setParallelEncoding(boolean parallel) {
+        this.encoder = parallel ? new PngEncoder(nX, nY, ENCODING_STRIP_ROWS, pixels) : null;
+        return this;
+    }
+
+    /**
+     * Checks whether the high-dynamic-range framebuffer is enabled
+     *
+     * @return true if the linear colors of the pixels are kept
+     */
+    public boolean isHdr() {
+        return hdr != null;
+    }
+
     // ***************** Operations ******************** //
 
     /**
@@ -92,15 +200,130 @@ public class ImageWriter {
      * pixel color matrix in the directory of the project
      */
     public void writeToImage() {
+        writeToImage(imageName);
+    }
+
+    /**
+     * Produces png file of the image with the given name in the directory of the project
+     *
+     * @param imageName the file name, not including the file extension '.png'
+     */
+    private void writeToImage(String imageName) {
+        ImageEncodeEvent event = new ImageEncodeEvent();
+        event.begin();
         try {
             File file = new File(FOLDER_PATH + '/' + imageName + ".png");
-            ImageIO.write(image, "png", file);
+            if (encoder != null)
+                encoder.write(file.getPath());
+            else
+                ImageIO.write(image, "png", file);
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "I/O error", e);
+            throw new IllegalStateException("I/O error - may be missing directory " + FOLDER_PATH, e);
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.imageName = imageName;
+                event.width = nX;
+                event.height = nY;
+                event.streaming = encoder != null;
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * Produces png file of the image in the background, e.g. for encoding a frame of a sequence
+     * while the next frame is rendered. The pixels must not be written until the returned future completes
+     *
+     * @return a future that completes when the file is written,
+     * or completes exceptionally with IllegalStateException on I/O error
+     */
+    public CompletableFuture<Void> writeToImageAsync() {
+        return CompletableFuture.runAsync(this::writeToImage);
+    }
+
+    /**
+     * Produces png file of the image after converting the high-dynamic-range framebuffer
+     * with the given tone mapper. The framebuffer is kept, so the image may be exported again
+     * with other tone mappers without rendering it again
+     *
+     * @param toneMapper the tone mapping operator
+     * @throws IllegalStateException if the high-dynamic-range framebuffer is not enabled
+     */
+    public void writeToImage(ToneMapper toneMapper) {
+        writeToImage(imageName, toneMapper);
+    }
+
+    /**
+     * Produces png file with the given name of the image after converting the high-dynamic-range framebuffer
+     * with the given tone mapper, e.g. for exporting several exposures of the same rendered frame
+     *
+     * @param imageName  the file name, not including the file extension '.png'
+     * @param toneMapper the tone mapping operator
+     * @throws IllegalStateException if the high-dynamic-range framebuffer is not enabled
+     */
+    public void writeToImage(String imageName, ToneMapper toneMapper) {
+        toneMap(toneMapper);
+        writeToImage(imageName);
+    }
+
+    /**
+     * Converts the high-dynamic-range framebuffer into the 8-bit image with the given tone mapper
+     *
+     * @param toneMapper the tone mapping operator
+     * @throws IllegalStateException if the high-dynamic-range framebuffer is not enabled
+     */
+    public void toneMap(ToneMapper toneMapper) {
+        if (hdr == null)
+            throw new IllegalStateException("HDR framebuffer is not enabled");
+        for (int i = 0, j = 0; i < pixels.length; ++i, j += 3)
+            pixels[i] = toneMapper.toRGB(hdr[j], hdr[j + 1], hdr[j + 2]);
+        // The strips compressed before are no longer valid
+        if (encoder != null)
+            encoder.reset();
+    }
+
+    /**
+     * Produces a Portable Float Map (pfm) file of the high-dynamic-range framebuffer
+     * in the directory of the project. The file holds the linear colors as little-endian
+     * 32-bit floats, with the rows from the bottom of the image to its top as the format requires
+     *
+     * @throws IllegalStateException if the high-dynamic-range framebuffer is not enabled or on I/O error
+     */
+    public void writePfm() {
+        if (hdr == null)
+            throw new IllegalStateException("HDR framebuffer is not enabled");
+        Path path = Path.of(FOLDER_PATH, imageName + ".pfm");
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            // A negative scale marks little-endian data
+            writeFully(channel, ByteBuffer.wrap(("PF\n" + nX + " " + nY + "\n-1.0\n")
+                    .getBytes(StandardCharsets.US_ASCII)));
+            ByteBuffer row = ByteBuffer.allocate(nX * 3 * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            for (int y = nY - 1; y >= 0; --y) {
+                row.clear();
+                row.asFloatBuffer().put(hdr, y * nX * 3, nX * 3);
+                writeFully(channel, row);
+            }
         } catch (IOException e) {
             logger.log(Level.SEVERE, "I/O error", e);
             throw new IllegalStateException("I/O error - may be missing directory " + FOLDER_PATH, e);
         }
     }
 
+    /**
+     * Writes all the remaining bytes of a buffer into a channel
+     *
+     * @param channel the file channel
+     * @param buffer  the bytes to write
+     * @throws IOException on I/O error
+     */
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+    }
+
     /**
      * The function writePixel writes a color of a specific pixel into pixel color
      * matrix
@@ -110,7 +333,50 @@ public class ImageWriter {
      * @param color  final color of the pixel
      */
     public void writePixel(int xIndex, int yIndex, Color color) {
-        image.setRGB(xIndex, yIndex, color.getColor().getRGB());
+        Objects.checkIndex(xIndex, nX);
+        Objects.checkIndex(yIndex, nY);
+        int index = yIndex * nX + xIndex;
+        pixels[index] = color.getRGB();
+        if (encoder != null)
+            encoder.pixelsWritten(yIndex, 1);
+        if (hdr != null) {
+            hdr[index * 3] = (float) (color.getRed() / 255);
+            hdr[index * 3 + 1] = (float) (color.getGreen() / 255);
+            hdr[index * 3 + 2] = (float) (color.getBlue() / 255);
+        }
+    }
+
+    /**
+     * The function writeTile writes a whole rectangular tile of packed ARGB values
+     * (see {@link Color#getRGB()}) into pixel color matrix, a row of the tile at a time.
+     * The high-dynamic-range framebuffer, if enabled, gets the 8-bit colors of the tile
+     *
+     * @param xIndex X axis index of the top left pixel of the tile
+     * @param yIndex Y axis index of the top left pixel of the tile
+     * @param width  the number of pixels in a row of the tile
+     * @param height the number of rows of the tile
+     * @param tile   the packed colors of the tile pixels, row after row
+     * @throws IllegalArgumentException if the tile does not fit in the image or the array is too short
+     */
+    public void writeTile(int xIndex, int yIndex, int width, int height, int[] tile) {
+        if (xIndex < 0 || yIndex < 0 || width < 0 || height < 0 || xIndex + width > nX || yIndex + height > nY)
+            throw new IllegalArgumentException("Tile is out of the image bounds");
+        if (tile.length < width * height)
+            throw new IllegalArgumentException("Tile array is shorter than the tile size");
+        for (int row = 0; row < height; ++row) {
+            System.arraycopy(tile, row * width, pixels, (yIndex + row) * nX + xIndex, width);
+            if (encoder != null)
+                encoder.pixelsWritten(yIndex + row, width);
+        }
+        if (hdr != null)
+            for (int row = 0; row < height; ++row)
+                for (int col = 0; col < width; ++col) {
+                    int rgb = tile[row * width + col];
+                    int index = ((yIndex + row) * nX + xIndex + col) * 3;
+                    hdr[index] = ((rgb >> 16) & 0xFF) / 255f;
+                    hdr[index + 1] = ((rgb >> 8) & 0xFF) / 255f;
+                    hdr[index + 2] = (rgb & 0xFF) / 255f;
+                }
     }
 
 }
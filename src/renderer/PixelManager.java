@@ -20,11 +20,19 @@ class PixelManager {
     }
 
     /**
-     * The maximum number of rows of pixels
+     * The first row of pixels to be processed
+     */
+    private final int firstRow;
+    /**
+     * The first column of pixels to be processed
+     */
+    private final int firstCol;
+    /**
+     * The row after the last row of pixels to be processed
      */
     private final int maxRows;
     /**
-     * The maximum number of columns of pixels
+     * The column after the last column of pixels to be processed
      */
     private final int maxCols;
     /**
@@ -35,15 +43,19 @@ class PixelManager {
     /**
      * The current row of pixels being processed
      */
-    private final AtomicInteger currentRow = new AtomicInteger(0);
+    private final AtomicInteger currentRow;
     /**
      * The current column of pixels being processed
      */
-    private final AtomicInteger currentCol = new AtomicInteger(-1);
+    private final AtomicInteger currentCol;
     /**
      * The number of pixels that have been processed
      */
     private final AtomicLong processedPixels = new AtomicLong(0);
+    /**
+     * The index of the next pixel handed out by {@link #nextChunk}, row by row from the first pixel
+     */
+    private final AtomicLong nextIndex = new AtomicLong(0);
     /**
      * The last printed progress update percentage
      */
@@ -80,9 +92,28 @@ class PixelManager {
      *                        required
      */
     PixelManager(int maxRows, int maxCols, double intervalSeconds) {
+        this(0, 0, maxRows, maxCols, intervalSeconds);
+    }
+
+    /**
+     * Initialize pixel manager data for multi-threading over a rectangular region
+     * of the image.
+     *
+     * @param firstRow        the first pixel row of the region
+     * @param firstCol        the first pixel column of the region
+     * @param maxRows         the row after the last pixel row of the region
+     * @param maxCols         the column after the last pixel column of the region
+     * @param intervalSeconds print time interval in seconds, 0 if printing is not
+     *                        required
+     */
+    PixelManager(int firstRow, int firstCol, int maxRows, int maxCols, double intervalSeconds) {
+        this.firstRow = firstRow;
+        this.firstCol = firstCol;
         this.maxRows = maxRows;
         this.maxCols = maxCols;
-        this.totalPixels = (long) maxRows * maxCols;
+        this.currentRow = new AtomicInteger(firstRow);
+        this.currentCol = new AtomicInteger(firstCol - 1);
+        this.totalPixels = (long) (maxRows - firstRow) * (maxCols - firstCol);
         this.printIntervalMillis = (long) (intervalSeconds * 1000);
         this.printProgress = (printIntervalMillis != 0);
         if (printProgress) {
@@ -100,7 +131,7 @@ class PixelManager {
      */
     Pixel nextPixel() {
         synchronized (nextPixelLock) {
-            if (currentRow.get() == maxRows) {
+            if (currentRow.get() >= maxRows) {
                 return null;
             }
 
@@ -109,7 +140,7 @@ class PixelManager {
                 return new Pixel(col, currentRow.get());
             }
 
-            currentCol.set(0);
+            currentCol.set(firstCol);
             currentRow.incrementAndGet();
             if (currentRow.get() < maxRows) {
                 return new Pixel(currentCol.get(), currentRow.get());
@@ -118,6 +149,71 @@ class PixelManager {
         return null;
     }
 
+    /**
+     * Hands out the next chunk of consecutive pixels without locking, the pixels are numbered
+     * row by row from the first pixel of the region.
+     * It is an alternative to {@link #nextPixel()} and the two must not be mixed in a render.
+     *
+     * @param size the number of pixels in a chunk
+     * @return the index of the first pixel of the chunk, or -1 if there are no more pixels
+     */
+    long nextChunk(int size) {
+        long index = nextIndex.getAndAdd(size);
+        return index < totalPixels ? index : -1;
+    }
+
+    /**
+     * Gets the index after the last pixel of a chunk
+     *
+     * @param first the index of the first pixel of the chunk
+     * @param size  the number of pixels in a chunk
+     * @return the index after the last pixel of the chunk, clipped to the region
+     */
+    long chunkEnd(long first, int size) {
+        return Math.min(first + size, totalPixels);
+    }
+
+    /**
+     * Gets the column of a pixel handed out by {@link #nextChunk}
+     *
+     * @param index the index of the pixel
+     * @return the column of the pixel
+     */
+    int col(long index) {
+        return firstCol + (int) (index % (maxCols - firstCol));
+    }
+
+    /**
+     * Gets the row of a pixel handed out by {@link #nextChunk}
+     *
+     * @param index the index of the pixel
+     * @return the row of the pixel
+     */
+    int row(long index) {
+        return firstRow + (int) (index / (maxCols - firstCol));
+    }
+
+    /**
+     * Finish processing of several pixels by updating the progress, which is printed under a lock
+     * only if printing is required
+     *
+     * @param count the number of processed pixels
+     */
+    void pixelsDone(long count) {
+        if (!printProgress) {
+            processedPixels.addAndGet(count);
+            return;
+        }
+        synchronized (progressPrintLock) {
+            long processedCount = processedPixels.addAndGet(count);
+            int percentage = (int) (1000L * processedCount / totalPixels);
+            if (percentage - lastPrintedPercentage >= printIntervalMillis) {
+                lastPrintedPercentage = percentage;
+                System.out.printf(PRINT_FORMAT, percentage / 10.0);
+            }
+        }
+    }
+
     /**
      * Finish pixel processing by updating and printing the progress percentage.
      */
@@ -0,0 +1,44 @@
+package renderer;
+
+/**
+ * Strategies of handing out the pixels of a multi-threaded render to the rendering threads.
+ * They produce the same image and differ only in the synchronization between the threads.
+ */
+public enum PixelScheduler {
+    /**
+     * Pixel by pixel from the pixel manager under a lock, with the progress counted under a lock per pixel
+     */
+    SYNCHRONIZED(false),
+    /**
+     * Pixel by pixel from a lock-free counter
+     */
+    ATOMIC(false),
+    /**
+     * Whole rows from a lock-free counter, with the progress counted per row
+     */
+    ROWS(true);
+
+    /**
+     * Whether the pixels are handed out by whole rows
+     */
+    private final boolean rows;
+
+    /**
+     * Constructs a scheduler
+     *
+     * @param rows whether the pixels are handed out by whole rows
+     */
+    PixelScheduler(boolean rows) {
+        this.rows = rows;
+    }
+
+    /**
+     * Calculates the number of pixels handed out at once
+     *
+     * @param width the number of pixels in a row of the rendered region
+     * @return the number of consecutive pixels in a chunk
+     */
+    int chunkSize(int width) {
+        return rows ? width : 1;
+    }
+}
@@ -0,0 +1,317 @@
+package renderer;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Png encoder of a packed RGB framebuffer that filters and compresses horizontal strips of the image in parallel.
+ * Every strip is compressed separately into raw deflate blocks ending at a byte boundary (a sync flush),
+ * so the compressed strips are simply concatenated into one zlib stream, whose checksum is combined
+ * from the checksums of the strips.
+ * The image writer reports the written pixels, and a strip is compressed as soon as all its pixels are written,
+ * so the encoding overlaps with the rendering of the following strips.
+ * The class also provides the png chunk helpers of the streaming image writer.
+ */
+class PngEncoder {
+    /**
+     * The signature at the beginning of every png file
+     */
+    static final byte[] PNG_SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+    /**
+     * Png row filter type that stores each byte as the difference from the same component of the previous pixel
+     */
+    static final byte FILTER_SUB = 1;
+    /**
+     * The modulus of the Adler-32 checksum
+     */
+    private static final int ADLER_BASE = 65521;
+    /**
+     * The threads compressing the strips of all the encoders
+     */
+    private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(
+            Runtime.getRuntime().availableProcessors(), runnable -> {
+                Thread thread = new Thread(runnable, "png-encoder");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    /**
+     * A compressed strip - its raw deflate blocks, and the checksum and length of its filtered data
+     *
+     * @param data     the compressed data
+     * @param adler    the Adler-32 checksum of the filtered data
+     * @param rawBytes the length of the filtered data
+     */
+    private record Strip(byte[] data, int adler, long rawBytes) {
+    }
+
+    /**
+     * Horizontal resolution of the image
+     */
+    private final int nX;
+    /**
+     * Vertical resolution of the image
+     */
+    private final int nY;
+    /**
+     * Number of rows in a strip (the last strip may be shorter)
+     */
+    private final int stripRows;
+    /**
+     * The packed RGB values of the image pixels, row after row
+     */
+    private final int[] pixels;
+    /**
+     * Number of pixel writes each strip still waits for before it can be compressed.
+     * It becomes negative if pixels of a strip are written again after the strip was complete
+     */
+    private final AtomicIntegerArray remaining;
+    /**
+     * The compression of each strip, null if it was not started yet
+     */
+    private final AtomicReferenceArray<CompletableFuture<Strip>> strips;
+
+    /**
+     * Constructs an encoder of a framebuffer
+     *
+     * @param nX        amount of pixels by Width
+     * @param nY        amount of pixels by height
+     * @param stripRows the number of rows in a strip
+     * @param pixels    the packed RGB values of the image pixels, row after row
+     */
+    PngEncoder(int nX, int nY, int stripRows, int[] pixels) {
+        this.nX = nX;
+        this.nY = nY;
+        this.stripRows = stripRows;
+        this.pixels = pixels;
+        int count = (nY + stripRows - 1) / stripRows;
+        remaining = new AtomicIntegerArray(count);
+        strips = new AtomicReferenceArray<>(count);
+        reset();
+    }
+
+    /**
+     * Forgets all the compressed strips and waits again for all the pixels to be written
+     */
+    void reset() {
+        for (int s = 0; s < strips.length(); ++s) {
+            remaining.set(s, stripHeight(s) * nX);
+            strips.set(s, null);
+        }
+    }
+
+    /**
+     * Reports pixels written into a row, and starts compressing the strip of the row if it is complete
+     *
+     * @param row   the row index
+     * @param count the number of pixels written into the row
+     */
+    void pixelsWritten(int row, int count) {
+        int strip = row / stripRows;
+        if (remaining.addAndGet(strip, -count) == 0)
+            strips.set(strip, CompletableFuture.supplyAsync(() -> compress(strip), EXECUTOR));
+    }
+
+    /**
+     * Writes the png file. The strips that were not compressed yet, or that were written again
+     * after they were compressed, are compressed now in parallel
+     *
+     * @param fileName the full path of the file
+     * @throws IOException on I/O error
+     */
+    void write(String fileName) throws IOException {
+        int count = strips.length();
+        for (int s = 0; s < count; ++s) {
+            if (strips.get(s) == null || remaining.get(s) < 0) {
+                final int strip = s;
+                strips.set(s, CompletableFuture.supplyAsync(() -> compress(strip), EXECUTOR));
+            }
+        }
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(fileName)))) {
+            writeHeader(out, nX, nY);
+            int adler = 1;
+            for (int s = 0; s < count; ++s) {
+                Strip strip;
+                try {
+                    strip = strips.get(s).join();
+                } catch (CompletionException e) {
+                    throw new IOException("Png strip compression failed", e.getCause());
+                }
+                adler = combineAdler(adler, strip.adler, strip.rawBytes);
+                byte[] data = strip.data;
+                if (s == 0 || s == count - 1) {
+                    // The zlib stream header comes before the first strip and its checksum after the last strip
+                    ByteArrayOutputStream chunk = new ByteArrayOutputStream(data.length + 6);
+                    if (s == 0) {
+                        chunk.write(0x78);
+                        chunk.write(0x9C);
+                    }
+                    chunk.write(data);
+                    if (s == count - 1) {
+                        chunk.write(adler >>> 24);
+                        chunk.write(adler >>> 16);
+                        chunk.write(adler >>> 8);
+                        chunk.write(adler);
+                    }
+                    data = chunk.toByteArray();
+                }
+                writeChunk(out, "IDAT", data, data.length);
+            }
+            writeChunk(out, "IEND", new byte[0], 0);
+        }
+        reset();
+    }
+
+    /**
+     * Gets the number of rows of a strip
+     *
+     * @param strip the strip index
+     * @return the number of rows
+     */
+    private int stripHeight(int strip) {
+        return Math.min(stripRows, nY - strip * stripRows);
+    }
+
+    /**
+     * Filters and compresses a strip. All the strips except the last end with a sync flush,
+     * the last strip ends the deflate stream
+     *
+     * @param strip the strip index
+     * @return the compressed strip
+     */
+    private Strip compress(int strip) {
+        int rowBytes = 1 + 3 * nX;
+        int fromRow = strip * stripRows;
+        int rows = stripHeight(strip);
+        byte[] raw = new byte[rows * rowBytes];
+        for (int r = 0; r < rows; ++r)
+            packRow(pixels, (fromRow + r) * nX, nX, raw, r * rowBytes);
+
+        Adler32 adler = new Adler32();
+        adler.update(raw);
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        deflater.setInput(raw);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 4 + 64);
+        byte[] buffer = new byte[1 << 16];
+        if (strip == strips.length() - 1) {
+            deflater.finish();
+            while (!deflater.finished())
+                out.write(buffer, 0, deflater.deflate(buffer));
+        } else {
+            int n;
+            do {
+                n = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+                out.write(buffer, 0, n);
+            } while (n == buffer.length);
+        }
+        deflater.end();
+        return new Strip(out.toByteArray(), (int) adler.getValue(), raw.length);
+    }
+
+    /**
+     * Combines the Adler-32 checksums of two consecutive blocks of data
+     * into the checksum of their concatenation (as adler32_combine of zlib)
+     *
+     * @param adler1 the checksum of the first block
+     * @param adler2 the checksum of the second block
+     * @param len2   the length of the second block
+     * @return the checksum of both blocks
+     */
+    static int combineAdler(int adler1, int adler2, long len2) {
+        long rem = len2 % ADLER_BASE;
+        long sum1 = adler1 & 0xFFFF;
+        long sum2 = (rem * sum1) % ADLER_BASE;
+        sum1 += (adler2 & 0xFFFF) + ADLER_BASE - 1;
+        sum2 += ((adler1 >>> 16) & 0xFFFF) + ((adler2 >>> 16) & 0xFFFF) + ADLER_BASE - rem;
+        if (sum1 >= ADLER_BASE) sum1 -= ADLER_BASE;
+        if (sum1 >= ADLER_BASE) sum1 -= ADLER_BASE;
+        if (sum2 >= 2L * ADLER_BASE) sum2 -= 2L * ADLER_BASE;
+        if (sum2 >= ADLER_BASE) sum2 -= ADLER_BASE;
+        return (int) (sum1 | (sum2 << 16));
+    }
+
+    /**
+     * Converts a row of packed RGB values into a png row with the Sub filter
+     *
+     * @param pixels    the packed RGB values
+     * @param offset    the index of the first pixel of the row
+     * @param nX        the number of pixels in the row
+     * @param row       the png row buffer
+     * @param rowOffset the index of the filter type byte of the row in the buffer
+     */
+    static void packRow(int[] pixels, int offset, int nX, byte[] row, int rowOffset) {
+        row[rowOffset] = FILTER_SUB;
+        int previous = 0;
+        for (int x = 0, i = rowOffset + 1; x < nX; ++x, i += 3) {
+            int rgb = pixels[offset + x];
+            row[i] = (byte) ((rgb >> 16) - (previous >> 16));
+            row[i + 1] = (byte) ((rgb >> 8) - (previous >> 8));
+            row[i + 2] = (byte) (rgb - previous);
+            previous = rgb;
+        }
+    }
+
+    /**
+     * Applies the Sub filter in place to a png row of unfiltered RGB bytes
+     *
+     * @param row the png row - the filter type byte followed by the RGB bytes of the pixels
+     */
+    static void filterSub(byte[] row) {
+        // Backwards, so every byte is still original when it is subtracted
+        for (int i = row.length - 1; i > 3; --i)
+            row[i] -= row[i - 3];
+        row[0] = FILTER_SUB;
+    }
+
+    /**
+     * Writes the png signature and the header chunk of an 8-bit RGB image
+     *
+     * @param out the file stream
+     * @param nX  amount of pixels by Width
+     * @param nY  amount of pixels by height
+     * @throws IOException on I/O error
+     */
+    static void writeHeader(DataOutputStream out, int nX, int nY) throws IOException {
+        out.write(PNG_SIGNATURE);
+        // Width, height, 8 bits per sample, RGB color type, default compression, filtering and no interlace
+        byte[] header = {
+                (byte) (nX >> 24), (byte) (nX >> 16), (byte) (nX >> 8), (byte) nX,
+                (byte) (nY >> 24), (byte) (nY >> 16), (byte) (nY >> 8), (byte) nY,
+                8, 2, 0, 0, 0};
+        writeChunk(out, "IHDR", header, header.length);
+    }
+
+    /**
+     * Writes a png chunk - its length, type, data and the CRC of the type and the data
+     *
+     * @param out    the file stream
+     * @param type   the four letters chunk type
+     * @param data   the buffer of the chunk data
+     * @param length the number of data bytes at the beginning of the buffer
+     * @throws IOException on I/O error
+     */
+    static void writeChunk(DataOutputStream out, String type, byte[] data, int length) throws IOException {
+        byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+        CRC32 crc = new CRC32();
+        crc.update(typeBytes);
+        crc.update(data, 0, length);
+        out.writeInt(length);
+        out.write(typeBytes);
+        out.write(data, 0, length);
+        out.writeInt((int) crc.getValue());
+    }
+}
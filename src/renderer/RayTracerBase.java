@@ -55,5 +55,18 @@ public abstract class RayTracerBase {
      */
     public abstract Color computeFinalColor(List<Ray> rays);
 
+    /**
+     * Traces the rays of a tile of pixels, e.g. as a packet of coherent rays.
+     * The default traces the rays one by one.
+     *
+     * @param rays the rays to be traced
+     * @return the colors of the rays, in the order of the rays
+     */
+    public Color[] traceRays(Ray[] rays) {
+        Color[] colors = new Color[rays.length];
+        for (int i = 0; i < rays.length; ++i)
+            colors[i] = traceRay(rays[i]);
+        return colors;
+    }
 
 }
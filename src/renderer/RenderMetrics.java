@@ -0,0 +1,218 @@
+package renderer;
+
+import geometries.IntersectionCounters;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Global throughput counters of the rendering: the traced rays by their category and how many of them hit,
+ * the lookups and hits of the shadow occluder cache, together with the intersection counters of
+ * {@link IntersectionCounters}.
+ * The counters are striped ({@link LongAdder}), so the rendering threads do not contend on them.
+ * <p>
+ * The counters are enabled by the system property {@code raytracer.metrics=true}. The flag is a static final
+ * constant, so when it is disabled the just-in-time compiler removes the counting code completely.
+ * The counters are shared by all the renders of the process, so concurrent renders are counted together.
+ */
+public final class RenderMetrics {
+    /**
+     * Whether the counters are enabled, set once by the system property raytracer.metrics
+     */
+    public static final boolean ENABLED = IntersectionCounters.ENABLED;
+
+    /**
+     * Categories of traced rays
+     */
+    public enum RayType {
+        /**
+         * Rays from the camera through the pixels
+         */
+        PRIMARY,
+        /**
+         * Rays reflected from surfaces
+         */
+        REFLECTION,
+        /**
+         * Rays refracted through transparent surfaces
+         */
+        REFRACTION,
+        /**
+         * Rays from surface points towards the lights
+         */
+        SHADOW
+    }
+
+    /**
+     * Number of traced rays by category
+     */
+    private static final LongAdder[] rays = newCounters();
+    /**
+     * Number of traced rays that hit a geometry (for shadow rays - that were blocked) by category
+     */
+    private static final LongAdder[] hits = newCounters();
+    /**
+     * Number of shadow rays that tested a cached occluder
+     */
+    private static final LongAdder occluderLookups = new LongAdder();
+    /**
+     * Number of shadow rays that were blocked by the cached occluder, skipping the scene walk
+     */
+    private static final LongAdder occluderHits = new LongAdder();
+    /**
+     * Number of rays of all categories traced by each thread, for attributing the rays to pixels
+     */
+    private static final ThreadLocal<long[]> threadRays = ThreadLocal.withInitial(() -> new long[1]);
+
+    /**
+     * Private constructor to prevent instantiation of the utility class
+     */
+    private RenderMetrics() {
+    }
+
+    /**
+     * Creates a counter for every ray category
+     *
+     * @return the counters indexed by the ray category ordinal
+     */
+    private static LongAdder[] newCounters() {
+        LongAdder[] counters = new LongAdder[RayType.values().length];
+        for (int i = 0; i < counters.length; ++i)
+            counters[i] = new LongAdder();
+        return counters;
+    }
+
+    /**
+     * Counts a traced ray
+     *
+     * @param type the ray category
+     * @param hit  whether the ray hit a geometry (for a shadow ray - whether it was blocked)
+     */
+    static void countRay(RayType type, boolean hit) {
+        if (!ENABLED)
+            return;
+        rays[type.ordinal()].increment();
+        if (hit)
+            hits[type.ordinal()].increment();
+        ++threadRays.get()[0];
+    }
+
+    /**
+     * Counts a shadow ray that tested the cached occluder towards its light
+     *
+     * @param hit whether the cached occluder blocked the shadow ray
+     */
+    static void countOccluderLookup(boolean hit) {
+        if (!ENABLED)
+            return;
+        occluderLookups.increment();
+        if (hit)
+            occluderHits.increment();
+    }
+
+    /**
+     * Gets the number of rays traced by the current thread since it started, so the rays of a pixel
+     * are the difference of the counts before and after it
+     *
+     * @return the number of rays of all categories traced by the current thread, zero if the counters are disabled
+     */
+    static long threadRays() {
+        return ENABLED ? threadRays.get()[0] : 0;
+    }
+
+    /**
+     * Resets all the counters, including the intersection counters
+     */
+    public static void reset() {
+        if (!ENABLED)
+            return;
+        for (RayType type : RayType.values()) {
+            rays[type.ordinal()].reset();
+            hits[type.ordinal()].reset();
+        }
+        occluderLookups.reset();
+        occluderHits.reset();
+        IntersectionCounters.reset();
+    }
+
+    /**
+     * Takes a snapshot of the counters
+     *
+     * @param elapsedNanos the time the counted work took in nanoseconds
+     * @return the snapshot
+     */
+    public static Snapshot snapshot(long elapsedNanos) {
+        Map<RayType, Long> raysByType = new EnumMap<>(RayType.class);
+        Map<RayType, Long> hitsByType = new EnumMap<>(RayType.class);
+        for (RayType type : RayType.values()) {
+            raysByType.put(type, rays[type.ordinal()].sum());
+            hitsByType.put(type, hits[type.ordinal()].sum());
+        }
+        return new Snapshot(elapsedNanos, Collections.unmodifiableMap(raysByType),
+                Collections.unmodifiableMap(hitsByType), occluderLookups.sum(), occluderHits.sum(),
+                IntersectionCounters.getNodeVisits(),
+                Collections.unmodifiableMap(IntersectionCounters.getTests()),
+                Collections.unmodifiableMap(IntersectionCounters.getHits()));
+    }
+
+    /**
+     * Snapshot of the render counters. All the counts are zero when the counters are disabled
+     *
+     * @param elapsedNanos    the time of the render in nanoseconds
+     * @param rays            the number of traced rays by category
+     * @param hits            the number of rays that hit a geometry (shadow rays - that were blocked) by category
+     * @param occluderLookups the number of shadow rays that tested the cached occluder
+     * @param occluderHits    the number of shadow rays that were blocked by the cached occluder
+     * @param nodeVisits      the number of BVH node visits
+     * @param primitiveTests  the number of intersection tests by geometry class name
+     * @param primitiveHits   the number of intersection tests that found an intersection by geometry class name
+     */
+    public record Snapshot(long elapsedNanos, Map<RayType, Long> rays, Map<RayType, Long> hits,
+                           long occluderLookups, long occluderHits, long nodeVisits,
+                           Map<String, Long> primitiveTests, Map<String, Long> primitiveHits) {
+        /**
+         * Gets the total number of traced rays of all the categories
+         *
+         * @return the number of rays
+         */
+        public long totalRays() {
+            return rays.values().stream().mapToLong(Long::longValue).sum();
+        }
+
+        /**
+         * Calculates the throughput of a ray category
+         *
+         * @param type the ray category
+         * @return the traced rays of the category per second of the render
+         */
+        public double raysPerSecond(RayType type) {
+            return elapsedNanos == 0 ? 0 : rays.get(type) * 1e9 / elapsedNanos;
+        }
+
+        /**
+         * Calculates the fraction of the occluder cache lookups that were hits
+         *
+         * @return the hit rate between 0 and 1, or 0 if there were no lookups
+         */
+        public double occluderHitRate() {
+            return occluderLookups == 0 ? 0 : (double) occluderHits / occluderLookups;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder text = new StringBuilder(String.format("render %.1f ms", elapsedNanos / 1e6));
+            for (RayType type : RayType.values())
+                text.append(String.format("%n  %-10s %,12d rays %,14.0f rays/s %5.1f%% hit", type, rays.get(type),
+                        raysPerSecond(type), rays.get(type) == 0 ? 0 : 100.0 * hits.get(type) / rays.get(type)));
+            text.append(String.format("%n  occluders  %,12d lookups %,12d hits %5.1f%% hit", occluderLookups,
+                    occluderHits, 100 * occluderHitRate()));
+            text.append(String.format("%n  BVH nodes  %,12d visits", nodeVisits));
+            primitiveTests.forEach((name, count) ->
+                    text.append(String.format("%n  %-10s %,12d tests %,13d hits", name, count,
+                            primitiveHits.getOrDefault(name, 0L))));
+            return text.toString();
+        }
+    }
+}
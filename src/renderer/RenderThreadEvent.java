@@ -0,0 +1,31 @@
+package renderer;
+
+import jdk.jfr.*;
+
+/**
+ * Flight recorder event of a thread of a multi-threaded render, from its start until it found no more pixels.
+ * The difference between the duration of the render and the processor time of the thread
+ * is the time the thread was idle - waiting for locks, descheduled, or done before the other threads
+ */
+@Name("raytracer.RenderThread")
+@Label("Render Thread")
+@Category("Ray Tracer")
+@Description("Work of a rendering thread")
+final class RenderThreadEvent extends Event {
+    /**
+     * Number of pixels the thread rendered
+     */
+    @Label("Pixels")
+    long pixels;
+    /**
+     * Processor time of the thread
+     */
+    @Label("CPU Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long cpuTime;
+    /**
+     * The pixel scheduler of the render
+     */
+    @Label("Scheduler")
+    String scheduler;
+}
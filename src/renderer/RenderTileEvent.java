@@ -0,0 +1,39 @@
+package renderer;
+
+import jdk.jfr.*;
+
+/**
+ * Flight recorder event of rendering a tile of the image - a tile of a checkpointed render,
+ * or the whole rendered region of a render without checkpoints
+ */
+@Name("raytracer.RenderTile")
+@Label("Render Tile")
+@Category("Ray Tracer")
+@Description("Rendering of a rectangle of pixels")
+final class RenderTileEvent extends Event {
+    /**
+     * First column of the tile
+     */
+    @Label("From Column")
+    int fromCol;
+    /**
+     * First row of the tile
+     */
+    @Label("From Row")
+    int fromRow;
+    /**
+     * Column after the last column of the tile
+     */
+    @Label("To Column")
+    int toCol;
+    /**
+     * Row after the last row of the tile
+     */
+    @Label("To Row")
+    int toRow;
+    /**
+     * Whether the tile was copied from the checkpoint instead of being rendered
+     */
+    @Label("Resumed")
+    boolean resumed;
+}
@@ -1,12 +1,23 @@
 package renderer;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
 
 import static geometries.Intersectable.GeoPoint;
 import static primitives.Util.*;
 
+import geometries.Geometry;
+import geometries.RayPacket;
+import lighting.AreaLight;
 import lighting.LightSource;
+import lighting.PointLight;
 import primitives.*;
+import renderer.RenderMetrics.RayType;
 import scene.Scene;
 
 /**
@@ -30,6 +41,43 @@ public class SimpleRayTracer extends RayTracerBase {
      * Initial value for the calculation of the color coefficient.
      */
     private static final Double3 INITIAL_K = Double3.ONE;
+    /**
+     * Accumulated attenuation below which the iterative shading loop continues a ray
+     * only with a probability proportional to the attenuation (Russian roulette).
+     */
+    private static final double RUSSIAN_ROULETTE_K = 0.1;
+
+    /**
+     * Whether to shade with the iterative loop and Russian-roulette termination
+     * instead of the recursive ray tree.
+     */
+    private boolean russianRoulette = false;
+    /**
+     * Whether to dispatch to shading routines specialized by the zero coefficients of the materials,
+     * skipping the work of zero coefficients.
+     */
+    private boolean materialSpecialization = true;
+    /**
+     * Whether shadow rays test first the last opaque occluder found towards the same light by the same thread
+     */
+    private boolean occluderCache = true;
+    /**
+     * The last opaque occluder found towards each light source, per rendering thread
+     */
+    private final ThreadLocal<Map<LightSource, Geometry>> lastOccluders =
+            ThreadLocal.withInitial(IdentityHashMap::new);
+
+    /**
+     * A pending shading work item of the iterative shading loop.
+     *
+     * @param geoPoint the intersection point to shade
+     * @param ray      the ray that hit the point
+     * @param level    the remaining ray tree depth
+     * @param k        the accumulated attenuation factor of the ray path
+     * @param weight   the accumulated attenuation divided by the Russian-roulette survival probabilities
+     */
+    private record ShadingTask(GeoPoint geoPoint, Ray ray, int level, Double3 k, Double3 weight) {
+    }
 
 
     /**
@@ -41,6 +89,50 @@ public class SimpleRayTracer extends RayTracerBase {
         super(scene);
     }
 
+    /**
+     * Sets the shading mode of the ray tracer.
+     * In Russian-roulette mode the reflected and refracted rays are traced with an explicit work stack
+     * instead of recursion, and rays with a low accumulated attenuation are continued only with a probability
+     * proportional to their attenuation. The surviving rays are weighted by the inverse of that probability,
+     * so the expected color is the same as the color of the full ray tree.
+     *
+     * @param russianRoulette true for the iterative Russian-roulette mode, false for the recursive mode
+     * @return the ray tracer itself for chaining
+     */
+    public SimpleRayTracer setRussianRoulette(boolean russianRoulette) {
+        this.russianRoulette = russianRoulette;
+        return this;
+    }
+
+    /**
+     * Sets whether the shading is specialized by the coefficients of the materials
+     * (see {@link Material#isOpaque()}, {@link Material#isNonReflective()} and {@link Material#isDiffuseOnly()}).
+     * Specialized shading does not construct reflected or refracted rays for non-reflective or opaque materials,
+     * skips the specular term of diffuse-only materials and raises integer shininess by repeated squaring.
+     * The generic shading is kept for comparison and benchmarking.
+     *
+     * @param materialSpecialization true for specialized shading (the default), false for generic shading
+     * @return the ray tracer itself for chaining
+     */
+    public SimpleRayTracer setMaterialSpecialization(boolean materialSpecialization) {
+        this.materialSpecialization = materialSpecialization;
+        return this;
+    }
+
+    /**
+     * Sets whether shadow rays use the per-thread, per-light cache of the last opaque occluder.
+     * Adjacent pixels usually find the same occluder towards a light, so the cached geometry is tested first,
+     * and if it blocks the shadow ray the walk over the scene geometries is skipped.
+     * The lookups and hits of the cache are reported by the render metrics.
+     *
+     * @param occluderCache true to use the occluder cache (the default), false otherwise
+     * @return the ray tracer itself for chaining
+     */
+    public SimpleRayTracer setOccluderCache(boolean occluderCache) {
+        this.occluderCache = occluderCache;
+        return this;
+    }
+
     /**
      * Traces a ray through the scene and calculates the color at the point where
      * the ray intersects with an object.
@@ -52,19 +144,172 @@ public class SimpleRayTracer extends RayTracerBase {
     @Override
     public Color traceRay(Ray ray) {
         var intersection = findClosestIntersection(ray);
-        return intersection == null ? this.scene.background : calcColor(intersection, ray);
+        RenderMetrics.countRay(RayType.PRIMARY, intersection != null);
+        return intersection == null ? this.scene.background : calcColor(intersection, ray, null);
+    }
+
+    /**
+     * Traces the rays of a tile of pixels as a packet: the closest intersections of all the rays are found
+     * in a single walk of the BVH, and then the shadow rays of the intersection points towards every point light
+     * are traced as a packet too, since the points of a tile are close to each other and see the light
+     * in close directions. The shadows of the area lights and the reflected and refracted rays
+     * are traced one by one.
+     *
+     * @param rays the rays to be traced, up to {@link RayPacket#MAX_SIZE}
+     * @return the colors of the rays, in the order of the rays
+     */
+    @Override
+    public Color[] traceRays(Ray[] rays) {
+        if (rays.length > RayPacket.MAX_SIZE)
+            return super.traceRays(rays);
+        RayPacket packet = new RayPacket(rays, null, true);
+        scene.geometries.findGeoIntersections(packet);
+        Color[] colors = new Color[rays.length];
+        GeoPoint[] points = new GeoPoint[rays.length];
+        for (int i = 0; i < rays.length; ++i) {
+            points[i] = packet.getClosest(i);
+            RenderMetrics.countRay(RayType.PRIMARY, points[i] != null);
+        }
+        List<Map<LightSource, Double3>> shadows = packetShadows(rays, points);
+        for (int i = 0; i < rays.length; ++i)
+            colors[i] = points[i] == null ? scene.background : calcColor(points[i], rays[i], shadows.get(i));
+        return colors;
+    }
+
+    /**
+     * Calculates the transparencies of the point lights at the intersection points of a tile,
+     * tracing the shadow rays towards every point light as a packet.
+     * The shadow rays are those that {@link #calcLocalEffects} would trace for the points.
+     *
+     * @param rays   the rays of the tile
+     * @param points the intersection points of the rays, null for the rays that miss
+     * @return the transparencies of the point lights by the light sources, for every ray
+     */
+    private List<Map<LightSource, Double3>> packetShadows(Ray[] rays, GeoPoint[] points) {
+        List<Map<LightSource, Double3>> shadows = new ArrayList<>(rays.length);
+        Map<LightSource, List<Integer>> tiles = new IdentityHashMap<>();
+        Vector[] normals = new Vector[rays.length];
+        for (int i = 0; i < rays.length; ++i) {
+            shadows.add(new IdentityHashMap<>());
+            GeoPoint gp = points[i];
+            if (gp == null)
+                continue;
+            normals[i] = gp.geometry.getNormal(gp.point);
+            double nv = alignZero(normals[i].dotProduct(rays[i].getDirection()));
+            if (nv == 0)
+                continue;
+            List<LightSource> lights = scene.lightBVH == null ? scene.lights : scene.lightBVH.find(gp.point);
+            for (LightSource lightSource : lights)
+                if (lightSource instanceof PointLight && !(lightSource instanceof AreaLight)
+                        && lightSource.influences(gp.point)
+                        && alignZero(normals[i].dotProduct(lightSource.getL(gp.point))) * nv > 0
+                        && lightSource.getIntensity(gp.point).maxComponent() >= LightSource.NEGLIGIBLE_INTENSITY)
+                    tiles.computeIfAbsent(lightSource, light -> new ArrayList<>()).add(i);
+        }
+
+        for (Map.Entry<LightSource, List<Integer>> tile : tiles.entrySet()) {
+            LightSource lightSource = tile.getKey();
+            List<Integer> indices = tile.getValue();
+            Ray[] lightRays = new Ray[indices.size()];
+            double[] lightDistances = new double[indices.size()];
+            double[] limits = new double[indices.size()];
+            for (int j = 0; j < lightRays.length; ++j) {
+                int i = indices.get(j);
+                Point point = points[i].point;
+                lightRays[j] = new Ray(point, lightSource.getL(point).scale(-1), normals[i]);
+                lightDistances[j] = lightSource.getDistance(point);
+                // The head of the shadow ray is moved off the point, so the light is a bit farther from it
+                limits[j] = lightDistances[j] + 2 * DELTA;
+            }
+            RayPacket packet = new RayPacket(lightRays, limits, false);
+            scene.geometries.findGeoIntersections(packet);
+            for (int j = 0; j < lightRays.length; ++j) {
+                int i = indices.get(j);
+                shadows.get(i).put(lightSource, transparency(points[i], lightSource, packet.getIntersections(j),
+                        lightDistances[j], null));
+            }
+        }
+        return shadows;
     }
 
     /**
      * Calculates the color at an intersection point considering global and local
      * lighting effects.
      *
-     * @param gp  the intersection point
-     * @param ray the ray that intersects the point
+     * @param gp      the intersection point
+     * @param ray     the ray that intersects the point
+     * @param shadows the transparencies of the lights at the point traced beforehand, or null
      * @return the color at the intersection point
      */
-    private Color calcColor(GeoPoint gp, Ray ray) {
-        return scene.ambientLight.getIntensity().add(calcColor(gp, ray, MAX_CALC_COLOR_LEVEL, INITIAL_K));
+    private Color calcColor(GeoPoint gp, Ray ray, Map<LightSource, Double3> shadows) {
+        Color color = russianRoulette
+                ? calcColorIterative(gp, ray, shadows)
+                : calcColor(gp, ray, MAX_CALC_COLOR_LEVEL, INITIAL_K, shadows);
+        return scene.ambientLight.getIntensity().add(color);
+    }
+
+    /**
+     * Iterative version of the ray tree calculation with Russian-roulette termination.
+     * Each popped task contributes its local effects scaled by its weight and pushes the surviving
+     * reflected and refracted rays back onto the work stack.
+     *
+     * @param geoPoint the intersection point of the primary ray
+     * @param ray      the primary ray
+     * @param shadows  the transparencies of the lights at the intersection point traced beforehand, or null
+     * @return the color at the intersection point considering global effects
+     */
+    private Color calcColorIterative(GeoPoint geoPoint, Ray ray, Map<LightSource, Double3> shadows) {
+        Color color = Color.BLACK;
+        Deque<ShadingTask> stack = new ArrayDeque<>();
+        stack.push(new ShadingTask(geoPoint, ray, MAX_CALC_COLOR_LEVEL, INITIAL_K, INITIAL_K));
+        while (!stack.isEmpty()) {
+            ShadingTask task = stack.pop();
+            GeoPoint gp = task.geoPoint();
+            Vector n = gp.geometry.getNormal(gp.point);
+            Material material = gp.geometry.getMaterial();
+            color = color.add(calcLocalEffects(gp, task.ray(), n, material, task.k(), shadows)
+                    .scale(task.weight()));
+            // Only the first task is the point of the primary ray
+            shadows = null;
+            if (task.level() == 1 || !hasGlobalEffects(material))
+                continue;
+
+            Vector v = task.ray().getDirection();
+            if (!materialSpecialization || !material.isNonReflective())
+                color = color.add(continueGlobalEffect(stack, constructReflectedRay(gp, v, n), RayType.REFLECTION,
+                        material.kR, task));
+            if (!materialSpecialization || !material.isOpaque())
+                color = color.add(continueGlobalEffect(stack, constructRefractedRay(gp, v, n), RayType.REFRACTION,
+                        material.kT, task));
+        }
+        return color;
+    }
+
+    /**
+     * Decides by Russian roulette whether to continue a reflected or refracted ray.
+     * A surviving ray that hits a geometry is pushed onto the work stack, a surviving ray
+     * that misses contributes the background color.
+     *
+     * @param stack  the work stack of the iterative shading loop
+     * @param ray    the reflected or refracted ray
+     * @param type   the category of the ray
+     * @param kx     the attenuation coefficient of the effect
+     * @param parent the task that spawned the ray
+     * @return the background contribution if the ray survived and missed, black otherwise
+     */
+    private Color continueGlobalEffect(Deque<ShadingTask> stack, Ray ray, RayType type, Double3 kx,
+                                       ShadingTask parent) {
+        Double3 kkx = kx.product(parent.k());
+        double survival = Math.min(1, kkx.maxComponent() / RUSSIAN_ROULETTE_K);
+        if (survival <= 0 || (survival < 1 && ThreadLocalRandom.current().nextDouble() >= survival))
+            return Color.BLACK;
+
+        GeoPoint gp = findClosestIntersection(ray);
+        RenderMetrics.countRay(type, gp != null);
+        if (gp == null)
+            return scene.background.scale(parent.weight().reduce(survival));
+        stack.push(new ShadingTask(gp, ray, parent.level() - 1, kkx, kx.product(parent.weight()).reduce(survival)));
+        return Color.BLACK;
     }
 
     /**
@@ -75,78 +320,113 @@ public class SimpleRayTracer extends RayTracerBase {
      * @param ray      the ray that intersects the point
      * @param level    current recursion level
      * @param k        coefficient for color calculation
+     * @param shadows  the transparencies of the lights at the intersection point traced beforehand, or null
      * @return the color at the intersection point considering global effects
      */
-    private Color calcColor(GeoPoint geoPoint, Ray ray, int level, Double3 k) {
-        Color color = calcLocalEffects(geoPoint, ray, k);
-        return 1 == level ? color : color.add(calcGlobalEffects(geoPoint, ray, level, k));
+    private Color calcColor(GeoPoint geoPoint, Ray ray, int level, Double3 k, Map<LightSource, Double3> shadows) {
+        Vector n = geoPoint.geometry.getNormal(geoPoint.point);
+        Material material = geoPoint.geometry.getMaterial();
+        Color color = calcLocalEffects(geoPoint, ray, n, material, k, shadows);
+        return 1 == level || !hasGlobalEffects(material)
+                ? color
+                : color.add(calcGlobalEffects(geoPoint, ray, n, material, level, k));
+    }
+
+    /**
+     * Checks whether the material may spawn reflected or refracted rays.
+     *
+     * @param material the material of the intersected geometry
+     * @return false if the shading is specialized and the material is both opaque and non-reflective,
+     * true otherwise
+     */
+    private boolean hasGlobalEffects(Material material) {
+        return !materialSpecialization || !material.isOpaque() || !material.isNonReflective();
     }
 
     /**
      * Calculates the global effects of reflection and refraction.
+     * With specialized shading only the rays of non-zero coefficients are constructed.
      *
-     * @param gp    the intersection point
-     * @param ray   the ray from the camera
-     * @param level the current recursion level
-     * @param k     the accumulated attenuation factor
+     * @param gp       the intersection point
+     * @param ray      the ray from the camera
+     * @param n        the normal at the intersection point
+     * @param material the material of the intersected geometry
+     * @param level    the current recursion level
+     * @param k        the accumulated attenuation factor
      * @return the color including global effects
      */
-    private Color calcGlobalEffects(GeoPoint gp, Ray ray, int level, Double3 k) {
+    private Color calcGlobalEffects(GeoPoint gp, Ray ray, Vector n, Material material, int level, Double3 k) {
         Vector v = ray.getDirection();
-        Vector n = gp.geometry.getNormal(gp.point);
-        Material material = gp.geometry.getMaterial();
-        return calcGlobalEffect(constructReflectedRay(gp, v, n), material.kR, level, k)
-                .add(calcGlobalEffect(constructRefractedRay(gp, v, n), material.kT, level, k));
-
+        Color color = Color.BLACK;
+        if (!materialSpecialization || !material.isNonReflective())
+            color = color.add(calcGlobalEffect(constructReflectedRay(gp, v, n), RayType.REFLECTION, material.kR, level, k));
+        if (!materialSpecialization || !material.isOpaque())
+            color = color.add(calcGlobalEffect(constructRefractedRay(gp, v, n), RayType.REFRACTION, material.kT, level, k));
+        return color;
     }
 
     /**
      * Calculates the global effect (reflection or refraction) for a given ray.
      *
      * @param ray   the ray to calculate the effect for
+     * @param type  the category of the ray
      * @param kx    the attenuation coefficient
      * @param level the current recursion level
      * @param k     the accumulated attenuation factor
      * @return the color including the global effect
      */
 
-    private Color calcGlobalEffect(Ray ray, Double3 kx, int level, Double3 k) {
+    private Color calcGlobalEffect(Ray ray, RayType type, Double3 kx, int level, Double3 k) {
         Double3 kkx = kx.product(k);
         if (kkx.lowerThan(MIN_CALC_COLOR_K))
             return Color.BLACK;
         GeoPoint gp = findClosestIntersection(ray);
-        return gp == null ? scene.background : calcColor(gp, ray, level - 1, kkx).scale(kx);
+        RenderMetrics.countRay(type, gp != null);
+        return gp == null ? scene.background : calcColor(gp, ray, level - 1, kkx, null).scale(kx);
     }
 
     /**
      * Calculates the local effects (diffuse and specular) at a given point.
      *
-     * @param k   Coefficients for transparency calculations.
-     * @param gp  the geometry point at which to calculate the local effects
-     * @param ray the ray that intersects with the point
+     * @param gp       the geometry point at which to calculate the local effects
+     * @param ray      the ray that intersects with the point
+     * @param n        the normal at the point
+     * @param material the material of the intersected geometry
+     * @param k        Coefficients for transparency calculations.
+     * @param shadows  the transparencies of the lights at the point traced beforehand, or null
      * @return the color including local effects
      */
-    private Color calcLocalEffects(GeoPoint gp, Ray ray, Double3 k) {
-        Vector n = gp.geometry.getNormal(gp.point);
+    private Color calcLocalEffects(GeoPoint gp, Ray ray, Vector n, Material material, Double3 k,
+                                   Map<LightSource, Double3> shadows) {
         Vector v = ray.getDirection();
         Color color = gp.geometry.getEmission();
         double nv = alignZero(n.dotProduct(v));
         if (nv == 0)
             return color;
-        Material material = gp.geometry.getMaterial();
-        for (LightSource lightSource : this.scene.lights) {
+        boolean diffuseOnly = materialSpecialization && material.isDiffuseOnly();
+        List<LightSource> lights = scene.lightBVH == null ? scene.lights : scene.lightBVH.find(gp.point);
+        for (LightSource lightSource : lights) {
+            // Skip lights whose influence region or cone does not reach the point
+            if (!lightSource.influences(gp.point))
+                continue;
             Vector light = lightSource.getL(gp.point);
             double nl = alignZero(n.dotProduct(light));
             // Check if the light is in the same direction as the view (both positive or
             // both negative)
             // and if the point is unshaded
             if (nl * nv > 0) {
-                Double3 ktr = transparency(gp, lightSource, light, n, nv);
+                // Get the unoccluded intensity of the light at the point before casting any shadow ray
+                Color intensity = lightSource.getIntensity(gp.point);
+                if (intensity.maxComponent() < LightSource.NEGLIGIBLE_INTENSITY)
+                    continue;
+                Double3 ktr = shadows == null ? null : shadows.get(lightSource);
+                if (ktr == null)
+                    ktr = transparency(gp, lightSource, light, n, nv);
                 if (!ktr.product(k).lowerThan(MIN_CALC_COLOR_K)) {
-                    // Get the intensity of the light at the point
-                    Color iL = lightSource.getIntensity(gp.point).scale(ktr);
-                    color = color
-                            .add(iL.scale(calcDiffusive(material, nl).add(calcSpecular(material, n, light, nl, v))));
+                    Color iL = intensity.scale(ktr);
+                    color = color.add(iL.scale(diffuseOnly
+                            ? calcDiffusive(material, nl)
+                            : calcDiffusive(material, nl).add(calcSpecular(material, n, light, nl, v))));
                 }
             }
         }
@@ -165,24 +445,150 @@ public class SimpleRayTracer extends RayTracerBase {
      * @return the transparency coefficient for the point and light source
      */
     private Double3 transparency(GeoPoint geopoint, LightSource ls, Vector l, Vector n, double nv) {
-        Double3 result = Double3.ONE;
+        if (ls instanceof AreaLight areaLight)
+            return areaTransparency(geopoint, areaLight, n, nv);
         Vector lightDirection = l.scale(-1);
         Ray lightRay = new Ray(geopoint.point, lightDirection, n);
-        List<GeoPoint> intersections = scene.geometries.findGeoIntersections(lightRay);
-        if (intersections == null)
+        return transparency(geopoint, ls, lightRay, ls.getDistance(geopoint.point));
+    }
+
+    /**
+     * Calculates the transparency along a shadow ray from an intersection point towards a light.
+     *
+     * The last opaque occluder found towards the light by the current thread is tested first.
+     *
+     * @param geopoint      the intersection point
+     * @param ls            the light source
+     * @param lightRay      the shadow ray towards the light
+     * @param lightDistance the distance from the intersection point to the light
+     * @return the transparency coefficient along the shadow ray
+     */
+    private Double3 transparency(GeoPoint geopoint, LightSource ls, Ray lightRay, double lightDistance) {
+        Map<LightSource, Geometry> occluders = occluderCache ? lastOccluders.get() : null;
+        if (occluders != null) {
+            Geometry occluder = occluders.get(ls);
+            if (occluder != null) {
+                boolean blocked = blocks(occluder, geopoint, lightRay, lightDistance);
+                RenderMetrics.countOccluderLookup(blocked);
+                if (blocked) {
+                    RenderMetrics.countRay(RayType.SHADOW, true);
+                    return Double3.ZERO;
+                }
+            }
+        }
+
+        return transparency(geopoint, ls, scene.geometries.findGeoIntersections(lightRay), lightDistance, occluders);
+    }
+
+    /**
+     * Calculates the transparency of the intersections of a shadow ray between the intersection point
+     * and the light, and counts the shadow ray.
+     *
+     * @param geopoint      the intersection point
+     * @param ls            the light source
+     * @param intersections the intersections of the shadow ray, may be null
+     * @param lightDistance the distance from the intersection point to the light
+     * @param occluders     the cache of the last opaque occluders to update, or null
+     * @return the transparency coefficient along the shadow ray
+     */
+    private Double3 transparency(GeoPoint geopoint, LightSource ls, List<GeoPoint> intersections,
+                                 double lightDistance, Map<LightSource, Geometry> occluders) {
+        Double3 result = Double3.ONE;
+        if (intersections == null) {
+            RenderMetrics.countRay(RayType.SHADOW, false);
             return result; // no intersections
+        }
 
-        double lightDistance = ls.getDistance(geopoint.point);
         for (GeoPoint gp : intersections) {
             if (alignZero(gp.point.distance(geopoint.point) - lightDistance) <= 0) {
-                result = result.product(gp.geometry.getMaterial().kT); // the more transparency the less shadow
-                if (result.lowerThan(MIN_CALC_COLOR_K))
+                Material material = gp.geometry.getMaterial();
+                if (occluders != null && material.isOpaque())
+                    occluders.put(ls, gp.geometry); // remember the occluder for the next shadow rays
+                result = result.product(material.kT); // the more transparency the less shadow
+                if (result.lowerThan(MIN_CALC_COLOR_K)) {
+                    RenderMetrics.countRay(RayType.SHADOW, true);
                     return Double3.ZERO;
+                }
             }
         }
+        RenderMetrics.countRay(RayType.SHADOW, result != Double3.ONE);
         return result;
     }
 
+    /**
+     * Checks whether an opaque geometry blocks a shadow ray before it reaches the light.
+     *
+     * @param occluder      the opaque geometry
+     * @param geopoint      the intersection point the shadow ray starts from
+     * @param lightRay      the shadow ray towards the light
+     * @param lightDistance the distance from the intersection point to the light
+     * @return true if the geometry intersects the shadow ray between the point and the light
+     */
+    private boolean blocks(Geometry occluder, GeoPoint geopoint, Ray lightRay, double lightDistance) {
+        List<GeoPoint> intersections = occluder.findGeoIntersections(lightRay);
+        if (intersections == null)
+            return false;
+        for (GeoPoint gp : intersections)
+            if (alignZero(gp.point.distance(geopoint.point) - lightDistance) <= 0)
+                return true;
+        return false;
+    }
+
+    /**
+     * Calculates the average transparency of an intersection point in relation to an area light.
+     * With adaptive sampling the probe points of the light are traced first, and if they all agree
+     * the point is considered fully lit or fully shadowed by them. Otherwise, the point is in the penumbra
+     * and the full sample set is traced.
+     *
+     * @param geopoint the intersection point
+     * @param light    the area light
+     * @param n        the normal vector at the intersection point
+     * @param nv       dot product between the view direction and the normal
+     * @return the average transparency coefficient for the point and the light
+     */
+    private Double3 areaTransparency(GeoPoint geopoint, AreaLight light, Vector n, double nv) {
+        if (light.isAdaptive()) {
+            List<Point> probes = light.getProbePoints();
+            Double3 first = sampleTransparency(geopoint, light, probes.get(0), n, nv);
+            Double3 sum = first;
+            boolean agree = true;
+            for (int i = 1; i < probes.size(); ++i) {
+                Double3 ktr = sampleTransparency(geopoint, light, probes.get(i), n, nv);
+                agree = agree && ktr.equals(first);
+                sum = sum.add(ktr);
+            }
+            if (agree)
+                return sum.reduce(probes.size());
+        }
+
+        List<Point> samples = light.getSamplePoints();
+        Double3 sum = Double3.ZERO;
+        for (Point sample : samples)
+            sum = sum.add(sampleTransparency(geopoint, light, sample, n, nv));
+        return sum.reduce(samples.size());
+    }
+
+    /**
+     * Calculates the transparency along a shadow ray from an intersection point towards a sample point of an
+     * area light. A sample point behind the surface, as seen from the view side, does not light the point.
+     *
+     * @param geopoint the intersection point
+     * @param light    the area light
+     * @param sample   the sample point on the light
+     * @param n        the normal vector at the intersection point
+     * @param nv       dot product between the view direction and the normal
+     * @return the transparency coefficient along the shadow ray
+     */
+    private Double3 sampleTransparency(GeoPoint geopoint, AreaLight light, Point sample, Vector n, double nv) {
+        if (sample.equals(geopoint.point))
+            return Double3.ONE;
+        Vector toLight = sample.subtract(geopoint.point);
+        if (alignZero(n.dotProduct(toLight)) * nv >= 0)
+            return Double3.ZERO;
+        double lightDistance = toLight.length();
+        return transparency(geopoint, light, new Ray(geopoint.point, toLight.normalize(), n), lightDistance);
+    }
+
     /**
      * Constructs the reflected ray from a given point.
      *
@@ -234,7 +640,29 @@ public class SimpleRayTracer extends RayTracerBase {
         // R = L - 2 * (L · N) * N
         Vector r = l.subtract(n.scale(2 * nl)).normalize();
         double vr = alignZero(-v.dotProduct(r));
-        return vr <= 0 ? Double3.ZERO : material.kS.scale(Math.pow(vr, material.nShininess));
+        if (vr <= 0)
+            return Double3.ZERO;
+        return material.kS.scale(materialSpecialization && material.nShininess >= 0
+                ? integerPower(vr, material.nShininess)
+                : Math.pow(vr, material.nShininess));
+    }
+
+    /**
+     * Raises a number to a non-negative integer power by repeated squaring.
+     *
+     * @param base     the base
+     * @param exponent the non-negative exponent
+     * @return the base raised to the power of the exponent
+     */
+    private static double integerPower(double base, int exponent) {
+        double result = 1;
+        while (exponent > 0) {
+            if ((exponent & 1) != 0)
+                result *= base;
+            base *= base;
+            exponent >>= 1;
+        }
+        return result;
     }
 
     /**
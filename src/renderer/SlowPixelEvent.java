@@ -0,0 +1,36 @@
+package renderer;
+
+import jdk.jfr.*;
+
+/**
+ * Flight recorder event of a pixel whose color took longer than the threshold of the event to compute.
+ * The number of traced rays is counted only when the render counters are enabled
+ * (see {@link RenderMetrics}), otherwise it is zero
+ */
+@Name("raytracer.SlowPixel")
+@Label("Slow Pixel")
+@Category("Ray Tracer")
+@Description("Pixel that took longer than the threshold to render")
+@Threshold("10 ms")
+final class SlowPixelEvent extends Event {
+    /**
+     * Column of the pixel
+     */
+    @Label("Column")
+    int col;
+    /**
+     * Row of the pixel
+     */
+    @Label("Row")
+    int row;
+    /**
+     * Number of rays cast from the camera through the pixel
+     */
+    @Label("Primary Rays")
+    int primaryRays;
+    /**
+     * Number of rays of all categories traced for the pixel
+     */
+    @Label("Traced Rays")
+    long tracedRays;
+}
@@ -0,0 +1,369 @@
+package renderer;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.logging.Level;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+import primitives.Color;
+
+/**
+ * Image writer that encodes the png file while the image is rendered, without keeping the whole image in memory.
+ * The pixels are collected in a bounded reorder buffer of rows; whenever the first row that was not encoded yet
+ * is complete, it and the following complete rows are compressed and written to the file.
+ * A thread that writes a pixel of a row beyond the buffer waits until enough rows are encoded,
+ * so the memory stays bounded even when pixels or tiles are completed out of order.
+ * Every pixel of the image must be written exactly once, and the file is complete
+ * only after {@link #writeToImage()} is called when all the rows are written.
+ * The writer does not support the high-dynamic-range framebuffer.
+ */
+public class StreamingImageWriter extends ImageWriter {
+    /**
+     * Default number of rows in the reorder buffer
+     */
+    private static final int DEFAULT_BUFFER_ROWS = 64;
+    /**
+     * Maximal size of the compressed data in one IDAT chunk
+     */
+    private static final int CHUNK_SIZE = 1 << 16;
+
+    /**
+     * Number of rows in the reorder buffer
+     */
+    private final int bufferRows;
+    /**
+     * The reorder buffer - the raw rows of the png (a filter type byte and the RGB bytes of the pixels),
+     * row y is kept in slot y % bufferRows
+     */
+    private final byte[][] rows;
+    /**
+     * Number of pixels not written yet in the row of each slot
+     */
+    private final int[] remaining;
+    /**
+     * The first row that was not encoded yet
+     */
+    private int nextRow = 0;
+    /**
+     * The png file, opened when the first row is encoded
+     */
+    private DataOutputStream file = null;
+    /**
+     * The compressor of the image data
+     */
+    private Deflater deflater = null;
+    /**
+     * The stream compressing the rows into IDAT chunks of the file
+     */
+    private DeflaterOutputStream idat = null;
+    /**
+     * Whether the file was completed
+     */
+    private boolean finished = false;
+
+    // ***************** Constructors ********************** //
+
+    /**
+     * Streaming Image Writer constructor with the default size of the reorder buffer
+     *
+     * @param imageName the name of png file
+     * @param nX        amount of pixels by Width
+     * @param nY        amount of pixels by height
+     */
+    public StreamingImageWriter(String imageName, int nX, int nY) {
+        this(imageName, nX, nY, DEFAULT_BUFFER_ROWS);
+    }
+
+    /**
+     * Streaming Image Writer constructor
+     *
+     * @param imageName  the name of png file
+     * @param nX         amount of pixels by Width
+     * @param nY         amount of pixels by height
+     * @param bufferRows the number of rows kept in memory for reordering the completed pixels, at least the rows
+     *                   of a checkpoint tile or a packet of rays of the camera
+     * @throws IllegalArgumentException if the number of buffer rows is not positive
+     */
+    public StreamingImageWriter(String imageName, int nX, int nY, int bufferRows) {
+        super(imageName, nX, nY, false);
+        if (bufferRows <= 0)
+            throw new IllegalArgumentException("Number of buffer rows must be positive");
+        this.bufferRows = Math.min(bufferRows, nY);
+        rows = new byte[this.bufferRows][1 + 3 * nX];
+        remaining = new int[this.bufferRows];
+        Arrays.fill(remaining, nX);
+    }
+
+    // ***************** Getters/Setters ********************** //
+
+    /**
+     * Gets the number of rows kept in the reorder buffer. A render must complete its rows in windows of at most
+     * that many rows, otherwise a single thread waits for rows that only it could complete
+     *
+     * @return the number of buffer rows
+     */
+    public int getBufferRows() {
+        return bufferRows;
+    }
+
+    /**
+     * The high-dynamic-range framebuffer is not supported since the image is not kept in memory
+     *
+     * @param hdr must be false
+     * @return the image writer itself
+     * @throws UnsupportedOperationException if hdr is true
+     */
+    @Override
+    public StreamingImageWriter setHdr(boolean hdr) {
+        if (hdr)
+            throw new UnsupportedOperationException("Streaming image writer does not support HDR framebuffer");
+        return this;
+    }
+
+    /**
+     * The parallel encoding of the whole image is not supported since the image is not kept in memory,
+     * the streaming writer encodes the rows as they are completed anyway
+     *
+     * @param parallel must be false
+     * @return the image writer itself
+     * @throws UnsupportedOperationException if parallel is true
+     */
+    @Override
+    public StreamingImageWriter setParallelEncoding(boolean parallel) {
+        if (parallel)
+            throw new UnsupportedOperationException("Streaming image writer does not support parallel encoding");
+        return this;
+    }
+
+    // ***************** Operations ******************** //
+
+    /**
+     * Completes the png file. All the rows of the image must have been written before
+     *
+     * @throws IllegalStateException if some rows are not written yet or on I/O error
+     */
+    @Override
+    public synchronized void writeToImage() {
+        if (finished)
+            return;
+        if (nextRow < getNy())
+            throw new IllegalStateException("Image is incomplete - row " + nextRow + " is not written yet");
+        try {
+            openFile();
+            idat.finish();
+            idat.flush();
+            deflater.end();
+            PngEncoder.writeChunk(file, "IEND", new byte[0], 0);
+            file.close();
+            finished = true;
+        } catch (IOException e) {
+            getLogger().log(Level.SEVERE, "I/O error", e);
+            throw new IllegalStateException("I/O error - may be missing directory " + getFolderPath(), e);
+        }
+    }
+
+    /**
+     * Tone mapping is not supported since the image is not kept in memory
+     *
+     * @param toneMapper the tone mapping operator
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public void toneMap(ToneMapper toneMapper) {
+        throw new UnsupportedOperationException("Streaming image writer does not support tone mapping");
+    }
+
+    /**
+     * Writes the color of a pixel into the reorder buffer,
+     * waiting if the row of the pixel is beyond the buffer
+     *
+     * @param xIndex X axis index of the pixel
+     * @param yIndex Y axis index of the pixel
+     * @param color  final color of the pixel
+     * @throws IllegalStateException if the row of the pixel was already encoded
+     */
+    @Override
+    public void writePixel(int xIndex, int yIndex, Color color) {
+        Objects.checkIndex(xIndex, getNx());
+        Objects.checkIndex(yIndex, getNy());
+        int rgb = color.getRGB();
+        synchronized (this) {
+            int slot = awaitRow(yIndex);
+            byte[] row = rows[slot];
+            int offset = 1 + 3 * xIndex;
+            row[offset] = (byte) (rgb >> 16);
+            row[offset + 1] = (byte) (rgb >> 8);
+            row[offset + 2] = (byte) rgb;
+            if (--remaining[slot] == 0)
+                encodeCompleteRows();
+        }
+    }
+
+    /**
+     * Writes a whole rectangular tile of packed ARGB values into the reorder buffer, a row of the tile at a time,
+     * waiting while the row is beyond the buffer
+     *
+     * @param xIndex X axis index of the top left pixel of the tile
+     * @param yIndex Y axis index of the top left pixel of the tile
+     * @param width  the number of pixels in a row of the tile
+     * @param height the number of rows of the tile
+     * @param tile   the packed colors of the tile pixels, row after row
+     * @throws IllegalArgumentException if the tile does not fit in the image or the array is too short
+     * @throws IllegalStateException    if a row of the tile was already encoded
+     */
+    @Override
+    public void writeTile(int xIndex, int yIndex, int width, int height, int[] tile) {
+        if (xIndex < 0 || yIndex < 0 || width < 0 || height < 0
+                || xIndex + width > getNx() || yIndex + height > getNy())
+            throw new IllegalArgumentException("Tile is out of the image bounds");
+        if (tile.length < width * height)
+            throw new IllegalArgumentException("Tile array is shorter than the tile size");
+        if (width == 0)
+            return;
+        for (int r = 0; r < height; ++r)
+            synchronized (this) {
+                int slot = awaitRow(yIndex + r);
+                byte[] row = rows[slot];
+                for (int c = 0, offset = 1 + 3 * xIndex; c < width; ++c, offset += 3) {
+                    int rgb = tile[r * width + c];
+                    row[offset] = (byte) (rgb >> 16);
+                    row[offset + 1] = (byte) (rgb >> 8);
+                    row[offset + 2] = (byte) rgb;
+                }
+                remaining[slot] -= width;
+                if (remaining[slot] == 0)
+                    encodeCompleteRows();
+            }
+    }
+
+    /**
+     * Waits until the given row is inside the reorder buffer. Must be called while holding the writer lock
+     *
+     * @param y the row index
+     * @return the buffer slot of the row
+     * @throws IllegalStateException if the row was already encoded or the thread was interrupted
+     */
+    private int awaitRow(int y) {
+        if (y < nextRow)
+            throw new IllegalStateException("Row " + y + " was already encoded");
+        while (y >= nextRow + bufferRows) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for row " + y, e);
+            }
+        }
+        return y % bufferRows;
+    }
+
+    /**
+     * Encodes the complete rows at the beginning of the reorder buffer and frees their slots
+     * for the following rows. Must be called while holding the writer lock
+     */
+    private void encodeCompleteRows() {
+        int nX = getNx();
+        int nY = getNy();
+        try {
+            openFile();
+            while (nextRow < nY && remaining[nextRow % bufferRows] == 0) {
+                int slot = nextRow % bufferRows;
+                byte[] row = rows[slot];
+                PngEncoder.filterSub(row);
+                idat.write(row);
+                remaining[slot] = nX;
+                ++nextRow;
+            }
+        } catch (IOException e) {
+            getLogger().log(Level.SEVERE, "I/O error", e);
+            throw new IllegalStateException("I/O error - may be missing directory " + getFolderPath(), e);
+        }
+        notifyAll();
+    }
+
+    /**
+     * Opens the png file and writes its header, unless it was already opened
+     *
+     * @throws IOException on I/O error
+     */
+    private void openFile() throws IOException {
+        if (file != null)
+            return;
+        file = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(getFolderPath() + '/' + getImageName() + ".png"), CHUNK_SIZE));
+        PngEncoder.writeHeader(file, getNx(), getNy());
+        deflater = new Deflater();
+        idat = new DeflaterOutputStream(new ChunkOutputStream(file), deflater, CHUNK_SIZE);
+    }
+
+    /**
+     * Output stream that packs the compressed image data into IDAT chunks of a bounded size
+     */
+    private static class ChunkOutputStream extends OutputStream {
+        /**
+         * The png file stream
+         */
+        private final DataOutputStream out;
+        /**
+         * The data of the current chunk
+         */
+        private final byte[] buffer = new byte[CHUNK_SIZE];
+        /**
+         * Number of bytes in the current chunk
+         */
+        private int count = 0;
+
+        /**
+         * Constructs a chunk stream over the png file stream
+         *
+         * @param out the png file stream
+         */
+        private ChunkOutputStream(DataOutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (count == buffer.length)
+                flushChunk();
+            buffer[count++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                if (count == buffer.length)
+                    flushChunk();
+                int n = Math.min(len, buffer.length - count);
+                System.arraycopy(b, off, buffer, count, n);
+                count += n;
+                off += n;
+                len -= n;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            flushChunk();
+            out.flush();
+        }
+
+        /**
+         * Writes the collected data as an IDAT chunk
+         *
+         * @throws IOException on I/O error
+         */
+        private void flushChunk() throws IOException {
+            if (count == 0)
+                return;
+            PngEncoder.writeChunk(out, "IDAT", buffer, count);
+            count = 0;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package renderer;
+
+/**
+ * Tone mapping operator - converts a linear high-dynamic-range pixel color into a displayable packed RGB value.
+ * The linear components are normalized so that 1 is the brightest displayable intensity
+ * (255 in the color units of the scene).
+ * The operators are applied when a high-dynamic-range framebuffer is exported, so an already rendered
+ * image can be re-exposed without rendering it again.
+ */
+@FunctionalInterface
+public interface ToneMapper {
+    /**
+     * Maps a linear color to a displayable packed RGB value.
+     *
+     * @param r the linear red component
+     * @param g the linear green component
+     * @param b the linear blue component
+     * @return the packed ARGB value (see {@link primitives.Color#getRGB()})
+     */
+    int toRGB(float r, float g, float b);
+
+    /**
+     * Scales the intensities by the exposure and clips every component above 1.
+     * With exposure 1 it reproduces the image of the regular 8-bit framebuffer.
+     *
+     * @param exposure the factor of the intensities
+     * @return the clipping tone mapper
+     */
+    static ToneMapper clamp(double exposure) {
+        return (r, g, b) -> pack(exposure * r, exposure * g, exposure * b);
+    }
+
+    /**
+     * Compresses the scaled intensities with the Reinhard operator x / (1 + x),
+     * so highlights are attenuated gradually instead of being clipped.
+     *
+     * @param exposure the factor of the intensities
+     * @return the Reinhard tone mapper
+     */
+    static ToneMapper reinhard(double exposure) {
+        return (r, g, b) -> pack(reinhardCurve(exposure * r), reinhardCurve(exposure * g), reinhardCurve(exposure * b));
+    }
+
+    /**
+     * Compresses the scaled intensities with the ACES filmic curve approximation of Narkowicz,
+     * which keeps more contrast in the mid tones than the Reinhard operator.
+     *
+     * @param exposure the factor of the intensities
+     * @return the filmic tone mapper
+     */
+    static ToneMapper filmic(double exposure) {
+        return (r, g, b) -> pack(filmicCurve(exposure * r), filmicCurve(exposure * g), filmicCurve(exposure * b));
+    }
+
+    /**
+     * The Reinhard curve
+     *
+     * @param x the scaled intensity
+     * @return the compressed intensity in the range [0, 1)
+     */
+    private static double reinhardCurve(double x) {
+        return x / (1 + x);
+    }
+
+    /**
+     * The ACES filmic curve approximation
+     *
+     * @param x the scaled intensity
+     * @return the compressed intensity
+     */
+    private static double filmicCurve(double x) {
+        return x * (2.51 * x + 0.03) / (x * (2.43 * x + 0.59) + 0.14);
+    }
+
+    /**
+     * Quantizes normalized components to 8 bits and packs them into an opaque ARGB value.
+     *
+     * @param r the red component, 1 is full intensity
+     * @param g the green component, 1 is full intensity
+     * @param b the blue component, 1 is full intensity
+     * @return the packed ARGB value
+     */
+    private static int pack(double r, double g, double b) {
+        return 0xFF000000 | quantize(r) << 16 | quantize(g) << 8 | quantize(b);
+    }
+
+    /**
+     * Quantizes a normalized component to 8 bits, clipping it to the range [0, 1].
+     * The fraction is truncated like the components of the 8-bit framebuffer ({@link primitives.Color#getRGB()}),
+     * after a tolerance for the single precision of the stored component, so a whole color component
+     * divided by 255 in the float framebuffer comes back as the same 8-bit value
+     *
+     * @param x the component
+     * @return the 8-bit value
+     */
+    private static int quantize(double x) {
+        return x >= 1 ? 255 : x <= 0 ? 0 : (int) (x * 255 + 1e-4);
+    }
+}
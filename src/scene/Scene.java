@@ -1,6 +1,7 @@
 package scene;
 
 import lighting.AmbientLight;
+import lighting.LightBVH;
 import lighting.LightSource;
 import primitives.Color;
 import geometries.Geometries;
@@ -28,6 +29,10 @@ public class Scene {
     public AmbientLight ambientLight = AmbientLight.NONE;
     public Geometries geometries = new Geometries();
     public List<LightSource> lights = new LinkedList<>();
+    /**
+     * Spatial hierarchy of the light sources, null until {@link #makeLightBVH()} is called
+     */
+    public LightBVH lightBVH = null;
 
     /**
      * Constructs a Scene with the given name.
@@ -82,5 +87,17 @@ public class Scene {
         return this;
     }
 
+    /**
+     * Builds a spatial hierarchy over the influence regions of the light sources, so that
+     * the ray tracer considers at each point only the lights that may contribute to it.
+     * It should be called after all the light sources were added to the scene.
+     *
+     * @return the Scene object itself for chaining
+     */
+    public Scene makeLightBVH() {
+        this.lightBVH = new LightBVH(lights);
+        return this;
+    }
+
 
 }
\ No newline at end of file
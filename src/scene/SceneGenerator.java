@@ -0,0 +1,422 @@
+package scene;
+
+import geometries.Geometry;
+import geometries.Intersectable;
+import geometries.Sphere;
+import geometries.Triangle;
+import lighting.AmbientLight;
+import lighting.PointLight;
+import primitives.Color;
+import primitives.Material;
+import primitives.Point;
+import primitives.Vector;
+import renderer.Camera;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Generator of procedural scenes of any size, for measuring how the BVH build time, the render time
+ * and the memory scale with the number of primitives.
+ * <p>
+ * A generated scene stands on a terrain heightfield and is filled with randomly placed spheres
+ * and icosphere meshes (icosahedrons subdivided into triangles) in a cube of a given size above the terrain,
+ * lit by point lights above the cube. Every sphere and every mesh is given a reflective, a transparent
+ * or a diffuse material by the configured fractions, and a random color; the terrain is diffuse.
+ * The scene is determined by the seed and the parameters only, so a scene generated again is identical.
+ * <p>
+ * The geometries are added to the scene flat, without a BVH, so the caller can measure
+ * {@link geometries.Geometries#makeBVH()} separately.
+ * The number of primitives is {@link #primitives()}: the spheres, 20&middot;4<sup>s</sup> triangles of every
+ * icosphere of s subdivisions and 2&middot;r<sup>2</sup> triangles of a terrain of r&times;r cells.
+ */
+public class SceneGenerator {
+    /**
+     * Number of the sine waves that are summed for the heights of the terrain
+     */
+    private static final int TERRAIN_WAVES = 4;
+    /**
+     * Total intensity of the lights, divided between them
+     */
+    private static final double LIGHT_INTENSITY = 1200;
+
+    /**
+     * The seed of the random numbers
+     */
+    private final long seed;
+    /**
+     * Number of the spheres
+     */
+    private int spheres = 0;
+    /**
+     * Number of the icosphere meshes
+     */
+    private int icospheres = 0;
+    /**
+     * Number of the subdivisions of every icosphere
+     */
+    private int subdivisions = 0;
+    /**
+     * Number of the cells of the terrain on every side, 0 for no terrain
+     */
+    private int terrain = 0;
+    /**
+     * Number of the point lights
+     */
+    private int lights = 1;
+    /**
+     * Fraction of the reflective spheres and meshes
+     */
+    private double reflective = 0;
+    /**
+     * Fraction of the transparent spheres and meshes
+     */
+    private double transparent = 0;
+    /**
+     * Edge length of the cube that contains the spheres and the meshes
+     */
+    private double size = 100;
+
+    /**
+     * Constructs a generator of an empty scene with a single light
+     *
+     * @param seed the seed of the random numbers
+     */
+    public SceneGenerator(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Sets the number of the random spheres
+     *
+     * @param count the number of the spheres
+     * @return the generator itself
+     * @throws IllegalArgumentException if the count is negative
+     */
+    public SceneGenerator setSpheres(int count) {
+        if (count < 0)
+            throw new IllegalArgumentException("Number of spheres must not be negative");
+        this.spheres = count;
+        return this;
+    }
+
+    /**
+     * Sets the random icosphere meshes
+     *
+     * @param count        the number of the meshes
+     * @param subdivisions the number of subdivisions of the icosahedron of every mesh,
+     *                     each multiplies the 20 triangles of the icosahedron by 4
+     * @return the generator itself
+     * @throws IllegalArgumentException if the count or the subdivisions are negative
+     */
+    public SceneGenerator setIcospheres(int count, int subdivisions) {
+        if (count < 0 || subdivisions < 0)
+            throw new IllegalArgumentException("Number of icospheres and subdivisions must not be negative");
+        this.icospheres = count;
+        this.subdivisions = subdivisions;
+        return this;
+    }
+
+    /**
+     * Sets the terrain heightfield under the scene
+     *
+     * @param resolution the number of cells on every side of the terrain, each cell is 2 triangles,
+     *                   0 for no terrain
+     * @return the generator itself
+     * @throws IllegalArgumentException if the resolution is negative
+     */
+    public SceneGenerator setTerrain(int resolution) {
+        if (resolution < 0)
+            throw new IllegalArgumentException("Terrain resolution must not be negative");
+        this.terrain = resolution;
+        return this;
+    }
+
+    /**
+     * Sets the number of the point lights
+     *
+     * @param count the number of the lights
+     * @return the generator itself
+     * @throws IllegalArgumentException if the count is negative
+     */
+    public SceneGenerator setLights(int count) {
+        if (count < 0)
+            throw new IllegalArgumentException("Number of lights must not be negative");
+        this.lights = count;
+        return this;
+    }
+
+    /**
+     * Sets the fractions of the spheres and the meshes with reflective and transparent materials,
+     * the rest are diffuse
+     *
+     * @param reflective  the fraction of the reflective materials
+     * @param transparent the fraction of the transparent materials
+     * @return the generator itself
+     * @throws IllegalArgumentException if a fraction is negative or their sum is more than 1
+     */
+    public SceneGenerator setMaterialFractions(double reflective, double transparent) {
+        if (reflective < 0 || transparent < 0 || reflective + transparent > 1)
+            throw new IllegalArgumentException("Material fractions must be non-negative with a sum of at most 1");
+        this.reflective = reflective;
+        this.transparent = transparent;
+        return this;
+    }
+
+    /**
+     * Sets the size of the scene
+     *
+     * @param size the edge length of the cube that contains the spheres and the meshes
+     * @return the generator itself
+     * @throws IllegalArgumentException if the size is not positive
+     */
+    public SceneGenerator setSize(double size) {
+        if (size <= 0)
+            throw new IllegalArgumentException("Scene size must be positive");
+        this.size = size;
+        return this;
+    }
+
+    /**
+     * Calculates the number of primitives of the generated scenes
+     *
+     * @return the number of the spheres and the triangles
+     */
+    public long primitives() {
+        return spheres + icospheres * 20L * (1L << 2 * subdivisions) + 2L * terrain * terrain;
+    }
+
+    /**
+     * Generates the scene
+     *
+     * @param name the name of the scene
+     * @return the scene
+     */
+    public Scene generate(String name) {
+        Random random = new Random(seed);
+        Scene scene = new Scene(name).setAmbientLight(new AmbientLight(new Color(40, 40, 40), 0.2));
+        // The materials are shared by the geometries, so they do not grow with the scene
+        Material diffuse = new Material().setKd(0.6).setKs(0.3).setShininess(30);
+        Material mirror = new Material().setKd(0.2).setKs(0.4).setShininess(80).setKr(0.6);
+        Material glass = new Material().setKd(0.1).setKs(0.4).setShininess(80).setKt(0.7).setKr(0.1);
+
+        List<Intersectable> primitives = new ArrayList<>((int) Math.min(primitives(), Integer.MAX_VALUE - 8));
+        if (terrain > 0)
+            addTerrain(primitives, random, diffuse);
+
+        // The radii shrink with the density, so the objects fill about the same part of the cube at any count
+        double cell = size / Math.cbrt(Math.max(spheres + icospheres, 1));
+        double half = size / 2;
+        for (int i = 0; i < spheres; ++i) {
+            Point center = randomPoint(random, half);
+            Sphere sphere = new Sphere(center, cell * (0.15 + 0.2 * random.nextDouble()));
+            sphere.setEmission(randomColor(random)).setMaterial(randomMaterial(random, diffuse, mirror, glass));
+            primitives.add(sphere);
+        }
+        for (int i = 0; i < icospheres; ++i) {
+            Point center = randomPoint(random, half);
+            double radius = cell * (0.15 + 0.2 * random.nextDouble());
+            Color color = randomColor(random);
+            Material material = randomMaterial(random, diffuse, mirror, glass);
+            for (Triangle triangle : icosphere(center, radius, subdivisions)) {
+                triangle.setEmission(color).setMaterial(material);
+                primitives.add(triangle);
+            }
+        }
+        scene.geometries.add(primitives.toArray(new Intersectable[0]));
+
+        for (int i = 0; i < lights; ++i) {
+            Point position = new Point((random.nextDouble() - 0.5) * size, size * (1.5 + random.nextDouble()),
+                    (random.nextDouble() - 0.5) * size);
+            double intensity = LIGHT_INTENSITY / lights;
+            scene.lights.add(new PointLight(new Color(intensity, intensity, intensity), position)
+                    .setKl(1 / size).setKq(1 / (size * size)));
+        }
+        return scene;
+    }
+
+    /**
+     * Creates a camera builder that views the whole generated scene from its front.
+     * The ray tracer and the image writer are left for the caller
+     *
+     * @return the camera builder
+     */
+    public Camera.Builder camera() {
+        Point location = new Point(0, size, 2.5 * size);
+        Vector vTo = new Point(0, size / 3, 0).subtract(location).normalize();
+        // The camera looks down at the scene, so its up vector is tilted back to stay orthogonal to vTo
+        Vector vUp = vTo.crossProduct(new Vector(0, 1, 0)).crossProduct(vTo).normalize();
+        return Camera.getBuilder().setLocation(location).setDirection(vTo, vUp)
+                .setVpDistance(2 * size).setVpSize(1.6 * size, 1.6 * size);
+    }
+
+    /**
+     * Chooses a random point in the cube that contains the spheres and the meshes
+     *
+     * @param random the random numbers
+     * @param half   half of the edge of the cube
+     * @return the point
+     */
+    private Point randomPoint(Random random, double half) {
+        return new Point((random.nextDouble() - 0.5) * size, half + (random.nextDouble() - 0.5) * size,
+                (random.nextDouble() - 0.5) * size);
+    }
+
+    /**
+     * Chooses a random saturated color
+     *
+     * @param random the random numbers
+     * @return the color
+     */
+    private static Color randomColor(Random random) {
+        return new Color(30 + 120 * random.nextDouble(), 30 + 120 * random.nextDouble(),
+                30 + 120 * random.nextDouble());
+    }
+
+    /**
+     * Chooses a material by the configured fractions
+     *
+     * @param random  the random numbers
+     * @param diffuse the diffuse material
+     * @param mirror  the reflective material
+     * @param glass   the transparent material
+     * @return the material
+     */
+    private Material randomMaterial(Random random, Material diffuse, Material mirror, Material glass) {
+        double choice = random.nextDouble();
+        if (choice < reflective)
+            return mirror;
+        return choice < reflective + transparent ? glass : diffuse;
+    }
+
+    /**
+     * Adds the triangles of the terrain heightfield: a square grid as wide as the scene twice,
+     * whose heights are a sum of sine waves of random directions, frequencies and phases under the cube
+     *
+     * @param primitives the list of the primitives
+     * @param random     the random numbers
+     * @param material   the material of the terrain
+     */
+    private void addTerrain(List<Intersectable> primitives, Random random, Material material) {
+        double[][] waves = new double[TERRAIN_WAVES][4];
+        for (double[] wave : waves) {
+            double angle = 2 * Math.PI * random.nextDouble();
+            double frequency = (1 + 4 * random.nextDouble()) * Math.PI / size;
+            wave[0] = Math.cos(angle) * frequency;
+            wave[1] = Math.sin(angle) * frequency;
+            wave[2] = 2 * Math.PI * random.nextDouble();
+            wave[3] = size * 0.04 * random.nextDouble();
+        }
+        Color color = new Color(40, 60, 30);
+        double extent = 2 * size;
+        double step = extent / terrain;
+        Point[] previous = new Point[terrain + 1];
+        Point[] current = new Point[terrain + 1];
+        for (int row = 0; row <= terrain; ++row) {
+            double z = -size + row * step;
+            for (int col = 0; col <= terrain; ++col) {
+                double x = -size + col * step;
+                double height = 0;
+                for (double[] wave : waves)
+                    height += wave[3] * Math.sin(wave[0] * x + wave[1] * z + wave[2]);
+                current[col] = new Point(x, height - size * 0.2, z);
+            }
+            if (row > 0)
+                for (int col = 0; col < terrain; ++col) {
+                    Geometry first = new Triangle(previous[col], previous[col + 1], current[col]);
+                    Geometry second = new Triangle(previous[col + 1], current[col + 1], current[col]);
+                    primitives.add(first.setEmission(color).setMaterial(material));
+                    primitives.add(second.setEmission(color).setMaterial(material));
+                }
+            Point[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+    }
+
+    /**
+     * Creates the triangles of an icosphere - a subdivided icosahedron whose vertices are on a sphere
+     *
+     * @param center       the center of the sphere
+     * @param radius       the radius of the sphere
+     * @param subdivisions the number of subdivisions, each splits every triangle into 4
+     * @return the triangles, which share their vertex points
+     */
+    static List<Triangle> icosphere(Point center, double radius, int subdivisions) {
+        double t = (1 + Math.sqrt(5)) / 2;
+        List<double[]> vertices = new ArrayList<>(List.of(
+                new double[]{-1, t, 0}, new double[]{1, t, 0}, new double[]{-1, -t, 0}, new double[]{1, -t, 0},
+                new double[]{0, -1, t}, new double[]{0, 1, t}, new double[]{0, -1, -t}, new double[]{0, 1, -t},
+                new double[]{t, 0, -1}, new double[]{t, 0, 1}, new double[]{-t, 0, -1}, new double[]{-t, 0, 1}));
+        vertices.replaceAll(SceneGenerator::normalize);
+        int[][] faces = {
+                {0, 11, 5}, {0, 5, 1}, {0, 1, 7}, {0, 7, 10}, {0, 10, 11},
+                {1, 5, 9}, {5, 11, 4}, {11, 10, 2}, {10, 7, 6}, {7, 1, 8},
+                {3, 9, 4}, {3, 4, 2}, {3, 2, 6}, {3, 6, 8}, {3, 8, 9},
+                {4, 9, 5}, {2, 4, 11}, {6, 2, 10}, {8, 6, 7}, {9, 8, 1}};
+
+        for (int level = 0; level < subdivisions; ++level) {
+            // The middle of every edge is created once for the two faces that share the edge
+            Map<Long, Integer> middles = new HashMap<>();
+            int[][] divided = new int[faces.length * 4][];
+            int index = 0;
+            for (int[] face : faces) {
+                int a = middle(vertices, middles, face[0], face[1]);
+                int b = middle(vertices, middles, face[1], face[2]);
+                int c = middle(vertices, middles, face[2], face[0]);
+                divided[index++] = new int[]{face[0], a, c};
+                divided[index++] = new int[]{face[1], b, a};
+                divided[index++] = new int[]{face[2], c, b};
+                divided[index++] = new int[]{a, b, c};
+            }
+            faces = divided;
+        }
+
+        Point[] points = new Point[vertices.size()];
+        for (int i = 0; i < points.length; ++i) {
+            double[] vertex = vertices.get(i);
+            points[i] = new Point(center.getX() + radius * vertex[0], center.getY() + radius * vertex[1],
+                    center.getZ() + radius * vertex[2]);
+        }
+        List<Triangle> triangles = new ArrayList<>(faces.length);
+        for (int[] face : faces)
+            triangles.add(new Triangle(points[face[0]], points[face[1]], points[face[2]]));
+        return triangles;
+    }
+
+    /**
+     * Finds or creates the vertex in the middle of an edge, on the unit sphere
+     *
+     * @param vertices the vertices on the unit sphere
+     * @param middles  the indices of the middle vertices by their edges
+     * @param first    the index of the first vertex of the edge
+     * @param second   the index of the second vertex of the edge
+     * @return the index of the middle vertex
+     */
+    private static int middle(List<double[]> vertices, Map<Long, Integer> middles, int first, int second) {
+        long key = ((long) Math.min(first, second) << 32) | Math.max(first, second);
+        return middles.computeIfAbsent(key, k -> {
+            double[] a = vertices.get(first);
+            double[] b = vertices.get(second);
+            vertices.add(normalize(new double[]{a[0] + b[0], a[1] + b[1], a[2] + b[2]}));
+            return vertices.size() - 1;
+        });
+    }
+
+    /**
+     * Normalizes a vector of three coordinates in place
+     *
+     * @param vector the coordinates
+     * @return the same coordinates, scaled to unit length
+     */
+    private static double[] normalize(double[] vector) {
+        double length = Math.sqrt(vector[0] * vector[0] + vector[1] * vector[1] + vector[2] * vector[2]);
+        vector[0] /= length;
+        vector[1] /= length;
+        vector[2] /= length;
+        return vector;
+    }
+}
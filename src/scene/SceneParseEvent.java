@@ -0,0 +1,44 @@
+package scene;
+
+import jdk.jfr.*;
+
+/**
+ * Flight recorder event of parsing a scene file
+ */
+@Name("raytracer.SceneParse")
+@Label("Scene Parse")
+@Category("Ray Tracer")
+@Description("Parsing of an XML scene file")
+final class SceneParseEvent extends Event {
+    /**
+     * Path of the scene file
+     */
+    @Label("File")
+    String file;
+    /**
+     * Number of geometries of the scene after the parsing
+     */
+    @Label("Geometries")
+    int geometries;
+    /**
+     * Number of light sources of the scene after the parsing
+     */
+    @Label("Lights")
+    int lights;
+
+    /**
+     * Ends the event and commits it with the content of the parsed scene if it passes the event settings
+     *
+     * @param scene    the parsed scene
+     * @param fileName the path of the scene file
+     */
+    void finish(Scene scene, String fileName) {
+        end();
+        if (!shouldCommit())
+            return;
+        file = fileName;
+        geometries = scene.geometries.getGeometries().size();
+        lights = scene.lights.size();
+        commit();
+    }
+}
@@ -0,0 +1,527 @@
+package scene;
+
+import geometries.*;
+import lighting.*;
+import primitives.*;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Compact binary snapshot of a scene, for opening large scenes quickly without parsing a text scene file
+ * and building the BVH again.
+ * The snapshot keeps the background and ambient light, the materials, the geometries, the light sources
+ * and the structure of the geometries collection - so a scene saved after {@link Geometries#makeBVH()}
+ * is restored with its BVH tree as is.
+ * <p>
+ * The file is a header (magic number, format version, length and CRC32 checksum of the content)
+ * followed by the content as fixed-size big-endian records, which are read directly from the memory-mapped file.
+ * A file of another format version, or whose checksum does not match its content, is rejected.
+ * The snapshot holds the geometries of the types of this package
+ * ({@link Triangle}, {@link Polygon}, {@link Sphere}, {@link Plane}, {@link Tube} and {@link Cylinder})
+ * and the light sources of the {@link lighting} package.
+ */
+public class SceneSnapshot {
+    /**
+     * The magic number at the beginning of a snapshot file
+     */
+    private static final int MAGIC = 0x5254534E;
+    /**
+     * The version of the file layout, incremented on every change of the layout
+     */
+    static final int VERSION = 1;
+    /**
+     * Size of the header in bytes
+     */
+    private static final int HEADER_SIZE = 24;
+
+    // Geometry type tags
+    private static final byte TRIANGLE = 1;
+    private static final byte POLYGON = 2;
+    private static final byte SPHERE = 3;
+    private static final byte PLANE = 4;
+    private static final byte TUBE = 5;
+    private static final byte CYLINDER = 6;
+
+    // Light type tags
+    private static final byte DIRECTIONAL_LIGHT = 1;
+    private static final byte POINT_LIGHT = 2;
+    private static final byte SPOT_LIGHT = 3;
+    private static final byte RECTANGLE_LIGHT = 4;
+    private static final byte DISK_LIGHT = 5;
+
+    /**
+     * Private constructor to prevent instantiation of the utility class
+     */
+    private SceneSnapshot() {
+    }
+
+    /**
+     * Writes a snapshot of a scene. The file is replaced only after the snapshot is complete,
+     * so a failed write never leaves a partial snapshot
+     *
+     * @param scene the scene
+     * @param file  the snapshot file
+     * @throws IllegalArgumentException if the scene has a geometry or a light source of an unsupported type
+     * @throws IllegalStateException    on I/O error
+     */
+    public static void write(Scene scene, Path file) {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                channel.position(HEADER_SIZE);
+                CRC32 crc = new CRC32();
+                DataOutputStream out = new DataOutputStream(new CheckedOutputStream(
+                        new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16), crc));
+                writeContent(scene, out);
+                out.flush();
+                long length = channel.position() - HEADER_SIZE;
+
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                header.putInt(MAGIC).putInt(VERSION).putLong(length).putLong(crc.getValue()).flip();
+                channel.write(header, 0);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new IllegalStateException("I/O error while writing scene snapshot " + file, e);
+        } finally {
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException ignored) {
+                // The temporary file is left behind, the snapshot itself is not affected
+            }
+        }
+    }
+
+    /**
+     * Reads a scene from a snapshot
+     *
+     * @param file the snapshot file
+     * @return the restored scene
+     * @throws IllegalArgumentException if the file is not a snapshot of the current format version,
+     *                                  or it is truncated or corrupted
+     * @throws IllegalStateException    on I/O error
+     */
+    public static Scene read(Path file) {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE)
+                throw new IllegalArgumentException("Scene snapshot " + file + " is too large to be mapped");
+            if (size < HEADER_SIZE)
+                throw new IllegalArgumentException(file + " is not a scene snapshot");
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        } catch (IOException e) {
+            throw new IllegalStateException("I/O error while reading scene snapshot " + file, e);
+        }
+
+        if (buffer.getInt() != MAGIC)
+            throw new IllegalArgumentException(file + " is not a scene snapshot");
+        int version = buffer.getInt();
+        if (version != VERSION)
+            throw new IllegalArgumentException("Scene snapshot " + file + " has version " + version
+                    + " instead of " + VERSION);
+        long length = buffer.getLong();
+        long checksum = buffer.getLong();
+        if (length != buffer.remaining())
+            throw new IllegalArgumentException("Scene snapshot " + file + " is truncated");
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice());
+        if (crc.getValue() != checksum)
+            throw new IllegalArgumentException("Scene snapshot " + file + " is corrupted - checksum mismatch");
+
+        try {
+            return readContent(buffer);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Scene snapshot " + file + " is corrupted", e);
+        }
+    }
+
+    // ***************** Writing ********************** //
+
+    /**
+     * Writes the content of the snapshot - the scene settings, materials, geometries, lights
+     * and the structure of the geometries collection
+     *
+     * @param scene the scene
+     * @param out   the output to write to
+     * @throws IOException on I/O error
+     */
+    private static void writeContent(Scene scene, DataOutputStream out) throws IOException {
+        out.writeUTF(scene.name == null ? "" : scene.name);
+        writeColor(out, scene.background);
+        writeColor(out, scene.ambientLight.getIntensity());
+        out.writeBoolean(scene.lightBVH != null);
+
+        // Collect the geometries of the tree and their distinct materials
+        List<Geometry> primitives = new ArrayList<>();
+        Map<Intersectable, Integer> indices = new IdentityHashMap<>();
+        collect(scene.geometries, primitives, indices);
+        List<Material> materials = new ArrayList<>();
+        Map<Material, Integer> materialIndices = new IdentityHashMap<>();
+        for (Geometry geometry : primitives)
+            materialIndices.computeIfAbsent(geometry.getMaterial(), material -> {
+                materials.add(material);
+                return materials.size() - 1;
+            });
+
+        out.writeInt(materials.size());
+        for (Material material : materials) {
+            writeDouble3(out, material.kD);
+            writeDouble3(out, material.kS);
+            writeDouble3(out, material.kT);
+            writeDouble3(out, material.kR);
+            out.writeInt(material.nShininess);
+        }
+
+        out.writeInt(primitives.size());
+        for (Geometry geometry : primitives) {
+            writeGeometry(out, geometry);
+            out.writeInt(materialIndices.get(geometry.getMaterial()));
+            writeColor(out, geometry.getEmission());
+        }
+
+        out.writeInt(scene.lights.size());
+        for (LightSource light : scene.lights)
+            writeLight(out, light);
+
+        scene.geometries.writeTree(out, indices);
+    }
+
+    /**
+     * Collects recursively the geometries of a collection tree in preorder
+     *
+     * @param geometries the collection
+     * @param primitives the list to add the geometries to
+     * @param indices    the indices of the geometries already collected
+     * @throws IllegalArgumentException if the collection has an intersectable of an unsupported type
+     */
+    private static void collect(Geometries geometries, List<Geometry> primitives, Map<Intersectable, Integer> indices) {
+        for (Intersectable intersectable : geometries.getGeometries()) {
+            if (intersectable instanceof Geometries group)
+                collect(group, primitives, indices);
+            else if (intersectable instanceof Geometry geometry) {
+                if (indices.putIfAbsent(geometry, primitives.size()) == null)
+                    primitives.add(geometry);
+            } else
+                throw new IllegalArgumentException("Unsupported intersectable " + intersectable.getClass().getName());
+        }
+    }
+
+    /**
+     * Writes the type and the shape of a geometry
+     *
+     * @param out      the output to write to
+     * @param geometry the geometry
+     * @throws IOException              on I/O error
+     * @throws IllegalArgumentException if the geometry type is not supported
+     */
+    private static void writeGeometry(DataOutputStream out, Geometry geometry) throws IOException {
+        // Subclasses are checked before their base classes
+        if (geometry instanceof Triangle triangle) {
+            out.writeByte(TRIANGLE);
+            for (Point vertex : triangle.getVertices())
+                writePoint(out, vertex);
+        } else if (geometry instanceof Polygon polygon) {
+            out.writeByte(POLYGON);
+            out.writeInt(polygon.getVertices().size());
+            for (Point vertex : polygon.getVertices())
+                writePoint(out, vertex);
+        } else if (geometry instanceof Sphere sphere) {
+            out.writeByte(SPHERE);
+            writePoint(out, sphere.getCenter());
+            out.writeDouble(sphere.getRadius());
+        } else if (geometry instanceof Plane plane) {
+            out.writeByte(PLANE);
+            writePoint(out, plane.getPoint());
+            writePoint(out, plane.getNormal());
+        } else if (geometry instanceof Cylinder cylinder) {
+            out.writeByte(CYLINDER);
+            writeRay(out, cylinder.getAxis());
+            out.writeDouble(cylinder.getRadius());
+            out.writeDouble(cylinder.getHeight());
+        } else if (geometry instanceof Tube tube) {
+            out.writeByte(TUBE);
+            writeRay(out, tube.getAxis());
+            out.writeDouble(tube.getRadius());
+        } else
+            throw new IllegalArgumentException("Unsupported geometry " + geometry.getClass().getName());
+    }
+
+    /**
+     * Writes the type and the properties of a light source
+     *
+     * @param out   the output to write to
+     * @param light the light source
+     * @throws IOException              on I/O error
+     * @throws IllegalArgumentException if the light type is not supported
+     */
+    private static void writeLight(DataOutputStream out, LightSource light) throws IOException {
+        if (light instanceof DirectionalLight directional) {
+            out.writeByte(DIRECTIONAL_LIGHT);
+            writeColor(out, directional.getIntensity());
+            writePoint(out, directional.getDirection());
+            return;
+        }
+        if (light instanceof RectangleLight rectangle) {
+            out.writeByte(RECTANGLE_LIGHT);
+            writeColor(out, rectangle.getIntensity());
+            writePoint(out, rectangle.getPosition());
+            writePoint(out, rectangle.getRight());
+            writePoint(out, rectangle.getUp());
+            out.writeDouble(rectangle.getWidth());
+            out.writeDouble(rectangle.getHeight());
+        } else if (light instanceof DiskLight disk) {
+            out.writeByte(DISK_LIGHT);
+            writeColor(out, disk.getIntensity());
+            writePoint(out, disk.getPosition());
+            writePoint(out, disk.getNormal());
+            out.writeDouble(disk.getRadius());
+        } else if (light instanceof SpotLight spot) {
+            out.writeByte(SPOT_LIGHT);
+            writeColor(out, spot.getIntensity());
+            writePoint(out, spot.getPosition());
+            writePoint(out, spot.getDirection());
+        } else if (light.getClass() == PointLight.class) {
+            out.writeByte(POINT_LIGHT);
+            writeColor(out, ((PointLight) light).getIntensity());
+            writePoint(out, ((PointLight) light).getPosition());
+        } else
+            throw new IllegalArgumentException("Unsupported light source " + light.getClass().getName());
+
+        PointLight point = (PointLight) light;
+        out.writeDouble(point.getKc());
+        out.writeDouble(point.getKl());
+        out.writeDouble(point.getKq());
+        if (light instanceof AreaLight area) {
+            out.writeInt(area.getSamples());
+            out.writeBoolean(area.isAdaptive());
+        }
+    }
+
+    /**
+     * Writes the coordinates of a point (or of the head of a vector)
+     *
+     * @param out   the output to write to
+     * @param point the point
+     * @throws IOException on I/O error
+     */
+    private static void writePoint(DataOutputStream out, Point point) throws IOException {
+        out.writeDouble(point.getX());
+        out.writeDouble(point.getY());
+        out.writeDouble(point.getZ());
+    }
+
+    /**
+     * Writes the head and the direction of a ray
+     *
+     * @param out the output to write to
+     * @param ray the ray
+     * @throws IOException on I/O error
+     */
+    private static void writeRay(DataOutputStream out, Ray ray) throws IOException {
+        writePoint(out, ray.getHead());
+        writePoint(out, ray.getDirection());
+    }
+
+    /**
+     * Writes the components of a color
+     *
+     * @param out   the output to write to
+     * @param color the color
+     * @throws IOException on I/O error
+     */
+    private static void writeColor(DataOutputStream out, Color color) throws IOException {
+        out.writeDouble(color.getRed());
+        out.writeDouble(color.getGreen());
+        out.writeDouble(color.getBlue());
+    }
+
+    /**
+     * Writes the components of a triad
+     *
+     * @param out     the output to write to
+     * @param double3 the triad
+     * @throws IOException on I/O error
+     */
+    private static void writeDouble3(DataOutputStream out, Double3 double3) throws IOException {
+        out.writeDouble(double3.getD1());
+        out.writeDouble(double3.getD2());
+        out.writeDouble(double3.getD3());
+    }
+
+    // ***************** Reading ********************** //
+
+    /**
+     * Reads the content of the snapshot
+     *
+     * @param in the buffer to read from, positioned at the content
+     * @return the restored scene
+     */
+    private static Scene readContent(ByteBuffer in) {
+        Scene scene = new Scene(readUTF(in));
+        scene.setBackground(readColor(in));
+        scene.setAmbientLight(new AmbientLight(readColor(in), 1d));
+        boolean lightBVH = in.get() != 0;
+
+        Material[] materials = new Material[in.getInt()];
+        for (int i = 0; i < materials.length; ++i)
+            materials[i] = new Material().setKd(readDouble3(in)).setKs(readDouble3(in))
+                    .setKt(readDouble3(in)).setKr(readDouble3(in)).setShininess(in.getInt());
+
+        int count = in.getInt();
+        List<Geometry> primitives = new ArrayList<>(count);
+        for (int i = 0; i < count; ++i) {
+            Geometry geometry = readGeometry(in);
+            geometry.setMaterial(materials[in.getInt()]);
+            geometry.setEmission(readColor(in));
+            primitives.add(geometry);
+        }
+
+        count = in.getInt();
+        List<LightSource> lights = new ArrayList<>(count);
+        for (int i = 0; i < count; ++i)
+            lights.add(readLight(in));
+        scene.setLights(lights);
+
+        scene.setGeometries(Geometries.readTree(in, primitives));
+        if (lightBVH)
+            scene.makeLightBVH();
+        return scene;
+    }
+
+    /**
+     * Reads a geometry record
+     *
+     * @param in the buffer to read from
+     * @return the geometry
+     * @throws IllegalArgumentException if the type tag is unknown
+     */
+    private static Geometry readGeometry(ByteBuffer in) {
+        byte type = in.get();
+        return switch (type) {
+            case TRIANGLE -> new Triangle(readPoint(in), readPoint(in), readPoint(in));
+            case POLYGON -> {
+                Point[] vertices = new Point[in.getInt()];
+                for (int i = 0; i < vertices.length; ++i)
+                    vertices[i] = readPoint(in);
+                yield new Polygon(vertices);
+            }
+            case SPHERE -> new Sphere(readPoint(in), in.getDouble());
+            case PLANE -> new Plane(readPoint(in), readVector(in));
+            case TUBE -> new Tube(readRay(in), in.getDouble());
+            case CYLINDER -> {
+                Ray axis = readRay(in);
+                double radius = in.getDouble();
+                yield new Cylinder(in.getDouble(), axis, radius);
+            }
+            default -> throw new IllegalArgumentException("Unknown geometry type " + type);
+        };
+    }
+
+    /**
+     * Reads a light source record
+     *
+     * @param in the buffer to read from
+     * @return the light source
+     * @throws IllegalArgumentException if the type tag is unknown
+     */
+    private static LightSource readLight(ByteBuffer in) {
+        byte type = in.get();
+        if (type == DIRECTIONAL_LIGHT)
+            return new DirectionalLight(readColor(in), readVector(in));
+        PointLight light = switch (type) {
+            case POINT_LIGHT -> new PointLight(readColor(in), readPoint(in));
+            case SPOT_LIGHT -> new SpotLight(readColor(in), readPoint(in), readVector(in));
+            case RECTANGLE_LIGHT -> new RectangleLight(readColor(in), readPoint(in), readVector(in), readVector(in),
+                    in.getDouble(), in.getDouble());
+            case DISK_LIGHT -> new DiskLight(readColor(in), readPoint(in), readVector(in), in.getDouble());
+            default -> throw new IllegalArgumentException("Unknown light source type " + type);
+        };
+        light.setKc(in.getDouble()).setKl(in.getDouble()).setKq(in.getDouble());
+        if (light instanceof AreaLight area)
+            area.setSamples(in.getInt()).setAdaptive(in.get() != 0);
+        return light;
+    }
+
+    /**
+     * Reads a string written by {@link DataOutputStream#writeUTF}
+     *
+     * @param in the buffer to read from
+     * @return the string
+     */
+    private static String readUTF(ByteBuffer in) {
+        byte[] bytes = new byte[in.getShort() & 0xFFFF];
+        in.get(bytes);
+        // Scene names are expected to be plain text, for which the modified UTF-8 of writeUTF is standard UTF-8
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads a point
+     *
+     * @param in the buffer to read from
+     * @return the point
+     */
+    private static Point readPoint(ByteBuffer in) {
+        return new Point(in.getDouble(), in.getDouble(), in.getDouble());
+    }
+
+    /**
+     * Reads a vector
+     *
+     * @param in the buffer to read from
+     * @return the vector
+     */
+    private static Vector readVector(ByteBuffer in) {
+        return new Vector(in.getDouble(), in.getDouble(), in.getDouble());
+    }
+
+    /**
+     * Reads a ray
+     *
+     * @param in the buffer to read from
+     * @return the ray
+     */
+    private static Ray readRay(ByteBuffer in) {
+        return new Ray(readPoint(in), readVector(in));
+    }
+
+    /**
+     * Reads a color
+     *
+     * @param in the buffer to read from
+     * @return the color
+     */
+    private static Color readColor(ByteBuffer in) {
+        return new Color(in.getDouble(), in.getDouble(), in.getDouble());
+    }
+
+    /**
+     * Reads a triad
+     *
+     * @param in the buffer to read from
+     * @return the triad
+     */
+    private static Double3 readDouble3(ByteBuffer in) {
+        return new Double3(in.getDouble(), in.getDouble(), in.getDouble());
+    }
+}
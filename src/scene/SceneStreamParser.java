@@ -0,0 +1,528 @@
+package scene;
+
+import geometries.*;
+import lighting.*;
+import primitives.*;
+import renderer.Camera;
+import renderer.ImageWriter;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Streaming (StAX) parser of XML scene files.
+ * Unlike {@link XML}, it does not build a document tree - every geometry and light is constructed
+ * and added to the scene as soon as its element is read, so the memory of parsing does not grow
+ * with the size of the file, and the numbers in the attributes are scanned in place
+ * without splitting the attribute strings.
+ * <p>
+ * The root element is {@code <scene>} with an optional {@code background-color} attribute. It may contain
+ * (in any order and nesting):
+ * <ul>
+ * <li>{@code <ambient-light color k>}</li>
+ * <li>{@code <camera location to|target up vp-distance vp-size [threads] [aperture focal-length dof-grid]
+ * [image resolution]>}</li>
+ * <li>{@code <material name kd ks kt kr shininess>} - a named material, or inside a geometry element
+ * the material of the geometry</li>
+ * <li>the geometries {@code <triangle p0 p1 p2>}, {@code <polygon vertices>}, {@code <sphere center radius>},
+ * {@code <plane point normal|vector>}, {@code <tube origin direction radius>} and
+ * {@code <cylinder origin direction radius height>}, all with optional {@code emission} and {@code material}
+ * (name of a material defined before) attributes</li>
+ * <li>the lights {@code <directional-light color direction>}, {@code <point-light color position [kc kl kq]>},
+ * {@code <spot-light color position direction [kc kl kq]>},
+ * {@code <rectangle-light color center right up width height [kc kl kq samples adaptive]>} and
+ * {@code <disk-light color center normal radius [kc kl kq samples adaptive]>}</li>
+ * </ul>
+ * The container elements {@code <geometries>}, {@code <lights>} and {@code <materials>} are allowed for grouping.
+ * Points, vectors and colors are written as three numbers separated by white spaces,
+ * and the material coefficients as one number or three numbers.
+ */
+public class SceneStreamParser {
+    /**
+     * Exact powers of ten as doubles, for the fast path of number parsing
+     */
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+    /**
+     * Maximal number of significant digits whose value is exactly represented as a double
+     */
+    private static final int MAX_EXACT_DIGITS = 15;
+
+    /**
+     * The scene being filled
+     */
+    private final Scene scene;
+    /**
+     * The camera builder to configure, or null to ignore the camera element
+     */
+    private final Camera.Builder camera;
+    /**
+     * The XML reader
+     */
+    private final XMLStreamReader reader;
+    /**
+     * The named materials defined so far
+     */
+    private final Map<String, Material> materials = new HashMap<>();
+    /**
+     * Scratch buffer of the numbers of the attribute being parsed
+     */
+    private double[] numbers = new double[9];
+    /**
+     * The geometry whose element is open, for its nested material element, or null
+     */
+    private Geometry current = null;
+    /**
+     * Nesting depth of the open geometry element
+     */
+    private int currentDepth = -1;
+    /**
+     * Nesting depth of the current element
+     */
+    private int depth = 0;
+
+    /**
+     * Constructs a parser over an XML reader
+     *
+     * @param scene  the scene to fill
+     * @param camera the camera builder to configure, or null
+     * @param reader the XML reader
+     */
+    private SceneStreamParser(Scene scene, Camera.Builder camera, XMLStreamReader reader) {
+        this.scene = scene;
+        this.camera = camera;
+        this.reader = reader;
+    }
+
+    /**
+     * Parses an XML scene file and adds its content to the scene. A camera element is ignored.
+     *
+     * @param scene    the Scene object to populate with the parsed data
+     * @param fileName the path of the XML scene file to parse
+     * @throws IOException              if an I/O error occurs while reading the file
+     * @throws XMLStreamException       if the file is not well-formed XML
+     * @throws IllegalArgumentException if an element or attribute is unknown, missing or invalid
+     */
+    public static void parse(Scene scene, String fileName) throws IOException, XMLStreamException {
+        parse(scene, fileName, null);
+    }
+
+    /**
+     * Parses an XML scene file, adds its content to the scene and configures the camera builder
+     * by the camera element.
+     *
+     * @param scene    the Scene object to populate with the parsed data
+     * @param fileName the path of the XML scene file to parse
+     * @param camera   the camera builder to configure, or null to ignore a camera element
+     * @throws IOException              if an I/O error occurs while reading the file
+     * @throws XMLStreamException       if the file is not well-formed XML
+     * @throws IllegalArgumentException if an element or attribute is unknown, missing or invalid
+     */
+    public static void parse(Scene scene, String fileName, Camera.Builder camera)
+            throws IOException, XMLStreamException {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        // Scene files have no document type, and external entities must not be resolved
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        SceneParseEvent event = new SceneParseEvent();
+        event.begin();
+        try (InputStream in = new BufferedInputStream(new FileInputStream(fileName), 1 << 16)) {
+            XMLStreamReader reader = factory.createXMLStreamReader(in);
+            try {
+                new SceneStreamParser(scene, camera, reader).parse();
+            } finally {
+                reader.close();
+            }
+        } finally {
+            event.finish(scene, fileName);
+        }
+    }
+
+    /**
+     * Reads the elements of the file one by one
+     *
+     * @throws XMLStreamException if the file is not well-formed XML
+     */
+    private void parse() throws XMLStreamException {
+        while (reader.hasNext()) {
+            switch (reader.next()) {
+                case XMLStreamConstants.START_ELEMENT -> {
+                    ++depth;
+                    startElement(reader.getLocalName());
+                }
+                case XMLStreamConstants.END_ELEMENT -> {
+                    if (depth == currentDepth) { // the geometry element is closed
+                        current = null;
+                        currentDepth = -1;
+                    }
+                    --depth;
+                }
+                default -> {
+                    // Text, comments and processing instructions are ignored
+                }
+            }
+        }
+    }
+
+    /**
+     * Handles an element by its name
+     *
+     * @param name the element name
+     */
+    private void startElement(String name) {
+        switch (name) {
+            case "scene" -> {
+                if (has("background-color"))
+                    scene.setBackground(color("background-color"));
+            }
+            case "geometries", "lights", "materials" -> {
+                // Containers for grouping only
+            }
+            case "ambient-light" -> scene.setAmbientLight(
+                    new AmbientLight(color("color"), has("k") ? double3("k") : Double3.ONE));
+            case "camera" -> camera();
+            case "material" -> material();
+            case "triangle" -> geometry(new Triangle(point("p0"), point("p1"), point("p2")));
+            case "polygon" -> geometry(new Polygon(points("vertices")));
+            case "sphere" -> geometry(new Sphere(point("center"), number("radius")));
+            case "plane" -> geometry(new Plane(point("point"), vector(has("normal") ? "normal" : "vector")));
+            case "tube" -> geometry(new Tube(new Ray(point("origin"), vector("direction")), number("radius")));
+            case "cylinder" -> geometry(new Cylinder(number("height"),
+                    new Ray(point("origin"), vector("direction")), number("radius")));
+            case "directional-light" -> scene.lights.add(new DirectionalLight(color("color"), vector("direction")));
+            case "point-light" -> scene.lights.add(attenuation(new PointLight(color("color"), point("position"))));
+            case "spot-light" -> scene.lights.add(attenuation(
+                    new SpotLight(color("color"), point("position"), vector("direction"))));
+            case "rectangle-light" -> scene.lights.add(areaLight(new RectangleLight(color("color"),
+                    point("center"), vector("right"), vector("up"), number("width"), number("height"))));
+            case "disk-light" -> scene.lights.add(areaLight(new DiskLight(color("color"),
+                    point("center"), vector("normal"), number("radius"))));
+            default -> throw new IllegalArgumentException("Unknown element <" + name + ">" + location());
+        }
+    }
+
+    /**
+     * Adds a geometry to the scene, with its emission and named material attributes
+     *
+     * @param geometry the geometry of the current element
+     */
+    private void geometry(Geometry geometry) {
+        if (has("emission"))
+            geometry.setEmission(color("emission"));
+        if (has("material")) {
+            String name = attribute("material");
+            Material material = materials.get(name);
+            if (material == null)
+                throw new IllegalArgumentException("Unknown material '" + name + "'" + location());
+            geometry.setMaterial(material);
+        }
+        scene.geometries.add(geometry);
+        current = geometry;
+        currentDepth = depth;
+    }
+
+    /**
+     * Handles a material element - the material of the open geometry element, or a named material
+     */
+    private void material() {
+        Material material = new Material();
+        if (has("kd")) material.setKd(double3("kd"));
+        if (has("ks")) material.setKs(double3("ks"));
+        if (has("kt")) material.setKt(double3("kt"));
+        if (has("kr")) material.setKr(double3("kr"));
+        if (has("shininess")) material.setShininess((int) number("shininess"));
+
+        if (current != null)
+            current.setMaterial(material);
+        else if (has("name"))
+            materials.put(attribute("name"), material);
+        else
+            throw new IllegalArgumentException("Material must be inside a geometry or have a name" + location());
+    }
+
+    /**
+     * Sets the optional attenuation factors of a point light
+     *
+     * @param light the light of the current element
+     * @return the light
+     */
+    private PointLight attenuation(PointLight light) {
+        if (has("kc")) light.setKc(number("kc"));
+        if (has("kl")) light.setKl(number("kl"));
+        if (has("kq")) light.setKq(number("kq"));
+        return light;
+    }
+
+    /**
+     * Sets the optional attenuation factors and sampling settings of an area light
+     *
+     * @param light the light of the current element
+     * @return the light
+     */
+    private AreaLight areaLight(AreaLight light) {
+        attenuation(light);
+        if (has("samples")) light.setSamples((int) number("samples"));
+        if (has("adaptive")) light.setAdaptive(Boolean.parseBoolean(attribute("adaptive")));
+        return light;
+    }
+
+    /**
+     * Configures the camera builder by the camera element, unless the camera is ignored
+     */
+    private void camera() {
+        if (camera == null)
+            return;
+        camera.setLocation(point("location"));
+        if (has("target"))
+            camera.setDirection(point("target"), vector("up"));
+        else
+            camera.setDirection(vector("to"), vector("up"));
+        camera.setVpDistance(number("vp-distance"));
+        parseNumbers("vp-size", 2);
+        camera.setVpSize(numbers[0], numbers[1]);
+        if (has("threads"))
+            camera.setMultiThreading((int) number("threads"));
+        if (has("aperture"))
+            camera.setFocalSize(number("aperture"), number("focal-length"), (int) number("dof-grid"))
+                    .setDoFActive(true);
+        if (has("resolution")) {
+            parseNumbers("resolution", 2);
+            camera.setImageWriter(new ImageWriter(attribute("image"), (int) numbers[0], (int) numbers[1]));
+        }
+    }
+
+    // ***************** Attributes ********************** //
+
+    /**
+     * Checks whether the current element has an attribute
+     *
+     * @param name the attribute name
+     * @return true if the attribute exists
+     */
+    private boolean has(String name) {
+        return reader.getAttributeValue(null, name) != null;
+    }
+
+    /**
+     * Gets a required attribute of the current element
+     *
+     * @param name the attribute name
+     * @return the attribute value
+     * @throws IllegalArgumentException if the attribute is missing
+     */
+    private String attribute(String name) {
+        String value = reader.getAttributeValue(null, name);
+        if (value == null)
+            throw new IllegalArgumentException("Missing attribute '" + name + "' of <" + reader.getLocalName() + ">"
+                    + location());
+        return value;
+    }
+
+    /**
+     * Parses a single number attribute
+     *
+     * @param name the attribute name
+     * @return the number
+     */
+    private double number(String name) {
+        parseNumbers(name, 1);
+        return numbers[0];
+    }
+
+    /**
+     * Parses a point attribute
+     *
+     * @param name the attribute name
+     * @return the point
+     */
+    private Point point(String name) {
+        parseNumbers(name, 3);
+        return new Point(numbers[0], numbers[1], numbers[2]);
+    }
+
+    /**
+     * Parses a vector attribute
+     *
+     * @param name the attribute name
+     * @return the vector
+     */
+    private Vector vector(String name) {
+        parseNumbers(name, 3);
+        return new Vector(numbers[0], numbers[1], numbers[2]);
+    }
+
+    /**
+     * Parses a color attribute
+     *
+     * @param name the attribute name
+     * @return the color
+     */
+    private Color color(String name) {
+        parseNumbers(name, 3);
+        return new Color(numbers[0], numbers[1], numbers[2]);
+    }
+
+    /**
+     * Parses a coefficients attribute of one number (the same for all components) or three numbers
+     *
+     * @param name the attribute name
+     * @return the coefficients
+     */
+    private Double3 double3(String name) {
+        int count = parseNumbers(name, -1);
+        if (count == 1)
+            return new Double3(numbers[0]);
+        if (count == 3)
+            return new Double3(numbers[0], numbers[1], numbers[2]);
+        throw new IllegalArgumentException("Attribute '" + name + "' must have 1 or 3 numbers" + location());
+    }
+
+    /**
+     * Parses an attribute of a list of points
+     *
+     * @param name the attribute name
+     * @return the points
+     */
+    private Point[] points(String name) {
+        int count = parseNumbers(name, -1);
+        if (count % 3 != 0)
+            throw new IllegalArgumentException("Attribute '" + name + "' must have triples of numbers" + location());
+        Point[] points = new Point[count / 3];
+        for (int i = 0; i < points.length; ++i)
+            points[i] = new Point(numbers[3 * i], numbers[3 * i + 1], numbers[3 * i + 2]);
+        return points;
+    }
+
+    /**
+     * Parses the numbers of an attribute into the scratch buffer
+     *
+     * @param name     the attribute name
+     * @param expected the required count of numbers, or -1 for any count
+     * @return the count of numbers
+     * @throws IllegalArgumentException if the attribute is missing, has an invalid number or a wrong count
+     */
+    private int parseNumbers(String name, int expected) {
+        String text = attribute(name);
+        int count = 0;
+        int length = text.length();
+        int i = 0;
+        while (true) {
+            // Skip the separators
+            while (i < length && isSeparator(text.charAt(i)))
+                ++i;
+            if (i == length)
+                break;
+            int start = i;
+            while (i < length && !isSeparator(text.charAt(i)))
+                ++i;
+            if (count == numbers.length)
+                numbers = Arrays.copyOf(numbers, 2 * count);
+            try {
+                numbers[count++] = parseDouble(text, start, i);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid number in attribute '" + name + "'" + location(), e);
+            }
+        }
+        if (expected >= 0 && count != expected)
+            throw new IllegalArgumentException("Attribute '" + name + "' must have " + expected + " numbers"
+                    + location());
+        return count;
+    }
+
+    /**
+     * Checks whether a character separates numbers in an attribute
+     *
+     * @param c the character
+     * @return true for white spaces and commas
+     */
+    private static boolean isSeparator(char c) {
+        return c == ' ' || c == ',' || c == '\t' || c == '\n' || c == '\r';
+    }
+
+    /**
+     * Parses a decimal number in a part of a string without creating a substring.
+     * Numbers of at most 15 significant digits with a small exponent are calculated exactly by a single
+     * multiplication or division of exact doubles, other numbers are delegated to {@link Double#parseDouble}.
+     *
+     * @param text the string
+     * @param from the index of the first character of the number
+     * @param to   the index after the last character of the number
+     * @return the number
+     * @throws NumberFormatException if the text is not a number
+     */
+    static double parseDouble(String text, int from, int to) {
+        int i = from;
+        boolean negative = false;
+        char c = text.charAt(i);
+        if (c == '-' || c == '+') {
+            negative = c == '-';
+            ++i;
+        }
+        long mantissa = 0;
+        int digits = 0;    // significant digits in the mantissa
+        int exponent = 0;  // decimal exponent of the mantissa
+        boolean any = false;
+        boolean point = false;
+        for (; i < to; ++i) {
+            c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                any = true;
+                if (mantissa != 0 || c != '0')
+                    ++digits;
+                if (digits > MAX_EXACT_DIGITS)
+                    return Double.parseDouble(text.substring(from, to));
+                mantissa = mantissa * 10 + (c - '0');
+                if (point)
+                    --exponent;
+            } else if (c == '.' && !point) {
+                point = true;
+            } else {
+                break;
+            }
+        }
+        if (!any)
+            return Double.parseDouble(text.substring(from, to)); // e.g. NaN and Infinity, or an invalid number
+        if (i < to) {
+            c = text.charAt(i);
+            if (c != 'e' && c != 'E')
+                return Double.parseDouble(text.substring(from, to));
+            ++i;
+            boolean negativeExponent = false;
+            if (i < to && (text.charAt(i) == '-' || text.charAt(i) == '+'))
+                negativeExponent = text.charAt(i++) == '-';
+            if (i == to)
+                throw new NumberFormatException("Missing exponent in " + text.substring(from, to));
+            int e = 0;
+            for (; i < to; ++i) {
+                c = text.charAt(i);
+                if (c < '0' || c > '9' || e > 1000)
+                    return Double.parseDouble(text.substring(from, to));
+                e = e * 10 + (c - '0');
+            }
+            exponent += negativeExponent ? -e : e;
+        }
+        if (Math.abs(exponent) >= POWERS_OF_TEN.length)
+            return Double.parseDouble(text.substring(from, to));
+        double value = exponent < 0 ? mantissa / POWERS_OF_TEN[-exponent] : mantissa * POWERS_OF_TEN[exponent];
+        return negative ? -value : value;
+    }
+
+    /**
+     * Describes the location of the current element for error messages
+     *
+     * @return the line of the current element
+     */
+    private String location() {
+        return " at line " + reader.getLocation().getLineNumber();
+    }
+}
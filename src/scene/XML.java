@@ -28,6 +28,27 @@ public class XML {
      */
     public static void sceneParser(Scene scene, String fileName)
             throws ParserConfigurationException, IOException, SAXException {
+        SceneParseEvent event = new SceneParseEvent();
+        event.begin();
+        try {
+            readScene(scene, fileName);
+        } finally {
+            event.finish(scene, fileName);
+        }
+    }
+
+    /**
+     * Reads the XML scene file into the scene objects.
+     *
+     * @param scene    The Scene object to populate with the parsed data.
+     * @param fileName The path of the XML scene file to parse.
+     * @throws ParserConfigurationException If a DocumentBuilder cannot be created.
+     * @throws IOException                  If an I/O error occurs while parsing the
+     *                                      XML file.
+     * @throws SAXException                 If any parsing errors occur.
+     */
+    private static void readScene(Scene scene, String fileName)
+            throws ParserConfigurationException, IOException, SAXException {
         // Create a new instance of DocumentBuilderFactory
         DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
         // Create a new instance of DocumentBuilder
@@ -0,0 +1,165 @@
+package geometries;
+
+import org.junit.jupiter.api.Test;
+import primitives.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link BVHCache} and {@link Geometries#makeBVH(BVHCache)}
+ */
+class BVHCacheTests {
+    /**
+     * Creates a collection of spheres on a grid
+     *
+     * @param count    the number of spheres
+     * @param material the material of the spheres
+     * @return the collection
+     */
+    private static Geometries spheres(int count, Material material) {
+        Geometries geometries = new Geometries();
+        for (int i = 0; i < count; ++i)
+            geometries.add(new Sphere(new Point(i % 10 * 3, i / 10 * 3, -50), 1).setMaterial(material));
+        return geometries;
+    }
+
+    /**
+     * Counts the files of a directory
+     *
+     * @param directory the directory
+     * @return the number of files
+     * @throws IOException on I/O error
+     */
+    private static long countFiles(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+
+    /**
+     * Deletes a directory with its files
+     *
+     * @param directory the directory
+     * @throws IOException on I/O error
+     */
+    private static void deleteDirectory(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList())
+                Files.delete(file);
+        }
+    }
+
+    /**
+     * Checks that two trees have the same structure and the same geometries at the leaves
+     *
+     * @param expected the expected tree
+     * @param actual   the actual tree
+     */
+    private static void assertSameTree(Geometries expected, Geometries actual) {
+        List<Intersectable> expectedNodes = expected.getGeometries();
+        List<Intersectable> actualNodes = actual.getGeometries();
+        assertEquals(expectedNodes.size(), actualNodes.size(), "Wrong number of tree node members");
+        for (int i = 0; i < expectedNodes.size(); ++i) {
+            if (expectedNodes.get(i) instanceof Geometries group) {
+                Geometries other = assertInstanceOf(Geometries.class, actualNodes.get(i), "Wrong tree node type");
+                assertEquals(group.getBoundingBox().getMin(), other.getBoundingBox().getMin(), "Wrong bounding box");
+                assertEquals(group.getBoundingBox().getMax(), other.getBoundingBox().getMax(), "Wrong bounding box");
+                assertSameTree(group, other);
+            } else
+                assertSame(expectedNodes.get(i), actualNodes.get(i), "Wrong tree leaf");
+        }
+    }
+
+    /**
+     * Test method for {@link Geometries#makeBVH(BVHCache)}
+     */
+    @Test
+    void testMakeBVH() throws IOException {
+        Path directory = Files.createTempDirectory("bvh");
+        try {
+            BVHCache cache = new BVHCache(directory, 1 << 20);
+            Material material = new Material().setKd(0.5);
+
+            // TC01: the first build is stored
+            Geometries built = spheres(50, material);
+            built.makeBVH(cache);
+            assertEquals(1, cache.getMisses(), "First build was not a miss");
+            assertEquals(1, countFiles(directory), "Tree was not stored");
+
+            // TC02: the same geometries with another material are restored from the cache
+            Geometries expected = spheres(50, material);
+            List<Intersectable> members = List.copyOf(expected.getGeometries());
+            expected.makeBVH();
+            Geometries restored = new Geometries();
+            for (Intersectable member : members)
+                restored.add(member);
+            restored.makeBVH(cache);
+            assertEquals(1, cache.getHits(), "Same geometries were not a hit");
+            assertSameTree(expected, restored);
+            Geometries recolored = spheres(50, new Material().setKd(0.2));
+            recolored.makeBVH(cache);
+            assertEquals(2, cache.getHits(), "Changed material was not a hit");
+
+            // TC03: moved geometries are built again
+            Geometries moved = spheres(50, material);
+            moved.add(new Sphere(new Point(100, 0, 0), 1));
+            moved.makeBVH(cache);
+            assertEquals(2, cache.getMisses(), "Changed geometries were a hit");
+            assertEquals(2, countFiles(directory), "Tree was not stored");
+        } finally {
+            deleteDirectory(directory);
+        }
+    }
+
+    /**
+     * Test method for the size cap and the damaged files of {@link BVHCache}
+     */
+    @Test
+    void testEvictionAndDamage() throws IOException, InterruptedException {
+        Path directory = Files.createTempDirectory("bvh");
+        try {
+            Material material = new Material();
+            BVHCache probe = new BVHCache(directory, Long.MAX_VALUE);
+            spheres(20, material).makeBVH(probe);
+            long treeSize;
+            try (Stream<Path> files = Files.list(directory)) {
+                treeSize = Files.size(files.findFirst().orElseThrow());
+            }
+
+            // TC01: a cache capped to two trees keeps the two most recently used
+            BVHCache cache = new BVHCache(directory, 2 * treeSize + treeSize / 2);
+            Thread.sleep(20);
+            spheres(21, material).makeBVH(cache);
+            Thread.sleep(20);
+            spheres(20, material).makeBVH(cache); // used again, so it is more recent than 21
+            Thread.sleep(20);
+            spheres(22, material).makeBVH(cache); // evicts 21
+            assertEquals(2, countFiles(directory), "Cache exceeded its size cap");
+            spheres(20, material).makeBVH(cache);
+            assertEquals(2, cache.getHits(), "Recently used tree was evicted");
+            spheres(21, material).makeBVH(cache);
+            assertEquals(3, cache.getMisses(), "Least recently used tree was not evicted");
+
+            // TC02: a damaged tree is ignored and built again
+            try (Stream<Path> files = Files.list(directory)) {
+                for (Path file : files.toList())
+                    Files.write(file, new byte[]{1, 2, 3});
+            }
+            Geometries damaged = spheres(20, material);
+            damaged.makeBVH(cache);
+            assertEquals(4, cache.getMisses(), "Damaged tree was a hit");
+            Geometries expected = spheres(20, material);
+            expected.makeBVH();
+            assertEquals(expected.getGeometries().size(), damaged.getGeometries().size(), "Wrong rebuilt tree");
+        } finally {
+            deleteDirectory(directory);
+        }
+    }
+}
@@ -3,6 +3,8 @@ package geometries;
 import org.junit.jupiter.api.Test;
 import primitives.*;
 
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class CylinderTests {
@@ -36,4 +38,18 @@ class CylinderTests {
 
 
     }
-}
\ No newline at end of file
+
+    @Test
+    void findGeoIntersections() {
+        Cylinder cylinder = new Cylinder(2, new Ray(Point.ZERO, new Vector(0, 1, 0)), 1);
+
+        // ============ Equivalence Partitions Tests ==============//
+        // TC01: a ray parallel to the axis crosses both bases
+        // (the side intersections used to recurse into the cylinder itself until the stack overflowed)
+        var result = cylinder.findGeoIntersections(new Ray(new Point(0, -1, 0.2), new Vector(0, 1, 0)));
+        assertNotNull(result, "ERROR: The bases of the cylinder are not intersected");
+        assertEquals(List.of(new Point(0, 0, 0.2), new Point(0, 2, 0.2)),
+                result.stream().map(gp -> gp.point).toList(),
+                "ERROR: Wrong intersections with the bases of the cylinder");
+    }
+}
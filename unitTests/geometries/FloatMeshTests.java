@@ -0,0 +1,224 @@
+package geometries;
+
+import org.junit.jupiter.api.Test;
+import primitives.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Unit tests for {@link FloatMesh}
+ */
+class FloatMeshTests {
+    /**
+     * Creates random triangles in a cube of a given size
+     *
+     * @param random the random numbers
+     * @param count  the number of triangles
+     * @param size   the edge of the cube
+     * @return the triangles
+     */
+    private static List<Triangle> randomTriangles(Random random, int count, double size) {
+        List<Triangle> triangles = new ArrayList<>();
+        while (triangles.size() < count) {
+            Point p1 = randomPoint(random, size);
+            try {
+                triangles.add(new Triangle(p1, p1.add(randomVector(random, size / 10)),
+                        p1.add(randomVector(random, size / 10))));
+            } catch (IllegalArgumentException ignore) {
+                // degenerate triangle
+            }
+        }
+        return triangles;
+    }
+
+    /**
+     * Chooses a random point in a cube around the origin
+     *
+     * @param random the random numbers
+     * @param size   the edge of the cube
+     * @return the point
+     */
+    private static Point randomPoint(Random random, double size) {
+        return new Point((random.nextDouble() - 0.5) * size, (random.nextDouble() - 0.5) * size,
+                (random.nextDouble() - 0.5) * size);
+    }
+
+    /**
+     * Chooses a random vector
+     *
+     * @param random the random numbers
+     * @param length the maximal length of the coordinates
+     * @return the vector
+     */
+    private static Vector randomVector(Random random, double length) {
+        return new Vector((random.nextDouble() - 0.5) * length, (random.nextDouble() - 0.5) * length,
+                (random.nextDouble() - 0.5) * length);
+    }
+
+    /**
+     * Test method for {@link FloatMesh#findGeoIntersections(Ray)} against the double precision triangles
+     */
+    @Test
+    void testIntersections() {
+        Random random = new Random(5);
+        List<Triangle> triangles = randomTriangles(random, 2000, 1000);
+        Geometries reference = new Geometries(triangles.toArray(new Intersectable[0]));
+        FloatMesh mesh = new FloatMesh(triangles);
+
+        int rays = 5000;
+        int mismatches = 0;
+        int hits = 0;
+        double maxError = 0;
+        for (int i = 0; i < rays; ++i) {
+            Ray ray = new Ray(randomPoint(random, 2000), randomVector(random, 1).normalize());
+            Point expected = closest(ray, reference.findGeoIntersections(ray));
+            Point actual = closest(ray, mesh.findGeoIntersections(ray));
+            if ((expected == null) != (actual == null)) {
+                ++mismatches;
+                continue;
+            }
+            if (expected == null)
+                continue;
+            ++hits;
+            maxError = Math.max(maxError, expected.distance(actual));
+        }
+        // TC01: the hits and the misses agree but for the rays that pass on the edges within the rounding
+        assertTrue(hits > 100, "Too few rays hit the triangles: " + hits);
+        assertTrue(mismatches <= rays / 1000, "Too many mismatches of the single precision mesh: " + mismatches);
+        // TC02: the intersection points are within the rounding of the coordinates
+        assertTrue(maxError < 1e-3, "Intersection point error too large: " + maxError);
+    }
+
+    /**
+     * Finds the closest intersection point
+     *
+     * @param ray           the ray
+     * @param intersections the intersections, may be null
+     * @return the closest point, or null if there are no intersections
+     */
+    private static Point closest(Ray ray, List<Intersectable.GeoPoint> intersections) {
+        return intersections == null ? null : ray.findClosestGeoPoint(intersections).point;
+    }
+
+    /**
+     * Test method for the faces of the mesh
+     */
+    @Test
+    void testFaces() {
+        Color emission = new Color(10, 20, 30);
+        Material material = new Material().setKd(0.5);
+        Triangle triangle = new Triangle(new Point(0, 0, 0), new Point(2, 0, 0), new Point(0, 2, 0));
+        triangle.setEmission(emission).setMaterial(material);
+        FloatMesh mesh = new FloatMesh(List.of(triangle));
+
+        // TC01: the face of the hit has the surface and the normal of the triangle
+        List<Intersectable.GeoPoint> intersections =
+                mesh.findGeoIntersections(new Ray(new Point(0.5, 0.5, 5), new Vector(0, 0, -1)));
+        assertNotNull(intersections, "Ray misses the mesh");
+        assertEquals(1, intersections.size(), "Wrong number of intersections");
+        Geometry face = intersections.get(0).geometry;
+        assertSame(emission, face.getEmission(), "Wrong emission of the face");
+        assertSame(material, face.getMaterial(), "Wrong material of the face");
+        assertEquals(triangle.getNormal(new Point(0.5, 0.5, 0)), face.getNormal(intersections.get(0).point),
+                "Wrong normal of the face");
+        assertEquals(new Point(0.5, 0.5, 0), intersections.get(0).point, "Wrong intersection point");
+
+        // TC02: the face alone is intersected like its triangle, e.g. as a cached shadow occluder
+        assertNotNull(face.findGeoIntersections(new Ray(new Point(1, 0.5, 5), new Vector(0, 0, -1))),
+                "Face misses a ray through it");
+        assertNull(face.findGeoIntersections(new Ray(new Point(3, 3, 5), new Vector(0, 0, -1))),
+                "Face hit by a ray outside it");
+
+        // TC03: hits beyond the distance are ignored
+        assertNull(mesh.findGeoIntersections(new Ray(new Point(0.5, 0.5, 5), new Vector(0, 0, -1)), 4),
+                "Intersection beyond the distance");
+    }
+
+    /**
+     * Test method for {@link Geometries#makeFloatMesh()}
+     */
+    @Test
+    void testMakeFloatMesh() {
+        List<Triangle> triangles = randomTriangles(new Random(8), 100, 100);
+        Sphere sphere = new Sphere(Point.ZERO, 5);
+        Geometries geometries = new Geometries(sphere, new Geometries(triangles.subList(0, 50)
+                .toArray(new Intersectable[0])));
+        geometries.add(triangles.subList(50, 100).toArray(new Intersectable[0]));
+
+        // TC01: the triangles of all the levels are replaced by a mesh, the other geometries are kept
+        FloatMesh mesh = geometries.makeFloatMesh();
+        assertNotNull(mesh, "No mesh was made");
+        assertEquals(100, mesh.getTriangleCount(), "Wrong number of mesh triangles");
+        assertEquals(List.of(sphere, mesh), geometries.getGeometries(), "Wrong geometries after the mesh");
+
+        // TC02: a collection without triangles is not changed
+        Geometries spheres = new Geometries(sphere);
+        assertNull(spheres.makeFloatMesh(), "Mesh made without triangles");
+        assertEquals(List.of(sphere), spheres.getGeometries(), "Collection without triangles changed");
+
+        // TC03: the arrays of the mesh take less than 100 bytes per triangle
+        assertTrue(mesh.getMemoryBytes() < 100L * mesh.getTriangleCount(),
+                "Mesh takes too much memory: " + mesh.getMemoryBytes());
+    }
+
+    /**
+     * Test method for the vector kernels ({@code VectorMeshKernels}) against the scalar kernels.
+     * Skipped when the {@code jdk.incubator.vector} module is not enabled
+     */
+    @Test
+    void testVectorKernels() {
+        MeshKernels vector = MeshKernels.vector();
+        assumeTrue(vector != null, "The vector kernels are not available");
+        MeshKernels scalar = MeshKernels.scalar();
+        Random random = new Random(13);
+
+        // TC01: the boxes and the triangles of partial and full blocks give the same masks and distances
+        float[] boxes = new float[MeshKernels.BOX_COMPONENTS * MeshKernels.WIDTH];
+        float[] triangles = new float[MeshKernels.TRIANGLE_COMPONENTS * MeshKernels.WIDTH];
+        float[] scalarDistances = new float[MeshKernels.WIDTH];
+        float[] vectorDistances = new float[MeshKernels.WIDTH];
+        for (int i = 0; i < 2000; ++i) {
+            for (int lane = 0; lane < MeshKernels.WIDTH; ++lane)
+                for (int c = 0; c < 3; ++c) {
+                    float a = random.nextFloat() * 20 - 10;
+                    float b = random.nextFloat() * 20 - 10;
+                    boxes[c * MeshKernels.WIDTH + lane] = Math.min(a, b);
+                    boxes[(c + 3) * MeshKernels.WIDTH + lane] = Math.max(a, b);
+                    triangles[c * MeshKernels.WIDTH + lane] = random.nextFloat() * 20 - 10;
+                    triangles[(c + 3) * MeshKernels.WIDTH + lane] = random.nextFloat() * 10 - 5;
+                    triangles[(c + 6) * MeshKernels.WIDTH + lane] = random.nextFloat() * 10 - 5;
+                }
+            Vector direction = randomVector(random, 1).normalize();
+            MeshKernels.MeshRay ray = new MeshKernels.MeshRay(random.nextFloat() * 40 - 20,
+                    random.nextFloat() * 40 - 20, random.nextFloat() * 40 - 20, (float) direction.getX(),
+                    (float) direction.getY(), (float) direction.getZ(), 10, random.nextFloat() * 50);
+            int count = 1 + i % MeshKernels.WIDTH;
+            assertEquals(scalar.hitBoxes(boxes, 0, count, ray), vector.hitBoxes(boxes, 0, count, ray),
+                    "Different boxes hit");
+            int hits = scalar.intersectTriangles(triangles, 0, count, ray, scalarDistances);
+            assertEquals(hits, vector.intersectTriangles(triangles, 0, count, ray, vectorDistances),
+                    "Different triangles hit");
+            for (int lane = 0; lane < count; ++lane)
+                if ((hits & 1 << lane) != 0)
+                    assertEquals(scalarDistances[lane], vectorDistances[lane], "Different distance");
+        }
+
+        // TC02: the meshes of the two kernels find the same intersections
+        List<Triangle> source = randomTriangles(random, 2000, 1000);
+        FloatMesh scalarMesh = new FloatMesh(source, scalar);
+        FloatMesh vectorMesh = new FloatMesh(source, vector);
+        for (int i = 0; i < 2000; ++i) {
+            Ray ray = new Ray(randomPoint(random, 2000), randomVector(random, 1).normalize());
+            List<Intersectable.GeoPoint> expected = scalarMesh.findGeoIntersections(ray);
+            List<Intersectable.GeoPoint> actual = vectorMesh.findGeoIntersections(ray);
+            assertEquals(expected == null ? null : expected.stream().map(g -> g.point).toList(),
+                    actual == null ? null : actual.stream().map(g -> g.point).toList(),
+                    "Different intersections of the kernels");
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package geometries;
+
+import geometries.Intersectable.GeoPoint;
+import org.junit.jupiter.api.Test;
+import primitives.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link RayPacket} and the packet traversal of the BVH,
+ * {@link Intersectable#findGeoIntersections(RayPacket)}
+ */
+class RayPacketTests {
+    /**
+     * Side of the square packets of the tests
+     */
+    private static final int SIDE = 8;
+
+    /**
+     * Creates a scene of random triangles and spheres in a cube of size 100 at the origin,
+     * with an infinite plane under it, organized in a BVH
+     *
+     * @param random the random numbers
+     * @return the geometries of the scene
+     */
+    private static Geometries scene(Random random) {
+        Geometries geometries = new Geometries(new Plane(new Point(0, -60, 0), new Vector(0, 1, 0)));
+        while (geometries.getGeometries().size() < 400) {
+            Point p1 = randomPoint(random, 100);
+            try {
+                geometries.add(new Triangle(p1, p1.add(randomVector(random, 10)), p1.add(randomVector(random, 10))));
+            } catch (IllegalArgumentException ignore) {
+                // degenerate triangle
+            }
+        }
+        for (int i = 0; i < 200; ++i)
+            geometries.add(new Sphere(randomPoint(random, 100), 0.5 + random.nextDouble() * 3));
+        geometries.makeBVH();
+        return geometries;
+    }
+
+    /**
+     * Chooses a random point in a cube around the origin
+     *
+     * @param random the random numbers
+     * @param size   the edge of the cube
+     * @return the point
+     */
+    private static Point randomPoint(Random random, double size) {
+        return new Point((random.nextDouble() - 0.5) * size, (random.nextDouble() - 0.5) * size,
+                (random.nextDouble() - 0.5) * size);
+    }
+
+    /**
+     * Chooses a random vector
+     *
+     * @param random the random numbers
+     * @param length the maximal length of the coordinates
+     * @return the vector
+     */
+    private static Vector randomVector(Random random, double length) {
+        return new Vector((random.nextDouble() - 0.5) * length, (random.nextDouble() - 0.5) * length,
+                (random.nextDouble() - 0.5) * length);
+    }
+
+    /**
+     * Creates the rays of a square of pixels of a pinhole camera outside the scene, looking at a random point
+     * of the scene
+     *
+     * @param random the random numbers
+     * @param spread the angle between the rays of adjacent pixels, in radians
+     * @return the rays, row by row
+     */
+    private static Ray[] cameraRays(Random random, double spread) {
+        Point location = randomPoint(random, 300);
+        Vector to = randomPoint(random, 60).subtract(location).normalize();
+        Vector right = to.crossProduct(new Vector(0.3, 1, 0.1)).normalize();
+        Vector up = right.crossProduct(to);
+        Ray[] rays = new Ray[SIDE * SIDE];
+        for (int i = 0; i < SIDE; ++i)
+            for (int j = 0; j < SIDE; ++j)
+                rays[i * SIDE + j] = new Ray(location, to.add(right.scale((j - SIDE / 2.0 + 0.5) * spread))
+                        .add(up.scale((i - SIDE / 2.0 + 0.5) * spread)).normalize());
+        return rays;
+    }
+
+    /**
+     * Checks that the closest intersections of a packet are the closest intersections of its rays one by one
+     *
+     * @param geometries the geometries
+     * @param rays       the rays of the packet
+     * @return the number of the rays that hit the geometries
+     */
+    private static int assertClosest(Geometries geometries, Ray[] rays) {
+        RayPacket packet = new RayPacket(rays, null, true);
+        geometries.findGeoIntersections(packet);
+        int hits = 0;
+        for (int i = 0; i < rays.length; ++i) {
+            List<GeoPoint> intersections = geometries.findGeoIntersections(rays[i]);
+            GeoPoint expected = intersections == null ? null : rays[i].findClosestGeoPoint(intersections);
+            GeoPoint actual = packet.getClosest(i);
+            if (expected == null) {
+                assertNull(actual, "Packet hit for a ray that misses");
+                continue;
+            }
+            ++hits;
+            assertNotNull(actual, "Packet missed a ray that hits");
+            // Points at the same distance on different geometries may be found in a different order
+            assertEquals(rays[i].getHead().distance(expected.point), rays[i].getHead().distance(actual.point), 1e-9,
+                    "Wrong closest intersection of the packet");
+        }
+        return hits;
+    }
+
+    /**
+     * Test method for the closest intersections of {@link Intersectable#findGeoIntersections(RayPacket)}
+     */
+    @Test
+    void testClosest() {
+        Random random = new Random(21);
+        Geometries geometries = scene(random);
+
+        // TC01: coherent packets of camera rays find the same closest intersections as the single rays
+        int hits = 0;
+        for (int i = 0; i < 200; ++i) {
+            Ray[] rays = cameraRays(random, 0.01);
+            assertTrue(new RayPacket(rays, null, true).isCoherent(), "Camera rays are not coherent");
+            hits += assertClosest(geometries, rays);
+        }
+        assertTrue(hits > 1000, "Too few rays hit the scene: " + hits);
+
+        // TC02: divergent packets of random rays are intersected ray by ray with the same results
+        for (int i = 0; i < 50; ++i) {
+            Ray[] rays = new Ray[SIDE * SIDE];
+            for (int j = 0; j < rays.length; ++j)
+                rays[j] = new Ray(randomPoint(random, 200), randomVector(random, 1).normalize());
+            assertFalse(new RayPacket(rays, null, true).isCoherent(), "Random rays are coherent");
+            assertClosest(geometries, rays);
+        }
+
+        // TC03: a packet of a single ray and a partial packet
+        assertClosest(geometries, new Ray[]{cameraRays(random, 0.01)[0]});
+        assertClosest(geometries, List.of(cameraRays(random, 0.01)).subList(0, 13).toArray(new Ray[0]));
+    }
+
+    /**
+     * Test method for all the intersections of {@link Intersectable#findGeoIntersections(RayPacket)}
+     * up to the maximal distances of the rays, like the shadow rays towards a light
+     */
+    @Test
+    void testAllIntersections() {
+        Random random = new Random(22);
+        Geometries geometries = scene(random);
+
+        // TC01: the intersections before the maximal distances are those of the single rays
+        int hits = 0;
+        for (int i = 0; i < 100; ++i) {
+            Ray[] rays = cameraRays(random, 0.01);
+            double[] limits = new double[rays.length];
+            for (int j = 0; j < rays.length; ++j)
+                limits[j] = 200 + random.nextDouble() * 200;
+            RayPacket packet = new RayPacket(rays, limits, false);
+            geometries.findGeoIntersections(packet);
+            for (int j = 0; j < rays.length; ++j) {
+                List<GeoPoint> expected = within(rays[j], geometries.findGeoIntersections(rays[j]), limits[j]);
+                List<GeoPoint> actual = within(rays[j], packet.getIntersections(j), limits[j]);
+                hits += expected.size();
+                assertEquals(expected.size(), actual.size(), "Wrong number of intersections of the packet");
+                assertTrue(actual.containsAll(expected), "Wrong intersections of the packet");
+            }
+        }
+        assertTrue(hits > 1000, "Too few intersections in the scene: " + hits);
+    }
+
+    /**
+     * Selects the intersections before a distance along a ray
+     *
+     * @param ray           the ray
+     * @param intersections the intersections, may be null
+     * @param distance      the distance
+     * @return the intersections before the distance
+     */
+    private static List<GeoPoint> within(Ray ray, List<GeoPoint> intersections, double distance) {
+        List<GeoPoint> result = new ArrayList<>();
+        if (intersections != null)
+            for (GeoPoint gp : intersections)
+                if (ray.getHead().distance(gp.point) < distance - 1e-6)
+                    result.add(gp);
+        return result;
+    }
+
+    /**
+     * Test method for the constructor and the modes of {@link RayPacket}
+     */
+    @Test
+    void testConstructor() {
+        Ray ray = new Ray(Point.ZERO, new Vector(0, 0, -1));
+
+        // TC01: a packet must have 1 to 64 rays
+        assertThrows(IllegalArgumentException.class, () -> new RayPacket(new Ray[0], null, true),
+                "Empty packet");
+        Ray[] tooMany = new Ray[RayPacket.MAX_SIZE + 1];
+        Arrays.fill(tooMany, ray);
+        assertThrows(IllegalArgumentException.class, () -> new RayPacket(tooMany, null, true),
+                "Packet of too many rays");
+
+        // TC02: a distance for every ray
+        assertThrows(IllegalArgumentException.class, () -> new RayPacket(new Ray[]{ray, ray}, new double[1], false),
+                "Packet with missing distances");
+
+        // TC03: the intersections are read in the mode of the packet
+        assertThrows(IllegalStateException.class, () -> new RayPacket(new Ray[]{ray}, null, true).getIntersections(0),
+                "All intersections of a closest packet");
+        assertThrows(IllegalStateException.class, () -> new RayPacket(new Ray[]{ray}, null, false).getClosest(0),
+                "Closest intersection of an all intersections packet");
+
+        // TC04: opposite rays are not coherent
+        assertFalse(new RayPacket(new Ray[]{ray, new Ray(Point.ZERO, new Vector(0, 0, 1))}, null, true).isCoherent(),
+                "Opposite rays are coherent");
+    }
+}
@@ -30,6 +30,16 @@ class TriangleTests {
         assertThrows(IllegalArgumentException.class, () -> new Triangle(new Point(0, 0, 0), new Point(1, 0, 0), new Point(2, 0, 0)), "Constructed a triangle with 3 points on the same line");
     }
 
+    @Test
+    void testGetBoundingBox() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the box of a triangle bounds its vertices, so the BVH can cull it
+        Triangle triangle = new Triangle(new Point(1, -2, 3), new Point(4, 0, -1), new Point(-3, 5, 2));
+        assertNotNull(triangle.getBoundingBox(), "Triangle without a bounding box");
+        assertEquals(new Point(-3, -2, -1), triangle.getBoundingBox().getMin(), "Wrong minimum of the triangle box");
+        assertEquals(new Point(4, 5, 3), triangle.getBoundingBox().getMax(), "Wrong maximum of the triangle box");
+    }
+
     @Test
     public void testfindIntersections() {
         Triangle triangle = new Triangle(new Point(1, 1, 1), new Point(3, 1, 1), new Point(2, 3, 1));
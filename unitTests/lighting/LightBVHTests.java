@@ -0,0 +1,98 @@
+package lighting;
+
+import org.junit.jupiter.api.Test;
+import primitives.Color;
+import primitives.Point;
+import primitives.Vector;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link LightBVH}
+ */
+class LightBVHTests {
+    /**
+     * Chooses a random point in a cube around the origin
+     *
+     * @param random the random numbers
+     * @param size   the edge of the cube
+     * @return the point
+     */
+    private static Point randomPoint(Random random, double size) {
+        return new Point((random.nextDouble() - 0.5) * size, (random.nextDouble() - 0.5) * size,
+                (random.nextDouble() - 0.5) * size);
+    }
+
+    /**
+     * Creates random light sources of all kinds, most of them attenuated by distance
+     *
+     * @param random the random numbers
+     * @param count  the number of lights
+     * @return the lights
+     */
+    private static List<LightSource> randomLights(Random random, int count) {
+        List<LightSource> lights = new ArrayList<>();
+        for (int i = 0; i < count; ++i) {
+            Color intensity = new Color(random.nextDouble() * 200, random.nextDouble() * 200, 50);
+            Point position = randomPoint(random, 1000);
+            switch (i % 10) {
+                case 0 -> lights.add(new DirectionalLight(intensity, new Vector(1, -1, -1)));
+                case 1 -> lights.add(new PointLight(intensity, position));
+                case 2, 3 -> lights.add(new SpotLight(intensity, position, new Vector(0, -1, 0.5))
+                        .setKl(random.nextDouble() * 0.5).setKq(random.nextDouble() * 0.05));
+                case 4 -> lights.add(new PointLight(intensity, position).setKc(0).setKl(1 + random.nextDouble()));
+                case 5 -> lights.add(new PointLight(intensity, position).setKc(0).setKq(0.1 + random.nextDouble()));
+                default -> lights.add(new PointLight(intensity, position)
+                        .setKl(random.nextDouble()).setKq(random.nextDouble() * 0.1));
+            }
+        }
+        return lights;
+    }
+
+    /**
+     * Test method for {@link LightBVH#find(Point)}
+     */
+    @Test
+    void testFind() {
+        Random random = new Random(30);
+        List<LightSource> lights = randomLights(random, 500);
+        LightBVH bvh = new LightBVH(lights);
+
+        // TC01: the lights found are the lights that influence the point, as found by checking all of them
+        int influenced = 0;
+        for (int i = 0; i < 5000; ++i) {
+            Point p = randomPoint(random, 1200);
+            Set<LightSource> expected = new HashSet<>();
+            for (LightSource light : lights)
+                if (light.influences(p))
+                    expected.add(light);
+            Set<LightSource> actual = new HashSet<>();
+            for (LightSource light : bvh.find(p))
+                if (light.influences(p))
+                    actual.add(light);
+            assertEquals(expected, actual, "Wrong lights found for " + p);
+            influenced += expected.size();
+        }
+        assertTrue(influenced > 5000 * 60, "Too few bounded lights influence the points: " + influenced);
+
+        // TC02: the lights that are not attenuated by distance are found everywhere
+        List<LightSource> far = bvh.find(new Point(1e6, 1e6, 1e6));
+        for (LightSource light : lights)
+            assertEquals(light.getInfluenceRadius() == Double.POSITIVE_INFINITY, far.contains(light),
+                    "Wrong unbounded lights found far away");
+
+        // TC03: the list of the unbounded lights is shared where no bounded light is found
+        assertSame(far, bvh.find(new Point(-1e6, 1e6, 1e6)), "List allocated without bounded lights");
+        assertThrows(UnsupportedOperationException.class, () -> far.add(lights.get(0)),
+                "Shared list of the unbounded lights is modifiable");
+
+        // TC04: no lights at all
+        assertTrue(new LightBVH(List.of()).find(Point.ZERO).isEmpty(), "Lights found without lights");
+    }
+}
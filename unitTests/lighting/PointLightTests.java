@@ -0,0 +1,74 @@
+package lighting;
+
+import org.junit.jupiter.api.Test;
+import primitives.Color;
+import primitives.Point;
+import primitives.Vector;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the influence radius of {@link PointLight}
+ */
+class PointLightTests {
+    /**
+     * Intensity of the lights of the tests, its maximal component is 100
+     */
+    private static final Color INTENSITY = new Color(100, 50, 20);
+
+    /**
+     * Checks that the intensity of a light at its influence radius is the negligible intensity
+     *
+     * @param light the light
+     */
+    private static void assertNegligibleAtRadius(PointLight light) {
+        double radius = light.getInfluenceRadius();
+        Point border = light.getPosition().add(new Vector(radius, 0, 0));
+        assertEquals(LightSource.NEGLIGIBLE_INTENSITY, light.getIntensity(border).maxComponent(), 1e-9,
+                "Wrong intensity at the influence radius");
+        assertTrue(light.influences(light.getPosition().add(new Vector(0, radius * 0.99, 0))),
+                "Point inside the influence radius not influenced");
+        assertFalse(light.influences(light.getPosition().add(new Vector(0, 0, radius * 1.01))),
+                "Point outside the influence radius influenced");
+    }
+
+    /**
+     * Test method for {@link PointLight#getInfluenceRadius()}
+     */
+    @Test
+    void testGetInfluenceRadius() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: constant, linear and quadratic attenuation
+        PointLight mixed = new PointLight(INTENSITY, new Point(1, 2, 3)).setKl(0.2).setKq(0.003);
+        assertEquals((-0.2 + Math.sqrt(0.04 + 4 * 0.003 * 9999)) / (2 * 0.003), mixed.getInfluenceRadius(), 1e-9,
+                "Wrong influence radius of a mixed attenuation");
+        assertNegligibleAtRadius(mixed);
+
+        // TC02: linear attenuation only
+        PointLight linear = new PointLight(INTENSITY, new Point(1, 2, 3)).setKc(0).setKl(0.5);
+        assertEquals(20000, linear.getInfluenceRadius(), 1e-9, "Wrong influence radius of a linear attenuation");
+        assertNegligibleAtRadius(linear);
+
+        // TC03: quadratic attenuation only
+        PointLight quadratic = new PointLight(INTENSITY, new Point(1, 2, 3)).setKc(0).setKq(0.01);
+        assertEquals(1000, quadratic.getInfluenceRadius(), 1e-9,
+                "Wrong influence radius of a quadratic attenuation");
+        assertNegligibleAtRadius(quadratic);
+
+        // TC04: constant attenuation only, the light is not attenuated by distance
+        PointLight constant = new PointLight(INTENSITY, new Point(1, 2, 3)).setKc(2);
+        assertEquals(Double.POSITIVE_INFINITY, constant.getInfluenceRadius(),
+                "Wrong influence radius of a constant attenuation");
+        assertTrue(constant.influences(new Point(1e9, 1e9, 1e9)), "Far point not influenced by a constant light");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: a constant attenuation that makes the light negligible everywhere
+        PointLight dark = new PointLight(INTENSITY, new Point(1, 2, 3)).setKc(10000).setKl(1);
+        assertEquals(0, dark.getInfluenceRadius(), "Wrong influence radius of a negligible light");
+        assertFalse(dark.influences(new Point(1, 2, 3.1)), "Point influenced by a negligible light");
+
+        // TC12: the radius is calculated again after a coefficient changes
+        linear.setKl(1);
+        assertEquals(10000, linear.getInfluenceRadius(), 1e-9, "Influence radius not updated");
+    }
+}
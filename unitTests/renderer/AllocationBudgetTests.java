@@ -0,0 +1,139 @@
+package renderer;
+
+import geometries.Plane;
+import lighting.AmbientLight;
+import lighting.PointLight;
+import org.junit.jupiter.api.Test;
+import primitives.*;
+import scene.Scene;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Allocation budget tests of the ray hot path. A reference scene is rendered single-threaded in the test thread,
+ * and the bytes it allocates are measured by {@link com.sun.management.ThreadMXBean#getThreadAllocatedBytes}.
+ * Every primary ray of the scene hits a shaded plane that faces the lights, so every pixel casts exactly one
+ * shadow ray per light: the allocation without lights is the cost of the primary rays, and the additional
+ * allocation of every light is the cost of its shadow rays, including the shading of the light.
+ * <p>
+ * A budget that is exceeded fails the test, so allocations removed from the hot path cannot return unnoticed.
+ * When the hot path is improved the budgets should be lowered to the new values printed by the test.
+ * The budgets are read from system properties:
+ * <ul>
+ * <li>{@code alloc.primary} - bytes allocated per primary ray (default 1400)</li>
+ * <li>{@code alloc.shadow} - bytes allocated per shadow ray (default 1200)</li>
+ * </ul>
+ */
+class AllocationBudgetTests {
+    /**
+     * Budget of the bytes allocated per primary ray
+     */
+    private static final long PRIMARY_BUDGET = Long.getLong("alloc.primary", 1400);
+    /**
+     * Budget of the bytes allocated per shadow ray
+     */
+    private static final long SHADOW_BUDGET = Long.getLong("alloc.shadow", 1200);
+    /**
+     * Width and height of the rendered image
+     */
+    private static final int RESOLUTION = 100;
+    /**
+     * Number of lights of the scene with lights
+     */
+    private static final int LIGHTS = 4;
+    /**
+     * Number of frames rendered before the measurement, for compiling the hot path
+     * with its escape analysis, which removes some of the allocations
+     */
+    private static final int WARMUP = 5;
+    /**
+     * Allocation counter of the threads
+     */
+    private static final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    /**
+     * Creates the camera of the reference scene: a shaded plane that fills the view, with lights
+     * between the camera and the plane
+     *
+     * @param lights the number of lights
+     * @return the camera
+     */
+    private static Camera referenceScene(int lights) {
+        Scene scene = new Scene("Allocation");
+        scene.setAmbientLight(new AmbientLight(new Color(30, 30, 30), 0.1));
+        scene.geometries.add(new Plane(new Point(0, 0, -100), new Vector(0, 0, 1))
+                .setEmission(new Color(20, 20, 20))
+                .setMaterial(new Material().setKd(0.5).setKs(0.5).setShininess(20)));
+        for (int i = 0; i < lights; ++i)
+            scene.lights.add(new PointLight(new Color(100, 100, 100), new Point(i * 10 - 15, 20, -10)));
+        return Camera.getBuilder().setLocation(Point.ZERO).setDirection(new Vector(0, 0, -1), new Vector(0, 1, 0))
+                .setVpSize(100, 100).setVpDistance(100)
+                .setRayTracer(new SimpleRayTracer(scene))
+                .setImageWriter(new ImageWriter("allocation", RESOLUTION, RESOLUTION))
+                .setMultiThreading(0).setDebugPrint(0)
+                .build();
+    }
+
+    /**
+     * Measures the bytes allocated by the test thread for rendering a frame of the reference scene
+     *
+     * @param lights the number of lights
+     * @return the allocated bytes, after the warmup frames
+     */
+    private static long allocatedPerFrame(int lights) {
+        Camera camera = referenceScene(lights);
+        for (int i = 0; i < WARMUP; ++i)
+            camera.renderImage();
+        long thread = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(thread);
+        camera.renderImage();
+        long allocated = threads.getThreadAllocatedBytes(thread) - before;
+
+        if (RenderMetrics.ENABLED) {
+            // The measurement is meaningful only if the rays of the frame are as expected
+            RenderMetrics.Snapshot metrics = camera.getMetrics();
+            assertEquals(RESOLUTION * RESOLUTION, metrics.rays().get(RenderMetrics.RayType.PRIMARY),
+                    "Wrong number of primary rays");
+            assertEquals((long) RESOLUTION * RESOLUTION * lights, metrics.rays().get(RenderMetrics.RayType.SHADOW),
+                    "Wrong number of shadow rays");
+        }
+        return allocated;
+    }
+
+    /**
+     * Test method for the allocation budgets of the primary and the shadow rays
+     */
+    @Test
+    void testRayAllocationBudgets() {
+        assumeAllocationCounted();
+        long pixels = RESOLUTION * RESOLUTION;
+        long primaryFrame = allocatedPerFrame(0);
+        long shadowFrame = allocatedPerFrame(LIGHTS);
+        double perPrimary = (double) primaryFrame / pixels;
+        double perShadow = (double) (shadowFrame - primaryFrame) / (pixels * LIGHTS);
+        System.out.printf("Allocation: %.1f bytes per primary ray (budget %d), %.1f bytes per shadow ray (budget %d)%n",
+                perPrimary, PRIMARY_BUDGET, perShadow, SHADOW_BUDGET);
+
+        // TC01: the primary rays stay within their budget
+        assertTrue(perPrimary <= PRIMARY_BUDGET,
+                String.format("Primary rays allocate %.1f bytes each, over the budget of %d", perPrimary,
+                        PRIMARY_BUDGET));
+        // TC02: the shadow rays stay within their budget
+        assertTrue(perShadow <= SHADOW_BUDGET,
+                String.format("Shadow rays allocate %.1f bytes each, over the budget of %d", perShadow,
+                        SHADOW_BUDGET));
+    }
+
+    /**
+     * Enables the allocation counting of the threads, which the virtual machine may not support
+     */
+    private static void assumeAllocationCounted() {
+        assumeTrue(threads.isThreadAllocatedMemorySupported(),
+                "Thread allocation counting is not supported");
+        threads.setThreadAllocatedMemoryEnabled(true);
+    }
+}
@@ -1,9 +1,15 @@
 package unittests.renderer;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
 
 import org.junit.jupiter.api.Test;
 
+import geometries.*;
+import lighting.PointLight;
 import primitives.*;
 import renderer.*;
 import scene.Scene;
@@ -63,4 +69,105 @@ class CameraTest {
 
     }
 
+    /**
+     * Test method for
+     * {@link renderer.Camera#dirtyRegion(List, List, List)}.
+     */
+    @Test
+    void testDirtyRegion() {
+        Scene scene = new Scene("Dirty region");
+        Sphere sphere = new Sphere(new Point(0, 0, -100), 5);
+        scene.geometries.add(sphere);
+        Camera camera = Camera.getBuilder()
+                .setRayTracer(new SimpleRayTracer(scene))
+                .setImageWriter(new ImageWriter("Test", 100, 100))
+                .setLocation(Point.ZERO)
+                .setDirection(new Vector(0, 0, -1), new Vector(0, 1, 0))
+                .setVpDistance(100).setVpSize(100, 100)
+                .build();
+        Camera.Region fullFrame = new Camera.Region(0, 0, 100, 100);
+
+        // ============ Equivalence Partitions Tests ==============
+        // EP01: Opaque sphere without lights - only the pixels around the sphere are dirty
+        Camera.Region region = camera.dirtyRegion(List.of(sphere.getBoundingBox()), List.of(sphere.getMaterial()), List.of(sphere));
+        assertTrue(region.fromCol() <= 45 && region.toCol() >= 55 && region.fromRow() <= 45 && region.toRow() >= 55,
+                "Dirty region must cover the sphere");
+        assertTrue(region.toCol() - region.fromCol() < 20 && region.toRow() - region.fromRow() < 20,
+                "Dirty region must not cover the whole frame");
+
+        // EP02: Sphere moved in a lit scene - its shadow may fall anywhere
+        Sphere moved = new Sphere(new Point(20, 0, -100), 5);
+        scene.lights.add(new PointLight(new Color(100, 100, 100), new Point(0, 100, 0)));
+        assertEquals(fullFrame, camera.dirtyRegion(List.of(sphere.getBoundingBox()), List.of(sphere.getMaterial()), List.of(moved)),
+                "Moved geometry in a lit scene must dirty the whole frame");
+
+        // EP03: Reflective material in the scene - reflections may show the change anywhere
+        scene.lights.clear();
+        sphere.setMaterial(new Material().setKr(0.5));
+        assertEquals(fullFrame, camera.dirtyRegion(List.of(sphere.getBoundingBox()), List.of(sphere.getMaterial()), List.of(sphere)),
+                "Reflective geometry must dirty the whole frame");
+
+        // EP04: Reflective material replaced by an opaque one in place - the old reflections may be anywhere
+        Material reflective = sphere.getMaterial();
+        sphere.setMaterial(new Material());
+        assertEquals(fullFrame, camera.dirtyRegion(List.of(sphere.getBoundingBox()), List.of(reflective),
+                        List.of(sphere)), "Geometry that was reflective must dirty the whole frame");
+
+        // =============== Boundary Values Tests ==================
+        // BV01: Unbounded geometry - the whole frame is dirty
+        Plane plane = new Plane(new Point(0, 0, -200), new Vector(0, 0, 1));
+        assertEquals(fullFrame, camera.dirtyRegion(List.of(), List.of(), List.of(plane)),
+                "Unbounded geometry must dirty the whole frame");
+    }
+
+    /**
+     * Renders a scene of two spheres into an array of colors
+     *
+     * @param threads   the number of rendering threads
+     * @param scheduler the pixel scheduler
+     * @return the packed colors of the pixels row by row
+     */
+    private static int[] renderSpheres(int threads, PixelScheduler scheduler) {
+        final int nX = 37;
+        final int nY = 23;
+        Scene scene = new Scene("Schedulers");
+        scene.geometries.add(new Sphere(new Point(-10, 0, -100), 20).setEmission(new Color(0, 0, 100))
+                        .setMaterial(new Material().setKd(0.5).setKs(0.5).setShininess(30)),
+                new Sphere(new Point(15, 5, -80), 10).setMaterial(new Material().setKd(0.4).setKt(0.5)));
+        scene.lights.add(new PointLight(new Color(300, 300, 300), new Point(50, 50, 0)));
+        int[] rgb = new int[nX * nY];
+        Camera.getBuilder()
+                .setRayTracer(new SimpleRayTracer(scene))
+                .setImageWriter(new ImageWriter("Test", nX, nY) {
+                    @Override
+                    public void writePixel(int xIndex, int yIndex, Color color) {
+                        rgb[yIndex * nX + xIndex] = color.getRGB();
+                    }
+                })
+                .setLocation(Point.ZERO)
+                .setDirection(new Vector(0, 0, -1), new Vector(0, 1, 0))
+                .setVpDistance(100).setVpSize(74, 46)
+                .setMultiThreading(threads).setPixelScheduler(scheduler)
+                .build().renderImage();
+        return rgb;
+    }
+
+    /**
+     * Test method for
+     * {@link renderer.Camera.Builder#setPixelScheduler(PixelScheduler)}.
+     */
+    @Test
+    void testPixelSchedulers() {
+        int[] expected = renderSpheres(0, PixelScheduler.SYNCHRONIZED);
+
+        // ============ Equivalence Partitions Tests ==============
+        // EP01: every scheduler renders every pixel of the image with several threads
+        for (PixelScheduler scheduler : PixelScheduler.values())
+            assertArrayEquals(expected, renderSpheres(3, scheduler), "Wrong image with " + scheduler + " scheduler");
+
+        // =============== Boundary Values Tests ==================
+        // BV01: a single thread
+        assertArrayEquals(expected, renderSpheres(1, PixelScheduler.ROWS), "Wrong image with a single thread");
+    }
+
 }
@@ -61,8 +61,10 @@ class CastleTests {
             .setKl(4E-4).setKq(2E-5));
 
     // Configure the camera and render the image
-        camera.setImageWriter(new ImageWriter("castle_render_test",1000,1000)).build().renderImage();
+        Camera rendered = camera.setImageWriter(new ImageWriter("castle_render_test",1000,1000)).build().renderImage();
         camera.build().writeToImage();
+        // The render metrics include the hit rate of the occluder cache when raytracer.metrics=true
+        System.out.println(rendered.getMetrics());
 }
 
 }
\ No newline at end of file
@@ -0,0 +1,121 @@
+package renderer;
+
+import geometries.*;
+import lighting.PointLight;
+import org.junit.jupiter.api.Test;
+import primitives.*;
+import scene.Scene;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link CostHeatmap}
+ */
+class CostHeatmapTests {
+    /**
+     * Resolution of the rendered images
+     */
+    private static final int RESOLUTION = 60;
+
+    /**
+     * Renders a scene of a glass sphere before a plain sphere with the cost map
+     *
+     * @param heatmap the cost map
+     * @param name    the name of the rendered image
+     */
+    private static void render(CostHeatmap heatmap, String name) {
+        Scene scene = new Scene("Cost");
+        scene.geometries.add(
+                new Sphere(new Point(-25, 0, -100), 20)
+                        .setMaterial(new Material().setKd(0.2).setKs(0.2).setKt(0.7).setKr(0.2)),
+                new Sphere(new Point(25, 0, -100), 20).setMaterial(new Material().setKd(0.5)));
+        scene.lights.add(new PointLight(new Color(500, 500, 500), new Point(0, 50, 0)));
+        Camera.getBuilder().setLocation(Point.ZERO).setDirection(new Vector(0, 0, -1), new Vector(0, 1, 0))
+                .setVpSize(120, 120).setVpDistance(100)
+                .setRayTracer(new SimpleRayTracer(scene))
+                .setImageWriter(new ImageWriter(name, RESOLUTION, RESOLUTION))
+                .setCostHeatmap(heatmap)
+                .build().renderImage().writeToImage();
+    }
+
+    /**
+     * Test method for the time cost map and its outputs
+     */
+    @Test
+    void testNanos() throws IOException {
+        CostHeatmap heatmap = new CostHeatmap(CostHeatmap.Metric.NANOS).setBuckets(10).setLogScale(true);
+        render(heatmap, "costScene");
+        heatmap.writeToImage("costScene-nanos");
+        heatmap.writeHistogram("costScene-nanos");
+
+        // TC01: all the pixels are measured and counted by the histogram
+        assertTrue(heatmap.getMax() > 0, "No pixel cost was measured");
+        assertEquals(RESOLUTION * RESOLUTION, Arrays.stream(heatmap.histogram()).sum(),
+                "Histogram does not count all the pixels");
+
+        // TC02: the image and the histogram with a row for every bucket
+        File image = new File(ImageWriter.getFolderPath(), "costScene-nanos.png");
+        assertTrue(image.length() > 0, "Cost image was not written");
+        List<String> csv = Files.readAllLines(Path.of(ImageWriter.getFolderPath(), "costScene-nanos.csv"));
+        assertEquals(11, csv.size(), "Wrong number of histogram rows");
+        assertEquals(RESOLUTION * RESOLUTION,
+                csv.stream().skip(1).mapToLong(line -> Long.parseLong(line.split(",")[3])).sum(),
+                "Histogram file does not count all the pixels");
+
+        // TC03: the summary of the measured costs
+        assertTrue(heatmap.getTotal() >= heatmap.getMax(), "Total cost is less than the maximal pixel cost");
+        assertTrue(heatmap.toString().startsWith(String.format("NANOS cost: total %,d,", heatmap.getTotal())),
+                "Wrong cost summary: " + heatmap);
+    }
+
+    /**
+     * Test method for the counted cost metrics, which require the render counters
+     */
+    @Test
+    void testCounted() {
+        if (!RenderMetrics.ENABLED) {
+            // TC01: the counted metrics are rejected when the counters are disabled
+            assertThrows(IllegalStateException.class, () -> new CostHeatmap(CostHeatmap.Metric.RAYS),
+                    "Counted metric accepted without the counters");
+            return;
+        }
+        // TC02: a pixel of the glass sphere traces more rays than a pixel of the plain sphere and of the background
+        CostHeatmap heatmap = new CostHeatmap(CostHeatmap.Metric.RAYS);
+        render(heatmap, "costSceneRays");
+        heatmap.writeToImage("costScene-rays");
+        int row = RESOLUTION / 2;
+        long glass = heatmap.getCost(RESOLUTION / 2 - 12, row);
+        long plain = heatmap.getCost(RESOLUTION / 2 + 12, row);
+        long background = heatmap.getCost(0, 0);
+        assertEquals(1, background, "Background pixel should trace only its primary ray");
+        assertTrue(plain > background, "Plain sphere pixel should trace shadow rays");
+        assertTrue(glass > plain, "Glass sphere pixel should trace more rays than the plain sphere");
+    }
+
+    /**
+     * Test method for the color ramp
+     */
+    @Test
+    void testRamp() {
+        CostHeatmap heatmap = new CostHeatmap(CostHeatmap.Metric.NANOS)
+                .setRamp(Color.BLACK, new Color(200, 0, 0), new Color(200, 200, 0));
+
+        // TC01: the ends and the middle of the ramp
+        assertEquals(Color.BLACK.getRGB(), heatmap.color(0, 100).getRGB(), "Wrong cheapest color");
+        assertEquals(new Color(200, 0, 0).getRGB(), heatmap.color(50, 100).getRGB(), "Wrong middle color");
+        assertEquals(new Color(200, 200, 0).getRGB(), heatmap.color(100, 100).getRGB(), "Wrong expensive color");
+
+        // TC02: interpolation between the colors
+        assertEquals(new Color(200, 100, 0).getRGB(), heatmap.color(75, 100).getRGB(), "Wrong interpolated color");
+
+        // TC03: a ramp of a single color
+        assertThrows(IllegalArgumentException.class, () -> heatmap.setRamp(Color.BLACK), "Single color ramp accepted");
+    }
+}
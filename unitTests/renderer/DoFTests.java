@@ -1,5 +1,7 @@
 package renderer;
 
+import static org.junit.jupiter.api.Assertions.*;
+
 import geometries.*;
 import lighting.DirectionalLight;
 import org.junit.jupiter.api.Test;
@@ -9,6 +11,15 @@ import primitives.*;
 import renderer.*;
 import scene.Scene;
 
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * Unit tests for Depth of Field (DoF) rendering in the renderer package.
  */
@@ -23,6 +34,16 @@ public class DoFTests {
 	 */
 	@Test
 	public void testDepthOfField() {
+		depthOfFieldScene().setImageWriter(new ImageWriter("DoF", 1200, 1200)).build().renderImage().writeToImage();
+	}
+
+	/**
+	 * Creates the scene of spheres at varying distances before a plane, and a camera
+	 * with depth of field focused on the middle sphere
+	 *
+	 * @return the camera builder of the scene
+	 */
+	static Camera.Builder depthOfFieldScene() {
 
 		Scene scene = new Scene("DoF");
 
@@ -69,7 +90,86 @@ public class DoFTests {
 
 		//cameraBuilder1.setImageWriter(new ImageWriter("NoDoF", 1200, 1200)).build().renderImage().writeToImage();
 
-		cameraBuilder.setImageWriter(new ImageWriter("DoF", 1200, 1200)).build().renderImage().writeToImage();
+		return cameraBuilder;
+	}
 
+	/**
+	 * Test for resuming an interrupted depth of field render from a checkpoint framebuffer.
+	 * The first render dies in the middle, and the second render with the same checkpoint file
+	 * renders only the tiles that were not complete and produces the same image as an uninterrupted render.
+	 */
+	@Test
+	public void testCheckpointResume() throws IOException {
+		Scene scene = new Scene("DoF checkpoint");
+		scene.setAmbientLight(new AmbientLight(new Color(30, 30, 30), 0.1));
+		scene.geometries.add(
+				new Plane(new Point(0, 0, 0), new Vector(0, 0, 1)).setEmission(new Color(0, 20, 20))
+						.setMaterial(new Material().setKd(0.5).setKs(0.5).setShininess(60)),
+				new Sphere(new Point(50, 0, 700), 75).setEmission(new Color(169, 92, 104))
+						.setMaterial(new Material().setKd(0.5).setKs(0.5).setShininess(30)),
+				new Sphere(new Point(-100, -150, 1300), 75).setEmission(new Color(215, 0, 64))
+						.setMaterial(new Material().setKd(0.5).setKs(0.5).setShininess(30)));
+		scene.lights.add(new DirectionalLight(new Color(70, 172, 21), new Vector(-1, 0, -1)));
+
+		final int resolution = 200;
+		// The number of the traced pixel that crashes the render, 0 for not crashing
+		AtomicInteger crashAt = new AtomicInteger();
+		AtomicInteger traced = new AtomicInteger();
+		SimpleRayTracer rayTracer = new SimpleRayTracer(scene) {
+			@Override
+			public Color computeFinalColor(List<Ray> rays) {
+				if (traced.incrementAndGet() == crashAt.get())
+					throw new IllegalStateException("Simulated crash");
+				return super.computeFinalColor(rays);
+			}
+		};
+		final Camera.Builder cameraBuilder = Camera.getBuilder().setLocation(new Point(0, 0, 2500))
+				.setDirection(new Vector(0, 0, -1), new Vector(0, 1, 0)).setVpSize(200, 200).setVpDistance(850)
+				.setDoFActive(true).setFocalSize(20, 1600, 9).setRayTracer(rayTracer);
+
+		Path file = Files.createTempFile("checkpoint", ".bin");
+		try {
+			// The reference render without interruption, then its tiles are cleared but the seed is kept
+			try (CheckpointFramebuffer checkpoint = new CheckpointFramebuffer(file, resolution, resolution, 32)) {
+				cameraBuilder.setCheckpoint(checkpoint)
+						.setImageWriter(new ImageWriter("DoFCheckpointReference", resolution, resolution))
+						.build().renderImage().writeToImage();
+				for (int tile = 0; tile < checkpoint.getTileCount(); tile++)
+					checkpoint.clearTile(tile);
+			}
+
+			// The first render dies after a third of the pixels
+			traced.set(0);
+			crashAt.set(resolution * resolution / 3);
+			try (CheckpointFramebuffer checkpoint = new CheckpointFramebuffer(file, resolution, resolution, 32)) {
+				Camera camera = cameraBuilder.setCheckpoint(checkpoint)
+						.setImageWriter(new ImageWriter("DoFCheckpoint", resolution, resolution)).build();
+				assertThrows(IllegalStateException.class, camera::renderImage, "the render should crash");
+			}
+
+			// The second render resumes from the complete tiles
+			traced.set(0);
+			crashAt.set(0);
+			try (CheckpointFramebuffer checkpoint = new CheckpointFramebuffer(file, resolution, resolution, 32)) {
+				int complete = checkpoint.getCompleteTiles();
+				assertTrue(complete > 0, "the first render should complete some tiles");
+				cameraBuilder.setCheckpoint(checkpoint)
+						.setImageWriter(new ImageWriter("DoFCheckpoint", resolution, resolution))
+						.build().renderImage().writeToImage();
+				assertEquals(checkpoint.getTileCount(), checkpoint.getCompleteTiles(), "all tiles should be complete");
+				assertTrue(traced.get() < resolution * resolution,
+						"complete tiles should not be rendered again");
+			}
+		} finally {
+			Files.delete(file);
+		}
+
+		BufferedImage expected = ImageIO.read(new File(System.getProperty("user.dir") + "/images/DoFCheckpointReference.png"));
+		BufferedImage actual = ImageIO.read(new File(System.getProperty("user.dir") + "/images/DoFCheckpoint.png"));
+		for (int y = 0; y < resolution; y++)
+			for (int x = 0; x < resolution; x++)
+				for (int shift = 0; shift <= 16; shift += 8)
+					assertEquals((expected.getRGB(x, y) >> shift) & 0xFF, (actual.getRGB(x, y) >> shift) & 0xFF, 1,
+							"resumed image differs from the reference");
 	}
 }
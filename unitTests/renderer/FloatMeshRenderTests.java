@@ -0,0 +1,105 @@
+package renderer;
+
+import org.junit.jupiter.api.Test;
+import scene.Scene;
+import special.TeapotTest;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Accuracy comparison of the single precision meshes ({@link geometries.FloatMesh}) with the double precision
+ * triangles on the scenes of the render tests. Every scene is rendered once as is and once with its triangles
+ * replaced by a mesh, and the images are compared pixel by pixel.
+ */
+class FloatMeshRenderTests {
+    /**
+     * Width and height of the rendered images
+     */
+    private static final int RESOLUTION = 200;
+    /**
+     * Difference of a color channel that is not counted as a different pixel, the rounding of the shading
+     */
+    private static final int CHANNEL_TOLERANCE = 2;
+    /**
+     * Maximal fraction of the different pixels - the pixels on the edges of the triangles,
+     * where the rounding decides which triangle is hit
+     */
+    private static final double MAX_DIFFERENT = 0.01;
+    /**
+     * Maximal mean difference of a color channel over the whole image
+     */
+    private static final double MAX_MEAN_DIFFERENCE = 0.5;
+
+    /**
+     * Renders a scene of a render test in double precision and with a single precision mesh,
+     * and compares the images
+     *
+     * @param name   the name of the scene
+     * @param scene  the scene, filled by the camera builder
+     * @param camera the camera builder of the scene, which fills the scene
+     * @throws IOException on I/O error of the images
+     */
+    private static void compare(String name, Supplier<Scene> scene, Supplier<Camera.Builder> camera)
+            throws IOException {
+        Camera.Builder builder = camera.get().setMultiThreading(0).setDebugPrint(0);
+        builder.setImageWriter(new ImageWriter(name + "Double", RESOLUTION, RESOLUTION))
+                .build().renderImage().writeToImage();
+        scene.get().geometries.makeFloatMesh();
+        scene.get().geometries.makeBVH();
+        builder.setImageWriter(new ImageWriter(name + "Float", RESOLUTION, RESOLUTION))
+                .build().renderImage().writeToImage();
+
+        BufferedImage expected = ImageIO.read(new File(ImageWriter.getFolderPath(), name + "Double.png"));
+        BufferedImage actual = ImageIO.read(new File(ImageWriter.getFolderPath(), name + "Float.png"));
+        int different = 0;
+        int maxDifference = 0;
+        long totalDifference = 0;
+        for (int y = 0; y < RESOLUTION; ++y)
+            for (int x = 0; x < RESOLUTION; ++x) {
+                int a = expected.getRGB(x, y);
+                int b = actual.getRGB(x, y);
+                int difference = 0;
+                for (int shift = 0; shift <= 16; shift += 8)
+                    difference = Math.max(difference, Math.abs((a >> shift & 0xFF) - (b >> shift & 0xFF)));
+                if (difference > CHANNEL_TOLERANCE)
+                    ++different;
+                maxDifference = Math.max(maxDifference, difference);
+                totalDifference += difference;
+            }
+        double fraction = (double) different / (RESOLUTION * RESOLUTION);
+        double meanDifference = (double) totalDifference / (RESOLUTION * RESOLUTION);
+        assertTrue(fraction <= MAX_DIFFERENT,
+                String.format("%s: %.3f%% of the pixels differ in single precision", name, 100 * fraction));
+        assertTrue(meanDifference <= MAX_MEAN_DIFFERENCE, String.format(
+                "%s: mean channel difference %.4f in single precision, maximal %d", name, meanDifference,
+                maxDifference));
+    }
+
+    /**
+     * Test method for the teapot mesh
+     *
+     * @throws IOException on I/O error of the images
+     */
+    @Test
+    void testTeapot() throws IOException {
+        TeapotTest test = new TeapotTest();
+        compare("floatMeshTeapot", test::getScene, test::teapotScene);
+    }
+
+    /**
+     * Test method for the mirror triangles of the reflection and refraction tests
+     *
+     * @throws IOException on I/O error of the images
+     */
+    @Test
+    void testTwoSpheresOnMirrors() throws IOException {
+        ReflectionRefractionTests test = new ReflectionRefractionTests();
+        compare("floatMeshMirrors", test::getScene, test::twoSpheresOnMirrorsScene);
+    }
+}
@@ -3,6 +3,20 @@ package renderer;
 import org.junit.jupiter.api.Test;
 import primitives.Color;
 
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class ImageWriterTest {
@@ -27,4 +41,154 @@ class ImageWriterTest {
         imageWriter.writeToImage();
     }
 
-}
\ No newline at end of file
+    @Test
+    void testWriteTile() throws IOException {
+        ImageWriter imageWriter = new ImageWriter("tile", 40, 30);
+        int[] tile = new int[10 * 5];
+        for (int i = 0; i < tile.length; i++)
+            tile[i] = new Color(i, 255, 300).getRGB();
+        imageWriter.writeTile(20, 10, 10, 5, tile);
+        imageWriter.writePixel(0, 0, new Color(12, 34, 56));
+        imageWriter.writeToImage();
+
+        BufferedImage image = ImageIO.read(new File(System.getProperty("user.dir") + "/images/tile.png"));
+        assertEquals(0xFF0C2238, image.getRGB(0, 0), "wrong pixel color");
+        assertEquals(0xFF00FFFF, image.getRGB(20, 10), "wrong first tile pixel color");
+        assertEquals(0xFF31FFFF, image.getRGB(29, 14), "wrong last tile pixel color");
+        assertEquals(0xFF000000, image.getRGB(30, 14), "pixel outside the tile was written");
+        assertThrows(IllegalArgumentException.class, () -> imageWriter.writeTile(35, 0, 10, 5, tile),
+                "tile out of the image bounds");
+    }
+
+    @Test
+    void testHdr() throws IOException {
+        ImageWriter imageWriter = new ImageWriter("hdr", 2, 1).setHdr(true);
+        imageWriter.writePixel(0, 0, new Color(510, 255, 0));
+        imageWriter.writePixel(1, 0, new Color(0, 51, 102));
+
+        // The float image keeps the unclipped linear colors
+        imageWriter.writePfm();
+        byte[] bytes = Files.readAllBytes(Path.of(System.getProperty("user.dir"), "images", "hdr.pfm"));
+        byte[] header = "PF\n2 1\n-1.0\n".getBytes(StandardCharsets.US_ASCII);
+        assertEquals(header.length + 6 * Float.BYTES, bytes.length, "wrong pfm file size");
+        ByteBuffer data = ByteBuffer.wrap(bytes, header.length, 6 * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        float[] expected = {2, 1, 0, 0, 0.2f, 0.4f};
+        for (float value : expected)
+            assertEquals(value, data.getFloat(), 1e-6, "wrong pfm pixel component");
+
+        // Re-exposing the frame
+        imageWriter.writeToImage(ToneMapper.clamp(0.5));
+        BufferedImage image = ImageIO.read(new File(System.getProperty("user.dir") + "/images/hdr.png"));
+        assertEquals(0xFFFF7F00, image.getRGB(0, 0), "wrong exposed pixel color");
+        imageWriter.writeToImage(ToneMapper.reinhard(1));
+        image = ImageIO.read(new File(System.getProperty("user.dir") + "/images/hdr.png"));
+        assertEquals(0xFFAA7F00, image.getRGB(0, 0), "wrong tone mapped pixel color");
+
+        assertThrows(IllegalStateException.class, () -> new ImageWriter("ldr", 2, 1).writePfm(),
+                "pfm without HDR framebuffer");
+    }
+
+    @Test
+    void testClampQuantization() throws IOException {
+        final int nX = 64, nY = 48;
+        ImageWriter imageWriter = new ImageWriter("clampQuantization", nX, nY).setHdr(true);
+        Random random = new Random(33);
+        // Whole components and fractions of eighths, some of them above the displayable range
+        for (int y = 0; y < nY; y++)
+            for (int x = 0; x < nX; x++)
+                imageWriter.writePixel(x, y, new Color(random.nextInt(2400) / 8d, random.nextInt(300),
+                        random.nextInt(2400) / 8d));
+        imageWriter.writeToImage();
+        imageWriter.writeToImage("clampQuantizationExposed", ToneMapper.clamp(1));
+
+        // Exposure 1 truncates the components like the 8-bit framebuffer
+        BufferedImage expected = ImageIO.read(new File(System.getProperty("user.dir") + "/images/clampQuantization.png"));
+        BufferedImage actual = ImageIO.read(new File(System.getProperty("user.dir") + "/images/clampQuantizationExposed.png"));
+        for (int y = 0; y < nY; y++)
+            for (int x = 0; x < nX; x++)
+                assertEquals(expected.getRGB(x, y), actual.getRGB(x, y), "wrong clamped pixel color");
+    }
+
+    @Test
+    void testStreaming() throws IOException, InterruptedException {
+        final int nX = 301, nY = 203;
+        ImageWriter buffered = new ImageWriter("streamingReference", nX, nY);
+        ImageWriter streaming = new StreamingImageWriter("streaming", nX, nY, 8);
+        for (int y = 0; y < nY; y++)
+            for (int x = 0; x < nX; x++)
+                buffered.writePixel(x, y, new Color(x % 256, y % 256, (x * y) % 300));
+        buffered.writeToImage();
+
+        // Several threads complete the rows out of order, each row right to left
+        AtomicInteger nextRow = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread thread = new Thread(() -> {
+                int y;
+                while ((y = nextRow.getAndIncrement()) < nY)
+                    for (int x = nX - 1; x >= 0; x--)
+                        streaming.writePixel(x, y, new Color(x % 256, y % 256, (x * y) % 300));
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads)
+            thread.join();
+        streaming.writeToImage();
+
+        BufferedImage expected = ImageIO.read(new File(System.getProperty("user.dir") + "/images/streamingReference.png"));
+        BufferedImage actual = ImageIO.read(new File(System.getProperty("user.dir") + "/images/streaming.png"));
+        assertEquals(nX, actual.getWidth(), "wrong streamed image width");
+        assertEquals(nY, actual.getHeight(), "wrong streamed image height");
+        for (int y = 0; y < nY; y++)
+            for (int x = 0; x < nX; x++)
+                assertEquals(expected.getRGB(x, y), actual.getRGB(x, y), "wrong streamed pixel color");
+
+        assertThrows(IllegalStateException.class, () -> streaming.writePixel(0, 0, new Color(0, 0, 0)),
+                "writing a pixel of an encoded row");
+        ImageWriter incomplete = new StreamingImageWriter("incomplete", 2, 2);
+        incomplete.writeTile(0, 0, 2, 1, new int[]{0, 0});
+        assertThrows(IllegalStateException.class, incomplete::writeToImage, "writing an incomplete image");
+    }
+
+    @Test
+    void testParallelEncoding() throws IOException, InterruptedException {
+        final int nX = 257, nY = 211;
+        ImageWriter reference = new ImageWriter("parallelReference", nX, nY);
+        ImageWriter parallel = new ImageWriter("parallel", nX, nY).setParallelEncoding(true);
+        for (int y = 0; y < nY; y++)
+            for (int x = 0; x < nX; x++)
+                reference.writePixel(x, y, new Color((x * 7) % 256, y % 256, (x + y) % 300));
+
+        // The strips are compressed while other threads still write the following rows
+        AtomicInteger nextRow = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 3; t++) {
+            Thread thread = new Thread(() -> {
+                int y;
+                while ((y = nextRow.getAndIncrement()) < nY)
+                    for (int x = 0; x < nX; x++)
+                        parallel.writePixel(x, y, new Color((x * 7) % 256, y % 256, (x + y) % 300));
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads)
+            thread.join();
+
+        // Pixels written again after their strip was compressed
+        for (int x = 0; x < nX; x++) {
+            reference.writePixel(x, 100, new Color(255, 255, 0));
+            parallel.writePixel(x, 100, new Color(255, 255, 0));
+        }
+        reference.writeToImage();
+        parallel.writeToImageAsync().join();
+
+        BufferedImage expected = ImageIO.read(new File(System.getProperty("user.dir") + "/images/parallelReference.png"));
+        BufferedImage actual = ImageIO.read(new File(System.getProperty("user.dir") + "/images/parallel.png"));
+        for (int y = 0; y < nY; y++)
+            for (int x = 0; x < nX; x++)
+                assertEquals(expected.getRGB(x, y), actual.getRGB(x, y), "wrong parallel encoded pixel color");
+    }
+
+}
@@ -268,6 +268,52 @@ public class LightsTests {
                 .writeToImage();
     }
 
+    /**
+     * Produce a high-dynamic-range picture of a sphere lighted by multiple light sources
+     * and export it with several exposures and tone mappers without rendering it again
+     */
+    @Test
+    public void sphereMultipleLightsHdr() {
+        scene1.geometries.add(sphere);
+        scene1.lights.add(new DirectionalLight(new Color(400, 400, 400), new Vector(-1, -1, -0.5)));
+        scene1.lights.add(new PointLight(new Color(200, 100, 100), new Point(-50, -50, 25))
+                .setKl(0.001).setKq(0.0002));
+        scene1.lights.add(new SpotLight(new Color(300, 300, 0), new Point(-50, -50, 25), new Vector(1, 1, -0.5))
+                .setKl(0.001).setKq(0.0001));
+
+        ImageWriter imageWriter = new ImageWriter("lightSphereMultipleHdr", 500, 500).setHdr(true);
+        camera1.setImageWriter(imageWriter)
+                .build()
+                .renderImage();
+        imageWriter.writePfm();
+
+        String[] names = {"Dark", "Reinhard", "Filmic"};
+        ToneMapper[] toneMappers = {ToneMapper.clamp(0.25), ToneMapper.reinhard(1), ToneMapper.filmic(1)};
+        for (int i = 0; i < names.length; ++i)
+            imageWriter.writeToImage("lightSphereMultipleHdr" + names[i], toneMappers[i]);
+    }
+
+    /**
+     * Produce a picture of two triangles lighted by a grid of many attenuated point lights,
+     * shaded through the light BVH of the scene
+     */
+    @Test
+    public void trianglesManyLights() {
+        scene2.geometries.add(triangle1, triangle2);
+        for (int i = -5; i < 5; ++i)
+            for (int j = -5; j < 5; ++j)
+                scene2.lights.add(new PointLight(new Color(1500, 750 + 50 * i, 750 + 50 * j),
+                        new Point(i * 22 + 11, j * 22 + 11, -140))
+                        .setKl(0.05).setKq(0.05));
+        scene2.makeLightBVH();
+
+        camera2.setImageWriter(new ImageWriter("lightTrianglesMany", 500, 500))
+                .build()
+                .renderImage();
+        camera2.build()
+                .writeToImage();
+    }
+
 //    /**
 //     * Produce a picture of a sphere lighted by a narrow spotlight
 //     */
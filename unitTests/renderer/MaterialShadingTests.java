@@ -0,0 +1,132 @@
+package renderer;
+
+import static java.awt.Color.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import geometries.*;
+import lighting.AmbientLight;
+import lighting.PointLight;
+import primitives.*;
+import scene.Scene;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Tests of the material-specialized shading paths of {@link SimpleRayTracer}:
+ * the same scene rendered with the generic and with the specialized shading gives the same image
+ * for every material kind.
+ */
+public class MaterialShadingTests {
+    /**
+     * Resolution of the test images
+     */
+    private static final int RESOLUTION = 100;
+
+    /**
+     * Builds a scene of a grid of spheres of the given material in front of a diffuse plane.
+     *
+     * @param material the material of the spheres
+     * @return the scene
+     */
+    private Scene buildScene(Material material) {
+        Scene scene = new Scene("Material shading");
+        scene.geometries.add(new Plane(new Point(0, 0, -300), new Vector(0, 0, 1))
+                .setEmission(new Color(20, 20, 20))
+                .setMaterial(new Material().setKd(0.5)));
+        for (int i = -2; i <= 2; ++i)
+            for (int j = -2; j <= 2; ++j)
+                scene.geometries.add(new Sphere(new Point(i * 60, j * 60, -100), 25)
+                        .setEmission(new Color(BLUE))
+                        .setMaterial(material));
+        scene.setAmbientLight(new AmbientLight(new Color(WHITE), 0.1));
+        scene.lights.add(new PointLight(new Color(500, 400, 400), new Point(100, 100, 200))
+                .setKl(1E-5).setKq(1E-7));
+        return scene;
+    }
+
+    /**
+     * Renders the scene into an image file and reads the image back.
+     *
+     * @param scene       the scene to render
+     * @param specialized whether the shading is specialized by the zero coefficients of the material
+     * @param name        the name of the image
+     * @return the rendered image
+     * @throws IOException on I/O error of the image
+     */
+    private BufferedImage render(Scene scene, boolean specialized, String name) throws IOException {
+        Camera.getBuilder()
+                .setRayTracer(new SimpleRayTracer(scene).setMaterialSpecialization(specialized))
+                .setLocation(new Point(0, 0, 1000)).setVpDistance(1000)
+                .setDirection(Point.ZERO, Vector.Y)
+                .setVpSize(350, 350)
+                .setImageWriter(new ImageWriter(name, RESOLUTION, RESOLUTION))
+                .setDebugPrint(0)
+                .build()
+                .renderImage()
+                .writeToImage();
+        return ImageIO.read(new File(ImageWriter.getFolderPath(), name + ".png"));
+    }
+
+    /**
+     * Renders the scene with the generic and with the specialized shading and compares the images pixel by pixel.
+     *
+     * @param material the material of the spheres
+     * @param name     the name of the material kind
+     * @throws IOException on I/O error of the images
+     */
+    private void assertSameImage(Material material, String name) throws IOException {
+        Scene scene = buildScene(material);
+        BufferedImage generic = render(scene, false, "materialShadingGeneric");
+        BufferedImage specialized = render(scene, true, "materialShadingSpecialized");
+        for (int y = 0; y < RESOLUTION; ++y)
+            for (int x = 0; x < RESOLUTION; ++x)
+                assertEquals(generic.getRGB(x, y), specialized.getRGB(x, y),
+                        name + ": different pixel (" + x + ", " + y + ") with specialized shading");
+    }
+
+    /**
+     * Test method for {@link SimpleRayTracer#setMaterialSpecialization(boolean)}
+     *
+     * @throws IOException on I/O error of the images
+     */
+    @Test
+    public void testSpecializedShading() throws IOException {
+        // TC01: diffuse only material
+        assertSameImage(new Material().setKd(0.6), "diffuse-only");
+        // TC02: diffuse and specular material
+        assertSameImage(new Material().setKd(0.5).setKs(0.5).setShininess(30), "diffuse+specular");
+        // TC03: reflective material
+        assertSameImage(new Material().setKd(0.3).setKs(0.3).setShininess(30).setKr(0.5), "reflective");
+        // TC04: transparent material
+        assertSameImage(new Material().setKd(0.3).setKs(0.3).setShininess(30).setKt(0.5), "transparent");
+    }
+
+    /**
+     * Test method for the coefficient checks of {@link Material} used by the specialized shading
+     *
+     * @throws IOException on I/O error of the images
+     */
+    @Test
+    public void testChangedMaterial() throws IOException {
+        Material material = new Material().setKd(0.6);
+        new Sphere(Point.ZERO, 1).setMaterial(material);
+
+        // TC01: a material attached to a geometry can still be changed by its setters and its fields
+        assertTrue(material.isNonReflective() && material.isOpaque() && material.isDiffuseOnly(),
+                "Wrong checks of a diffuse material");
+        assertDoesNotThrow(() -> material.setKr(0.5).setKs(0.5).setShininess(30),
+                "Material of a geometry can not be changed");
+        material.kT = new Double3(0.5);
+        assertFalse(material.isNonReflective(), "Reflection coefficient of a changed material not checked");
+        assertFalse(material.isOpaque(), "Transparency coefficient of a changed material not checked");
+        assertFalse(material.isDiffuseOnly(), "Specular coefficient of a changed material not checked");
+
+        // TC02: the changed material is shaded the same by both paths
+        assertSameImage(material, "changed material");
+    }
+}
@@ -0,0 +1,91 @@
+package renderer;
+
+import org.junit.jupiter.api.Test;
+import special.TeapotTest;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Comparison of the images rendered with packets of rays ({@link Camera.Builder#setPacketSize(int)})
+ * and with single rays on the scenes of the render tests, with point and spot lights.
+ */
+class PacketRenderTests {
+    /**
+     * Width and height of the rendered images
+     */
+    private static final int RESOLUTION = 200;
+    /**
+     * Maximal fraction of the different pixels - the pixels whose rays hit two geometries at the same distance,
+     * which the packets may find in a different order
+     */
+    private static final double MAX_DIFFERENT = 0.001;
+
+    /**
+     * Renders a scene of a render test with single rays and with packets of rays, and compares the images
+     *
+     * @param name    the name of the scene
+     * @param camera  the camera builder of the scene, which fills the scene
+     * @param size    the packet size
+     * @param threads the number of rendering threads
+     * @throws IOException on I/O error of the images
+     */
+    private static void compare(String name, Supplier<Camera.Builder> camera, int size, int threads)
+            throws IOException {
+        Camera.Builder builder = camera.get().setMultiThreading(threads).setDebugPrint(0);
+        builder.setImageWriter(new ImageWriter(name + "Single", RESOLUTION, RESOLUTION))
+                .build().renderImage().writeToImage();
+        builder.setPacketSize(size).setImageWriter(new ImageWriter(name + "Packet", RESOLUTION, RESOLUTION))
+                .build().renderImage().writeToImage();
+
+        BufferedImage expected = ImageIO.read(new File(ImageWriter.getFolderPath(), name + "Single.png"));
+        BufferedImage actual = ImageIO.read(new File(ImageWriter.getFolderPath(), name + "Packet.png"));
+        int different = 0;
+        for (int y = 0; y < RESOLUTION; ++y)
+            for (int x = 0; x < RESOLUTION; ++x)
+                if (expected.getRGB(x, y) != actual.getRGB(x, y))
+                    ++different;
+        double fraction = (double) different / (RESOLUTION * RESOLUTION);
+        assertTrue(fraction <= MAX_DIFFERENT,
+                String.format("%s: %.3f%% of the pixels differ with packets", name, 100 * fraction));
+    }
+
+    /**
+     * Test method for the teapot mesh with a point light, by packets of 8x8 rays
+     *
+     * @throws IOException on I/O error of the images
+     */
+    @Test
+    void testTeapot() throws IOException {
+        compare("packetTeapot", new TeapotTest()::teapotScene, 8, 0);
+    }
+
+    /**
+     * Test method for the reflective and transparent scene with spot lights, by packets of 4x4 rays on two threads
+     *
+     * @throws IOException on I/O error of the images
+     */
+    @Test
+    void testTwoSpheresOnMirrors() throws IOException {
+        compare("packetMirrors", new ReflectionRefractionTests()::twoSpheresOnMirrorsScene, 4, 2);
+    }
+
+    /**
+     * Test method for {@link Camera.Builder#setPacketSize(int)}
+     */
+    @Test
+    void testPacketSize() {
+        // TC01: only blocks of 4x4 and 8x8 pixels
+        assertThrows(IllegalArgumentException.class, () -> Camera.getBuilder().setPacketSize(2),
+                "Packet size 2 accepted");
+        assertThrows(IllegalArgumentException.class, () -> Camera.getBuilder().setPacketSize(16),
+                "Packet size 16 accepted");
+        assertDoesNotThrow(() -> Camera.getBuilder().setPacketSize(0).setPacketSize(4).setPacketSize(8),
+                "Valid packet size rejected");
+    }
+}
@@ -4,6 +4,7 @@
 package renderer;
 
 import static java.awt.Color.*;
+import static org.junit.jupiter.api.Assertions.*;
 
 import geometries.Plane;
 import lighting.DirectionalLight;
@@ -60,10 +61,20 @@ public class ReflectionRefractionTests {
     }
 
     /**
-     * Produce a picture of a sphere lighted by a spot light
+     * Gets the scene of the tests
+     *
+     * @return the scene
      */
-    @Test
-    public void twoSpheresOnMirrors() {
+    Scene getScene() {
+        return scene;
+    }
+
+    /**
+     * Fills the scene with two spheres, one inside the other, before two mirrors lighted by a spot light
+     *
+     * @return the camera builder of the scene
+     */
+    Camera.Builder twoSpheresOnMirrorsScene() {
         scene.geometries.add(
                 new Sphere(new Point(-950, -900, -1000), 400d).setEmission(new Color(0, 50, 100))
                         .setMaterial(new Material().setKd(0.25).setKs(0.25).setShininess(20)
@@ -82,8 +93,16 @@ public class ReflectionRefractionTests {
         scene.lights.add(new SpotLight(new Color(1020, 400, 400), new Point(-750, -750, -150), new Vector(-1, -1, -4))
                 .setKl(0.00001).setKq(0.000005));
 
-        cameraBuilder.setLocation(new Point(0, 0, 10000)).setVpDistance(10000)
-                .setVpSize(2500, 2500)
+        return cameraBuilder.setLocation(new Point(0, 0, 10000)).setVpDistance(10000)
+                .setVpSize(2500, 2500);
+    }
+
+    /**
+     * Produce a picture of a sphere lighted by a spot light
+     */
+    @Test
+    public void twoSpheresOnMirrors() {
+        twoSpheresOnMirrorsScene()
                 .setImageWriter(new ImageWriter("reflectionTwoSpheresMirrored", 500, 500))
                 .build()
                 .renderImage();
@@ -166,4 +185,146 @@ public class ReflectionRefractionTests {
         // Write rendered image to file
         cameraBuilder.build().writeToImage();
     }
+
+    /**
+     * Produce a picture of nested transparent spheres between two mirrors, shaded by the iterative
+     * ray tree loop with Russian-roulette termination instead of the recursive ray tree.
+     */
+    @Test
+    public void transparentSpheresOnMirrorsRussianRoulette() {
+        transparentSpheresOnMirrorsScene();
+        cameraBuilder.setRayTracer(new SimpleRayTracer(scene).setRussianRoulette(true))
+                .setLocation(new Point(0, 0, 1000)).setVpDistance(1000)
+                .setVpSize(200, 200)
+                .setImageWriter(new ImageWriter("russianRouletteSpheresOnMirrors", 600, 600))
+                .build()
+                .renderImage();
+        cameraBuilder.build().writeToImage();
+    }
+
+    /**
+     * Compare the iterative ray tree with Russian-roulette termination with the recursive ray tree
+     * on a transparent sphere in a corridor of mirrors, where the rays bounce until they are attenuated
+     * below the Russian-roulette threshold. The average of many Russian-roulette
+     * samples of a pixel converges to the recursive color, while fewer secondary rays are traced per sample.
+     */
+    @Test
+    public void russianRouletteMatchesRecursive() {
+        final int resolution = 16;
+        final int samples = 200;
+        scene.geometries.add(
+                new Plane(new Point(-100, 0, 0), new Vector(1, 0, 0)).setEmission(new Color(20, 20, 20))
+                        .setMaterial(new Material().setKd(0.2).setKr(0.7)),
+                new Plane(new Point(100, 0, 0), new Vector(-1, 0, 0)).setEmission(new Color(20, 20, 20))
+                        .setMaterial(new Material().setKd(0.2).setKr(0.7)),
+                new Plane(new Point(0, 0, -300), new Vector(0, 0, 1)).setEmission(new Color(30, 10, 10))
+                        .setMaterial(new Material().setKd(0.3).setKr(0.5)),
+                new Sphere(new Point(0, 0, -100), 40).setEmission(new Color(blue))
+                        .setMaterial(new Material().setKd(0.2).setKs(0.3).setShininess(30).setKt(0.6).setKr(0.3)));
+        scene.setAmbientLight(new AmbientLight(new Color(WHITE), 0.1));
+        scene.lights.add(new PointLight(new Color(500, 400, 400), new Point(0, 80, 200)).setKl(1E-4));
+        SimpleRayTracer recursive = new SimpleRayTracer(scene);
+        SimpleRayTracer roulette = new SimpleRayTracer(scene).setRussianRoulette(true);
+        Camera camera = cameraBuilder.setVpDistance(1000).setVpSize(200, 200)
+                .setImageWriter(new ImageWriter("russianRouletteMatchesRecursive", resolution, resolution))
+                .build();
+
+        // The recursive colors are traced first, so the secondary rays of each mode are counted separately
+        RenderMetrics.reset();
+        Color[][] expected = new Color[resolution][resolution];
+        for (int i = 0; i < resolution; ++i)
+            for (int j = 0; j < resolution; ++j)
+                expected[i][j] = recursive.traceRay(camera.constructRay(resolution, resolution, j, i));
+        long recursiveRays = secondaryRays(RenderMetrics.snapshot(0));
+
+        // The difference of the average colors of the pixels shows a bias, the mean absolute difference
+        // of the pixels shows the remaining noise of the samples
+        RenderMetrics.reset();
+        double bias = 0;
+        double error = 0;
+        for (int i = 0; i < resolution; ++i)
+            for (int j = 0; j < resolution; ++j) {
+                Ray ray = camera.constructRay(resolution, resolution, j, i);
+                Color sum = Color.BLACK;
+                for (int sample = 0; sample < samples; ++sample)
+                    sum = sum.add(roulette.traceRay(ray));
+                Color actual = sum.reduce(samples);
+                double[] differences = {actual.getRed() - expected[i][j].getRed(),
+                        actual.getGreen() - expected[i][j].getGreen(), actual.getBlue() - expected[i][j].getBlue()};
+                for (double difference : differences) {
+                    bias += difference;
+                    error += Math.abs(difference);
+                }
+            }
+        double rouletteRays = (double) secondaryRays(RenderMetrics.snapshot(0)) / samples;
+        int components = resolution * resolution * 3;
+        assertEquals(0, bias / components, 0.75, "Russian roulette is biased");
+        assertEquals(0, error / components, 2, "Russian roulette average is far from the recursive color");
+
+        // The recursive tree traces every ray above the attenuation threshold, the roulette only some of them.
+        // The rays are counted only when the render metrics are enabled
+        if (!RenderMetrics.ENABLED)
+            return;
+        assertTrue(rouletteRays < 0.8 * recursiveRays, "Russian roulette traces "
+                + rouletteRays + " secondary rays per image instead of " + recursiveRays);
+    }
+
+    /**
+     * Sums the reflected and refracted rays of the render metrics
+     *
+     * @param metrics the render metrics
+     * @return the number of traced secondary rays
+     */
+    private static long secondaryRays(RenderMetrics.Snapshot metrics) {
+        return metrics.rays().get(RenderMetrics.RayType.REFLECTION)
+                + metrics.rays().get(RenderMetrics.RayType.REFRACTION);
+    }
+
+    /**
+     * Fills the scene with nested transparent spheres between two mirrors, lighted by a spot light
+     */
+    private void transparentSpheresOnMirrorsScene() {
+        scene.geometries.add(
+                new Sphere(new Point(0, 20, -50), 50).setEmission(new Color(cyan))
+                        .setMaterial(new Material().setKd(0.001).setKs(0.5).setShininess(100).setKt(0.8)),
+                new Sphere(new Point(0, 20, -50), 30).setEmission(new Color(blue))
+                        .setMaterial(new Material().setKd(0.02).setKs(0.2).setShininess(10).setKt(0.9)),
+                new Triangle(new Point(-150, -150, -115), new Point(150, -150, -135), new Point(75, 75, -150))
+                        .setEmission(new Color(20, 20, 20))
+                        .setMaterial(new Material().setKd(0.2).setKr(0.8)),
+                new Triangle(new Point(-150, -150, -115), new Point(-70, 70, -140), new Point(75, 75, -150))
+                        .setEmission(new Color(20, 20, 20))
+                        .setMaterial(new Material().setKd(0.2).setKr(new Double3(0.5, 0, 0.4))));
+        scene.setAmbientLight(new AmbientLight(new Color(WHITE), 0.15));
+        scene.lights.add(new SpotLight(new Color(700, 400, 400), new Point(30, 25, 0), new Vector(0, 0, -1))
+                .setKl(4E-5).setKq(2E-7));
+    }
+
+    /**
+     * Render counters of the two spheres on mirrors scene - all the ray categories are traced.
+     * The counts are checked when the counters are enabled by -Draytracer.metrics=true,
+     * otherwise they must all be zero
+     */
+    @Test
+    public void twoSpheresOnMirrorsMetrics() {
+        Camera camera = twoSpheresOnMirrorsScene()
+                .setImageWriter(new ImageWriter("reflectionTwoSpheresMirroredMetrics", 200, 200))
+                .build();
+        assertNull(camera.getMetrics(), "Metrics before the first render");
+        RenderMetrics.Snapshot metrics = camera.renderImage().getMetrics();
+        System.out.println(metrics);
+
+        assertTrue(metrics.elapsedNanos() > 0, "Render time was not measured");
+        if (!RenderMetrics.ENABLED) {
+            assertEquals(0, metrics.totalRays(), "Rays were counted while the counters are disabled");
+            return;
+        }
+        assertEquals(200 * 200, metrics.rays().get(RenderMetrics.RayType.PRIMARY), "Wrong number of primary rays");
+        assertTrue(metrics.hits().get(RenderMetrics.RayType.PRIMARY) > 0, "No primary ray hit");
+        for (RenderMetrics.RayType type : RenderMetrics.RayType.values())
+            assertTrue(metrics.rays().get(type) > 0, "No " + type + " rays");
+        assertTrue(metrics.primitiveTests().get("Sphere") > 0, "No sphere tests");
+        assertTrue(metrics.primitiveTests().get("Triangle") > 0, "No triangle tests");
+        assertTrue(metrics.raysPerSecond(RenderMetrics.RayType.PRIMARY) > 0, "No primary ray throughput");
+    }
 }
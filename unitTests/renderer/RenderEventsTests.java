@@ -0,0 +1,118 @@
+package renderer;
+
+import geometries.*;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import lighting.PointLight;
+import org.junit.jupiter.api.Test;
+import primitives.*;
+import scene.Scene;
+import scene.SceneStreamParser;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the flight recorder events of the scene parsing, the BVH build, the rendering
+ * and the image encoding
+ */
+class RenderEventsTests {
+    /**
+     * Resolution of the rendered image
+     */
+    private static final int RESOLUTION = 40;
+
+    /**
+     * Renders a scene with all the events enabled and checks the recorded events
+     */
+    @Test
+    void testEvents() throws Exception {
+        Path sceneFile = Files.createTempFile("scene", ".xml");
+        Path checkpointFile = Files.createTempFile("checkpoint", ".bin");
+        Path recordingFile = Files.createTempFile("render", ".jfr");
+        try (Recording recording = new Recording()) {
+            for (String name : List.of("raytracer.SceneParse", "raytracer.BVHBuild", "raytracer.RenderTile",
+                    "raytracer.ImageEncode"))
+                recording.enable(name);
+            // Every pixel is slow with a zero threshold
+            recording.enable("raytracer.SlowPixel").withThreshold(Duration.ZERO);
+            recording.start();
+
+            Files.writeString(sceneFile, """
+                    <scene background-color="0 0 0">
+                        <geometries>
+                            <sphere center="0 0 -100" radius="30"/>
+                            <sphere center="40 0 -100" radius="10"/>
+                        </geometries>
+                        <lights>
+                            <point-light color="500 500 500" position="50 50 50"/>
+                        </lights>
+                    </scene>
+                    """);
+            Scene scene = new Scene("Events");
+            SceneStreamParser.parse(scene, sceneFile.toString());
+            scene.geometries.makeBVH();
+            try (CheckpointFramebuffer checkpoint =
+                         new CheckpointFramebuffer(checkpointFile, RESOLUTION, RESOLUTION, 16)) {
+                Camera.getBuilder().setLocation(Point.ZERO)
+                        .setDirection(new Vector(0, 0, -1), new Vector(0, 1, 0))
+                        .setVpSize(100, 100).setVpDistance(100)
+                        .setRayTracer(new SimpleRayTracer(scene))
+                        .setImageWriter(new ImageWriter("renderEvents", RESOLUTION, RESOLUTION))
+                        .setCheckpoint(checkpoint)
+                        .build().renderImage().writeToImage();
+            }
+            recording.stop();
+            recording.dump(recordingFile);
+
+            Map<String, List<RecordedEvent>> events = RecordingFile.readAllEvents(recordingFile).stream()
+                    .collect(Collectors.groupingBy(event -> event.getEventType().getName()));
+
+            // TC01: the scene parsing with the parsed content
+            RecordedEvent parse = events.get("raytracer.SceneParse").get(0);
+            assertEquals(sceneFile.toString(), parse.getString("file"), "Wrong parsed file");
+            assertEquals(2, parse.getInt("geometries"), "Wrong number of parsed geometries");
+            assertEquals(1, parse.getInt("lights"), "Wrong number of parsed lights");
+
+            // TC02: the BVH build
+            RecordedEvent build = events.get("raytracer.BVHBuild").get(0);
+            assertEquals(2, build.getInt("geometries"), "Wrong number of BVH geometries");
+            assertFalse(build.getBoolean("cached"), "Built BVH marked as cached");
+
+            // TC03: a tile event for every tile, covering the image
+            List<RecordedEvent> tiles = events.get("raytracer.RenderTile");
+            assertEquals(9, tiles.size(), "Wrong number of tile events");
+            assertEquals(RESOLUTION * RESOLUTION, tiles.stream().mapToInt(tile ->
+                    (tile.getInt("toCol") - tile.getInt("fromCol")) * (tile.getInt("toRow") - tile.getInt("fromRow")))
+                    .sum(), "Tiles do not cover the image");
+
+            // TC04: a slow pixel event for every pixel with its coordinates and rays
+            List<RecordedEvent> pixels = events.get("raytracer.SlowPixel");
+            assertEquals(RESOLUTION * RESOLUTION, pixels.size(), "Wrong number of slow pixel events");
+            assertEquals(RESOLUTION * RESOLUTION, pixels.stream()
+                    .map(pixel -> pixel.getInt("row") * RESOLUTION + pixel.getInt("col")).distinct().count(),
+                    "Slow pixel events are not for distinct pixels");
+            for (RecordedEvent pixel : pixels) {
+                assertEquals(1, pixel.getInt("primaryRays"), "Wrong number of primary rays");
+                if (RenderMetrics.ENABLED)
+                    assertTrue(pixel.getLong("tracedRays") >= 1, "Traced rays were not counted");
+            }
+
+            // TC05: the image encoding
+            RecordedEvent encode = events.get("raytracer.ImageEncode").get(0);
+            assertEquals("renderEvents", encode.getString("imageName"), "Wrong encoded image");
+            assertEquals(RESOLUTION, encode.getInt("width"), "Wrong encoded image width");
+        } finally {
+            Files.delete(sceneFile);
+            Files.delete(checkpointFile);
+            Files.delete(recordingFile);
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package renderer;
 
 import static java.awt.Color.*;
+import static org.junit.jupiter.api.Assertions.*;
 
 import org.junit.jupiter.api.Test;
 
@@ -9,6 +10,14 @@ import lighting.AmbientLight;
 import primitives.*;
 import scene.Scene;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Test rendering a basic image
  *
@@ -55,6 +64,77 @@ public class RenderTests {
                 .writeToImage();
     }
 
+    /**
+     * Render a multi-threaded image with the streaming image writer, which encodes the rows
+     * as they are completed instead of keeping the whole image in memory
+     */
+    @Test
+    public void renderStreamingTest() {
+        scene.geometries.add(new Sphere(new Point(0, 0, -100), 50d),
+                new Triangle(new Point(-100, 0, -100), new Point(0, 100, -100), new Point(-100, 100, -100)),
+                new Triangle(new Point(-100, 0, -100), new Point(0, -100, -100), new Point(-100, -100, -100)),
+                new Triangle(new Point(100, 0, -100), new Point(0, -100, -100), new Point(100, -100, -100)));
+        scene.setAmbientLight(new AmbientLight(new Color(255, 191, 191), Double3.ONE))
+                .setBackground(new Color(75, 127, 90));
+
+        camera.setImageWriter(new StreamingImageWriter("streaming render test", 1000, 1000))
+                .setMultiThreading(3)
+                .build()
+                .renderImage()
+                .writeToImage();
+    }
+
+    /**
+     * Render a checkpointed image on a single thread with the streaming image writer. The thread writes
+     * all the rows of a tile before any of them is complete, so a writer that buffers fewer rows than a tile
+     * is rejected when the camera is built instead of waiting forever for the rows
+     *
+     * @throws IOException on I/O error of the checkpoint file
+     */
+    @Test
+    public void renderStreamingCheckpointTest() throws IOException {
+        scene.geometries.add(new Sphere(new Point(0, 0, -100), 50d));
+        scene.setAmbientLight(new AmbientLight(new Color(255, 191, 191), Double3.ONE))
+                .setBackground(new Color(75, 127, 90));
+
+        Path file = Files.createTempFile("streamingCheckpoint", ".bin");
+        try (CheckpointFramebuffer checkpoint = new CheckpointFramebuffer(file, 256, 256, 128)) {
+            camera.setCheckpoint(checkpoint).setMultiThreading(0).setDebugPrint(0);
+            // TC01: tiles of 128 rows do not fit in the 64 rows of the buffer
+            camera.setImageWriter(new StreamingImageWriter("streaming checkpoint test", 256, 256));
+            assertThrows(IllegalArgumentException.class, camera::build, "Streaming buffer smaller than a tile");
+            // TC02: a buffer of a whole tile renders on a single thread
+            camera.setImageWriter(new StreamingImageWriter("streaming checkpoint test", 256, 256, 128));
+            assertTimeoutPreemptively(Duration.ofSeconds(60), () -> camera.build().renderImage().writeToImage(),
+                    "Streaming checkpointed render did not finish");
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * Render a sequence of frames of a moving sphere, encoding each frame in parallel strips
+     * while the next frame is rendered
+     */
+    @Test
+    public void renderFrameSequenceTest() {
+        List<CompletableFuture<Void>> frames = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int frame = 0; frame < 4; ++frame) {
+            Scene frameScene = new Scene("Frame " + frame)
+                    .setAmbientLight(new AmbientLight(new Color(255, 191, 191), Double3.ONE))
+                    .setBackground(new Color(75, 127, 90));
+            frameScene.geometries.add(new Sphere(new Point(-60 + 40 * frame, 0, -100), 50d));
+            frames.add(camera.setRayTracer(new SimpleRayTracer(frameScene))
+                    .setImageWriter(new ImageWriter("frame sequence " + frame, 800, 800).setParallelEncoding(true))
+                    .build()
+                    .renderImage()
+                    .writeToImageAsync());
+        }
+        frames.forEach(CompletableFuture::join);
+        System.out.printf("frame sequence: %.1f ms%n", (System.nanoTime() - start) / 1e6);
+    }
+
    /** Test for XML based scene - for bonus */
    @Test
    public void basicRenderXml() {
@@ -1,16 +1,26 @@
 package renderer;
 
 import static java.awt.Color.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import org.junit.jupiter.api.Test;
 
 import geometries.*;
 import lighting.AmbientLight;
+import lighting.AreaLight;
+import lighting.DiskLight;
+import lighting.RectangleLight;
 import lighting.SpotLight;
 import primitives.*;
 import renderer.*;
 import scene.Scene;
 
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+
 /** Testing basic shadows */
 public class ShadowTests {
     /** Scene of the tests */
@@ -116,4 +126,78 @@ public class ShadowTests {
                 .writeToImage();
     }
 
+    /** Helper function for the soft shadow tests - a sphere over a plane lighted by an area light
+     * @param pictName the name of the picture generated by a test
+     * @param light    the area light in the test */
+    private Camera softShadowHelper(String pictName, AreaLight light) {
+        scene.geometries.add(sphere,
+                new Plane(new Point(0, 0, -400), new Vector(0, 0, 1))
+                        .setEmission(new Color(30, 30, 30))
+                        .setMaterial(new Material().setKd(0.5).setKs(0.2).setShininess(20)));
+        scene.setAmbientLight(new AmbientLight(new Color(WHITE), 0.1));
+        scene.lights.add(light.setKl(1E-5).setKq(1.5E-7));
+        Camera rendered = camera.setImageWriter(new ImageWriter(pictName, 400, 400))
+                .build()
+                .renderImage();
+        rendered.writeToImage();
+        return rendered;
+    }
+
+    /** Produce a picture of a sphere casting a soft shadow from a rectangular area light */
+    @Test
+    public void sphereRectangleLightSoftShadow() {
+        softShadowHelper("shadowSphereRectangleLight",
+                new RectangleLight(new Color(300, 250, 200), new Point(-100, -100, 200),
+                        new Vector(1, -1, 0), new Vector(0, 0, 1), 80, 80).setSamples(9));
+    }
+
+    /** Produce a picture of a sphere casting a soft shadow from a disk area light */
+    @Test
+    public void sphereDiskLightSoftShadow() {
+        softShadowHelper("shadowSphereDiskLight",
+                new DiskLight(new Color(300, 250, 200), new Point(-100, -100, 200),
+                        new Vector(1, 1, -3), 50).setSamples(9));
+    }
+
+    /** Produce a soft shadow picture with the occluder cache and check its hit rate in the render metrics -
+     * neighbouring shadow rays towards the area light are often blocked by the same sphere.
+     * The cache is counted only when the render metrics are enabled */
+    @Test
+    public void sphereAreaLightOccluderCache() {
+        RenderMetrics.Snapshot metrics = softShadowHelper("shadowSphereOccluderCache",
+                new RectangleLight(new Color(300, 250, 200), new Point(-100, -100, 200),
+                        new Vector(1, -1, 0), new Vector(0, 0, 1), 80, 80).setSamples(9)).getMetrics();
+        if (!RenderMetrics.ENABLED) {
+            assertEquals(0, metrics.occluderLookups(), "occluder cache counted while the counters are disabled");
+            return;
+        }
+        assertTrue(metrics.occluderLookups() > 0, "the occluder cache should be looked up");
+        assertTrue(metrics.occluderHits() <= metrics.occluderLookups(), "more occluder cache hits than lookups");
+        assertTrue(metrics.occluderHitRate() > 0.3, "the occluder cache should hit the sphere often, "
+                + "hit rate " + metrics.occluderHitRate());
+    }
+
+    /** Produce the soft shadow picture with and without the occluder cache and compare them pixel by pixel -
+     * the cache only changes the order of the occluder tests, never the transparency along a shadow ray
+     * @throws IOException on I/O error of the images */
+    @Test
+    public void sphereAreaLightOccluderCacheSameImage() throws IOException {
+        softShadowHelper("shadowSphereOccluderCacheOn",
+                new RectangleLight(new Color(300, 250, 200), new Point(-100, -100, 200),
+                        new Vector(1, -1, 0), new Vector(0, 0, 1), 80, 80).setSamples(9));
+        camera.setRayTracer(new SimpleRayTracer(scene).setOccluderCache(false))
+                .setImageWriter(new ImageWriter("shadowSphereOccluderCacheOff", 400, 400))
+                .build()
+                .renderImage()
+                .writeToImage();
+
+        String folder = ImageWriter.getFolderPath();
+        BufferedImage cached = ImageIO.read(new File(folder, "shadowSphereOccluderCacheOn.png"));
+        BufferedImage uncached = ImageIO.read(new File(folder, "shadowSphereOccluderCacheOff.png"));
+        for (int y = 0; y < 400; ++y)
+            for (int x = 0; x < 400; ++x)
+                assertEquals(uncached.getRGB(x, y), cached.getRGB(x, y),
+                        "different pixel (" + x + ", " + y + ") with the occluder cache");
+    }
+
 }
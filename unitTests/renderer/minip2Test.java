@@ -39,10 +39,11 @@ public class minip2Test {
 //            .setDebugPrint(0.1);
 
     /**
-     * Produce a scene with 3D model and render it into a png image with a grid
+     * Fills the scene with the castle, its surroundings and the lights
+     *
+     * @return the camera builder of the scene
      */
-    @Test
-    public void renderCastleScene() {
+    Camera.Builder castleScene() {
         // Setting the background
         scene.setBackground(new Color(135, 206, 235));  // Light blue sky
         // Creating the list that will contain all the geometries in the scene
@@ -259,8 +260,16 @@ public class minip2Test {
             scene.geometries.add(geometry);
         }
         scene.geometries.makeBVH();
+        return camera;
+    }
+
+    /**
+     * Produce a scene with 3D model and render it into a png image with a grid
+     */
+    @Test
+    public void renderCastleScene() {
         // Rendering the image
-        camera.setImageWriter(new ImageWriter("Minip2WithBvhAndDof", 1000, 1000))
+        castleScene().setImageWriter(new ImageWriter("Minip2WithBvhAndDof", 1000, 1000))
                 .build()
                 .renderImage();
 
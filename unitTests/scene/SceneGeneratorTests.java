@@ -0,0 +1,132 @@
+package scene;
+
+import geometries.*;
+import org.junit.jupiter.api.Test;
+import primitives.*;
+import renderer.Camera;
+import renderer.ImageWriter;
+import renderer.SimpleRayTracer;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link SceneGenerator}
+ */
+class SceneGeneratorTests {
+    /**
+     * Test method for the number of generated primitives
+     */
+    @Test
+    void testPrimitives() {
+        SceneGenerator generator = new SceneGenerator(7).setSpheres(50).setIcospheres(3, 2).setTerrain(10)
+                .setLights(5);
+        Scene scene = generator.generate("Counts");
+
+        // TC01: the spheres, 20 * 4^2 triangles of every icosphere and 2 * 10^2 triangles of the terrain
+        assertEquals(50 + 3 * 320 + 200, generator.primitives(), "Wrong number of primitives");
+        List<Intersectable> geometries = scene.geometries.getGeometries();
+        assertEquals(generator.primitives(), geometries.size(), "Wrong number of generated geometries");
+        assertEquals(50, geometries.stream().filter(geometry -> geometry instanceof Sphere).count(),
+                "Wrong number of spheres");
+        assertEquals(5, scene.lights.size(), "Wrong number of lights");
+    }
+
+    /**
+     * Test method for the determinism of the seed
+     */
+    @Test
+    void testSeed() {
+        SceneGenerator generator = new SceneGenerator(42).setSpheres(20).setIcospheres(2, 1).setTerrain(4);
+        List<Intersectable> first = generator.generate("First").geometries.getGeometries();
+        List<Intersectable> second = generator.generate("Second").geometries.getGeometries();
+        List<Intersectable> other = new SceneGenerator(43).setSpheres(20).setIcospheres(2, 1).setTerrain(4)
+                .generate("Other").geometries.getGeometries();
+
+        // TC01: the same seed generates the same geometries
+        for (int i = 0; i < first.size(); ++i) {
+            assertEquals(first.get(i).getBoundingBox().getMin(), second.get(i).getBoundingBox().getMin(),
+                    "Same seed generated another geometry at " + i);
+            assertEquals(first.get(i).getBoundingBox().getMax(), second.get(i).getBoundingBox().getMax(),
+                    "Same seed generated another geometry at " + i);
+        }
+        // TC02: another seed generates other geometries
+        Sphere sphere = (Sphere) first.stream().filter(geometry -> geometry instanceof Sphere).findFirst().get();
+        Sphere otherSphere = (Sphere) other.stream().filter(geometry -> geometry instanceof Sphere).findFirst().get();
+        assertNotEquals(sphere.getCenter(), otherSphere.getCenter(), "Another seed generated the same sphere");
+    }
+
+    /**
+     * Test method for the fractions of the materials
+     */
+    @Test
+    void testMaterialFractions() {
+        // TC01: all the spheres are reflective
+        Scene mirrors = new SceneGenerator(1).setSpheres(30).setMaterialFractions(1, 0).generate("Mirrors");
+        for (Intersectable geometry : mirrors.geometries.getGeometries())
+            assertFalse(((Geometry) geometry).getMaterial().kR.equals(Double3.ZERO), "Sphere is not reflective");
+
+        // TC02: about the configured fraction of the spheres is transparent
+        Scene glass = new SceneGenerator(1).setSpheres(1000).setMaterialFractions(0, 0.3).generate("Glass");
+        long transparent = glass.geometries.getGeometries().stream()
+                .filter(geometry -> !((Geometry) geometry).getMaterial().kT.equals(Double3.ZERO)).count();
+        assertTrue(transparent > 250 && transparent < 350, "Wrong fraction of transparent spheres: " + transparent);
+
+        // TC03: fractions of more than the whole
+        assertThrows(IllegalArgumentException.class, () -> new SceneGenerator(1).setMaterialFractions(0.6, 0.6),
+                "Fractions of more than 1 accepted");
+    }
+
+    /**
+     * Test method for the icosphere meshes
+     */
+    @Test
+    void testIcosphere() {
+        Point center = new Point(1, 2, 3);
+        List<Triangle> triangles = SceneGenerator.icosphere(center, 2, 3);
+
+        // TC01: 20 * 4^3 triangles whose vertices are all on the sphere
+        assertEquals(1280, triangles.size(), "Wrong number of icosphere triangles");
+        for (Triangle triangle : triangles)
+            for (Point vertex : triangle.getVertices())
+                assertEquals(2, vertex.distance(center), 1e-9, "Icosphere vertex is not on the sphere");
+    }
+
+    /**
+     * Test method for {@link SceneGenerator#camera()}
+     */
+    @Test
+    void testCamera() {
+        SceneGenerator generator = new SceneGenerator(3).setSpheres(60);
+        generator.generate("Generated");
+        Camera camera = generator.camera().setRayTracer(new SimpleRayTracer(new Scene("Empty")))
+                .setImageWriter(new ImageWriter("generatedCamera", 3, 3)).build();
+        Vector center = camera.constructRay(3, 3, 1, 1).getDirection();
+
+        // TC01: the view plane is orthogonal to the view direction, so opposite pixels are symmetric around it
+        assertEquals(center.dotProduct(camera.constructRay(3, 3, 1, 0).getDirection()),
+                center.dotProduct(camera.constructRay(3, 3, 1, 2).getDirection()), 1e-12,
+                "Top and bottom pixels are not symmetric");
+        assertEquals(center.dotProduct(camera.constructRay(3, 3, 0, 1).getDirection()),
+                center.dotProduct(camera.constructRay(3, 3, 2, 1).getDirection()), 1e-12,
+                "Left and right pixels are not symmetric");
+        // TC02: the top of the image is up
+        assertTrue(camera.constructRay(3, 3, 1, 0).getDirection().getY() > center.getY(), "Image is upside down");
+    }
+
+    /**
+     * Test method for rendering a generated scene with its camera
+     */
+    @Test
+    void testRender() {
+        SceneGenerator generator = new SceneGenerator(3).setSpheres(60).setIcospheres(2, 2).setTerrain(8)
+                .setLights(3).setMaterialFractions(0.2, 0.2);
+        Scene scene = generator.generate("Generated");
+        scene.geometries.makeBVH();
+        generator.camera().setRayTracer(new SimpleRayTracer(scene))
+                .setImageWriter(new ImageWriter("generatedScene", 150, 150))
+                .setMultiThreading(-2)
+                .build().renderImage().writeToImage();
+    }
+}
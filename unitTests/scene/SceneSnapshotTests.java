@@ -0,0 +1,247 @@
+package scene;
+
+import geometries.*;
+import lighting.*;
+import org.junit.jupiter.api.Test;
+import primitives.*;
+import renderer.Camera;
+import renderer.ImageWriter;
+import renderer.SimpleRayTracer;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link SceneSnapshot}
+ */
+class SceneSnapshotTests {
+    /**
+     * Number of triangles of the large scene, 1000000 for the full measurement
+     */
+    private static final int TRIANGLES = Integer.getInteger("scene.triangles", 20_000);
+
+    /**
+     * Creates a scene with all the light types and the geometry types which can be rendered
+     *
+     * @return the scene
+     */
+    private static Scene createScene() {
+        Scene scene = new Scene("Snapshot scene")
+                .setBackground(new Color(10, 20, 30))
+                .setAmbientLight(new AmbientLight(new Color(255, 255, 255), 0.1));
+        Material shiny = new Material().setKd(0.5).setKs(new Double3(0.2, 0.3, 0.4)).setShininess(60);
+        scene.geometries.add(
+                new Triangle(new Point(-50, -50, -100), new Point(50, -50, -100), new Point(0, 50, -100))
+                        .setEmission(new Color(0, 0, 80)).setMaterial(shiny),
+                new Polygon(new Point(-80, -80, -150), new Point(80, -80, -150),
+                        new Point(80, 80, -150), new Point(-80, 80, -150)).setMaterial(shiny),
+                new Sphere(new Point(20, 10, -60), 25).setEmission(new Color(100, 0, 0))
+                        .setMaterial(new Material().setKd(0.3).setKs(0.3).setKt(0.4).setKr(0.1).setShininess(30)),
+                new Plane(new Point(0, -90, 0), new Vector(0, 1, 0)).setEmission(new Color(20, 20, 20)));
+        scene.lights.add(new DirectionalLight(new Color(50, 50, 50), new Vector(0, 0, -1)));
+        scene.lights.add(new PointLight(new Color(200, 200, 200), new Point(0, 50, 50)).setKl(0.001).setKq(0.0002));
+        scene.lights.add(new SpotLight(new Color(200, 100, 100), new Point(-50, 50, 50), new Vector(1, -1, -2))
+                .setKl(0.001));
+        scene.lights.add(new RectangleLight(new Color(100, 100, 100), new Point(0, 80, 0),
+                new Vector(1, 0, 0), new Vector(0, 0, 1), 20, 10).setSamples(3).setAdaptive(false));
+        scene.lights.add(new DiskLight(new Color(100, 100, 100), new Point(0, 80, -50),
+                new Vector(0, -1, 0), 10).setSamples(4));
+        return scene;
+    }
+
+    /**
+     * Renders a scene into an image and reads the image back
+     *
+     * @param scene the scene
+     * @param name  the name of the image
+     * @return the rendered image
+     * @throws IOException on I/O error
+     */
+    private static BufferedImage render(Scene scene, String name) throws IOException {
+        Camera camera = Camera.getBuilder()
+                .setRayTracer(new SimpleRayTracer(scene))
+                .setLocation(new Point(0, 0, 200)).setVpDistance(200)
+                .setDirection(new Point(0, 0, -100), Vector.Y)
+                .setVpSize(200, 200)
+                .setImageWriter(new ImageWriter(name, 100, 100))
+                .build();
+        camera.renderImage();
+        camera.writeToImage();
+        return ImageIO.read(new File(System.getProperty("user.dir") + "/images/" + name + ".png"));
+    }
+
+    /**
+     * Test method for {@link SceneSnapshot#write(Scene, Path)} and {@link SceneSnapshot#read(Path)}
+     */
+    @Test
+    void testWriteRead() throws IOException {
+        Scene scene = createScene();
+        scene.geometries.makeBVH();
+        scene.makeLightBVH();
+        Path file = Files.createTempFile("scene", ".snapshot");
+        try {
+            SceneSnapshot.write(scene, file);
+            Scene restored = SceneSnapshot.read(file);
+
+            assertEquals("Snapshot scene", restored.name, "Wrong scene name");
+            assertEquals(scene.background.getRGB(), restored.background.getRGB(), "Wrong background");
+            assertEquals(scene.ambientLight.getIntensity().getRGB(), restored.ambientLight.getIntensity().getRGB(),
+                    "Wrong ambient light");
+            assertEquals(5, restored.lights.size(), "Wrong number of lights");
+            assertInstanceOf(RectangleLight.class, restored.lights.get(3), "Wrong light type");
+            assertEquals(3, ((AreaLight) restored.lights.get(3)).getSamples(), "Wrong area light samples");
+            assertNotNull(restored.lightBVH, "Light BVH was not rebuilt");
+            assertTreesEqual(scene.geometries, restored.geometries);
+
+            // The restored scene renders the same image
+            BufferedImage expected = render(scene, "snapshotOriginal");
+            BufferedImage actual = render(restored, "snapshotRestored");
+            for (int y = 0; y < expected.getHeight(); ++y)
+                for (int x = 0; x < expected.getWidth(); ++x)
+                    assertEquals(expected.getRGB(x, y), actual.getRGB(x, y), "Wrong pixel " + x + "," + y);
+
+            // Tubes and cylinders are restored too
+            scene = new Scene("Radial scene");
+            scene.geometries.add(new Tube(new Ray(new Point(-60, 0, -120), new Vector(0, 1, 0)), 5),
+                    new Cylinder(40, new Ray(new Point(60, -40, -120), new Vector(0, 1, 0)), 8)
+                            .setEmission(new Color(60, 60, 0)));
+            SceneSnapshot.write(scene, file);
+            List<Intersectable> radial = SceneSnapshot.read(file).geometries.getGeometries();
+            assertEquals(Tube.class, radial.get(0).getClass(), "Wrong geometry type");
+            Cylinder cylinder = (Cylinder) radial.get(1);
+            assertEquals(40, cylinder.getHeight(), "Wrong cylinder height");
+            assertEquals(8, cylinder.getRadius(), "Wrong cylinder radius");
+            assertEquals(new Point(60, -40, -120), cylinder.getAxis().getHead(), "Wrong cylinder axis");
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * Checks that two geometries trees have the same structure, bounding boxes and geometry types
+     *
+     * @param expected the expected tree
+     * @param actual   the actual tree
+     */
+    private static void assertTreesEqual(Geometries expected, Geometries actual) {
+        List<Intersectable> expectedNodes = expected.getGeometries();
+        List<Intersectable> actualNodes = actual.getGeometries();
+        assertEquals(expectedNodes.size(), actualNodes.size(), "Wrong number of tree node members");
+        assertPointEquals(expected.getBoundingBox().getMin(), actual.getBoundingBox().getMin());
+        assertPointEquals(expected.getBoundingBox().getMax(), actual.getBoundingBox().getMax());
+        for (int i = 0; i < expectedNodes.size(); ++i) {
+            assertEquals(expectedNodes.get(i).getClass(), actualNodes.get(i).getClass(), "Wrong tree node type");
+            if (expectedNodes.get(i) instanceof Geometries group)
+                assertTreesEqual(group, (Geometries) actualNodes.get(i));
+        }
+    }
+
+    /**
+     * Checks that two corners of bounding boxes are equal, including infinite coordinates
+     *
+     * @param expected the expected corner
+     * @param actual   the actual corner
+     */
+    private static void assertPointEquals(Point expected, Point actual) {
+        assertEquals(expected.getX(), actual.getX(), "Wrong bounding box");
+        assertEquals(expected.getY(), actual.getY(), "Wrong bounding box");
+        assertEquals(expected.getZ(), actual.getZ(), "Wrong bounding box");
+    }
+
+    /**
+     * Test method for {@link SceneSnapshot#read(Path)} with stale and corrupted files
+     */
+    @Test
+    void testReadInvalid() throws IOException {
+        Path file = Files.createTempFile("scene", ".snapshot");
+        try {
+            SceneSnapshot.write(createScene(), file);
+            long size = Files.size(file);
+
+            // TC01: corrupted content
+            try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+                raf.seek(size - 5);
+                int b = raf.read();
+                raf.seek(size - 5);
+                raf.write(b ^ 0xFF);
+            }
+            assertThrows(IllegalArgumentException.class, () -> SceneSnapshot.read(file),
+                    "Corrupted snapshot was read");
+
+            // TC02: another format version
+            SceneSnapshot.write(createScene(), file);
+            try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+                raf.seek(4);
+                raf.writeInt(SceneSnapshot.VERSION + 1);
+            }
+            assertThrows(IllegalArgumentException.class, () -> SceneSnapshot.read(file),
+                    "Snapshot of another version was read");
+
+            // TC03: truncated file
+            SceneSnapshot.write(createScene(), file);
+            try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+                raf.setLength(size - 1);
+            }
+            assertThrows(IllegalArgumentException.class, () -> SceneSnapshot.read(file),
+                    "Truncated snapshot was read");
+
+            // TC04: not a snapshot
+            Files.writeString(file, "<scene/> is not a snapshot");
+            assertThrows(IllegalArgumentException.class, () -> SceneSnapshot.read(file),
+                    "Text file was read as a snapshot");
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * Compares opening a large scene from a snapshot with building its BVH.
+     * The number of triangles is set by the system property scene.triangles
+     */
+    @Test
+    void testLargeScene() {
+        Scene scene = new Scene("Triangles");
+        Material material = new Material().setKd(0.5).setKs(0.5).setShininess(30);
+        for (int i = 0; i < TRIANGLES; ++i) {
+            double x = i % 1000, y = i / 1000;
+            scene.geometries.add(new Triangle(new Point(x, y, -100), new Point(x + 1, y, -100),
+                    new Point(x, y + 1, -100.5)).setMaterial(material));
+        }
+        long start = System.nanoTime();
+        scene.geometries.makeBVH();
+        long build = System.nanoTime() - start;
+
+        Path file = null;
+        try {
+            file = Files.createTempFile("triangles", ".snapshot");
+            start = System.nanoTime();
+            SceneSnapshot.write(scene, file);
+            long write = System.nanoTime() - start;
+            start = System.nanoTime();
+            Scene restored = SceneSnapshot.read(file);
+            long read = System.nanoTime() - start;
+
+            assertEquals(scene.geometries.getGeometries().size(), restored.geometries.getGeometries().size(),
+                    "Wrong tree root");
+            System.out.printf("%d triangles: BVH build %d ms, snapshot write %d ms (%d MB), read %d ms%n",
+                    TRIANGLES, build / 1_000_000, write / 1_000_000, Files.size(file) >> 20, read / 1_000_000);
+        } catch (IOException e) {
+            fail(e);
+        } finally {
+            if (file != null)
+                try {
+                    Files.delete(file);
+                } catch (IOException ignored) {
+                    // a leftover temporary file
+                }
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package scene;
+
+import geometries.*;
+import lighting.*;
+import org.junit.jupiter.api.Test;
+import primitives.*;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link SceneStreamParser}
+ */
+class SceneStreamParserTests {
+    /**
+     * Number of triangles of the generated large scene, 1000000 for the full measurement
+     */
+    private static final int TRIANGLES = Integer.getInteger("scene.triangles", 100_000);
+
+    /**
+     * Test method for {@link SceneStreamParser#parse(Scene, String)} with all the element types
+     */
+    @Test
+    void testParse() throws Exception {
+        Path file = Files.createTempFile("scene", ".xml");
+        Files.writeString(file, """
+                <?xml version="1.0"?>
+                <scene background-color="10 20 30">
+                    <ambient-light color="255,255,255" k="0.1"/>
+                    <materials>
+                        <material name="shiny" kd="0.5" ks="0.2 0.3 0.4" shininess="60"/>
+                    </materials>
+                    <geometries>
+                        <triangle p0="0 0 0" p1="1 0 0" p2="0 1 0" material="shiny"/>
+                        <polygon vertices="0 0 1  1 0 1  1 1 1  0 1 1"/>
+                        <sphere center="0 0 -10" radius="2.5e0" emission="100 0 0">
+                            <material kd="0.3" kt=".5" kr="0.25"/>
+                        </sphere>
+                        <plane point="0 0 -100" normal="0 0 1"/>
+                        <tube origin="0 0 0" direction="0 1 0" radius="1"/>
+                        <cylinder origin="0 0 0" direction="0 1 0" radius="1" height="2"/>
+                    </geometries>
+                    <lights>
+                        <directional-light color="50 50 50" direction="0 0 -1"/>
+                        <point-light color="100 100 100" position="1 2 3" kl="0.001" kq="0.0002"/>
+                        <spot-light color="100 100 100" position="1 2 3" direction="0 0 -1"/>
+                        <rectangle-light color="100 100 100" center="0 10 0" right="1 0 0" up="0 0 1"
+                                         width="2" height="3" samples="16" adaptive="true"/>
+                        <disk-light color="100 100 100" center="0 10 0" normal="0 -1 0" radius="1"/>
+                    </lights>
+                </scene>
+                """);
+        Scene scene = new Scene("Test scene");
+        SceneStreamParser.parse(scene, file.toString());
+        Files.delete(file);
+
+        assertEquals(new Color(10, 20, 30).getRGB(), scene.background.getRGB(), "Wrong background");
+        List<Intersectable> geometries = scene.geometries.getGeometries();
+        assertEquals(6, geometries.size(), "Wrong number of geometries");
+        assertInstanceOf(Triangle.class, geometries.get(0), "Wrong geometry type");
+        assertInstanceOf(Polygon.class, geometries.get(1), "Wrong geometry type");
+        assertInstanceOf(Cylinder.class, geometries.get(5), "Wrong geometry type");
+
+        Material shiny = ((Geometry) geometries.get(0)).getMaterial();
+        assertEquals(new Double3(0.5), shiny.kD, "Wrong named material kD");
+        assertEquals(new Double3(0.2, 0.3, 0.4), shiny.kS, "Wrong named material kS");
+        assertEquals(60, shiny.nShininess, "Wrong named material shininess");
+
+        Geometry sphere = (Geometry) geometries.get(2);
+        assertEquals(new Double3(0.5), sphere.getMaterial().kT, "Wrong nested material kT");
+        assertEquals(new Double3(0.25), sphere.getMaterial().kR, "Wrong nested material kR");
+        assertEquals(new Color(100, 0, 0).getRGB(), sphere.getEmission().getRGB(), "Wrong emission");
+        assertEquals(new Double3(0), ((Geometry) geometries.get(3)).getMaterial().kD,
+                "Nested material applied to the next geometry");
+
+        assertEquals(5, scene.lights.size(), "Wrong number of lights");
+        assertInstanceOf(SpotLight.class, scene.lights.get(2), "Wrong light type");
+        assertInstanceOf(RectangleLight.class, scene.lights.get(3), "Wrong light type");
+        assertInstanceOf(DiskLight.class, scene.lights.get(4), "Wrong light type");
+    }
+
+    /**
+     * Test method for {@link SceneStreamParser#parse(Scene, String)} with invalid content
+     */
+    @Test
+    void testParseErrors() throws IOException {
+        // TC01: unknown element
+        assertParseError("<scene><cube center=\"0 0 0\"/></scene>", "line 1");
+        // TC02: missing attribute
+        assertParseError("<scene>\n<sphere radius=\"1\"/></scene>", "line 2");
+        // TC03: wrong count of numbers
+        assertParseError("<scene><sphere center=\"0 0\" radius=\"1\"/></scene>", "center");
+        // TC04: invalid number
+        assertParseError("<scene><sphere center=\"0 0 x\" radius=\"1\"/></scene>", "center");
+        // TC05: unknown material name
+        assertParseError("<scene><sphere center=\"0 0 0\" radius=\"1\" material=\"none\"/></scene>", "none");
+    }
+
+    /**
+     * Checks that parsing an XML content fails with a message containing the given text
+     *
+     * @param xml     the XML content
+     * @param message a text expected in the error message
+     * @throws IOException on I/O error of the temporary file
+     */
+    private static void assertParseError(String xml, String message) throws IOException {
+        Path file = Files.createTempFile("scene", ".xml");
+        Files.writeString(file, xml);
+        try {
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                    () -> SceneStreamParser.parse(new Scene("Test scene"), file.toString()),
+                    "Invalid scene was parsed");
+            assertTrue(e.getMessage().contains(message), "Wrong error message: " + e.getMessage());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * Test method for {@link SceneStreamParser#parseDouble(String, int, int)}
+     */
+    @Test
+    void testParseDouble() {
+        String[] numbers = {"0", "-0.5", "+12.25", "3.", ".125", "1e3", "1.5E-7", "123456789012345",
+                "1234567890.123456789", "4.9e-324", "1e400", "0.1", "-273.15", "6.02214076e23"};
+        for (String number : numbers)
+            assertEquals(Double.parseDouble(number), SceneStreamParser.parseDouble(number, 0, number.length()),
+                    "Wrong value of " + number);
+        assertEquals(2.5, SceneStreamParser.parseDouble("1 2.5 3", 2, 5), "Wrong value of a part of a string");
+        assertThrows(NumberFormatException.class, () -> SceneStreamParser.parseDouble("1e", 0, 2),
+                "Number without exponent digits was parsed");
+    }
+
+    /**
+     * Parses a generated scene of many triangles and reports the parse time and the peak heap usage.
+     * The number of triangles is set by the system property scene.triangles
+     */
+    @Test
+    void testLargeScene() throws Exception {
+        Path file = Files.createTempFile("triangles", ".xml");
+        try {
+            try (BufferedWriter out = Files.newBufferedWriter(file)) {
+                out.write("<scene background-color=\"0 0 0\">\n<ambient-light color=\"255 255 255\" k=\"0.1\"/>\n");
+                out.write("<material name=\"m\" kd=\"0.5\" ks=\"0.5\" shininess=\"30\"/>\n<geometries>\n");
+                for (int i = 0; i < TRIANGLES; ++i) {
+                    double x = i % 1000, y = i / 1000;
+                    out.write("<triangle p0=\"" + x + " " + y + " -100\" p1=\"" + (x + 1) + " " + y
+                            + " -100\" p2=\"" + x + " " + (y + 1) + " -100.5\" material=\"m\"/>\n");
+                }
+                out.write("</geometries>\n</scene>\n");
+            }
+
+            for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+                pool.resetPeakUsage();
+            long start = System.nanoTime();
+            Scene scene = new Scene("Triangles");
+            SceneStreamParser.parse(scene, file.toString());
+            long time = System.nanoTime() - start;
+            long peak = 0;
+            for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+                if (pool.getType() == MemoryType.HEAP)
+                    peak += pool.getPeakUsage().getUsed();
+
+            assertEquals(TRIANGLES, scene.geometries.getGeometries().size(), "Wrong number of triangles");
+            System.out.printf("Parsed %d triangles (%d MB file) in %d ms, peak heap %d MB%n", TRIANGLES,
+                    Files.size(file) >> 20, time / 1_000_000, peak >> 20);
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
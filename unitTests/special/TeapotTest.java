@@ -569,10 +569,20 @@ public class TeapotTest {
     };
 
     /**
-     * Produce a scene with a 3D model and render it into a png image
+     * Gets the scene of the model
+     *
+     * @return the scene
      */
-    @Test
-    public void teapot() {
+    public Scene getScene() {
+        return scene;
+    }
+
+    /**
+     * Fills the scene with the 3D model and its light
+     *
+     * @return the camera builder of the scene
+     */
+    public Camera.Builder teapotScene() {
         scene.geometries.add( //
                 new Triangle(pnts[7], pnts[6], pnts[1]).setEmission(color).setMaterial(mat), //
                 new Triangle(pnts[1], pnts[2], pnts[7]).setEmission(color).setMaterial(mat), //
@@ -1569,7 +1579,15 @@ public class TeapotTest {
         );
         scene.geometries.makeBVH();
         scene.lights.add(new PointLight(new Color(500, 500, 500), new Point(100, 0, -100)).setKq(0.000001));
-        cameraBuilder.setImageWriter(imageWriter)
+        return cameraBuilder;
+    }
+
+    /**
+     * Produce a scene with a 3D model and render it into a png image
+     */
+    @Test
+    public void teapot() {
+        teapotScene().setImageWriter(imageWriter)
                         .build().renderImage();
         cameraBuilder.build()
                 .printGrid(50, new Color(YELLOW));